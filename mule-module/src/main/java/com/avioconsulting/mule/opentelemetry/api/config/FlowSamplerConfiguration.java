@@ -0,0 +1,97 @@
+package com.avioconsulting.mule.opentelemetry.api.config;
+
+import org.mule.runtime.extension.api.annotation.param.NullSafe;
+import org.mule.runtime.extension.api.annotation.param.Optional;
+import org.mule.runtime.extension.api.annotation.param.Parameter;
+import org.mule.runtime.extension.api.annotation.param.display.DisplayName;
+import org.mule.runtime.extension.api.annotation.param.display.Placement;
+import org.mule.runtime.extension.api.annotation.param.display.Summary;
+
+import java.util.List;
+import java.util.Objects;
+
+import static java.util.Collections.emptyList;
+
+/**
+ * Rate limiting sampler applied to the root flows of transactions. Each root
+ * flow gets its own traces per second budget, so frequently called flows do not
+ * use up the sampling of rarely called ones, and a global ceiling caps all
+ * flows together.
+ */
+public class FlowSamplerConfiguration {
+
+  @Parameter
+  @Optional(defaultValue = "false")
+  @Placement(order = 10, tab = "Tracer Settings")
+  @DisplayName("Enable Flow Sampler")
+  @Summary("Rate limit sampled traces per root flow. Applies on top of the sampler configured with otel.traces.sampler.")
+  private boolean enabled;
+
+  @Parameter
+  @Optional(defaultValue = "10")
+  @Placement(order = 20, tab = "Tracer Settings")
+  @DisplayName("Traces per Second per Flow")
+  @Summary("Maximum number of traces per second sampled for each root flow.")
+  private double tracesPerSecondPerFlow;
+
+  @Parameter
+  @Optional(defaultValue = "100")
+  @Placement(order = 30, tab = "Tracer Settings")
+  @DisplayName("Max Traces per Second")
+  @Summary("Maximum number of traces per second sampled for all root flows together. When busy flows would exceed it, their rates are lowered so that every active flow keeps an equal share.")
+  private double maxTracesPerSecond;
+
+  @Parameter
+  @NullSafe
+  @Optional
+  @Placement(order = 40, tab = "Tracer Settings")
+  @DisplayName("Flow Sampling Rates")
+  @Summary("Traces per second targets for specific root flows, overriding Traces per Second per Flow.")
+  private List<FlowSamplingRate> flowSamplingRates;
+
+  public FlowSamplerConfiguration() {
+  }
+
+  public FlowSamplerConfiguration(boolean enabled, double tracesPerSecondPerFlow, double maxTracesPerSecond,
+      List<FlowSamplingRate> flowSamplingRates) {
+    this.enabled = enabled;
+    this.tracesPerSecondPerFlow = tracesPerSecondPerFlow;
+    this.maxTracesPerSecond = maxTracesPerSecond;
+    this.flowSamplingRates = flowSamplingRates;
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public double getTracesPerSecondPerFlow() {
+    return tracesPerSecondPerFlow;
+  }
+
+  public double getMaxTracesPerSecond() {
+    return maxTracesPerSecond;
+  }
+
+  public List<FlowSamplingRate> getFlowSamplingRates() {
+    return flowSamplingRates == null ? emptyList() : flowSamplingRates;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o)
+      return true;
+    if (o == null || getClass() != o.getClass())
+      return false;
+    FlowSamplerConfiguration that = (FlowSamplerConfiguration) o;
+    return isEnabled() == that.isEnabled()
+        && Double.compare(getTracesPerSecondPerFlow(), that.getTracesPerSecondPerFlow()) == 0
+        && Double.compare(getMaxTracesPerSecond(), that.getMaxTracesPerSecond()) == 0
+        && getFlowSamplingRates().equals(that.getFlowSamplingRates());
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(isEnabled(), getTracesPerSecondPerFlow(), getMaxTracesPerSecond(),
+        getFlowSamplingRates());
+  }
+}
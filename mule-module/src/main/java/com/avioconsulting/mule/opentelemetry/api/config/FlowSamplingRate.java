@@ -0,0 +1,70 @@
+package com.avioconsulting.mule.opentelemetry.api.config;
+
+import org.mule.runtime.extension.api.annotation.param.Parameter;
+import org.mule.runtime.extension.api.annotation.param.display.Example;
+import org.mule.runtime.extension.api.annotation.param.display.Summary;
+
+import java.util.Objects;
+
+/**
+ * Traces per second target of a single root flow, see
+ * {@link FlowSamplerConfiguration}.
+ */
+public class FlowSamplingRate {
+
+  @Parameter
+  @Summary("Name of the flow starting the transaction")
+  @Example("orders-api-main")
+  private String flowName;
+
+  @Parameter
+  @Summary("Maximum number of traces per second sampled for this flow")
+  @Example("5")
+  private double tracesPerSecond;
+
+  public FlowSamplingRate() {
+
+  }
+
+  public FlowSamplingRate(String flowName, double tracesPerSecond) {
+    this.flowName = flowName;
+    this.tracesPerSecond = tracesPerSecond;
+  }
+
+  public String getFlowName() {
+    return flowName;
+  }
+
+  public void setFlowName(String flowName) {
+    this.flowName = flowName;
+  }
+
+  public double getTracesPerSecond() {
+    return tracesPerSecond;
+  }
+
+  public void setTracesPerSecond(double tracesPerSecond) {
+    this.tracesPerSecond = tracesPerSecond;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o)
+      return true;
+    if (o == null || getClass() != o.getClass())
+      return false;
+    FlowSamplingRate that = (FlowSamplingRate) o;
+    return Double.compare(getTracesPerSecond(), that.getTracesPerSecond()) == 0
+        && Objects.equals(getFlowName(), that.getFlowName());
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(getFlowName(), getTracesPerSecond());
+  }
+
+  @Override
+  public String toString() {
+    return getFlowName() + "=" + getTracesPerSecond();
+  }
+}
@@ -153,4 +153,11 @@ public final class SemanticAttributes {
   public static final AttributeKey<String> MULE_BATCH_JOB_STEP_NAME = stringKey("mule.batch.job.step.name");
   public static final AttributeKey<String> MULE_BATCH_JOB_STEP_AGGREGATOR_RECORD_COUNT = stringKey(
       "mule.batch.job.step.aggregator.recordCount");
+
+  /**
+   * Reason a transaction was evicted from the transaction store before it ended,
+   * eg. capacity or idle.
+   */
+  public static final AttributeKey<String> MULE_APP_TRANSACTION_EVICTED = stringKey(
+      "mule.app.transaction.evicted");
 }
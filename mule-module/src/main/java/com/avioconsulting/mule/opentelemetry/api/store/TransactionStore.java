@@ -83,6 +83,20 @@ public interface TransactionStore {
    */
   TransactionContext getTransactionContext(String transactionId, String componentLocation);
 
+  /**
+   * Check if the root span of a transaction is recording. A span that is not
+   * recording belongs to a trace that was not sampled, so the spans of processors
+   * in that transaction will not be recorded either.
+   *
+   * @param transactionId
+   *            A unique transaction id within the context of an application. Eg.
+   *            Correlation id.
+   * @return false only when the transaction exists and is not recording
+   */
+  default boolean isRecording(String transactionId) {
+    return true;
+  }
+
   /**
    * End a transaction represented by provided transaction id and rootFlowName, if
    * exists. {@link
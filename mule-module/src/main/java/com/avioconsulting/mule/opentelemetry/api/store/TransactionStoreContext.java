@@ -0,0 +1,19 @@
+package com.avioconsulting.mule.opentelemetry.api.store;
+
+import io.opentelemetry.api.trace.SpanBuilder;
+
+/**
+ * Module services available to a {@link TransactionStore} created by a
+ * {@link TransactionStoreProvider}.
+ */
+public interface TransactionStoreContext {
+
+  /**
+   * Create a {@link SpanBuilder} with the module's tracer.
+   *
+   * @param name
+   *            {@link String} name of the span
+   * @return {@link SpanBuilder}
+   */
+  SpanBuilder spanBuilder(String name);
+}
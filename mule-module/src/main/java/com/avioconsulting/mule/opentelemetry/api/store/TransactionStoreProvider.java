@@ -0,0 +1,33 @@
+package com.avioconsulting.mule.opentelemetry.api.store;
+
+/**
+ * Service provider for {@link TransactionStore} implementations. Providers are
+ * discovered with {@link java.util.ServiceLoader} from the module and the
+ * application classloader, and selected by their {@link #getName()} using the
+ * {@code mule.otel.transaction.store} system property.
+ */
+public interface TransactionStoreProvider {
+
+  /**
+   * Name used to select this provider.
+   *
+   * @return {@link String} name of the provider
+   */
+  String getName();
+
+  /**
+   * Get the {@link TransactionStore} instance of this provider.
+   *
+   * @param context
+   *            {@link TransactionStoreContext} to create spans with
+   * @return {@link TransactionStore}
+   */
+  TransactionStore getTransactionStore(TransactionStoreContext context);
+
+  /**
+   * Stop the {@link TransactionStore} instance of this provider and release its
+   * resources, such as background threads. Called when the module stops.
+   */
+  default void stop() {
+  }
+}
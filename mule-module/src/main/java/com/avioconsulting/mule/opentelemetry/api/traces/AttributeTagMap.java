@@ -0,0 +1,36 @@
+package com.avioconsulting.mule.opentelemetry.api.traces;
+
+import io.opentelemetry.api.common.AttributeKey;
+
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Tag {@link Map} that knows the {@link AttributeKey} of its well-known keys.
+ */
+public interface AttributeTagMap extends Map<String, String> {
+
+  /**
+   * Associates the value with a key whose slot is already resolved.
+   *
+   * @param key
+   *            {@link TagKey} to set
+   * @param value
+   *            tag value
+   * @return the previous value for the key, or null
+   */
+  String put(TagKey key, String value);
+
+  /**
+   * Performs the given action for each tag with its {@link AttributeKey}.
+   * Well-known keys are pre-resolved, only custom keys go through the
+   * {@code keyResolver}.
+   *
+   * @param keyResolver
+   *            resolves {@link AttributeKey} for custom tag keys
+   * @param action
+   *            action to perform
+   */
+  void forEachAttribute(Function<String, AttributeKey<?>> keyResolver, BiConsumer<AttributeKey<?>, String> action);
+}
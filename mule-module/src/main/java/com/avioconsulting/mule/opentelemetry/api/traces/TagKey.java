@@ -0,0 +1,138 @@
+package com.avioconsulting.mule.opentelemetry.api.traces;
+
+import com.avioconsulting.mule.opentelemetry.api.sdk.SemanticAttributes;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.semconv.ErrorAttributes;
+import io.opentelemetry.semconv.HttpAttributes;
+import io.opentelemetry.semconv.ServerAttributes;
+import io.opentelemetry.semconv.UrlAttributes;
+import io.opentelemetry.semconv.UserAgentAttributes;
+import io.opentelemetry.semconv.incubating.DbIncubatingAttributes;
+import io.opentelemetry.semconv.incubating.MessagingIncubatingAttributes;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tag key with its well-known attribute slot resolved once. Meant to be held in
+ * constants, so adding a tag with it to an {@link AttributeTagMap} skips the key
+ * lookup.
+ *
+ * Well-known keys are the keys the module sets on spans: all
+ * {@link SemanticAttributes} and the semantic convention keys of the
+ * components the module instruments. Other keys have no slot.
+ */
+public final class TagKey {
+
+  private static final AttributeKey<?>[] SLOT_KEYS;
+  private static final Map<String, Integer> SLOTS;
+
+  static {
+    Map<String, AttributeKey<?>> keys = new LinkedHashMap<>();
+    for (Field field : SemanticAttributes.class.getDeclaredFields()) {
+      if (Modifier.isStatic(field.getModifiers()) && field.getType().isAssignableFrom(AttributeKey.class)) {
+        try {
+          AttributeKey<?> key = (AttributeKey<?>) field.get(null);
+          keys.put(key.getKey(), key);
+        } catch (IllegalAccessException e) {
+          throw new RuntimeException(e);
+        }
+      }
+    }
+    // Typed semantic convention keys replace the string overrides of
+    // SemanticAttributes, same as the attribute key cache resolves them
+    List<AttributeKey<?>> emitted = Arrays.asList(
+        HttpAttributes.HTTP_REQUEST_METHOD,
+        HttpAttributes.HTTP_RESPONSE_STATUS_CODE,
+        HttpAttributes.HTTP_ROUTE,
+        UrlAttributes.URL_FULL,
+        UrlAttributes.URL_PATH,
+        UrlAttributes.URL_QUERY,
+        UrlAttributes.URL_SCHEME,
+        ServerAttributes.SERVER_ADDRESS,
+        ServerAttributes.SERVER_PORT,
+        UserAgentAttributes.USER_AGENT_ORIGINAL,
+        ErrorAttributes.ERROR_TYPE,
+        DbIncubatingAttributes.DB_SYSTEM,
+        DbIncubatingAttributes.DB_NAMESPACE,
+        DbIncubatingAttributes.DB_OPERATION_NAME,
+        DbIncubatingAttributes.DB_QUERY_TEXT,
+        MessagingIncubatingAttributes.MESSAGING_SYSTEM,
+        MessagingIncubatingAttributes.MESSAGING_OPERATION_NAME,
+        MessagingIncubatingAttributes.MESSAGING_DESTINATION_NAME,
+        MessagingIncubatingAttributes.MESSAGING_MESSAGE_ID,
+        MessagingIncubatingAttributes.MESSAGING_CLIENT_ID);
+    for (AttributeKey<?> key : emitted) {
+      keys.put(key.getKey(), key);
+    }
+    SLOT_KEYS = keys.values().toArray(new AttributeKey<?>[0]);
+    Map<String, Integer> slots = new HashMap<>(SLOT_KEYS.length * 2);
+    for (int i = 0; i < SLOT_KEYS.length; i++) {
+      slots.put(SLOT_KEYS[i].getKey(), i);
+    }
+    SLOTS = slots;
+  }
+
+  private final AttributeKey<?> attributeKey;
+  private final int slot;
+
+  private TagKey(AttributeKey<?> attributeKey, int slot) {
+    this.attributeKey = attributeKey;
+    this.slot = slot;
+  }
+
+  public static TagKey of(AttributeKey<?> attributeKey) {
+    return new TagKey(attributeKey, slotOf(attributeKey.getKey()));
+  }
+
+  /**
+   * Get the fixed slot of a well-known attribute key.
+   *
+   * @param key
+   *            {@link String} attribute key
+   * @return slot between 0 and {@link #slotCount()} or -1 if key isn't a
+   *         well-known attribute
+   */
+  public static int slotOf(String key) {
+    Integer slot = SLOTS.get(key);
+    return slot == null ? -1 : slot;
+  }
+
+  /**
+   * @param slot
+   *            slot returned by {@link #slotOf(String)}
+   * @return {@link AttributeKey} for the slot
+   */
+  public static AttributeKey<?> slotKey(int slot) {
+    return SLOT_KEYS[slot];
+  }
+
+  public static int slotCount() {
+    return SLOT_KEYS.length;
+  }
+
+  public String getKey() {
+    return attributeKey.getKey();
+  }
+
+  public AttributeKey<?> getAttributeKey() {
+    return attributeKey;
+  }
+
+  /**
+   * @return well-known attribute slot or -1 if key isn't a well-known attribute
+   */
+  public int getSlot() {
+    return slot;
+  }
+
+  @Override
+  public String toString() {
+    return getKey();
+  }
+}
@@ -1,6 +1,8 @@
 package com.avioconsulting.mule.opentelemetry.api.traces;
 
 import com.avioconsulting.mule.opentelemetry.internal.util.StringUtil;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
 import io.opentelemetry.api.trace.SpanKind;
 import io.opentelemetry.api.trace.StatusCode;
 import io.opentelemetry.context.Context;
@@ -11,7 +13,9 @@ import java.time.Instant;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.function.BiConsumer;
 import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.function.Predicate;
 
 import static com.avioconsulting.mule.opentelemetry.internal.util.StringUtil.UNDERSCORE;
@@ -26,11 +30,24 @@ import static com.avioconsulting.mule.opentelemetry.internal.util.StringUtil.UND
  * control.
  */
 public class TraceComponent implements ComponentEventContext, AutoCloseable, Clearable, Taggable<String, String> {
+  /**
+   * Location id of components whose location is not known to the application's
+   * location registry.
+   */
+  public static final int UNKNOWN_LOCATION_ID = -1;
   private final Map<String, String> tags;
+  /**
+   * Read-only tags shared by all trace components of a location, along with
+   * their pre-built {@link Attributes}. See
+   * {@link #withStaticTags(Map, Attributes)}.
+   */
+  private Map<String, String> staticTags;
+  private Attributes staticAttributes;
   private String name;
   private String transactionId;
   private String spanName;
   private String location;
+  private int locationId = UNKNOWN_LOCATION_ID;
   private Context context;
   private SpanKind spanKind;
   private String errorMessage;
@@ -141,9 +158,60 @@ public class TraceComponent implements ComponentEventContext, AutoCloseable, Cle
    * @return an unmodifiable map containing the tags as key-value pairs
    */
   public Map<String, String> getReadOnlyTags() {
+    if (staticTags != null) {
+      Map<String, String> allTags = new HashMap<>(staticTags);
+      allTags.putAll(tags);
+      return Collections.unmodifiableMap(allTags);
+    }
     return Collections.unmodifiableMap(tags);
   }
 
+  /**
+   * Set the static tags of the component location and their pre-built
+   * {@link Attributes}. Static tags are not copied into the tags of this
+   * component, they are read through on tag lookups and applied to spans as a
+   * whole with {@link #getStaticAttributes()}. Tags added to this component
+   * take precedence over the static tags.
+   *
+   * If static tags were already set, the given tags are added as regular tags.
+   *
+   * @param staticTags
+   *            read-only {@link Map} of tags
+   * @param staticAttributes
+   *            {@link Attributes} built from the same tags
+   * @return this {@link TraceComponent}
+   */
+  public TraceComponent withStaticTags(Map<String, String> staticTags, Attributes staticAttributes) {
+    if (this.staticTags != null) {
+      addAllTags(staticTags);
+      return this;
+    }
+    this.staticTags = staticTags;
+    this.staticAttributes = staticAttributes;
+    return this;
+  }
+
+  /**
+   * @return pre-built {@link Attributes} of the static tags or null if none
+   *         were set
+   */
+  public Attributes getStaticAttributes() {
+    return staticAttributes;
+  }
+
+  /**
+   * Moves static tags into the regular tags so they can be modified.
+   */
+  private void materializeStaticTags() {
+    if (staticTags == null)
+      return;
+    if (tags != null) {
+      staticTags.forEach(tags::putIfAbsent);
+    }
+    staticTags = null;
+    staticAttributes = null;
+  }
+
   public TraceComponent setName(String name) {
     this.name = name;
     return this;
@@ -169,6 +237,16 @@ public class TraceComponent implements ComponentEventContext, AutoCloseable, Cle
     return location;
   }
 
+  /**
+   * Dense id of {@link #getLocation()} in the application's location registry,
+   * resolved once when the component is created.
+   *
+   * @return location id or {@link #UNKNOWN_LOCATION_ID}
+   */
+  public int getLocationId() {
+    return locationId;
+  }
+
   public String getErrorMessage() {
     return errorMessage;
   }
@@ -205,13 +283,21 @@ public class TraceComponent implements ComponentEventContext, AutoCloseable, Cle
 
   public TraceComponent withLocation(String val) {
     location = val;
-    if (val == null) {
-      contextScopedLocation = null;
-      return this;
-    }
-    if (getEventContextId() != null && contextScopedLocation == null) {
-      contextScopedLocation = getEventContextId() + "/" + val;
-    }
+    locationId = UNKNOWN_LOCATION_ID;
+    contextScopedLocation = null;
+    return this;
+  }
+
+  /**
+   * Set the id of the current location. Must be called after
+   * {@link #withLocation(String)}, which resets the id.
+   *
+   * @param locationId
+   *            id of the location in the application's location registry
+   * @return this {@link TraceComponent}
+   */
+  public TraceComponent withLocationId(int locationId) {
+    this.locationId = locationId;
     return this;
   }
 
@@ -247,15 +333,12 @@ public class TraceComponent implements ComponentEventContext, AutoCloseable, Cle
 
   public TraceComponent withEventContextId(String eventContextId) {
     this.eventContextId = eventContextId;
+    contextScopedLocation = null;
     if (eventContextId == null) {
-      contextScopedLocation = null;
       eventContextPrimaryId = null;
       contextNestingLevel = 0;
       return this;
     }
-    if (getLocation() != null && contextScopedLocation == null) {
-      contextScopedLocation = eventContextId + "/" + getLocation();
-    }
     eventContextPrimaryId = eventContextId.contains(UNDERSCORE)
         ? eventContextId.substring(0, eventContextId.indexOf(UNDERSCORE))
         : eventContextId;
@@ -282,6 +365,10 @@ public class TraceComponent implements ComponentEventContext, AutoCloseable, Cle
   }
 
   public String contextScopedLocation() {
+    // Built lazily as span bookkeeping does not need the concatenated path
+    if (contextScopedLocation == null && eventContextId != null && location != null) {
+      contextScopedLocation = eventContextId + "/" + location;
+    }
     return contextScopedLocation;
   }
 
@@ -299,9 +386,30 @@ public class TraceComponent implements ComponentEventContext, AutoCloseable, Cle
     }
   }
 
+  /**
+   * Adds a tag with a {@link TagKey} constant, skipping the key lookup when tags
+   * are kept in an {@link AttributeTagMap}.
+   *
+   * @param key
+   *            {@link TagKey} of the tag
+   * @param value
+   *            tag value
+   */
+  public void addTag(TagKey key, String value) {
+    if (tags instanceof AttributeTagMap) {
+      ((AttributeTagMap) tags).put(key, value);
+    } else if (tags != null) {
+      tags.put(key.getKey(), value);
+    }
+  }
+
   public String getTag(String key) {
     if (tags != null) {
-      return tags.get(key);
+      String value = tags.get(key);
+      if (value == null && staticTags != null) {
+        return staticTags.get(key);
+      }
+      return value;
     }
     return null;
   }
@@ -314,6 +422,9 @@ public class TraceComponent implements ComponentEventContext, AutoCloseable, Cle
 
   public String removeTag(String key) {
     if (tags != null) {
+      if (staticTags != null && staticTags.containsKey(key)) {
+        materializeStaticTags();
+      }
       return tags.remove(key);
     }
     return null;
@@ -321,6 +432,9 @@ public class TraceComponent implements ComponentEventContext, AutoCloseable, Cle
 
   public void copyTagsTo(Map<String, String> target) {
     if (tags != null && target != null) {
+      if (staticTags != null) {
+        target.putAll(staticTags);
+      }
       target.putAll(tags);
     }
   }
@@ -329,8 +443,20 @@ public class TraceComponent implements ComponentEventContext, AutoCloseable, Cle
   public void copyTagsTo(Taggable<String, String> target) {
     if (!(target instanceof TraceComponent))
       return;
-    if (tags != null && ((TraceComponent) target).tags != null) {
-      ((TraceComponent) target).tags.putAll(tags);
+    TraceComponent other = ((TraceComponent) target);
+    if (tags != null && other.tags != null) {
+      if (staticTags != null) {
+        if (other.staticTags == null) {
+          // Share the static tags, any same key tags in target are replaced by
+          // them
+          staticTags.keySet().forEach(other.tags::remove);
+          other.staticTags = staticTags;
+          other.staticAttributes = staticAttributes;
+        } else if (other.staticTags != staticTags) {
+          other.tags.putAll(staticTags);
+        }
+      }
+      other.tags.putAll(tags);
     }
   }
 
@@ -340,6 +466,13 @@ public class TraceComponent implements ComponentEventContext, AutoCloseable, Cle
       return;
     TraceComponent other = ((TraceComponent) target);
     if (tags != null && other.tags != null) {
+      if (staticTags != null) {
+        staticTags.forEach((key, value) -> {
+          if (keyFilter.test(key)) {
+            other.tags.put(key, value);
+          }
+        });
+      }
       tags.forEach((key, value) -> {
         if (keyFilter.test(key)) {
           other.tags.put(key, value);
@@ -350,26 +483,62 @@ public class TraceComponent implements ComponentEventContext, AutoCloseable, Cle
 
   @Override
   public boolean hasTagFor(String key) {
-    return tags != null && tags.containsKey(key);
+    return tags != null && (tags.containsKey(key) || (staticTags != null && staticTags.containsKey(key)));
   }
 
   @Override
   public boolean hasTags() {
-    return tags != null && !tags.isEmpty();
+    return tags != null && (!tags.isEmpty() || (staticTags != null && !staticTags.isEmpty()));
   }
 
   @Override
   public boolean containsTag(String key, String value) {
-    return tags != null && tags.containsKey(key) && tags.get(key).equals(value);
+    return hasTagFor(key) && getTag(key).equals(value);
   }
 
   @Override
   public void forEachTagEntry(Consumer<Map.Entry<String, String>> consumer) {
+    // Entries may be modified by the consumer
+    materializeStaticTags();
+    forEachDynamicTagEntry(consumer);
+  }
+
+  /**
+   * Performs the given action for each tag entry, excluding the static tags set
+   * with {@link #withStaticTags(Map, Attributes)}.
+   *
+   * @param consumer
+   *            the action to be performed for each tag entry
+   */
+  public void forEachDynamicTagEntry(Consumer<Map.Entry<String, String>> consumer) {
     if (tags.isEmpty())
       return;
     tags.entrySet().forEach(consumer);
   }
 
+  /**
+   * Performs the given action for each tag with its {@link AttributeKey},
+   * excluding the static tags that are available as
+   * {@link #getStaticAttributes()}. When tags are kept in an
+   * {@link AttributeTagMap}, well-known keys are already resolved and only
+   * custom keys go through the {@code keyResolver}.
+   *
+   * @param keyResolver
+   *            resolves {@link AttributeKey} for a tag key
+   * @param action
+   *            action to perform for each attribute key and tag value
+   */
+  public void forEachTagAttribute(Function<String, AttributeKey<?>> keyResolver,
+      BiConsumer<AttributeKey<?>, String> action) {
+    if (tags == null || tags.isEmpty())
+      return;
+    if (tags instanceof AttributeTagMap) {
+      ((AttributeTagMap) tags).forEachAttribute(keyResolver, action);
+    } else {
+      tags.forEach((key, value) -> action.accept(keyResolver.apply(key), value));
+    }
+  }
+
   /**
    * Clears all fields for returning to pool.
    */
@@ -389,6 +558,8 @@ public class TraceComponent implements ComponentEventContext, AutoCloseable, Cle
         .withComponentLocation(null)
         .withSiblings(-1);
 
+    staticTags = null;
+    staticAttributes = null;
     // Clear the embedded tags map
     if (tags != null) {
       tags.clear();
@@ -399,6 +570,7 @@ public class TraceComponent implements ComponentEventContext, AutoCloseable, Cle
   public String toString() {
     return "TraceComponent{" +
         "tags=" + tags +
+        ", staticTags=" + staticTags +
         ", name='" + name + '\'' +
         ", transactionId='" + transactionId + '\'' +
         ", spanName='" + spanName + '\'' +
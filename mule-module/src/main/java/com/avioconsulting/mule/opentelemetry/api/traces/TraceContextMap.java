@@ -0,0 +1,72 @@
+package com.avioconsulting.mule.opentelemetry.api.traces;
+
+import io.opentelemetry.context.propagation.TextMapPropagator;
+
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable trace context {@link Map} of a {@link TransactionContext}.
+ * <p>
+ * Transaction id, trace id and span id entries are read from the transaction
+ * context without copying. Entries added by the propagator, such as
+ * `traceparent` and `tracestate` for W3C Trace Context, are injected only when
+ * one of them is read or the map is iterated. Flows that never read the trace
+ * context do not pay for encoding the propagation headers. Injected entries are
+ * cached on the transaction context and shared by all maps of the same span.
+ * <p>
+ * Serialized as a {@link HashMap} with all entries.
+ */
+public final class TraceContextMap extends AbstractMap<String, Object> implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  private final transient TransactionContext transactionContext;
+  private final transient TextMapPropagator propagator;
+
+  public TraceContextMap(TransactionContext transactionContext, TextMapPropagator propagator) {
+    this.transactionContext = transactionContext;
+    this.propagator = propagator;
+  }
+
+  @Override
+  public Object get(Object key) {
+    Map<String, Object> contextEntries = transactionContext.getTraceContextEntries();
+    Object value = contextEntries.get(key);
+    if (value != null || contextEntries.containsKey(key)) {
+      return value;
+    }
+    return getEntries().get(key);
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    return transactionContext.getTraceContextEntries().containsKey(key) || getEntries().containsKey(key);
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return transactionContext.getTraceContextEntries().isEmpty() && getEntries().isEmpty();
+  }
+
+  @Override
+  public int size() {
+    return getEntries().size();
+  }
+
+  @Override
+  public Set<Entry<String, Object>> entrySet() {
+    return getEntries().entrySet();
+  }
+
+  private Map<String, Object> getEntries() {
+    return transactionContext.getPropagatedTraceContextMap(propagator);
+  }
+
+  private Object writeReplace() {
+    return new HashMap<>(getEntries());
+  }
+}
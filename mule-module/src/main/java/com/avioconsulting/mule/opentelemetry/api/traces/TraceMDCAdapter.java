@@ -0,0 +1,37 @@
+package com.avioconsulting.mule.opentelemetry.api.traces;
+
+/**
+ * Writes the trace id and span id of the current processor to the logging
+ * MDC. Adapters are discovered with {@link java.util.ServiceLoader} from the
+ * application classloader and selected by their {@link #getName()} using the
+ * {@code mule.otel.mdc.adapter} system property.
+ */
+public interface TraceMDCAdapter {
+
+  /**
+   * Name used to select this adapter.
+   *
+   * @return {@link String} name of the adapter
+   */
+  String getName();
+
+  /**
+   * Write the trace id and span id pair. A null value leaves the corresponding
+   * MDC entry unchanged.
+   *
+   * @param traceId
+   *            32-hex-character lowercase trace id
+   * @param spanId
+   *            16-hex-character lowercase span id
+   */
+  void put(String traceId, String spanId);
+
+  /**
+   * Get the span id currently in the MDC. Used to detect MDC entries that were
+   * cleared or replaced outside of this module, eg. by the runtime between
+   * events on pooled threads.
+   *
+   * @return {@link String} span id or null
+   */
+  String getSpanId();
+}
@@ -1,12 +1,15 @@
 package com.avioconsulting.mule.opentelemetry.api.traces;
 
 import com.avioconsulting.mule.opentelemetry.api.store.TransactionStore;
+import com.avioconsulting.mule.opentelemetry.internal.connection.OpenTelemetryConnection.HashMapObjectMapSetter;
 import com.avioconsulting.mule.opentelemetry.internal.store.Transaction;
 import io.opentelemetry.api.trace.Span;
 import io.opentelemetry.api.trace.SpanId;
 import io.opentelemetry.api.trace.TraceId;
 import io.opentelemetry.context.Context;
+import io.opentelemetry.context.propagation.TextMapPropagator;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
@@ -29,12 +32,34 @@ public class TransactionContext {
    */
   private String traceId = TraceId.getInvalid();
 
+  /**
+   * Propagator entries injected for this context, see
+   * {@link #getPropagatedTraceContextMap(TextMapPropagator)}.
+   */
+  private volatile PropagatedEntries propagatedEntries;
+
   public static TransactionContext of(Span span, Transaction transaction) {
+    return of(span, span.storeInContext(Context.current()), transaction.getTransactionId());
+  }
+
+  /**
+   * Create transaction context of a span that is already stored in a
+   * {@link Context}.
+   *
+   * @param span
+   *            {@link Span}
+   * @param context
+   *            {@link Context} containing the span
+   * @param transactionId
+   *            Local transaction id
+   * @return TransactionContext
+   */
+  public static TransactionContext of(Span span, Context context, String transactionId) {
     TransactionContext transactionContext = new TransactionContext();
-    transactionContext.context = span.storeInContext(Context.current());
+    transactionContext.context = context;
     transactionContext.spanId = span.getSpanContext().getSpanId();
     transactionContext.traceId = span.getSpanContext().getTraceId();
-    transactionContext.traceContextMap.put(TRACE_TRANSACTION_ID, transaction.getTransactionId());
+    transactionContext.traceContextMap.put(TRACE_TRANSACTION_ID, transactionId);
     transactionContext.traceContextMap.put(TransactionStore.traceId, transactionContext.getTraceId());
     transactionContext.traceContextMap.put(TransactionStore.spanId, transactionContext.getSpanId());
     return transactionContext;
@@ -52,6 +77,36 @@ public class TransactionContext {
     return new HashMap<>(traceContextMap);
   }
 
+  /**
+   * Entries of the trace context map without copying. Must not be modified.
+   *
+   * @return Map
+   */
+  Map<String, Object> getTraceContextEntries() {
+    return traceContextMap;
+  }
+
+  /**
+   * Get the trace context entries along with the entries injected by the
+   * propagator, such as `traceparent`. The context of a span never changes, so
+   * the entries are injected once per propagator and reused by later calls.
+   *
+   * @param propagator
+   *            {@link TextMapPropagator} to inject entries with
+   * @return unmodifiable Map
+   */
+  Map<String, Object> getPropagatedTraceContextMap(TextMapPropagator propagator) {
+    PropagatedEntries entries = propagatedEntries;
+    if (entries == null || entries.propagator != propagator) {
+      Map<String, Object> map = new HashMap<>(traceContextMap);
+      propagator.inject(context, map, HashMapObjectMapSetter.INSTANCE);
+      // Concurrent callers may inject the same entries, any of them can be kept
+      entries = new PropagatedEntries(propagator, Collections.unmodifiableMap(map));
+      propagatedEntries = entries;
+    }
+    return entries.entries;
+  }
+
   public String getSpanId() {
     return spanId;
   }
@@ -75,4 +130,14 @@ public class TransactionContext {
   public int hashCode() {
     return Objects.hash(getContext(), getSpanId(), getTraceId());
   }
+
+  private static final class PropagatedEntries {
+    private final TextMapPropagator propagator;
+    private final Map<String, Object> entries;
+
+    private PropagatedEntries(TextMapPropagator propagator, Map<String, Object> entries) {
+      this.propagator = propagator;
+      this.entries = entries;
+    }
+  }
 }
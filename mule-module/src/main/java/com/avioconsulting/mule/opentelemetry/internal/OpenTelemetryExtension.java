@@ -10,6 +10,8 @@ import com.avioconsulting.mule.opentelemetry.api.providers.NoopOpenTelemetryMetr
 import com.avioconsulting.mule.opentelemetry.api.providers.OpenTelemetryMetricsConfigProvider;
 import com.avioconsulting.mule.opentelemetry.api.providers.OpenTelemetryMetricsConfigSupplier;
 import com.avioconsulting.mule.opentelemetry.api.providers.OpenTelemetryMetricsProvider;
+import com.avioconsulting.mule.opentelemetry.api.store.TransactionStoreProvider;
+import com.avioconsulting.mule.opentelemetry.api.traces.TraceMDCAdapter;
 import com.avioconsulting.mule.opentelemetry.internal.config.OpenTelemetryExtensionConfiguration;
 import com.avioconsulting.mule.opentelemetry.logs.api.LogsApiPackageMarker;
 import org.mule.runtime.extension.api.annotation.Configurations;
@@ -29,7 +31,7 @@ import org.mule.sdk.api.meta.JavaVersion;
     NoopOpenTelemetryMetricsConfigProvider.class })
 @Export(classes = { OpenTelemetryMetricsConfigProvider.class, AppIdentifier.class, OpenTelemetryMetricsProvider.class,
     MetricBaseNotificationData.class, OpenTelemetryMetricsConfigSupplier.class,
-    LogsApiPackageMarker.class }, resources = {
+    LogsApiPackageMarker.class, TraceMDCAdapter.class, TransactionStoreProvider.class }, resources = {
         "com/avioconsulting/mule/opentelemetry/internal/interceptor/intercept-components.txt" })
 @JavaVersionSupport({ JavaVersion.JAVA_8, JavaVersion.JAVA_11, JavaVersion.JAVA_17 })
 public class OpenTelemetryExtension {
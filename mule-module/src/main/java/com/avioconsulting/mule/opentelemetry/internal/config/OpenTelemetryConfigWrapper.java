@@ -1,5 +1,6 @@
 package com.avioconsulting.mule.opentelemetry.internal.config;
 
+import com.avioconsulting.mule.opentelemetry.api.config.FlowSamplerConfiguration;
 import com.avioconsulting.mule.opentelemetry.api.config.OpenTelemetryResource;
 import com.avioconsulting.mule.opentelemetry.api.config.SpanProcessorConfiguration;
 import com.avioconsulting.mule.opentelemetry.api.config.exporter.OpenTelemetryExporter;
@@ -27,6 +28,10 @@ public class OpenTelemetryConfigWrapper {
     return openTelemetryConfiguration.getSpanProcessorConfiguration();
   }
 
+  public FlowSamplerConfiguration getFlowSamplerConfiguration() {
+    return openTelemetryConfiguration.getFlowSamplerConfiguration();
+  }
+
   public boolean isTurnOffTracing() {
     return openTelemetryConfiguration.isTurnOffTracing();
   }
@@ -2,6 +2,7 @@ package com.avioconsulting.mule.opentelemetry.internal.config;
 
 import com.avioconsulting.mule.opentelemetry.api.AppIdentifier;
 import com.avioconsulting.mule.opentelemetry.api.config.ExporterConfiguration;
+import com.avioconsulting.mule.opentelemetry.api.config.FlowSamplerConfiguration;
 import com.avioconsulting.mule.opentelemetry.api.config.OpenTelemetryResource;
 import com.avioconsulting.mule.opentelemetry.api.config.SpanProcessorConfiguration;
 import com.avioconsulting.mule.opentelemetry.api.config.TraceLevelConfiguration;
@@ -21,6 +22,8 @@ public interface OpenTelemetryConfiguration {
 
   SpanProcessorConfiguration getSpanProcessorConfiguration();
 
+  FlowSamplerConfiguration getFlowSamplerConfiguration();
+
   OpenTelemetryResource getResource();
 
   String getConfigName();
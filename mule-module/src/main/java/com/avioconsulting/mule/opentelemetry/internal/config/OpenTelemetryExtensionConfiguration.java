@@ -2,6 +2,7 @@ package com.avioconsulting.mule.opentelemetry.internal.config;
 
 import com.avioconsulting.mule.opentelemetry.api.AppIdentifier;
 import com.avioconsulting.mule.opentelemetry.api.config.ExporterConfiguration;
+import com.avioconsulting.mule.opentelemetry.api.config.FlowSamplerConfiguration;
 import com.avioconsulting.mule.opentelemetry.api.config.OpenTelemetryResource;
 import com.avioconsulting.mule.opentelemetry.api.config.SpanProcessorConfiguration;
 import com.avioconsulting.mule.opentelemetry.api.config.TraceLevelConfiguration;
@@ -13,6 +14,8 @@ import com.avioconsulting.mule.opentelemetry.internal.OpenTelemetryOperations;
 import com.avioconsulting.mule.opentelemetry.internal.connection.OpenTelemetryConnection;
 import com.avioconsulting.mule.opentelemetry.internal.notifications.listeners.*;
 import com.avioconsulting.mule.opentelemetry.internal.processor.MuleNotificationProcessor;
+import com.avioconsulting.mule.opentelemetry.internal.store.SpanFinalizer;
+import com.avioconsulting.mule.opentelemetry.internal.store.TransactionStoreService;
 import com.avioconsulting.mule.opentelemetry.internal.util.BatchHelperUtil;
 import com.avioconsulting.mule.opentelemetry.internal.util.ServiceProviderUtil;
 import org.mule.runtime.api.exception.MuleException;
@@ -109,6 +112,11 @@ public class OpenTelemetryExtensionConfiguration
   @Expression(ExpressionSupport.NOT_SUPPORTED)
   private SpanProcessorConfiguration spanProcessorConfiguration;
 
+  @ParameterGroup(name = "Flow Sampler")
+  @Placement(order = 50, tab = "Tracer Settings")
+  @Expression(ExpressionSupport.NOT_SUPPORTED)
+  private FlowSamplerConfiguration flowSamplerConfiguration;
+
   @Parameter
   @Optional(defaultValue = "false")
   @Placement(order = 501, tab = "Metrics")
@@ -187,6 +195,17 @@ public class OpenTelemetryExtensionConfiguration
     return this;
   }
 
+  @Override
+  public FlowSamplerConfiguration getFlowSamplerConfiguration() {
+    return flowSamplerConfiguration;
+  }
+
+  public OpenTelemetryExtensionConfiguration setFlowSamplerConfiguration(
+      FlowSamplerConfiguration flowSamplerConfiguration) {
+    this.flowSamplerConfiguration = flowSamplerConfiguration;
+    return this;
+  }
+
   public ExpressionManager getExpressionManager() {
     return expressionManager;
   }
@@ -225,14 +244,22 @@ public class OpenTelemetryExtensionConfiguration
         logger.info("Tracing has been turned off. No listener will be registered.");
       }
     } else {
-      notificationListenerRegistry.registerListener(
-          new MuleMessageProcessorNotificationListener(muleNotificationProcessor));
+      if (muleNotificationProcessor.getInterceptorProcessorConfig().isAroundTracingEnabled()) {
+        if (logger.isInfoEnabled()) {
+          logger.info("Processors will be traced by the around interceptor instead of notifications.");
+        }
+      } else {
+        notificationListenerRegistry.registerListener(
+            new MuleMessageProcessorNotificationListener(muleNotificationProcessor));
+      }
       notificationListenerRegistry.registerListener(
           new MulePipelineMessageNotificationListener(muleNotificationProcessor));
       notificationListenerRegistry
           .registerListener(new AsyncMessageNotificationListener(muleNotificationProcessor));
       prepareBatchListener();
     }
+    // Batch support is known only after preparing the listeners
+    muleNotificationProcessor.getInterceptorProcessorConfig().compileDecisionTable();
 
     if (isTurnOffMetrics()) {
       if (logger.isInfoEnabled()) {
@@ -290,6 +317,8 @@ public class OpenTelemetryExtensionConfiguration
 
   @Override
   public void stop() throws MuleException {
-
+    // Finish spans that are waiting to be finalized
+    SpanFinalizer.getInstance().stop();
+    TransactionStoreService.getInstance().stop();
   }
 }
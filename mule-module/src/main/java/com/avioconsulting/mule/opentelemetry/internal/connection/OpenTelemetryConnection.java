@@ -1,6 +1,7 @@
 package com.avioconsulting.mule.opentelemetry.internal.connection;
 
 import com.avioconsulting.mule.opentelemetry.api.AppIdentifier;
+import com.avioconsulting.mule.opentelemetry.api.config.FlowSamplerConfiguration;
 import com.avioconsulting.mule.opentelemetry.api.providers.NoopOpenTelemetryMetricsConfigProvider;
 import com.avioconsulting.mule.opentelemetry.api.providers.OpenTelemetryMetricsConfigProvider;
 import com.avioconsulting.mule.opentelemetry.api.providers.OpenTelemetryMetricsProvider;
@@ -8,15 +9,22 @@ import com.avioconsulting.mule.opentelemetry.api.store.SpanMeta;
 import com.avioconsulting.mule.opentelemetry.api.store.TransactionMeta;
 import com.avioconsulting.mule.opentelemetry.api.store.TransactionStore;
 import com.avioconsulting.mule.opentelemetry.api.traces.TraceComponent;
+import com.avioconsulting.mule.opentelemetry.api.traces.TraceContextMap;
 import com.avioconsulting.mule.opentelemetry.api.traces.TransactionContext;
 import com.avioconsulting.mule.opentelemetry.internal.config.OpenTelemetryConfigWrapper;
+import com.avioconsulting.mule.opentelemetry.internal.opentelemetry.sdk.ExportPressureMonitor;
+import com.avioconsulting.mule.opentelemetry.internal.opentelemetry.sdk.FlowRateLimitingSampler;
+import com.avioconsulting.mule.opentelemetry.internal.opentelemetry.sdk.TailSamplingSpanProcessor;
 import com.avioconsulting.mule.opentelemetry.internal.processor.service.ComponentRegistryService;
+import com.avioconsulting.mule.opentelemetry.internal.processor.util.AdaptiveTraceLevel;
 import com.avioconsulting.mule.opentelemetry.internal.processor.util.TraceComponentManager;
-import com.avioconsulting.mule.opentelemetry.internal.store.InMemoryTransactionStore;
+import com.avioconsulting.mule.opentelemetry.internal.store.SpanEndRecord;
+import com.avioconsulting.mule.opentelemetry.internal.store.SpanFinalizer;
+import com.avioconsulting.mule.opentelemetry.internal.store.TransactionStoreService;
 import com.avioconsulting.mule.opentelemetry.internal.util.BatchHelperUtil;
 import com.avioconsulting.mule.opentelemetry.internal.util.PropertiesUtil;
 import com.avioconsulting.mule.opentelemetry.internal.util.ServiceProviderUtil;
-import com.avioconsulting.mule.opentelemetry.internal.util.memoizers.BiFunctionMemoizer;
+import com.avioconsulting.mule.opentelemetry.internal.util.memoizers.BoundedBiFunctionMemoizer;
 import io.opentelemetry.api.OpenTelemetry;
 import io.opentelemetry.api.metrics.Meter;
 import io.opentelemetry.api.trace.*;
@@ -39,6 +47,7 @@ import java.io.InputStream;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.*;
+import java.util.function.Consumer;
 
 import static com.avioconsulting.mule.opentelemetry.api.sdk.SemanticAttributes.*;
 import static com.avioconsulting.mule.opentelemetry.internal.util.BatchHelperUtil.hasBatchJobInstanceId;
@@ -68,9 +77,11 @@ public class OpenTelemetryConnection implements TraceContextHandler,
   private final Tracer tracer;
   private boolean turnOffTracing = false;
   private boolean turnOffMetrics = false;
+  private boolean flowSamplerEnabled = false;
   private ComponentRegistryService componentRegistryService;
-  private final BiFunctionMemoizer<String, TraceComponent, String> parentLocationMemoizer = BiFunctionMemoizer
-      .memoize((key, traceComponent) -> getRouteContainerLocation(traceComponent), true);
+  private final BoundedBiFunctionMemoizer<String, TraceComponent, String> parentLocationMemoizer = BoundedBiFunctionMemoizer
+      .memoize("OpenTelemetryConnection.parentLocation",
+          (key, traceComponent) -> getRouteContainerLocation(traceComponent), true);
 
   private OpenTelemetryConnection(OpenTelemetryConfigWrapper openTelemetryConfigWrapper) {
     Properties properties = getModuleProperties();
@@ -113,8 +124,34 @@ public class OpenTelemetryConnection implements TraceContextHandler,
       appIdentifier = openTelemetryConfigWrapper.getOpenTelemetryConfiguration().getAppIdentifier();
       metricsProvider = openTelemetryConfigWrapper.getOpenTelemetryConfiguration().getMetricsConfigProvider();
       expressionManager = openTelemetryConfigWrapper.getOpenTelemetryConfiguration().getExpressionManager();
+      FlowSamplerConfiguration flowSamplerConfiguration = openTelemetryConfigWrapper.getFlowSamplerConfiguration();
+      if (flowSamplerConfiguration != null && flowSamplerConfiguration.isEnabled()) {
+        if (logger.isInfoEnabled()) {
+          logger.info("Enabling flow rate limiting sampler");
+        }
+        flowSamplerEnabled = true;
+        builder.addSamplerCustomizer(
+            (sampler, config) -> new FlowRateLimitingSampler(sampler, flowSamplerConfiguration));
+      }
     }
     builder.setServiceClassLoader(AutoConfiguredOpenTelemetrySdkBuilder.class.getClassLoader());
+    if (AdaptiveTraceLevel.isEnabled()) {
+      // Wraps the export span processors before other customizers to track their
+      // queue
+      ExportPressureMonitor monitor = ExportPressureMonitor.getInstance();
+      builder.addSpanExporterCustomizer((spanExporter, config) -> monitor.wrap(spanExporter));
+      builder.addSpanProcessorCustomizer((spanProcessor, config) -> monitor.wrap(spanProcessor,
+          config.getInt("otel.bsp.max.queue.size", ExportPressureMonitor.DEFAULT_QUEUE_SIZE)));
+    }
+    if (TailSamplingSpanProcessor.isEnabled()) {
+      if (logger.isInfoEnabled()) {
+        logger.info("Enabling tail sampling of traces");
+      }
+      // All exporters get the same decision for a trace
+      TailSamplingSpanProcessor.TraceDecisions traceDecisions = new TailSamplingSpanProcessor.TraceDecisions();
+      builder.addSpanProcessorCustomizer(
+          (spanProcessor, config) -> new TailSamplingSpanProcessor(spanProcessor, traceDecisions));
+    }
     if (metricsProvider != null) {
       metricsProvider.initialise(appIdentifier);
       metricsProvider.turnOffMetrics(turnOffMetrics);
@@ -136,7 +173,7 @@ public class OpenTelemetryConnection implements TraceContextHandler,
       getMetricsProviders().clear();
     }
     tracer = openTelemetry.getTracer(instrumentationName, instrumentationVersion);
-    transactionStore = InMemoryTransactionStore.getInstance(this);
+    transactionStore = TransactionStoreService.getInstance().getTransactionStore(this);
     PropertiesUtil.init();
   }
 
@@ -197,12 +234,25 @@ public class OpenTelemetryConnection implements TraceContextHandler,
     return metricsProviders;
   }
 
+  /**
+   * Check if creating spans for the processors of a transaction can be skipped.
+   * Processor spans of a trace that is not sampled are never recorded, they are
+   * only needed when metrics providers capture processor metrics from them.
+   *
+   * @param transactionId
+   *            Local transaction id
+   * @return true if processor spans of the transaction can be skipped
+   */
+  public boolean canSkipProcessorSpans(String transactionId) {
+    return (turnOffMetrics || metricsProviders.isEmpty()) && !getTransactionStore().isRecording(transactionId);
+  }
+
   /**
    * This is for tests to reset the static instance in-between the tests.
    * Reset Global OpenTelemetry instances.
    */
   public static void _resetForTest() {
-    InMemoryTransactionStore._resetForTesting();
+    TransactionStoreService._resetForTesting();
   }
 
   public static synchronized OpenTelemetryConnection getInstance(
@@ -274,9 +324,8 @@ public class OpenTelemetryConnection implements TraceContextHandler,
   public Map<String, Object> getTraceContext(String transactionId, String componentLocation) {
     TransactionContext transactionContext = getTransactionStore().getTransactionContext(transactionId,
         componentLocation);
-    Map<String, Object> traceContext = transactionContext.getTraceContextMap();
-    injectTraceContext(transactionContext.getContext(), traceContext,
-        HashMapObjectMapSetter.INSTANCE);
+    Map<String, Object> traceContext = new TraceContextMap(transactionContext,
+        openTelemetry.getPropagators().getTextMapPropagator());
     if (logger.isDebugEnabled()) {
       logger.debug("Created trace context '{}' for TRACE_TRANSACTION_ID={}, Component Location '{}'",
           traceContext,
@@ -290,10 +339,6 @@ public class OpenTelemetryConnection implements TraceContextHandler,
     openTelemetry.getPropagators().getTextMapPropagator().inject(Context.current(), carrier, textMapSetter);
   }
 
-  private <T> void injectTraceContext(Context context, T carrier, TextMapSetter<T> textMapSetter) {
-    openTelemetry.getPropagators().getTextMapPropagator().inject(context, carrier, textMapSetter);
-  }
-
   public TransactionStore getTransactionStore() {
     return transactionStore;
   }
@@ -352,7 +397,9 @@ public class OpenTelemetryConnection implements TraceContextHandler,
         !BatchHelperUtil.notBatchChildContainer(containerName, componentRegistryService)) {
       // When processing batch child containers are
       // handled by BatchTransaction, skip this
-      parentLocation = parentLocationMemoizer.apply(traceComponent.getLocation(), traceComponent);
+      parentLocation = componentRegistryService != null
+          ? componentRegistryService.findRouteContainerLocation(traceComponent)
+          : parentLocationMemoizer.apply(traceComponent.getLocation(), traceComponent);
       if (parentLocation != null) {
         // Create parent span for the first processor in the chain /0
         SpanMeta parentSpan;
@@ -364,9 +411,13 @@ public class OpenTelemetryConnection implements TraceContextHandler,
               .withSpanKind(SpanKind.INTERNAL)
               .withEventContextId(traceComponent.getEventContextId())
               .withStartTime(traceComponent.getStartTime());
+          if (componentRegistryService != null) {
+            parentTrace.withLocationId(componentRegistryService.findRouteContainerId(traceComponent));
+          }
           copyBatchTags(traceComponent, parentTrace);
           parentSpan = addRouteSpan(parentTrace, traceComponent, parentLocation,
-              getLocationParent(parentLocation));
+              componentRegistryService != null ? componentRegistryService.findLocationParent(parentTrace)
+                  : getLocationParent(parentLocation));
         }
         spanBuilder.setParent(parentSpan.getContext());
       }
@@ -393,30 +444,44 @@ public class OpenTelemetryConnection implements TraceContextHandler,
 
   @Override
   public SpanMeta endProcessorSpan(final TraceComponent traceComponent, Error error) {
+    Consumer<Span> spanUpdater;
+    if (SpanFinalizer.getInstance().isAsync()) {
+      // Trace component is released before the span is finalized
+      if (error != null) {
+        addErrorTags(traceComponent, error);
+      }
+      spanUpdater = SpanEndRecord.of(traceComponent, error != null ? error.getCause() : null);
+    } else {
+      spanUpdater = span -> {
+        if (error != null) {
+          span.recordException(error.getCause());
+          addErrorTags(traceComponent, error);
+        }
+        setSpanStatus(traceComponent, span);
+        tagsToAttributes(traceComponent, span);
+      };
+    }
     SpanMeta spanMeta = getTransactionStore().endProcessorSpan(
         traceComponent.getTransactionId(),
         traceComponent,
-        span -> {
-          if (error != null) {
-            span.recordException(error.getCause());
-            traceComponent.addTag(ERROR_TYPE.getKey(),
-                error.getCause().getClass().getCanonicalName());
-            traceComponent.addTag(ERROR_MESSAGE.getKey(),
-                error.getDescription());
-            if (error.getErrorType() != null
-                && !MULE_ANY.equals(error.getErrorType().toString())) {
-              traceComponent.addTag(ErrorAttributes.ERROR_TYPE.getKey(),
-                  error.getErrorType().toString());
-            }
-          }
-          setSpanStatus(traceComponent, span);
-          tagsToAttributes(traceComponent, span);
-        },
+        spanUpdater,
         traceComponent.getEndTime());
     processBatchJob(spanMeta, traceComponent);
     return spanMeta;
   }
 
+  private void addErrorTags(TraceComponent traceComponent, Error error) {
+    traceComponent.addTag(ERROR_TYPE.getKey(),
+        error.getCause().getClass().getCanonicalName());
+    traceComponent.addTag(ERROR_MESSAGE.getKey(),
+        error.getDescription());
+    if (error.getErrorType() != null
+        && !MULE_ANY.equals(error.getErrorType().toString())) {
+      traceComponent.addTag(ErrorAttributes.ERROR_TYPE.getKey(),
+          error.getErrorType().toString());
+    }
+  }
+
   private void processBatchJob(SpanMeta spanMeta, TraceComponent traceComponent) {
     if (!traceComponent.getName().equalsIgnoreCase(BATCH_JOB_TAG)) {
       return;
@@ -453,6 +518,10 @@ public class OpenTelemetryConnection implements TraceContextHandler,
         .setSpanKind(traceComponent.getSpanKind())
         .setParent(traceComponent.getContext())
         .setStartTimestamp(traceComponent.getStartTime());
+    if (flowSamplerEnabled) {
+      // Sampler decides on the flow name before the span starts
+      spanBuilder.setAttribute(MULE_APP_FLOW_NAME, traceComponent.getName());
+    }
     String configName;
     if ((configName = traceComponent.getTag(MULE_APP_FLOW_SOURCE_CONFIG_REF.getKey())) != null) {
       traceComponent.addAllTags(componentRegistryService.getGlobalConfigOtelSystemProperties(configName));
@@ -491,7 +560,7 @@ public class OpenTelemetryConnection implements TraceContextHandler,
   public void setSpanStatus(TraceComponent traceComponent, Span span) {
     if (traceComponent.getStatusCode() != null
         && !StatusCode.UNSET.equals(traceComponent.getStatusCode())) {
-      span.setStatus(traceComponent.getStatusCode(), traceComponent.getErrorMessage());
+      TailSamplingSpanProcessor.setStatus(span, traceComponent.getStatusCode(), traceComponent.getErrorMessage());
     }
   }
 
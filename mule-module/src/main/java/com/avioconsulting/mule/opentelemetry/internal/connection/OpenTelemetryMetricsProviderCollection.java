@@ -5,6 +5,14 @@ import com.avioconsulting.mule.opentelemetry.api.providers.OpenTelemetryMetricsC
 import com.avioconsulting.mule.opentelemetry.api.providers.OpenTelemetryMetricsProvider;
 import com.avioconsulting.mule.opentelemetry.api.store.SpanMeta;
 import com.avioconsulting.mule.opentelemetry.api.store.TransactionMeta;
+import com.avioconsulting.mule.opentelemetry.internal.opentelemetry.sdk.AttributesKeyCache;
+import com.avioconsulting.mule.opentelemetry.internal.opentelemetry.sdk.TailSamplingSpanProcessor;
+import com.avioconsulting.mule.opentelemetry.internal.processor.service.WarmUpMetrics;
+import com.avioconsulting.mule.opentelemetry.internal.processor.util.AdaptiveTraceLevel;
+import com.avioconsulting.mule.opentelemetry.internal.store.ShardedTransactionStore;
+import com.avioconsulting.mule.opentelemetry.internal.store.SpanFinalizer;
+import com.avioconsulting.mule.opentelemetry.internal.util.OpenTelemetryUtil;
+import com.avioconsulting.mule.opentelemetry.internal.util.memoizers.MemoizerMetrics;
 import io.opentelemetry.api.OpenTelemetry;
 import org.mule.runtime.api.component.Component;
 import org.mule.runtime.api.message.Error;
@@ -18,11 +26,25 @@ public class OpenTelemetryMetricsProviderCollection
   @Override
   public void initialize(OpenTelemetryMetricsConfigProvider configProvider, OpenTelemetry openTelemetry) {
     this.forEach(provider -> provider.initialize(configProvider, openTelemetry));
+    MemoizerMetrics.registerInstruments(openTelemetry);
+    WarmUpMetrics.registerInstruments(openTelemetry);
+    SpanFinalizer.getInstance().registerInstruments(openTelemetry);
+    TailSamplingSpanProcessor.registerInstruments(openTelemetry);
+    AdaptiveTraceLevel.getInstance().registerInstruments(openTelemetry);
+    ShardedTransactionStore.registerInstruments(openTelemetry);
+    AttributesKeyCache.registerInstruments(openTelemetry, OpenTelemetryUtil.getAttributesKeyCache());
   }
 
   @Override
   public void stop() {
     this.forEach(OpenTelemetryMetricsProvider::stop);
+    MemoizerMetrics.closeInstruments();
+    WarmUpMetrics.closeInstruments();
+    SpanFinalizer.getInstance().closeInstruments();
+    TailSamplingSpanProcessor.closeInstruments();
+    AdaptiveTraceLevel.getInstance().closeInstruments();
+    ShardedTransactionStore.closeInstruments();
+    AttributesKeyCache.closeInstruments();
   }
 
   @Override
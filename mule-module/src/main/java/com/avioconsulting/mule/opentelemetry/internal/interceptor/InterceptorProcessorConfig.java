@@ -3,6 +3,7 @@ package com.avioconsulting.mule.opentelemetry.internal.interceptor;
 import com.avioconsulting.mule.opentelemetry.api.config.MuleComponent;
 import com.avioconsulting.mule.opentelemetry.api.config.TraceLevelConfiguration;
 import com.avioconsulting.mule.opentelemetry.internal.processor.MuleCoreProcessorComponent;
+import com.avioconsulting.mule.opentelemetry.internal.processor.service.ComponentLocationRegistry;
 import com.avioconsulting.mule.opentelemetry.internal.processor.service.ComponentRegistryService;
 import com.avioconsulting.mule.opentelemetry.internal.util.ComponentsUtil;
 import com.avioconsulting.mule.opentelemetry.internal.util.PropertiesUtil;
@@ -121,10 +122,33 @@ public class InterceptorProcessorConfig {
   private final boolean NOT_FIRST_PROCESSOR_ONLY_MODE = !PropertiesUtil
       .getBoolean(MULE_OTEL_INTERCEPTOR_FIRST_PROCESSOR_ONLY, false);
 
+  /**
+   * Trace processors with the around() method of
+   * {@link ProcessorTracingAroundInterceptor} instead of message processor
+   * notifications. Has no effect when interceptors are disabled with
+   * `mule.otel.interceptor.processor.enable`.
+   *
+   * @default false
+   */
+  public static final String MULE_OTEL_INTERCEPTOR_AROUND_TRACING_ENABLED = "mule.otel.interceptor.around.tracing.enabled";
+  private final boolean AROUND_TRACING_ENABLED_BY_SYS_PROPERTY = PropertiesUtil
+      .getBoolean(MULE_OTEL_INTERCEPTOR_AROUND_TRACING_ENABLED, false);
+
   private boolean turnOffTracing = false;
 
+  /**
+   * Event-independent interception decisions of locations that are not part of
+   * the compiled {@link #decisionTable}.
+   */
   private final ConcurrentHashMap<String, Boolean> shouldInterceptCacheMap = new ConcurrentHashMap<>();
 
+  /**
+   * Decisions compiled for all application locations by
+   * {@link #compileDecisionTable()}, indexed by location id. Null until
+   * compiled.
+   */
+  private volatile DecisionTable decisionTable;
+
   /**
    * Components that must be intercepted
    */
@@ -266,10 +290,38 @@ public class InterceptorProcessorConfig {
         .collect(Collectors.toSet());
   }
 
+  /**
+   * Compile the interception decision of every location known to the
+   * {@link ComponentRegistryService} into a location indexed table. This must be
+   * called once the configuration, including batch support, is final. Decisions
+   * already made for a location (eg. by the interceptor factory during
+   * deployment) are kept as-is so that the factory and the runtime checks agree.
+   */
+  public void compileDecisionTable() {
+    if (componentRegistryService == null || componentRegistryService.getLocationRegistry() == null)
+      return;
+    ComponentLocationRegistry locationRegistry = componentRegistryService.getLocationRegistry();
+    BitSet decisions = new BitSet(locationRegistry.size());
+    for (int id = 0; id < locationRegistry.size(); id++) {
+      ComponentLocation location = locationRegistry.getComponentLocation(id);
+      if (shouldInterceptCacheMap.computeIfAbsent(location.getLocation(),
+          key -> computeStaticInterception(location))) {
+        decisions.set(id);
+      }
+    }
+    decisionTable = new DecisionTable(locationRegistry, decisions);
+    if (LOGGER.isDebugEnabled()) {
+      LOGGER.debug("Compiled interception decisions for {} locations, {} intercepted", locationRegistry.size(),
+          decisions.cardinality());
+    }
+  }
+
   public boolean shouldIntercept(ComponentLocation location, Event event) {
     try {
-      return shouldInterceptCacheMap.computeIfAbsent(location.getLocation(),
-          key -> computeInterception(location, event));
+      if (!isInterceptedLocation(location))
+        return false;
+      // Only event dependent rules are evaluated per event
+      return !shouldSkipThisBatchProcessing(event);
     } catch (Exception e) {
       if (LOGGER.isTraceEnabled()) {
         LOGGER.trace("Exception occurred while computing interception for component {}. Returning false.",
@@ -279,14 +331,24 @@ public class InterceptorProcessorConfig {
     }
   }
 
-  private boolean computeInterception(ComponentLocation location, Event event) {
-    if (!interceptorFeatureEnabled())
-      return false;
+  private boolean isInterceptedLocation(ComponentLocation location) {
+    String locationPath = location.getLocation();
+    DecisionTable table = decisionTable;
+    if (table != null) {
+      int id = table.locationRegistry.getId(locationPath);
+      if (id != ComponentLocationRegistry.UNKNOWN_ID) {
+        return table.decisions.get(id);
+      }
+    }
+    return shouldInterceptCacheMap.computeIfAbsent(locationPath,
+        key -> computeStaticInterception(location));
+  }
 
-    if (event != null && shouldSkipThisBatchProcessing(event))
+  private boolean computeStaticInterception(ComponentLocation location) {
+    if (!interceptorFeatureEnabled())
       return false;
     return ComponentsUtil.isFirstProcessor(location)
-        || (isBatchStepFirstProcessor(location, event, componentRegistryService))
+        || (isBatchStepFirstProcessor(location, null, componentRegistryService))
         || (NOT_FIRST_PROCESSOR_ONLY_MODE
             && (shouldIntercept(location.getComponentIdentifier().getIdentifier())));
   }
@@ -321,6 +383,25 @@ public class InterceptorProcessorConfig {
     return intercept;
   }
 
+  /**
+   * Check if processor spans are started and ended by
+   * {@link ProcessorTracingAroundInterceptor}, in which case message processor
+   * notifications are not listened to.
+   *
+   * @return true if around tracing mode is enabled
+   */
+  public boolean isAroundTracingEnabled() {
+    return INTERCEPTOR_ENABLED_BY_SYS_PROPERTY && AROUND_TRACING_ENABLED_BY_SYS_PROPERTY;
+  }
+
+  /**
+   * @return true if processors must be intercepted by
+   *         {@link ProcessorTracingAroundInterceptor}
+   */
+  public boolean interceptAroundTracing() {
+    return isAroundTracingEnabled() && !turnOffTracing;
+  }
+
   private boolean shouldIntercept(ComponentIdentifier componentIdentifier) {
     String identifier = componentIdentifier.getNamespace() + ":" + componentIdentifier.getName();
     String wildcardIdentifier = componentIdentifier.getNamespace() + ":*";
@@ -350,4 +431,18 @@ public class InterceptorProcessorConfig {
     }
   }
 
+  /**
+   * Immutable snapshot of compiled decisions. Bits of the decisions set are
+   * indexed by location ids of the registry.
+   */
+  private static final class DecisionTable {
+    private final ComponentLocationRegistry locationRegistry;
+    private final BitSet decisions;
+
+    private DecisionTable(ComponentLocationRegistry locationRegistry, BitSet decisions) {
+      this.locationRegistry = locationRegistry;
+      this.decisions = decisions;
+    }
+  }
+
 }
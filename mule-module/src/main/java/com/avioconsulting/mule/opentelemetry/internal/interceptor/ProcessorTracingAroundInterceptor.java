@@ -0,0 +1,128 @@
+package com.avioconsulting.mule.opentelemetry.internal.interceptor;
+
+import com.avioconsulting.mule.opentelemetry.internal.notifications.listeners.MuleMessageProcessorNotificationListener;
+import com.avioconsulting.mule.opentelemetry.internal.processor.MuleNotificationProcessor;
+import com.avioconsulting.mule.opentelemetry.internal.processor.service.ComponentRegistryService;
+import com.avioconsulting.mule.opentelemetry.internal.util.MDCUtil;
+import org.mule.runtime.api.component.Component;
+import org.mule.runtime.api.component.location.ComponentLocation;
+import org.mule.runtime.api.event.Event;
+import org.mule.runtime.api.exception.MuleException;
+import org.mule.runtime.api.interception.InterceptionAction;
+import org.mule.runtime.api.interception.InterceptionEvent;
+import org.mule.runtime.api.interception.ProcessorInterceptor;
+import org.mule.runtime.api.interception.ProcessorParameterValue;
+import org.mule.runtime.api.notification.MessageProcessorNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static com.avioconsulting.mule.opentelemetry.internal.util.BatchHelperUtil.shouldSkipThisBatchProcessing;
+import static org.mule.runtime.api.notification.MessageProcessorNotification.MESSAGE_PROCESSOR_POST_INVOKE;
+
+/**
+ * Interceptor that starts and ends processor spans around the processor
+ * execution, used instead of listening to {@link MessageProcessorNotification}s
+ * when {@link InterceptorProcessorConfig#MULE_OTEL_INTERCEPTOR_AROUND_TRACING_ENABLED}
+ * is set.
+ * <p>
+ * Spans are started directly with the intercepted event, and ended by handing
+ * an end notification to a {@link MuleMessageProcessorNotificationListener}
+ * that is not registered with the runtime, so spans are the same as in the
+ * notification mode. When the processor fails, the end notification is built
+ * from the intercepted event with its Mule error, if any, and the
+ * {@link MuleException} that fails the processor. Tracing failures, including
+ * linkage errors, never fail the processor.
+ * <p>
+ * {@link ProcessorTracingInterceptor} still runs its before and after
+ * callbacks for processors it intercepts to inject their context.
+ */
+@ThreadSafe
+public class ProcessorTracingAroundInterceptor implements ProcessorInterceptor {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ProcessorTracingAroundInterceptor.class);
+  private final MuleNotificationProcessor muleNotificationProcessor;
+  private final ComponentRegistryService componentRegistryService;
+  private final MuleMessageProcessorNotificationListener listener;
+
+  public ProcessorTracingAroundInterceptor(MuleNotificationProcessor muleNotificationProcessor) {
+    this.muleNotificationProcessor = muleNotificationProcessor;
+    this.componentRegistryService = muleNotificationProcessor.getComponentRegistryService();
+    this.listener = new MuleMessageProcessorNotificationListener(muleNotificationProcessor);
+  }
+
+  @Override
+  public CompletableFuture<InterceptionEvent> around(ComponentLocation location,
+      Map<String, ProcessorParameterValue> parameters, InterceptionEvent event, InterceptionAction action) {
+    if (!muleNotificationProcessor.hasConnection()
+        || !muleNotificationProcessor.getInterceptorProcessorConfig().interceptAroundTracing()) {
+      return action.proceed();
+    }
+    Component component = componentRegistryService.findComponentByLocation(location);
+    if (component == null) {
+      if (LOGGER.isDebugEnabled()) {
+        LOGGER.debug("Could not locate a component for {} at {}",
+            location.getComponentIdentifier().getIdentifier(), location.getLocation());
+      }
+      return action.proceed();
+    }
+    start(event, location, component);
+    return action.proceed().whenComplete((result, throwable) -> end(result, event, location, component,
+        toException(throwable)));
+  }
+
+  private void start(InterceptionEvent event, ComponentLocation location, Component component) {
+    try {
+      if (shouldSkipThisBatchProcessing(event)) {
+        return;
+      }
+      MDCUtil.replaceMDCOtelEntries(event);
+      muleNotificationProcessor.handleProcessorStartEvent(component, event);
+    } catch (Throwable t) {
+      logFailure(location, t);
+    }
+  }
+
+  private void end(InterceptionEvent result, InterceptionEvent event, ComponentLocation location,
+      Component component, Exception exception) {
+    try {
+      Event endEvent = result != null ? result : event;
+      listener.onNotification(MessageProcessorNotification.createFrom(endEvent, location, component, exception,
+          MESSAGE_PROCESSOR_POST_INVOKE));
+    } catch (Throwable t) {
+      // Callback of the processor future, anything thrown here fails the processor
+      logFailure(location, t);
+    }
+  }
+
+  private void logFailure(ComponentLocation location, Throwable ex) {
+    // Never fail the processor for tracing
+    if (LOGGER.isTraceEnabled()) {
+      LOGGER.trace("Failed to trace processor {} at {}, span may not be captured for this processor. Error - {}",
+          location.getComponentIdentifier().getIdentifier(), location.getLocation(), ex.getLocalizedMessage(), ex);
+    }
+  }
+
+  private static Exception toException(Throwable throwable) {
+    if (throwable == null) {
+      return null;
+    }
+    Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null
+        ? throwable.getCause()
+        : throwable;
+    // Prefer the Mule exception of the processor over any wrapper around it
+    for (Throwable current = cause; current != null; current = current.getCause()) {
+      if (current instanceof MuleException) {
+        return (MuleException) current;
+      }
+      if (current.getCause() == current) {
+        break;
+      }
+    }
+    return cause instanceof Exception ? (Exception) cause : new Exception(cause);
+  }
+}
@@ -0,0 +1,46 @@
+package com.avioconsulting.mule.opentelemetry.internal.interceptor;
+
+import com.avioconsulting.mule.opentelemetry.internal.processor.MuleNotificationProcessor;
+import org.mule.runtime.api.component.location.ComponentLocation;
+import org.mule.runtime.api.interception.ProcessorInterceptor;
+import org.mule.runtime.api.interception.ProcessorInterceptorFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import javax.inject.Inject;
+
+/**
+ * Provides {@link ProcessorTracingAroundInterceptor} for every processor when
+ * `mule.otel.interceptor.around.tracing.enabled` is set to `true`.
+ *
+ * See registry-bootstrap.properties.
+ */
+@Component
+public class ProcessorTracingAroundInterceptorFactory implements ProcessorInterceptorFactory {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ProcessorTracingAroundInterceptorFactory.class);
+  private final InterceptorProcessorConfig interceptorProcessorConfig;
+  private final ProcessorTracingAroundInterceptor processorTracingAroundInterceptor;
+
+  @Inject
+  public ProcessorTracingAroundInterceptorFactory(MuleNotificationProcessor muleNotificationProcessor) {
+    processorTracingAroundInterceptor = new ProcessorTracingAroundInterceptor(muleNotificationProcessor);
+    interceptorProcessorConfig = muleNotificationProcessor.getInterceptorProcessorConfig();
+  }
+
+  @Override
+  public ProcessorInterceptor get() {
+    return processorTracingAroundInterceptor;
+  }
+
+  @Override
+  public boolean intercept(ComponentLocation location) {
+    boolean intercept = interceptorProcessorConfig.interceptAroundTracing();
+    if (LOGGER.isTraceEnabled() && intercept) {
+      LOGGER.trace("ProcessorTracingAroundInterceptor will Intercept '{}::{}'", location.getRootContainerName(),
+          location.getLocation());
+    }
+    return intercept;
+  }
+}
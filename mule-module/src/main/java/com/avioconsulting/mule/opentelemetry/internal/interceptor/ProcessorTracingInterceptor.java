@@ -11,7 +11,6 @@ import org.mule.runtime.api.component.location.ComponentLocation;
 import org.mule.runtime.api.interception.InterceptionEvent;
 import org.mule.runtime.api.interception.ProcessorInterceptor;
 import org.mule.runtime.api.interception.ProcessorParameterValue;
-import org.mule.runtime.api.metadata.TypedValue;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -26,7 +25,8 @@ import static com.avioconsulting.mule.opentelemetry.internal.util.OpenTelemetryU
 
 /**
  * Interceptor to set tracing context information in flow a variable
- * named {@link TransactionStore#TRACE_CONTEXT_MAP_KEY}.
+ * named {@link TransactionStore#TRACE_CONTEXT_MAP_KEY}, or in the
+ * {@link TraceContextStorage} configured for the module.
  * See {@link TransactionStore#getTransactionContext(String, String)}
  * for possible
  * entries in the map.
@@ -37,6 +37,7 @@ public class ProcessorTracingInterceptor implements ProcessorInterceptor {
   private static final Logger LOGGER = LoggerFactory.getLogger(ProcessorTracingInterceptor.class);
   private final MuleNotificationProcessor muleNotificationProcessor;
   private final ComponentRegistryService componentRegistryService;
+  private final TraceContextStorage traceContextStorage = TraceContextStorage.getInstance();
 
   /**
    * Interceptor.
@@ -64,14 +65,15 @@ public class ProcessorTracingInterceptor implements ProcessorInterceptor {
       // connection supplier.
       if (muleNotificationProcessor.hasConnection()) {
         ProcessorComponent processorComponent = muleNotificationProcessor
-            .getProcessorComponent(location.getComponentIdentifier().getIdentifier());
-        switchTraceContext(event, TRACE_CONTEXT_MAP_KEY, TRACE_PREV_CONTEXT_MAP_KEY);
+            .getSpanningProcessorComponent(location.getComponentIdentifier().getIdentifier(), event);
+        traceContextStorage.saveTraceContext(event);
         if (isFirstProcessor(location)) {
-          switchTraceContext(event, OTEL_FLOW_CONTEXT_ID, OTEL_FLOW_PREV_CONTEXT_ID);
-          event.addVariable(OTEL_FLOW_CONTEXT_ID, event.getContext().getId());
+          traceContextStorage.saveFlowContextId(event);
         }
         if (processorComponent == null) {
-          // when spanAllProcessor is false, and it's the first generic processor
+          // when spanAllProcessor is false, and it's the first generic processor,
+          // or when the processor span is skipped due to load or for a trace that is
+          // not sampled
           String transactionId = getEventTransactionId(event);
           addTraceContextMap(event,
               muleNotificationProcessor.getOpenTelemetryConnection().getTraceContext(transactionId));
@@ -83,14 +85,14 @@ public class ProcessorTracingInterceptor implements ProcessorInterceptor {
               LOGGER.debug("Could not locate a component for {} at {}",
                   location.getComponentIdentifier().getIdentifier(), location.getLocation());
             }
-            switchTraceContext(event, TRACE_PREV_CONTEXT_MAP_KEY, TRACE_CONTEXT_MAP_KEY);
+            restoreTraceContext(event);
             return;
           }
           try (TraceComponent traceComponent = processorComponent.getStartTraceComponent(component, event)) {
             if (traceComponent == null) {
               LOGGER.warn("Could not build a trace component for {} at {}",
                   location.getComponentIdentifier().getIdentifier(), location.getLocation());
-              switchTraceContext(event, TRACE_PREV_CONTEXT_MAP_KEY, TRACE_CONTEXT_MAP_KEY);
+              restoreTraceContext(event);
               return;
             }
             addBatchTags(traceComponent, event);
@@ -99,9 +101,10 @@ public class ProcessorTracingInterceptor implements ProcessorInterceptor {
                   location.getComponentIdentifier().getIdentifier(), location.getLocation());
             }
             resolveExpressions(traceComponent,
-                muleNotificationProcessor.getOpenTelemetryConnection().getExpressionManager(), event);
+                muleNotificationProcessor.getOpenTelemetryConnection().getExpressionManager(), event,
+                componentRegistryService.getComponentWrapper(traceComponent, component));
             muleNotificationProcessor.getOpenTelemetryConnection().addProcessorSpan(traceComponent,
-                getLocationParent(location.getLocation()));
+                componentRegistryService.findLocationParent(traceComponent));
             final String transactionId = getEventTransactionId(event);
             if (isFlowRef(location)) {
               processFlowRef(location, event, traceComponent, transactionId);
@@ -129,8 +132,7 @@ public class ProcessorTracingInterceptor implements ProcessorInterceptor {
   }
 
   private void addTraceContextMap(InterceptionEvent event, Map<String, Object> contextMap) {
-    event.addVariable(TRACE_CONTEXT_MAP_KEY,
-        contextMap);
+    traceContextStorage.setTraceContext(event, contextMap);
     MDCUtil.replaceMDCOtelEntries(contextMap);
   }
 
@@ -156,9 +158,9 @@ public class ProcessorTracingInterceptor implements ProcessorInterceptor {
 
   @Override
   public void after(ComponentLocation location, InterceptionEvent event, Optional<Throwable> thrown) {
-    switchTraceContext(event, TRACE_PREV_CONTEXT_MAP_KEY, TRACE_CONTEXT_MAP_KEY);
+    restoreTraceContext(event);
     if (isFlowRef(location)) {
-      switchTraceContext(event, OTEL_FLOW_PREV_CONTEXT_ID, OTEL_FLOW_CONTEXT_ID);
+      traceContextStorage.restoreFlowContextId(event);
     }
     if (location.getComponentIdentifier().getIdentifier().toString().equals(BATCH_JOB_TAG)) {
       event.addVariable(OTEL_BATCH_PARENT_CONTEXT_ID, getEventTransactionId(event.getContext().getId()));
@@ -170,15 +172,10 @@ public class ProcessorTracingInterceptor implements ProcessorInterceptor {
     }
   }
 
-  private void switchTraceContext(InterceptionEvent event, String removalContextKey, String newContextKey) {
-    if (event.getVariables().containsKey(removalContextKey)) {
-      TypedValue<?> prevContext = event.getVariables().get(removalContextKey);
-      if (removalContextKey.equalsIgnoreCase(TRACE_PREV_CONTEXT_MAP_KEY)) {
-        Map<String, Object> contextMap = (Map<String, Object>) prevContext.getValue();
-        MDCUtil.replaceMDCOtelEntries(contextMap);
-      }
-      event.addVariable(newContextKey, prevContext);
-      event.removeVariable(removalContextKey);
+  private void restoreTraceContext(InterceptionEvent event) {
+    Map<String, Object> contextMap = traceContextStorage.restoreTraceContext(event);
+    if (contextMap != null) {
+      MDCUtil.replaceMDCOtelEntries(contextMap);
     }
   }
 
@@ -0,0 +1,210 @@
+package com.avioconsulting.mule.opentelemetry.internal.interceptor;
+
+import org.mule.runtime.api.event.Event;
+import org.mule.runtime.api.interception.InterceptionEvent;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.avioconsulting.mule.opentelemetry.internal.util.OpenTelemetryUtil.getEventTransactionId;
+
+/**
+ * Keeps trace context inside the module by event context id, so intercepted
+ * processors do not copy the event variables.
+ * <p>
+ * Contexts are grouped by the primary event context id. A child event context,
+ * such as the one of a flow-ref target or a scatter-gather route, starts with
+ * the values of its closest parent context, the same way it would inherit flow
+ * variables.
+ * <p>
+ * The whole group is released when the root flow, the context without a `_`
+ * suffix, ends, including child contexts that have no end of their own such as
+ * scatter-gather routes. A child flow context is released when its flow ends,
+ * unless one of its own child contexts is still present. Groups that are never
+ * released are removed once idle for {@link #IDLE_TIMEOUT_MINUTES}.
+ */
+public class SideTableTraceContextStorage extends TraceContextStorage {
+
+  static final long IDLE_TIMEOUT_MINUTES = 10;
+  private static final long IDLE_TIMEOUT_NANOS = TimeUnit.MINUTES.toNanos(IDLE_TIMEOUT_MINUTES);
+  private static final long SWEEP_INTERVAL_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+  private final ConcurrentHashMap<String, Group> groups = new ConcurrentHashMap<>();
+  private final AtomicLong nextSweepNanos = new AtomicLong(System.nanoTime() + SWEEP_INTERVAL_NANOS);
+
+  @Override
+  public void saveTraceContext(InterceptionEvent event) {
+    Slots slots = slotsFor(event);
+    if (slots.traceContext != null) {
+      slots.prevTraceContext = slots.traceContext;
+      slots.traceContext = null;
+    }
+  }
+
+  @Override
+  public Map<String, Object> restoreTraceContext(InterceptionEvent event) {
+    Slots slots = slotsFor(event);
+    Map<String, Object> prevContext = slots.prevTraceContext;
+    if (prevContext == null)
+      return null;
+    slots.traceContext = prevContext;
+    slots.prevTraceContext = null;
+    return prevContext;
+  }
+
+  @Override
+  public void setTraceContext(InterceptionEvent event, Map<String, Object> traceContext) {
+    slotsFor(event).traceContext = traceContext;
+  }
+
+  @Override
+  public void saveFlowContextId(InterceptionEvent event) {
+    Slots slots = slotsFor(event);
+    if (slots.flowContextId != null) {
+      slots.prevFlowContextId = slots.flowContextId;
+    }
+    slots.flowContextId = event.getContext().getId();
+  }
+
+  @Override
+  public void restoreFlowContextId(InterceptionEvent event) {
+    Slots slots = slotsFor(event);
+    if (slots.prevFlowContextId != null) {
+      slots.flowContextId = slots.prevFlowContextId;
+      slots.prevFlowContextId = null;
+    }
+  }
+
+  @Override
+  public Map<String, Object> getTraceContext(Event event) {
+    Slots slots = findSlots(event.getContext().getId());
+    return slots == null ? null : slots.traceContext;
+  }
+
+  @Override
+  public String getFlowContextId(Event event) {
+    Slots slots = findSlots(event.getContext().getId());
+    return slots == null ? null : slots.flowContextId;
+  }
+
+  @Override
+  public void release(String eventContextId) {
+    groups.computeIfPresent(getEventTransactionId(eventContextId), (id, group) -> {
+      if (id.equals(eventContextId)) {
+        // Root flow ended, nothing in the group is needed anymore
+        return null;
+      }
+      Slots slots = group.contexts.get(eventContextId);
+      if (slots != null) {
+        slots.released = true;
+        removeUnused(group, slots);
+      }
+      return group.contexts.isEmpty() ? null : group;
+    });
+    sweepIfDue(System.nanoTime());
+  }
+
+  /**
+   * Remove a released context without children, then its released ancestors
+   * that are left without children. Called with the group lock.
+   */
+  private static void removeUnused(Group group, Slots slots) {
+    while (slots != null && slots.released && slots.childCount == 0) {
+      group.contexts.remove(slots.contextId);
+      slots = slots.parent;
+      if (slots != null)
+        slots.childCount--;
+    }
+  }
+
+  private void sweepIfDue(long now) {
+    long next = nextSweepNanos.get();
+    if (now - next >= 0 && nextSweepNanos.compareAndSet(next, now + SWEEP_INTERVAL_NANOS)) {
+      removeIdleGroups(now);
+    }
+  }
+
+  void removeIdleGroups(long now) {
+    groups.values().removeIf(group -> now - group.lastAccess > IDLE_TIMEOUT_NANOS);
+  }
+
+  int size() {
+    return groups.size();
+  }
+
+  private Slots slotsFor(Event event) {
+    String contextId = event.getContext().getId();
+    String transactionId = getEventTransactionId(contextId);
+    Group group = groups.get(transactionId);
+    Slots slots = group == null ? null : group.contexts.get(contextId);
+    if (slots == null) {
+      // Added with the group lock, so a release does not remove the group meanwhile
+      group = groups.compute(transactionId, (id, existing) -> {
+        Group current = existing != null ? existing : new Group();
+        current.contexts.computeIfAbsent(contextId, key -> new Slots(key, findParentSlots(current, key)));
+        return current;
+      });
+      slots = group.contexts.get(contextId);
+    }
+    group.lastAccess = System.nanoTime();
+    return slots;
+  }
+
+  private Slots findSlots(String contextId) {
+    Group group = groups.get(getEventTransactionId(contextId));
+    if (group == null)
+      return null;
+    Slots slots = group.contexts.get(contextId);
+    return slots != null ? slots : findParentSlots(group, contextId);
+  }
+
+  /**
+   * Child context ids are the parent context id followed by `_` and a suffix.
+   */
+  private static Slots findParentSlots(Group group, String contextId) {
+    int index;
+    String parentId = contextId;
+    while ((index = parentId.lastIndexOf('_')) != -1) {
+      parentId = parentId.substring(0, index);
+      Slots slots = group.contexts.get(parentId);
+      if (slots != null)
+        return slots;
+    }
+    return null;
+  }
+
+  private static final class Group {
+    private final ConcurrentHashMap<String, Slots> contexts = new ConcurrentHashMap<>(4);
+    private volatile long lastAccess;
+  }
+
+  /**
+   * Trace context values of one event context. An event context is processed
+   * by one thread at a time. Parent links and child counts are only changed
+   * with the group lock.
+   */
+  private static final class Slots {
+    private final String contextId;
+    private final Slots parent;
+    private int childCount;
+    private boolean released;
+    private volatile Map<String, Object> traceContext;
+    private volatile Map<String, Object> prevTraceContext;
+    private volatile String flowContextId;
+    private volatile String prevFlowContextId;
+
+    private Slots(String contextId, Slots parent) {
+      this.contextId = contextId;
+      this.parent = parent;
+      if (parent != null) {
+        parent.childCount++;
+        traceContext = parent.traceContext;
+        prevTraceContext = parent.prevTraceContext;
+        flowContextId = parent.flowContextId;
+        prevFlowContextId = parent.prevFlowContextId;
+      }
+    }
+  }
+}
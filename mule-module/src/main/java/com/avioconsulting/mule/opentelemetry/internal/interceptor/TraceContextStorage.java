@@ -0,0 +1,105 @@
+package com.avioconsulting.mule.opentelemetry.internal.interceptor;
+
+import com.avioconsulting.mule.opentelemetry.internal.util.PropertiesUtil;
+import org.mule.runtime.api.event.Event;
+import org.mule.runtime.api.interception.InterceptionEvent;
+import org.mule.runtime.api.util.LazyValue;
+
+import java.util.Map;
+
+/**
+ * Keeps the trace context set by {@link ProcessorTracingInterceptor} for the
+ * processors of an event.
+ * <p>
+ * By default, the context is kept in flow variables, see
+ * {@link VariablesTraceContextStorage}. With the `side-table` storage, the
+ * context is kept inside the module by event context id and events are not
+ * modified, see {@link SideTableTraceContextStorage}.
+ */
+public abstract class TraceContextStorage {
+
+  /**
+   * Storage of the trace context set for intercepted processors. `variables`
+   * keeps it in `OTEL_TRACE_CONTEXT` and related flow variables. `side-table`
+   * keeps it inside the module by event context id and does not add any flow
+   * variables. Applications can then read the context only with
+   * `get-current-trace-context` operation.
+   *
+   * @default variables
+   */
+  public static final String MULE_OTEL_TRACE_CONTEXT_STORAGE = "mule.otel.trace.context.storage";
+
+  public static final String STORAGE_VARIABLES = "variables";
+  public static final String STORAGE_SIDE_TABLE = "side-table";
+
+  private static final LazyValue<TraceContextStorage> INSTANCE = new LazyValue<>(TraceContextStorage::create);
+
+  public static TraceContextStorage getInstance() {
+    return INSTANCE.get();
+  }
+
+  private static TraceContextStorage create() {
+    String storage = PropertiesUtil.getProperty(MULE_OTEL_TRACE_CONTEXT_STORAGE, STORAGE_VARIABLES);
+    return STORAGE_SIDE_TABLE.equalsIgnoreCase(storage) ? new SideTableTraceContextStorage()
+        : new VariablesTraceContextStorage();
+  }
+
+  /**
+   * Move the current trace context aside before an intercepted processor sets
+   * its own.
+   *
+   * @param event
+   *            {@link InterceptionEvent}
+   */
+  public abstract void saveTraceContext(InterceptionEvent event);
+
+  /**
+   * Restore the trace context moved aside by
+   * {@link #saveTraceContext(InterceptionEvent)}.
+   *
+   * @param event
+   *            {@link InterceptionEvent}
+   * @return restored trace context, or null if there was nothing to restore
+   */
+  public abstract Map<String, Object> restoreTraceContext(InterceptionEvent event);
+
+  public abstract void setTraceContext(InterceptionEvent event, Map<String, Object> traceContext);
+
+  /**
+   * Set the event context id as the flow context id, keeping the previous one to
+   * restore.
+   *
+   * @param event
+   *            {@link InterceptionEvent} of the first processor of a flow
+   */
+  public abstract void saveFlowContextId(InterceptionEvent event);
+
+  public abstract void restoreFlowContextId(InterceptionEvent event);
+
+  /**
+   * Get the trace context of the last intercepted processor of the event.
+   *
+   * @param event
+   *            {@link Event}
+   * @return trace context or null
+   */
+  public abstract Map<String, Object> getTraceContext(Event event);
+
+  /**
+   * Get the context id of the event that started the current flow.
+   *
+   * @param event
+   *            {@link Event}
+   * @return flow context id or null
+   */
+  public abstract String getFlowContextId(Event event);
+
+  /**
+   * Release the trace context kept for an event that completed processing.
+   *
+   * @param eventContextId
+   *            id of the event context
+   */
+  public void release(String eventContextId) {
+  }
+}
@@ -0,0 +1,68 @@
+package com.avioconsulting.mule.opentelemetry.internal.interceptor;
+
+import org.mule.runtime.api.event.Event;
+import org.mule.runtime.api.interception.InterceptionEvent;
+import org.mule.runtime.api.metadata.TypedValue;
+
+import java.util.Map;
+
+import static com.avioconsulting.mule.opentelemetry.api.store.TransactionStore.*;
+
+/**
+ * Keeps trace context in flow variables
+ * {@link com.avioconsulting.mule.opentelemetry.api.store.TransactionStore#TRACE_CONTEXT_MAP_KEY}
+ * and
+ * {@link com.avioconsulting.mule.opentelemetry.api.store.TransactionStore#OTEL_FLOW_CONTEXT_ID},
+ * along with the previous values to restore.
+ */
+public class VariablesTraceContextStorage extends TraceContextStorage {
+
+  @Override
+  public void saveTraceContext(InterceptionEvent event) {
+    switchVariable(event, TRACE_CONTEXT_MAP_KEY, TRACE_PREV_CONTEXT_MAP_KEY);
+  }
+
+  @Override
+  public Map<String, Object> restoreTraceContext(InterceptionEvent event) {
+    TypedValue<?> prevContext = switchVariable(event, TRACE_PREV_CONTEXT_MAP_KEY, TRACE_CONTEXT_MAP_KEY);
+    return prevContext == null ? null : (Map<String, Object>) prevContext.getValue();
+  }
+
+  @Override
+  public void setTraceContext(InterceptionEvent event, Map<String, Object> traceContext) {
+    event.addVariable(TRACE_CONTEXT_MAP_KEY, traceContext);
+  }
+
+  @Override
+  public void saveFlowContextId(InterceptionEvent event) {
+    switchVariable(event, OTEL_FLOW_CONTEXT_ID, OTEL_FLOW_PREV_CONTEXT_ID);
+    event.addVariable(OTEL_FLOW_CONTEXT_ID, event.getContext().getId());
+  }
+
+  @Override
+  public void restoreFlowContextId(InterceptionEvent event) {
+    switchVariable(event, OTEL_FLOW_PREV_CONTEXT_ID, OTEL_FLOW_CONTEXT_ID);
+  }
+
+  @Override
+  public Map<String, Object> getTraceContext(Event event) {
+    TypedValue<?> contextMap = event.getVariables().get(TRACE_CONTEXT_MAP_KEY);
+    return contextMap == null ? null : (Map<String, Object>) contextMap.getValue();
+  }
+
+  @Override
+  public String getFlowContextId(Event event) {
+    TypedValue<?> contextId = event.getVariables().get(OTEL_FLOW_CONTEXT_ID);
+    return contextId == null ? null : (String) contextId.getValue();
+  }
+
+  private TypedValue<?> switchVariable(InterceptionEvent event, String removalContextKey, String newContextKey) {
+    if (event.getVariables().containsKey(removalContextKey)) {
+      TypedValue<?> prevContext = event.getVariables().get(removalContextKey);
+      event.addVariable(newContextKey, prevContext);
+      event.removeVariable(removalContextKey);
+      return prevContext;
+    }
+    return null;
+  }
+}
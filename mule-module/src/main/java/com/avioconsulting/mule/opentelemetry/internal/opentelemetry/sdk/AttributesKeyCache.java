@@ -1,8 +1,10 @@
 package com.avioconsulting.mule.opentelemetry.internal.opentelemetry.sdk;
 
 import com.avioconsulting.mule.opentelemetry.api.sdk.SemanticAttributes;
-import com.avioconsulting.mule.opentelemetry.internal.util.memoizers.FunctionMemoizer;
+import com.avioconsulting.mule.opentelemetry.internal.util.PropertiesUtil;
+import io.opentelemetry.api.OpenTelemetry;
 import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.metrics.Meter;
 import io.opentelemetry.semconv.HttpAttributes;
 import io.opentelemetry.semconv.ServerAttributes;
 import io.opentelemetry.semconv.UrlAttributes;
@@ -11,21 +13,58 @@ import io.opentelemetry.semconv.incubating.ContainerIncubatingAttributes;
 import io.opentelemetry.semconv.incubating.DbIncubatingAttributes;
 import io.opentelemetry.semconv.incubating.HostIncubatingAttributes;
 import io.opentelemetry.semconv.incubating.MessagingIncubatingAttributes;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.lang.reflect.Field;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
-import java.util.function.Function;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 
 public class AttributesKeyCache {
 
-  private static final Map<String, AttributeKey<?>> attributeKeyMap = new HashMap<>(175, 0.75f);
+  private static final Logger LOGGER = LoggerFactory.getLogger(AttributesKeyCache.class);
+
+  /**
+   * Maximum number of converted numeric attribute values (such as content
+   * lengths) cached per value type, rounded down to a power of two.
+   *
+   * @default 1024
+   */
+  public static final String MULE_OTEL_ATTRIBUTES_VALUE_CACHE_SIZE = "mule.otel.attributes.value.cache.size";
+
+  /**
+   * Maximum number of custom (not semantic convention) attribute keys to cache.
+   * Keys beyond this limit are created on each use.
+   *
+   * @default 1000
+   */
+  public static final String MULE_OTEL_ATTRIBUTES_KEY_CACHE_MAX_CUSTOM = "mule.otel.attributes.key.cache.max.custom";
+
+  private static final Map<String, AttributeKey<?>> attributeKeyMap = new ConcurrentHashMap<>(256, 0.75f);
+  private static final int MAX_CUSTOM_KEYS = PropertiesUtil.getInt(MULE_OTEL_ATTRIBUTES_KEY_CACHE_MAX_CUSTOM, 1000);
+  private static final LongAdder keyHits = new LongAdder();
+  private static final LongAdder keyMisses = new LongAdder();
+
+  private static final String METER_NAME = "mule-opentelemetry-module.attributes";
+  private static final List<AutoCloseable> INSTRUMENTS = Collections.synchronizedList(new ArrayList<>());
+
+  private static final AttributeKey<Long> LONG_ELEMENT_KEY = AttributeKey.longKey("temp");
+  private static final AttributeKey<Double> DOUBLE_ELEMENT_KEY = AttributeKey.doubleKey("temp");
+  private static final AttributeKey<Boolean> BOOLEAN_ELEMENT_KEY = AttributeKey.booleanKey("temp");
+
+  private static final int semanticKeyCount;
 
   public AttributesKeyCache() {
   }
 
-  private final Function<String, Long> stringToLong = FunctionMemoizer.memoize(Long::valueOf);
-  private final Function<String, Double> stringToDouble = FunctionMemoizer.memoize(Double::valueOf);
+  private final ValueConversionCache<Long> stringToLong = new ValueConversionCache<>(Long::valueOf,
+      PropertiesUtil.getInt(MULE_OTEL_ATTRIBUTES_VALUE_CACHE_SIZE, 1024));
+  private final ValueConversionCache<Double> stringToDouble = new ValueConversionCache<>(Double::valueOf,
+      PropertiesUtil.getInt(MULE_OTEL_ATTRIBUTES_VALUE_CACHE_SIZE, 1024));
 
   static {
     mapFields(SemanticAttributes.class.getDeclaredFields());
@@ -37,6 +76,9 @@ public class AttributesKeyCache {
     mapFields(HostIncubatingAttributes.class.getDeclaredFields());
     mapFields(ContainerIncubatingAttributes.class.getDeclaredFields());
     mapFields(MessagingIncubatingAttributes.class.getDeclaredFields());
+
+    // Only semantic keys are mapped at this point
+    semanticKeyCount = attributeKeyMap.size();
   }
 
   private static void mapFields(Field[] declaredFields) {
@@ -52,14 +94,18 @@ public class AttributesKeyCache {
     }
   }
 
-  private final Object lock = new Object();
-
   public AttributeKey<?> getAttributeKey(String keyString) {
     AttributeKey<?> key = attributeKeyMap.get(keyString);
-    if (key == null) {
-      key = AttributeKey.stringKey(keyString);
-      synchronized (lock) {
-        attributeKeyMap.put(keyString, key);
+    if (key != null) {
+      keyHits.increment();
+      return key;
+    }
+    keyMisses.increment();
+    key = AttributeKey.stringKey(keyString);
+    if (attributeKeyMap.size() < semanticKeyCount + MAX_CUSTOM_KEYS) {
+      AttributeKey<?> existing = attributeKeyMap.putIfAbsent(keyString, key);
+      if (existing != null) {
+        return existing;
       }
     }
     return key;
@@ -74,22 +120,87 @@ public class AttributesKeyCache {
       case STRING:
         return (T) value;
       case LONG:
-        return (T) stringToLong.apply(value);
+        return (T) stringToLong.get(value);
       case DOUBLE:
-        return (T) stringToDouble.apply(value);
+        return (T) stringToDouble.get(value);
       case BOOLEAN:
         return (T) Boolean.valueOf(value);
       case STRING_ARRAY:
         return (T) new String[] { value };
       case LONG_ARRAY:
-        return (T) new Long[] { convertValue(AttributeKey.longKey("temp"), value) };
+        return (T) new Long[] { convertValue(LONG_ELEMENT_KEY, value) };
       case DOUBLE_ARRAY:
-        return (T) new Double[] { convertValue(AttributeKey.doubleKey("temp"), value) };
+        return (T) new Double[] { convertValue(DOUBLE_ELEMENT_KEY, value) };
       case BOOLEAN_ARRAY:
-        return (T) new Boolean[] { convertValue(AttributeKey.booleanKey("temp"), value) };
+        return (T) new Boolean[] { convertValue(BOOLEAN_ELEMENT_KEY, value) };
       default:
         throw new IllegalArgumentException("Unsupported attribute type: " + key.getType());
     }
   }
 
+  public static long getKeyHitCount() {
+    return keyHits.sum();
+  }
+
+  public static long getKeyMissCount() {
+    return keyMisses.sum();
+  }
+
+  public long getValueCacheHitCount() {
+    return stringToLong.getHitCount() + stringToDouble.getHitCount();
+  }
+
+  public long getValueCacheMissCount() {
+    return stringToLong.getMissCount() + stringToDouble.getMissCount();
+  }
+
+  public long getValueCacheEvictionCount() {
+    return stringToLong.getEvictionCount() + stringToDouble.getEvictionCount();
+  }
+
+  public int getValueCacheSize() {
+    return stringToLong.size() + stringToDouble.size();
+  }
+
+  /**
+   * Register asynchronous instruments reporting the hit, miss and eviction
+   * counts of the attribute key cache and the value conversion caches of the
+   * given cache.
+   *
+   * @param openTelemetry
+   *            {@link OpenTelemetry} to get the {@link Meter} from
+   * @param cache
+   *            {@link AttributesKeyCache} whose value caches to report
+   */
+  public static synchronized void registerInstruments(OpenTelemetry openTelemetry, AttributesKeyCache cache) {
+    if (openTelemetry == null || !INSTRUMENTS.isEmpty())
+      return;
+    Meter meter = openTelemetry.getMeter(METER_NAME);
+    INSTRUMENTS.add(meter.counterBuilder("mule.otel.attributes.key.cache.hits")
+        .setDescription("Number of attribute key lookups served from cache")
+        .buildWithCallback(measurement -> measurement.record(getKeyHitCount())));
+    INSTRUMENTS.add(meter.counterBuilder("mule.otel.attributes.key.cache.misses")
+        .setDescription("Number of attribute key lookups that created a key")
+        .buildWithCallback(measurement -> measurement.record(getKeyMissCount())));
+    INSTRUMENTS.add(meter.counterBuilder("mule.otel.attributes.value.cache.hits")
+        .setDescription("Number of attribute value conversions served from cache")
+        .buildWithCallback(measurement -> measurement.record(cache.getValueCacheHitCount())));
+    INSTRUMENTS.add(meter.counterBuilder("mule.otel.attributes.value.cache.misses")
+        .setDescription("Number of attribute values converted")
+        .buildWithCallback(measurement -> measurement.record(cache.getValueCacheMissCount())));
+    INSTRUMENTS.add(meter.counterBuilder("mule.otel.attributes.value.cache.evictions")
+        .setDescription("Number of converted attribute values replaced in cache")
+        .buildWithCallback(measurement -> measurement.record(cache.getValueCacheEvictionCount())));
+  }
+
+  public static synchronized void closeInstruments() {
+    for (AutoCloseable instrument : INSTRUMENTS) {
+      try {
+        instrument.close();
+      } catch (Exception e) {
+        LOGGER.trace("Failed to close attributes cache instrument - {}", e.getMessage());
+      }
+    }
+    INSTRUMENTS.clear();
+  }
 }
@@ -0,0 +1,171 @@
+package com.avioconsulting.mule.opentelemetry.internal.opentelemetry.sdk;
+
+import io.opentelemetry.context.Context;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.trace.ReadWriteSpan;
+import io.opentelemetry.sdk.trace.ReadableSpan;
+import io.opentelemetry.sdk.trace.SpanProcessor;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import org.mule.runtime.api.util.LazyValue;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Tracks the span load of this node: spans started, and spans waiting in the
+ * export queue of the span processors.
+ * <p>
+ * The batch span processor does not expose its queue, so the queue depth is
+ * derived from the sampled spans ended through the wrapped processors and the
+ * spans passed to the wrapped exporters. Spans ending while the depth is at the
+ * queue capacity are not counted, as the batch span processor drops them.
+ */
+public class ExportPressureMonitor {
+
+  /**
+   * Default of `otel.bsp.max.queue.size`.
+   */
+  public static final int DEFAULT_QUEUE_SIZE = 2048;
+
+  private static final LazyValue<ExportPressureMonitor> INSTANCE = new LazyValue<>(ExportPressureMonitor::new);
+
+  private final LongAdder startedSpans = new LongAdder();
+  private final AtomicLong queuedSpans = new AtomicLong();
+  private final AtomicLong queueCapacity = new AtomicLong();
+
+  public static ExportPressureMonitor getInstance() {
+    return INSTANCE.get();
+  }
+
+  // Visible for testing purpose
+  ExportPressureMonitor() {
+  }
+
+  /**
+   * Wrap a span processor to count the spans it starts and queues.
+   *
+   * @param spanProcessor
+   *            {@link SpanProcessor} exporting through a wrapped exporter
+   * @param queueSize
+   *            maximum number of spans queued by the processor
+   * @return {@link SpanProcessor}
+   */
+  public SpanProcessor wrap(SpanProcessor spanProcessor, int queueSize) {
+    queueCapacity.addAndGet(Math.max(1, queueSize));
+    return new MonitoredSpanProcessor(spanProcessor);
+  }
+
+  /**
+   * Wrap a span exporter to count the spans taken from the queue.
+   *
+   * @param spanExporter
+   *            {@link SpanExporter}
+   * @return {@link SpanExporter}
+   */
+  public SpanExporter wrap(SpanExporter spanExporter) {
+    return new MonitoredSpanExporter(spanExporter);
+  }
+
+  /**
+   * @return number of spans started since the last call
+   */
+  public long sumStartedSpansThenReset() {
+    return startedSpans.sumThenReset();
+  }
+
+  /**
+   * @return spans waiting for export as a ratio of the queue capacity, 0 when no
+   *         processor is wrapped
+   */
+  public double getQueueFillRatio() {
+    long capacity = queueCapacity.get();
+    return capacity == 0 ? 0 : Math.min(1, queuedSpans.get() / (double) capacity);
+  }
+
+  private void spanQueued() {
+    long capacity = queueCapacity.get();
+    queuedSpans.updateAndGet(queued -> queued < capacity ? queued + 1 : queued);
+  }
+
+  private void spansExported(int count) {
+    queuedSpans.updateAndGet(queued -> Math.max(0, queued - count));
+  }
+
+  private class MonitoredSpanProcessor implements SpanProcessor {
+    private final SpanProcessor delegate;
+
+    private MonitoredSpanProcessor(SpanProcessor delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public void onStart(Context parentContext, ReadWriteSpan span) {
+      startedSpans.increment();
+      if (delegate.isStartRequired()) {
+        delegate.onStart(parentContext, span);
+      }
+    }
+
+    @Override
+    public boolean isStartRequired() {
+      return true;
+    }
+
+    @Override
+    public void onEnd(ReadableSpan span) {
+      if (delegate.isEndRequired()) {
+        if (span.getSpanContext().isSampled()) {
+          // Count before the delegate, a synchronous processor exports right away
+          spanQueued();
+        }
+        delegate.onEnd(span);
+      }
+    }
+
+    @Override
+    public boolean isEndRequired() {
+      return true;
+    }
+
+    @Override
+    public CompletableResultCode shutdown() {
+      return delegate.shutdown();
+    }
+
+    @Override
+    public CompletableResultCode forceFlush() {
+      return delegate.forceFlush();
+    }
+  }
+
+  private class MonitoredSpanExporter implements SpanExporter {
+    private final SpanExporter delegate;
+
+    private MonitoredSpanExporter(SpanExporter delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public CompletableResultCode export(Collection<SpanData> spans) {
+      spansExported(spans.size());
+      return delegate.export(spans);
+    }
+
+    @Override
+    public CompletableResultCode flush() {
+      return delegate.flush();
+    }
+
+    @Override
+    public CompletableResultCode shutdown() {
+      return delegate.shutdown();
+    }
+
+    @Override
+    public String toString() {
+      return delegate.toString();
+    }
+  }
+}
@@ -0,0 +1,199 @@
+package com.avioconsulting.mule.opentelemetry.internal.opentelemetry.sdk;
+
+import com.avioconsulting.mule.opentelemetry.api.config.FlowSamplerConfiguration;
+import com.avioconsulting.mule.opentelemetry.api.config.FlowSamplingRate;
+import com.avioconsulting.mule.opentelemetry.internal.util.TokenBucket;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanContext;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.sdk.trace.data.LinkData;
+import io.opentelemetry.sdk.trace.samplers.Sampler;
+import io.opentelemetry.sdk.trace.samplers.SamplingDecision;
+import io.opentelemetry.sdk.trace.samplers.SamplingResult;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+import static com.avioconsulting.mule.opentelemetry.api.sdk.SemanticAttributes.MULE_APP_FLOW_NAME;
+
+/**
+ * {@link Sampler} rate limiting the traces sampled for each root flow.
+ * <p>
+ * Transaction root spans carry their flow name in
+ * {@link com.avioconsulting.mule.opentelemetry.api.sdk.SemanticAttributes#MULE_APP_FLOW_NAME}
+ * when the span is started. When the wrapped sampler samples such a span and
+ * its parent is not a local span, a permit is taken from the token bucket of
+ * the flow and from the global bucket. Other spans use the decision of the
+ * wrapped sampler, so spans of a transaction follow its root.
+ * <p>
+ * Flow rates are adjusted every second. When the flows that received traffic
+ * would sample more than the global ceiling together, the ceiling is shared
+ * between them so that flows needing less than an equal share keep what they
+ * need, and busier flows split the rest.
+ */
+public class FlowRateLimitingSampler implements Sampler {
+
+  private static final long ADJUST_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+  private final Sampler delegate;
+  private final double tracesPerSecondPerFlow;
+  private final double maxTracesPerSecond;
+  private final Map<String, Double> flowTargets;
+  private final TokenBucket globalBucket;
+  private final ConcurrentHashMap<String, FlowBucket> flowBuckets = new ConcurrentHashMap<>();
+  private final LongSupplier nanoClock;
+  private final AtomicLong nextAdjustNanos;
+  private long lastAdjustNanos;
+
+  public FlowRateLimitingSampler(Sampler delegate, FlowSamplerConfiguration configuration) {
+    this(delegate, configuration, System::nanoTime);
+  }
+
+  FlowRateLimitingSampler(Sampler delegate, FlowSamplerConfiguration configuration, LongSupplier nanoClock) {
+    this.delegate = delegate;
+    this.tracesPerSecondPerFlow = configuration.getTracesPerSecondPerFlow();
+    this.maxTracesPerSecond = configuration.getMaxTracesPerSecond();
+    Map<String, Double> targets = new HashMap<>();
+    for (FlowSamplingRate rate : configuration.getFlowSamplingRates()) {
+      targets.put(rate.getFlowName(), rate.getTracesPerSecond());
+    }
+    this.flowTargets = Collections.unmodifiableMap(targets);
+    this.nanoClock = nanoClock;
+    this.globalBucket = new TokenBucket(maxTracesPerSecond, capacity(maxTracesPerSecond), nanoClock);
+    this.lastAdjustNanos = nanoClock.getAsLong();
+    this.nextAdjustNanos = new AtomicLong(lastAdjustNanos + ADJUST_INTERVAL_NANOS);
+  }
+
+  @Override
+  public SamplingResult shouldSample(Context parentContext, String traceId, String name, SpanKind spanKind,
+      Attributes attributes, List<LinkData> parentLinks) {
+    SamplingResult result = delegate.shouldSample(parentContext, traceId, name, spanKind, attributes,
+        parentLinks);
+    if (!SamplingDecision.RECORD_AND_SAMPLE.equals(result.getDecision())) {
+      return result;
+    }
+    String flowName = attributes.get(MULE_APP_FLOW_NAME);
+    if (flowName == null) {
+      return result;
+    }
+    SpanContext parent = Span.fromContext(parentContext).getSpanContext();
+    if (parent.isValid() && !parent.isRemote()) {
+      // Flows invoked within a transaction follow their parent
+      return result;
+    }
+    adjustIfDue();
+    FlowBucket bucket = flowBuckets.computeIfAbsent(flowName, this::createBucket);
+    bucket.requests.increment();
+    if (bucket.tokens.tryAcquire()) {
+      if (globalBucket.tryAcquire()) {
+        return result;
+      }
+      // Traces dropped by the global ceiling do not use the flow's budget
+      bucket.tokens.release();
+    }
+    return SamplingResult.drop();
+  }
+
+  private FlowBucket createBucket(String flowName) {
+    double target = flowTargets.getOrDefault(flowName, tracesPerSecondPerFlow);
+    return new FlowBucket(target, new TokenBucket(target, capacity(target), nanoClock));
+  }
+
+  /**
+   * Allow a burst of one second worth of traces, and at least one trace unless
+   * the rate is 0.
+   */
+  private static double capacity(double ratePerSecond) {
+    return ratePerSecond <= 0 ? 0 : Math.max(1, ratePerSecond);
+  }
+
+  private void adjustIfDue() {
+    long next = nextAdjustNanos.get();
+    long now = nanoClock.getAsLong();
+    if (now - next >= 0 && nextAdjustNanos.compareAndSet(next, now + ADJUST_INTERVAL_NANOS)) {
+      adjustRates(now);
+    }
+  }
+
+  /**
+   * Share the global ceiling between the flows that received traffic since the
+   * last adjustment. A flow's demand is the smaller of its target and its
+   * observed rate. Demands below the equal share are met in full, and the flows
+   * above it are limited to the share of what remains.
+   *
+   * @param now
+   *            current {@link System#nanoTime()}
+   */
+  synchronized void adjustRates(long now) {
+    double elapsedSeconds = Math.max(1, now - lastAdjustNanos) / (double) TimeUnit.SECONDS.toNanos(1);
+    lastAdjustNanos = now;
+    List<Double> demands = new ArrayList<>(flowBuckets.size());
+    for (FlowBucket bucket : flowBuckets.values()) {
+      double observed = bucket.requests.sumThenReset() / elapsedSeconds;
+      if (observed > 0) {
+        demands.add(Math.min(bucket.target, observed));
+      }
+    }
+    double level = fairShareLevel(demands, maxTracesPerSecond);
+    for (FlowBucket bucket : flowBuckets.values()) {
+      double rate = Math.min(bucket.target, level);
+      bucket.tokens.setRate(rate, capacity(rate));
+    }
+  }
+
+  /**
+   * Compute the rate limit that shares the capacity between the demands, so that
+   * demands below the limit are met and the total does not exceed the capacity.
+   *
+   * @return rate limit, {@link Double#MAX_VALUE} when all demands fit
+   */
+  static double fairShareLevel(List<Double> demands, double capacity) {
+    Collections.sort(demands);
+    double remaining = capacity;
+    for (int i = 0; i < demands.size(); i++) {
+      double share = remaining / (demands.size() - i);
+      if (demands.get(i) > share) {
+        return share;
+      }
+      remaining -= demands.get(i);
+    }
+    return Double.MAX_VALUE;
+  }
+
+  double getFlowRate(String flowName) {
+    FlowBucket bucket = flowBuckets.get(flowName);
+    return bucket == null ? -1 : bucket.tokens.getRatePerSecond();
+  }
+
+  @Override
+  public String getDescription() {
+    return String.format("FlowRateLimitingSampler{delegate=%s, tracesPerSecondPerFlow=%s, maxTracesPerSecond=%s}",
+        delegate.getDescription(), tracesPerSecondPerFlow, maxTracesPerSecond);
+  }
+
+  @Override
+  public String toString() {
+    return getDescription();
+  }
+
+  private static final class FlowBucket {
+    private final double target;
+    private final TokenBucket tokens;
+    private final LongAdder requests = new LongAdder();
+
+    private FlowBucket(double target, TokenBucket tokens) {
+      this.target = target;
+      this.tokens = tokens;
+    }
+  }
+}
@@ -0,0 +1,338 @@
+package com.avioconsulting.mule.opentelemetry.internal.opentelemetry.sdk;
+
+import com.avioconsulting.mule.opentelemetry.api.traces.AttributeTagMap;
+import com.avioconsulting.mule.opentelemetry.api.traces.TagKey;
+import io.opentelemetry.api.common.AttributeKey;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Tag {@link Map} that keeps values of well-known attribute keys in a
+ * fixed-slot array. Each key the module sets on spans has a stable slot
+ * assigned by {@link TagKey#slotOf(String)}. Other keys, and known
+ * keys with null values, are kept in an overflow {@link HashMap}. The slot
+ * array is allocated with the first well-known key.
+ *
+ * Adding tags does not allocate entries, tags added with a {@link TagKey} skip
+ * the slot lookup, and copying to another
+ * {@link SlotTagMap} or converting to attributes is an iteration over the used
+ * slots with pre-resolved {@link AttributeKey}s.
+ *
+ * Not thread-safe, same as the {@link HashMap} it replaces.
+ */
+public final class SlotTagMap extends AbstractMap<String, String> implements AttributeTagMap {
+
+  private static final int INITIAL_USED_CAPACITY = 16;
+
+  private String[] values;
+  /**
+   * Slots holding a value, in no particular order.
+   */
+  private int[] usedSlots = new int[INITIAL_USED_CAPACITY];
+  private int usedCount;
+  private Map<String, String> overflow;
+  private Set<Entry<String, String>> entrySet;
+
+  @Override
+  public int size() {
+    return usedCount + (overflow == null ? 0 : overflow.size());
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return size() == 0;
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    if (!(key instanceof String))
+      return false;
+    if (hasSlotValue(TagKey.slotOf((String) key)))
+      return true;
+    return overflow != null && overflow.containsKey(key);
+  }
+
+  @Override
+  public String get(Object key) {
+    if (!(key instanceof String))
+      return null;
+    int slot = TagKey.slotOf((String) key);
+    if (hasSlotValue(slot))
+      return values[slot];
+    return overflow == null ? null : overflow.get(key);
+  }
+
+  @Override
+  public String put(String key, String value) {
+    return put(TagKey.slotOf(key), key, value);
+  }
+
+  @Override
+  public String put(TagKey key, String value) {
+    return put(key.getSlot(), key.getKey(), value);
+  }
+
+  private String put(int slot, String key, String value) {
+    if (slot < 0 || value == null) {
+      String previous = slot >= 0 ? clearSlot(slot) : null;
+      String overflowPrevious = overflow().put(key, value);
+      return previous != null ? previous : overflowPrevious;
+    }
+    String[] slotValues = values();
+    String previous = slotValues[slot];
+    if (previous == null) {
+      previous = removeOverflow(key);
+      markUsed(slot);
+    }
+    slotValues[slot] = value;
+    return previous;
+  }
+
+  @Override
+  public String remove(Object key) {
+    if (!(key instanceof String))
+      return null;
+    int slot = TagKey.slotOf((String) key);
+    if (hasSlotValue(slot)) {
+      return clearSlot(slot);
+    }
+    return overflow == null ? null : overflow.remove(key);
+  }
+
+  @Override
+  public void putAll(Map<? extends String, ? extends String> source) {
+    if (!(source instanceof SlotTagMap)) {
+      super.putAll(source);
+      return;
+    }
+    SlotTagMap other = (SlotTagMap) source;
+    if (other.usedCount > 0) {
+      String[] slotValues = values();
+      for (int i = 0; i < other.usedCount; i++) {
+        int slot = other.usedSlots[i];
+        if (slotValues[slot] == null) {
+          // Known key may be in overflow with a null value
+          removeOverflow(TagKey.slotKey(slot).getKey());
+          markUsed(slot);
+        }
+        slotValues[slot] = other.values[slot];
+      }
+    }
+    if (other.overflow != null && !other.overflow.isEmpty()) {
+      other.overflow.forEach(this::put);
+    }
+  }
+
+  @Override
+  public void clear() {
+    for (int i = 0; i < usedCount; i++) {
+      values[usedSlots[i]] = null;
+    }
+    usedCount = 0;
+    if (overflow != null) {
+      overflow.clear();
+    }
+  }
+
+  @Override
+  public void forEach(BiConsumer<? super String, ? super String> action) {
+    for (int i = 0; i < usedCount; i++) {
+      int slot = usedSlots[i];
+      action.accept(TagKey.slotKey(slot).getKey(), values[slot]);
+    }
+    if (overflow != null && !overflow.isEmpty()) {
+      overflow.forEach(action);
+    }
+  }
+
+  /**
+   * {@inheritDoc} Slot keys are pre-resolved, only overflow keys go through the
+   * {@code keyResolver}.
+   */
+  @Override
+  public void forEachAttribute(Function<String, AttributeKey<?>> keyResolver,
+      BiConsumer<AttributeKey<?>, String> action) {
+    for (int i = 0; i < usedCount; i++) {
+      int slot = usedSlots[i];
+      action.accept(TagKey.slotKey(slot), values[slot]);
+    }
+    if (overflow != null && !overflow.isEmpty()) {
+      overflow.forEach((key, value) -> action.accept(keyResolver.apply(key), value));
+    }
+  }
+
+  @Override
+  public Set<Entry<String, String>> entrySet() {
+    if (entrySet == null) {
+      entrySet = new EntrySet();
+    }
+    return entrySet;
+  }
+
+  private String[] values() {
+    if (values == null) {
+      values = new String[TagKey.slotCount()];
+    }
+    return values;
+  }
+
+  private boolean hasSlotValue(int slot) {
+    return slot >= 0 && values != null && values[slot] != null;
+  }
+
+  private String removeOverflow(String key) {
+    return overflow == null || overflow.isEmpty() ? null : overflow.remove(key);
+  }
+
+  private Map<String, String> overflow() {
+    if (overflow == null) {
+      overflow = new HashMap<>();
+    }
+    return overflow;
+  }
+
+  private void markUsed(int slot) {
+    if (usedCount == usedSlots.length) {
+      usedSlots = Arrays.copyOf(usedSlots, Math.min(usedSlots.length << 1, values.length));
+    }
+    usedSlots[usedCount++] = slot;
+  }
+
+  private String clearSlot(int slot) {
+    if (values == null)
+      return null;
+    String previous = values[slot];
+    if (previous == null)
+      return null;
+    values[slot] = null;
+    for (int i = 0; i < usedCount; i++) {
+      if (usedSlots[i] == slot) {
+        removeUsedAt(i);
+        break;
+      }
+    }
+    return previous;
+  }
+
+  private void removeUsedAt(int index) {
+    usedSlots[index] = usedSlots[--usedCount];
+  }
+
+  private final class EntrySet extends AbstractSet<Entry<String, String>> {
+
+    @Override
+    public Iterator<Entry<String, String>> iterator() {
+      return new EntryIterator();
+    }
+
+    @Override
+    public int size() {
+      return SlotTagMap.this.size();
+    }
+
+    @Override
+    public void clear() {
+      SlotTagMap.this.clear();
+    }
+  }
+
+  private final class EntryIterator implements Iterator<Entry<String, String>> {
+    private int next;
+    private int lastSlotIndex = -1;
+    private Iterator<Entry<String, String>> overflowIterator;
+
+    @Override
+    public boolean hasNext() {
+      if (next < usedCount)
+        return true;
+      if (overflowIterator == null) {
+        if (overflow == null)
+          return false;
+        overflowIterator = overflow.entrySet().iterator();
+      }
+      return overflowIterator.hasNext();
+    }
+
+    @Override
+    public Entry<String, String> next() {
+      if (next < usedCount) {
+        lastSlotIndex = next;
+        return new SlotEntry(usedSlots[next++]);
+      }
+      if (!hasNext())
+        throw new NoSuchElementException();
+      lastSlotIndex = -1;
+      return overflowIterator.next();
+    }
+
+    @Override
+    public void remove() {
+      if (lastSlotIndex < 0) {
+        if (overflowIterator == null)
+          throw new IllegalStateException();
+        overflowIterator.remove();
+        return;
+      }
+      values[usedSlots[lastSlotIndex]] = null;
+      // Last used slot is swapped into the removed position, visit it next
+      removeUsedAt(lastSlotIndex);
+      next = lastSlotIndex;
+      lastSlotIndex = -1;
+    }
+  }
+
+  private final class SlotEntry implements Entry<String, String> {
+    private final int slot;
+
+    private SlotEntry(int slot) {
+      this.slot = slot;
+    }
+
+    @Override
+    public String getKey() {
+      return TagKey.slotKey(slot).getKey();
+    }
+
+    @Override
+    public String getValue() {
+      return values[slot];
+    }
+
+    @Override
+    public String setValue(String value) {
+      if (value == null) {
+        throw new UnsupportedOperationException("Use remove to clear a tag value");
+      }
+      String previous = values[slot];
+      values[slot] = value;
+      return previous;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof Entry))
+        return false;
+      Entry<?, ?> that = (Entry<?, ?>) o;
+      return getKey().equals(that.getKey()) && values[slot] != null && values[slot].equals(that.getValue());
+    }
+
+    @Override
+    public int hashCode() {
+      return getKey().hashCode() ^ (values[slot] == null ? 0 : values[slot].hashCode());
+    }
+
+    @Override
+    public String toString() {
+      return getKey() + "=" + values[slot];
+    }
+  }
+}
@@ -0,0 +1,549 @@
+package com.avioconsulting.mule.opentelemetry.internal.opentelemetry.sdk;
+
+import com.avioconsulting.mule.opentelemetry.internal.util.PropertiesUtil;
+import com.avioconsulting.mule.opentelemetry.internal.util.TokenBucket;
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.metrics.Meter;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanContext;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.trace.ReadWriteSpan;
+import io.opentelemetry.sdk.trace.ReadableSpan;
+import io.opentelemetry.sdk.trace.SpanProcessor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * {@link SpanProcessor} that decides whether to export a trace after its Mule
+ * transactions complete, and passes the spans of kept traces to the wrapped
+ * processor.
+ * <p>
+ * Ended spans are buffered by trace id while any local root span of the trace,
+ * i.e. the root span of a flow or batch transaction, is still open. When the
+ * last local root ends, the trace is kept if the module set an error status on
+ * any of its spans (see {@link #recordError(Span)}), if a root span took longer
+ * than the latency threshold, or if the rate limit for other traces allows it.
+ * Spans ending after the decision follow the same decision.
+ * <p>
+ * The number of buffered spans is bounded. When the budget is exceeded, the
+ * oldest buffered traces are exported or dropped as per the overflow policy
+ * until the buffer is within the budget again. Traces waiting longer than the
+ * decision wait time are decided the same way. Waiting traces are checked every second
+ * by a background task, and on {@link #forceFlush()} and {@link #shutdown()}.
+ * <p>
+ * Processors wrapping the span processors of one SDK share a
+ * {@link TraceDecisions}, so all exporters get the same decision for a trace.
+ */
+public class TailSamplingSpanProcessor implements SpanProcessor {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(TailSamplingSpanProcessor.class);
+
+  /**
+   * Enable tail sampling of traces. Traces must be sampled by the head sampler
+   * (`otel.traces.sampler`) to be buffered.
+   *
+   * @default false
+   */
+  public static final String MULE_OTEL_TAIL_SAMPLING_ENABLED = "mule.otel.tail.sampling.enabled";
+
+  /**
+   * Traces with a root span taking at least this long are always exported.
+   *
+   * @default 2000
+   */
+  public static final String MULE_OTEL_TAIL_SAMPLING_LATENCY_THRESHOLD_MS = "mule.otel.tail.sampling.latency.threshold.ms";
+
+  /**
+   * Maximum number of traces per second exported without errors or high
+   * latency.
+   *
+   * @default 10
+   */
+  public static final String MULE_OTEL_TAIL_SAMPLING_RATE_LIMIT = "mule.otel.tail.sampling.rate.limit";
+
+  /**
+   * Maximum number of ended spans buffered while waiting for trace decisions.
+   *
+   * @default 50000
+   */
+  public static final String MULE_OTEL_TAIL_SAMPLING_MAX_BUFFERED_SPANS = "mule.otel.tail.sampling.max.buffered.spans";
+
+  /**
+   * Policy for traces decided early because the span buffer is full or the
+   * decision wait time passed. `export` exports the trace, `drop` discards it.
+   *
+   * @default export
+   */
+  public static final String MULE_OTEL_TAIL_SAMPLING_OVERFLOW = "mule.otel.tail.sampling.overflow";
+
+  /**
+   * Maximum time in seconds a trace is buffered waiting for its root spans to
+   * end.
+   *
+   * @default 60
+   */
+  public static final String MULE_OTEL_TAIL_SAMPLING_DECISION_WAIT_SECONDS = "mule.otel.tail.sampling.decision.wait.seconds";
+
+  static final String OVERFLOW_EXPORT = "export";
+  static final String OVERFLOW_DROP = "drop";
+  static final AttributeKey<String> DECISION = AttributeKey.stringKey("mule.otel.tail.sampling.decision");
+  static final AttributeKey<String> REASON = AttributeKey.stringKey("mule.otel.tail.sampling.reason");
+  private static final String METER_NAME = "mule-opentelemetry-module.tail.sampling";
+  private static final int DECIDED_TRACES_SIZE = 10000;
+  private static final long EXPIRY_INTERVAL_MILLIS = 1000;
+
+  private static final List<TailSamplingSpanProcessor> PROCESSORS = new CopyOnWriteArrayList<>();
+  private static final List<AutoCloseable> INSTRUMENTS = Collections.synchronizedList(new ArrayList<>());
+  private static ScheduledExecutorService expiryExecutor;
+
+  /**
+   * Reasons of trace decisions.
+   */
+  enum Decision {
+    ERROR(true), LATENCY(true), RATE(true), RATE_LIMITED(false), OVERFLOW_EXPORTED(true), OVERFLOW_DROPPED(
+        false);
+
+    private final boolean keep;
+    private final Attributes attributes;
+
+    Decision(boolean keep) {
+      this.keep = keep;
+      this.attributes = Attributes.of(DECISION, keep ? "keep" : "drop", REASON, name().toLowerCase());
+    }
+
+    boolean isKeep() {
+      return keep;
+    }
+  }
+
+  /**
+   * Trace decisions shared by the tail sampling processors of an SDK. The rate
+   * limit is applied once per trace, and a trace decided by one processor gets
+   * the same decision in the others.
+   */
+  public static final class TraceDecisions {
+    private final TokenBucket rateLimiter;
+    private final Map<String, Decision> decidedTraces = new LinkedHashMap<String, Decision>(16, 0.75f, false) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, Decision> eldest) {
+        return size() > DECIDED_TRACES_SIZE;
+      }
+    };
+
+    public TraceDecisions() {
+      this(PropertiesUtil.getInt(MULE_OTEL_TAIL_SAMPLING_RATE_LIMIT, 10));
+    }
+
+    TraceDecisions(int rateLimit) {
+      this.rateLimiter = new TokenBucket(rateLimit, rateLimit);
+    }
+
+    private synchronized Decision get(String traceId) {
+      return decidedTraces.get(traceId);
+    }
+
+    /**
+     * Get the decision of the trace, making it with the supplier if no processor
+     * decided the trace yet.
+     */
+    private synchronized Decision decide(String traceId, Supplier<Decision> decision) {
+      Decision decided = decidedTraces.get(traceId);
+      if (decided == null) {
+        decided = decision.get();
+        decidedTraces.put(traceId, decided);
+      }
+      return decided;
+    }
+  }
+
+  private final SpanProcessor delegate;
+  private final long latencyThresholdNanos;
+  private final TraceDecisions traceDecisions;
+  private final int maxBufferedSpans;
+  private final boolean dropOnOverflow;
+  private final long decisionWaitNanos;
+  private final LongSupplier nanoClock;
+
+  private final ConcurrentHashMap<String, TraceBuffer> traces = new ConcurrentHashMap<>();
+  // Buffers in creation order for overflow eviction, decided ones are purged
+  // lazily
+  private final ConcurrentLinkedQueue<TraceBuffer> bufferOrder = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger bufferedSpans = new AtomicInteger();
+  private final LongAdder[] decisions = new LongAdder[Decision.values().length];
+
+  public TailSamplingSpanProcessor(SpanProcessor delegate) {
+    this(delegate, new TraceDecisions());
+  }
+
+  /**
+   * @param delegate
+   *            {@link SpanProcessor} receiving the spans of kept traces
+   * @param traceDecisions
+   *            {@link TraceDecisions} shared with the other tail sampling
+   *            processors of the SDK
+   */
+  public TailSamplingSpanProcessor(SpanProcessor delegate, TraceDecisions traceDecisions) {
+    this(delegate,
+        PropertiesUtil.getInt(MULE_OTEL_TAIL_SAMPLING_LATENCY_THRESHOLD_MS, 2000),
+        traceDecisions,
+        PropertiesUtil.getInt(MULE_OTEL_TAIL_SAMPLING_MAX_BUFFERED_SPANS, 50000),
+        OVERFLOW_DROP.equalsIgnoreCase(PropertiesUtil.getProperty(MULE_OTEL_TAIL_SAMPLING_OVERFLOW, OVERFLOW_EXPORT)),
+        TimeUnit.SECONDS.toMillis(PropertiesUtil.getInt(MULE_OTEL_TAIL_SAMPLING_DECISION_WAIT_SECONDS, 60)),
+        System::nanoTime);
+  }
+
+  TailSamplingSpanProcessor(SpanProcessor delegate, long latencyThresholdMillis, int rateLimit,
+      int maxBufferedSpans, boolean dropOnOverflow, long decisionWaitMillis, LongSupplier nanoClock) {
+    this(delegate, latencyThresholdMillis, new TraceDecisions(rateLimit), maxBufferedSpans, dropOnOverflow,
+        decisionWaitMillis, nanoClock);
+  }
+
+  TailSamplingSpanProcessor(SpanProcessor delegate, long latencyThresholdMillis, TraceDecisions traceDecisions,
+      int maxBufferedSpans, boolean dropOnOverflow, long decisionWaitMillis, LongSupplier nanoClock) {
+    this.delegate = delegate;
+    this.latencyThresholdNanos = TimeUnit.MILLISECONDS.toNanos(latencyThresholdMillis);
+    this.traceDecisions = traceDecisions;
+    this.maxBufferedSpans = Math.max(1, maxBufferedSpans);
+    this.dropOnOverflow = dropOnOverflow;
+    this.decisionWaitNanos = TimeUnit.MILLISECONDS.toNanos(decisionWaitMillis);
+    this.nanoClock = nanoClock;
+    for (int i = 0; i < decisions.length; i++) {
+      decisions[i] = new LongAdder();
+    }
+    PROCESSORS.add(this);
+    scheduleExpiry();
+  }
+
+  private static synchronized void scheduleExpiry() {
+    if (expiryExecutor != null)
+      return;
+    expiryExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "mule-otel-tail-sampling-expiry");
+      thread.setDaemon(true);
+      return thread;
+    });
+    expiryExecutor.scheduleWithFixedDelay(TailSamplingSpanProcessor::expireAllTraces, EXPIRY_INTERVAL_MILLIS,
+        EXPIRY_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+  }
+
+  private static synchronized void stopExpiryWhenUnused() {
+    if (PROCESSORS.isEmpty() && expiryExecutor != null) {
+      expiryExecutor.shutdownNow();
+      expiryExecutor = null;
+    }
+  }
+
+  private static void expireAllTraces() {
+    for (TailSamplingSpanProcessor processor : PROCESSORS) {
+      try {
+        processor.expireTraces(processor.nanoClock.getAsLong(), false);
+      } catch (Exception e) {
+        LOGGER.warn("Failed to expire tail sampling traces - {}", e.getMessage());
+      }
+    }
+  }
+
+  public static boolean isEnabled() {
+    return PropertiesUtil.getBoolean(MULE_OTEL_TAIL_SAMPLING_ENABLED, false);
+  }
+
+  private static boolean isLocalRoot(ReadableSpan span) {
+    SpanContext parent = span.getParentSpanContext();
+    return !parent.isValid() || parent.isRemote();
+  }
+
+  @Override
+  public void onStart(Context parentContext, ReadWriteSpan span) {
+    if (delegate.isStartRequired()) {
+      delegate.onStart(parentContext, span);
+    }
+    if (span.getSpanContext().isSampled() && isLocalRoot(span)) {
+      traces.compute(span.getSpanContext().getTraceId(), (traceId, buffer) -> {
+        if (buffer == null) {
+          buffer = new TraceBuffer(traceId, nanoClock.getAsLong());
+          bufferOrder.offer(buffer);
+        }
+        synchronized (buffer) {
+          buffer.openRoots++;
+        }
+        return buffer;
+      });
+    }
+  }
+
+  @Override
+  public boolean isStartRequired() {
+    return true;
+  }
+
+  @Override
+  public void onEnd(ReadableSpan span) {
+    if (!span.getSpanContext().isSampled()) {
+      // Wrapped processors do not export spans that are not sampled
+      return;
+    }
+    String traceId = span.getSpanContext().getTraceId();
+    TraceBuffer buffer = traces.get(traceId);
+    if (buffer == null) {
+      Decision decision = traceDecisions.get(traceId);
+      // Spans of traces without a buffered root are exported as before
+      if (decision == null || decision.isKeep()) {
+        delegate.onEnd(span);
+      }
+    } else {
+      boolean overflow = false;
+      synchronized (buffer) {
+        if (buffer.decision != null) {
+          if (buffer.decision.isKeep()) {
+            delegate.onEnd(span);
+          }
+        } else {
+          buffer.spans.add(span);
+          overflow = bufferedSpans.incrementAndGet() > maxBufferedSpans;
+          if (isLocalRoot(span)) {
+            buffer.openRoots--;
+            buffer.maxRootLatencyNanos = Math.max(buffer.maxRootLatencyNanos, span.getLatencyNanos());
+          }
+          if (buffer.openRoots <= 0) {
+            decide(traceId, buffer, () -> sample(buffer));
+          }
+        }
+      }
+      // Outside of the buffer lock, eviction locks the oldest buffer
+      if (overflow) {
+        while (bufferedSpans.get() > maxBufferedSpans) {
+          if (!evictOldest())
+            break;
+        }
+      }
+    }
+  }
+
+  /**
+   * Decide the oldest undecided trace as per the overflow policy.
+   *
+   * @return false if no trace is waiting for a decision
+   */
+  private boolean evictOldest() {
+    TraceBuffer buffer;
+    while ((buffer = bufferOrder.poll()) != null) {
+      synchronized (buffer) {
+        if (buffer.decision == null) {
+          decide(buffer.traceId, buffer, this::overflowDecision);
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Mark the trace of the span to be kept. Called where the module sets an error
+   * status on a span, so the status does not need to be read back from every
+   * buffered span.
+   *
+   * @param span
+   *            {@link Span} with an error status
+   */
+  public static void recordError(Span span) {
+    if (PROCESSORS.isEmpty())
+      return;
+    String traceId = span.getSpanContext().getTraceId();
+    for (TailSamplingSpanProcessor processor : PROCESSORS) {
+      TraceBuffer buffer = processor.traces.get(traceId);
+      if (buffer != null) {
+        synchronized (buffer) {
+          buffer.error = true;
+        }
+      }
+    }
+  }
+
+  /**
+   * Set the status of the span, marking its trace to be kept when the status is
+   * an error.
+   *
+   * @param span
+   *            {@link Span} to set the status on
+   * @param statusCode
+   *            {@link StatusCode}
+   * @param description
+   *            status description, may be null
+   */
+  public static void setStatus(Span span, StatusCode statusCode, String description) {
+    span.setStatus(statusCode, description);
+    if (StatusCode.ERROR.equals(statusCode)) {
+      recordError(span);
+    }
+  }
+
+  @Override
+  public boolean isEndRequired() {
+    return true;
+  }
+
+  private Decision sample(TraceBuffer buffer) {
+    if (buffer.error) {
+      return Decision.ERROR;
+    }
+    if (buffer.maxRootLatencyNanos >= latencyThresholdNanos) {
+      return Decision.LATENCY;
+    }
+    return traceDecisions.rateLimiter.tryAcquire() ? Decision.RATE : Decision.RATE_LIMITED;
+  }
+
+  private Decision overflowDecision() {
+    return dropOnOverflow ? Decision.OVERFLOW_DROPPED : Decision.OVERFLOW_EXPORTED;
+  }
+
+  /**
+   * Apply the decision to the buffered spans of the trace. The trace gets the
+   * decision another processor already made for it, if any. Caller must hold
+   * the lock of the buffer.
+   */
+  private void decide(String traceId, TraceBuffer buffer, Supplier<Decision> decisionSupplier) {
+    Decision decision = traceDecisions.decide(traceId, decisionSupplier);
+    buffer.decision = decision;
+    traces.remove(traceId, buffer);
+    bufferedSpans.addAndGet(-buffer.spans.size());
+    decisions[decision.ordinal()].increment();
+    if (decision.isKeep()) {
+      for (ReadableSpan span : buffer.spans) {
+        delegate.onEnd(span);
+      }
+    }
+    buffer.spans.clear();
+    if (LOGGER.isTraceEnabled()) {
+      LOGGER.trace("Tail sampling decision for trace {} - {}", traceId, decision);
+    }
+  }
+
+  /**
+   * Decide traces waiting longer than the decision wait time as per the overflow
+   * policy.
+   *
+   * @param now
+   *            current {@link System#nanoTime()}
+   * @param all
+   *            true to decide all traces irrespective of their wait time
+   */
+  void expireTraces(long now, boolean all) {
+    for (Map.Entry<String, TraceBuffer> entry : traces.entrySet()) {
+      TraceBuffer buffer = entry.getValue();
+      if (all || now - buffer.createdNanos > decisionWaitNanos) {
+        synchronized (buffer) {
+          if (buffer.decision == null) {
+            decide(entry.getKey(), buffer, this::overflowDecision);
+          }
+        }
+      }
+    }
+    bufferOrder.removeIf(buffer -> buffer.decision != null);
+  }
+
+  int getBufferedSpanCount() {
+    return bufferedSpans.get();
+  }
+
+  int getBufferedTraceCount() {
+    return traces.size();
+  }
+
+  long getDecisionCount(Decision decision) {
+    return decisions[decision.ordinal()].sum();
+  }
+
+  @Override
+  public CompletableResultCode shutdown() {
+    PROCESSORS.remove(this);
+    stopExpiryWhenUnused();
+    // Traces still open are decided as per overflow policy
+    expireTraces(nanoClock.getAsLong(), true);
+    return delegate.shutdown();
+  }
+
+  @Override
+  public CompletableResultCode forceFlush() {
+    expireTraces(nanoClock.getAsLong(), false);
+    return delegate.forceFlush();
+  }
+
+  /**
+   * Register asynchronous instruments reporting decisions and buffer usage of
+   * all tail sampling processors.
+   *
+   * @param openTelemetry
+   *            {@link OpenTelemetry} to get the {@link Meter} from
+   */
+  public static synchronized void registerInstruments(OpenTelemetry openTelemetry) {
+    if (openTelemetry == null || !INSTRUMENTS.isEmpty())
+      return;
+    Meter meter = openTelemetry.getMeter(METER_NAME);
+    INSTRUMENTS.add(meter.counterBuilder("mule.otel.tail.sampling.traces")
+        .setDescription("Number of traces decided by tail sampling")
+        .buildWithCallback(measurement -> {
+          for (Decision decision : Decision.values()) {
+            long count = 0;
+            for (TailSamplingSpanProcessor processor : PROCESSORS) {
+              count += processor.getDecisionCount(decision);
+            }
+            measurement.record(count, decision.attributes);
+          }
+        }));
+    INSTRUMENTS.add(meter.upDownCounterBuilder("mule.otel.tail.sampling.buffered.spans")
+        .setDescription("Number of ended spans waiting for a tail sampling decision")
+        .buildWithCallback(measurement -> measurement.record(
+            PROCESSORS.stream().mapToLong(TailSamplingSpanProcessor::getBufferedSpanCount).sum())));
+    INSTRUMENTS.add(meter.upDownCounterBuilder("mule.otel.tail.sampling.buffered.traces")
+        .setDescription("Number of traces waiting for a tail sampling decision")
+        .buildWithCallback(measurement -> measurement.record(
+            PROCESSORS.stream().mapToLong(TailSamplingSpanProcessor::getBufferedTraceCount).sum())));
+  }
+
+  public static synchronized void closeInstruments() {
+    for (AutoCloseable instrument : INSTRUMENTS) {
+      try {
+        instrument.close();
+      } catch (Exception e) {
+        LOGGER.trace("Failed to close tail sampling instrument - {}", e.getMessage());
+      }
+    }
+    INSTRUMENTS.clear();
+  }
+
+  private static final class TraceBuffer {
+    private final String traceId;
+    private final long createdNanos;
+    private final List<ReadableSpan> spans = new ArrayList<>();
+    private int openRoots;
+    private boolean error;
+    private long maxRootLatencyNanos;
+    // Read without the lock when purging the buffer order
+    private volatile Decision decision;
+
+    private TraceBuffer(String traceId, long createdNanos) {
+      this.traceId = traceId;
+      this.createdNanos = createdNanos;
+    }
+  }
+}
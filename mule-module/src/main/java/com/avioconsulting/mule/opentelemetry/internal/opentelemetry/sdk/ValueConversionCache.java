@@ -0,0 +1,82 @@
+package com.avioconsulting.mule.opentelemetry.internal.opentelemetry.sdk;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Size-capped, direct-mapped cache of converted attribute values. Each value
+ * string maps to one slot of a fixed array; a conversion replaces whatever
+ * entry was in its slot. Entries are immutable, so lookups are a plain array
+ * read without locks.
+ *
+ * @param <V>
+ *            converted value type
+ */
+class ValueConversionCache<V> {
+
+  private final Entry<V>[] table;
+  private final int mask;
+  private final Function<String, V> converter;
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+
+  @SuppressWarnings("unchecked")
+  ValueConversionCache(Function<String, V> converter, int maxSize) {
+    this.converter = converter;
+    // Largest power of two within maxSize, so the cache never exceeds it
+    int capacity = Integer.highestOneBit(Math.max(1, maxSize));
+    table = new Entry[capacity];
+    mask = capacity - 1;
+  }
+
+  V get(String value) {
+    int h = value.hashCode();
+    int index = (h ^ (h >>> 16)) & mask;
+    Entry<V> entry = table[index];
+    if (entry != null && entry.key.equals(value)) {
+      hits.increment();
+      return entry.value;
+    }
+    misses.increment();
+    if (entry != null) {
+      evictions.increment();
+    }
+    V converted = converter.apply(value);
+    // Racy publication is safe, entry fields are final
+    table[index] = new Entry<>(value, converted);
+    return converted;
+  }
+
+  int size() {
+    int size = 0;
+    for (Entry<V> entry : table) {
+      if (entry != null)
+        size++;
+    }
+    return size;
+  }
+
+  long getHitCount() {
+    return hits.sum();
+  }
+
+  long getMissCount() {
+    return misses.sum();
+  }
+
+  long getEvictionCount() {
+    return evictions.sum();
+  }
+
+  private static final class Entry<V> {
+    private final String key;
+    private final V value;
+
+    private Entry(String key, V value) {
+      this.key = key;
+      this.value = value;
+    }
+  }
+}
@@ -1,6 +1,7 @@
 package com.avioconsulting.mule.opentelemetry.internal.processor;
 
 import com.avioconsulting.mule.opentelemetry.api.processor.ProcessorComponent;
+import com.avioconsulting.mule.opentelemetry.api.traces.TagKey;
 import com.avioconsulting.mule.opentelemetry.api.traces.TraceComponent;
 import com.avioconsulting.mule.opentelemetry.internal.processor.service.ComponentRegistryService;
 import com.avioconsulting.mule.opentelemetry.internal.processor.util.TraceComponentManager;
@@ -31,6 +32,7 @@ public abstract class AbstractProcessorComponent implements ProcessorComponent {
   public static final String FLOW = "flow";
 
   private static final Logger LOGGER = LoggerFactory.getLogger(AbstractProcessorComponent.class);
+  static final TagKey CORRELATION_ID_TAG = TagKey.of(MULE_CORRELATION_ID);
 
   protected ExpressionManager expressionManager;
   protected ComponentRegistryService componentRegistryService;
@@ -84,20 +86,38 @@ public abstract class AbstractProcessorComponent implements ProcessorComponent {
   protected TraceComponent getTraceComponentBuilderFor(EnrichedServerNotification notification) {
     TraceComponent traceComponent = TraceComponentManager.getInstance()
         .createTraceComponent(getTransactionId(notification), notification.getResourceIdentifier(),
-            notification.getComponent().getLocation())
+            notification.getComponent().getLocation(), getLocationId(notification.getComponent()))
         .withErrorMessage(
             notification.getEvent().getError().map(Error::getDescription).orElse(null));
     addBatchTags(traceComponent, notification.getEvent());
     return traceComponent;
   }
 
+  /**
+   * Resolve the id of the component location once for the trace component of an
+   * event.
+   *
+   * @param component
+   *            {@link Component}
+   * @return location id or {@link TraceComponent#UNKNOWN_LOCATION_ID}
+   */
+  protected int getLocationId(Component component) {
+    return componentRegistryService == null ? TraceComponent.UNKNOWN_LOCATION_ID
+        : componentRegistryService.getLocationId(component);
+  }
+
   protected String getTransactionId(EnrichedServerNotification notification) {
     return getEventTransactionId(notification.getEvent());
   }
 
   protected void addProcessorCommonTags(Component component, TraceComponent collector) {
-    ComponentWrapper componentWrapper = componentRegistryService.getComponentWrapper(component);
-    collector.addAllTags(componentWrapper.staticParametersAsReadOnlyMap());
+    ComponentWrapper componentWrapper = componentRegistryService.getComponentWrapper(collector, component);
+    if (componentWrapper.staticParametersAsAttributes() != null) {
+      collector.withStaticTags(componentWrapper.staticParametersAsReadOnlyMap(),
+          componentWrapper.staticParametersAsAttributes());
+    } else {
+      collector.addAllTags(componentWrapper.staticParametersAsReadOnlyMap());
+    }
   }
 
   protected ComponentIdentifier getSourceIdentifier(EnrichedServerNotification notification) {
@@ -147,13 +167,14 @@ public abstract class AbstractProcessorComponent implements ProcessorComponent {
   public TraceComponent getStartTraceComponent(Component component, Event event) {
     ComponentWrapper componentWrapper = componentRegistryService.getComponentWrapper(component);
     TraceComponent traceComponent = TraceComponentManager.getInstance()
-        .createTraceComponent(getEventTransactionId(event), component)
+        .createTraceComponent(getEventTransactionId(event), component.getLocation().getLocation(),
+            component.getLocation(), componentWrapper.getLocationId())
         .withSpanName(componentWrapper.getDefaultSpanName())
         .withSpanKind(getSpanKind())
         .withEventContextId(event.getContext().getId());
 
     addProcessorCommonTags(component, traceComponent);
-    traceComponent.addTag(MULE_CORRELATION_ID.getKey(), event.getCorrelationId());
+    traceComponent.addTag(CORRELATION_ID_TAG, event.getCorrelationId());
     addAttributes(component, event.getMessage().getAttributes(), traceComponent);
 
     addBatchTags(traceComponent, event);
@@ -67,7 +67,7 @@ public class AnypointMQProcessorComponent extends AbstractProcessorComponent {
 
   @Override
   protected <A> void addAttributes(Component component, TypedValue<A> attributes, TraceComponent collector) {
-    ComponentWrapper componentWrapper = componentRegistryService.getComponentWrapper(component);
+    ComponentWrapper componentWrapper = componentRegistryService.getComponentWrapper(collector, component);
     Map<String, String> connectionParams = componentWrapper.getConfigConnectionParameters();
 
     collector.addTag(MessagingIncubatingAttributes.MESSAGING_CLIENT_ID.getKey(), connectionParams.get("clientId"));
@@ -1,7 +1,9 @@
 package com.avioconsulting.mule.opentelemetry.internal.processor;
 
+import com.avioconsulting.mule.opentelemetry.api.traces.TraceComponent;
 import com.avioconsulting.mule.opentelemetry.internal.processor.service.ComponentRegistryService;
 import com.avioconsulting.mule.opentelemetry.internal.util.OpenTelemetryUtil;
+import io.opentelemetry.api.common.Attributes;
 import org.mule.runtime.api.component.Component;
 import org.mule.runtime.api.component.location.Location;
 import org.slf4j.Logger;
@@ -27,10 +29,27 @@ public class ComponentWrapper {
   private String defaultSpanName;
   private static final Logger LOGGER = LoggerFactory.getLogger(ComponentWrapper.class);
   private final Map<String, String> staticParameters;
+  private final Attributes staticAttributes;
+  private final boolean hasExpressions;
+  private final int locationId;
 
   public ComponentWrapper(Component component, ComponentRegistryService componentRegistryService) {
+    this(component, componentRegistryService, TraceComponent.UNKNOWN_LOCATION_ID);
+  }
+
+  /**
+   * @param component
+   *            {@link Component} to wrap
+   * @param componentRegistryService
+   *            {@link ComponentRegistryService}
+   * @param locationId
+   *            id of the component location in the location registry
+   */
+  public ComponentWrapper(Component component, ComponentRegistryService componentRegistryService,
+      int locationId) {
     this.component = component;
     this.componentRegistryService = componentRegistryService;
+    this.locationId = locationId;
     Map<? extends String, ? extends String> componentAnnotation = getComponentAnnotation(
         "{config}componentParameters");
     parameters = componentAnnotation != null ? Collections.unmodifiableMap(componentAnnotation)
@@ -39,6 +58,54 @@ public class ComponentWrapper {
     connectionParameters = Collections.unmodifiableMap(initConnectionParameters());
     setDefaultSpanName(component);
     staticParameters = setStaticParameters();
+    staticAttributes = initStaticAttributes();
+    hasExpressions = initHasExpressions();
+  }
+
+  /**
+   * Tags and span names of this component's spans are built from its own and
+   * its configuration's parameters. If none of them hold an expression, there is
+   * nothing to resolve per event.
+   */
+  private boolean initHasExpressions() {
+    return containsExpression(defaultSpanName)
+        || parameters.values().stream().anyMatch(ComponentWrapper::containsExpression)
+        || configParameters.values().stream().anyMatch(ComponentWrapper::containsExpression)
+        || connectionParameters.values().stream().anyMatch(ComponentWrapper::containsExpression)
+        || staticParameters.values().stream().anyMatch(ComponentWrapper::containsExpression);
+  }
+
+  private static boolean containsExpression(String value) {
+    return value != null && value.contains("#[");
+  }
+
+  /**
+   * Check if any parameter used for span names or tags of this component is an
+   * expression to resolve per event.
+   *
+   * @return true if expressions may need to be resolved
+   */
+  public boolean hasExpressions() {
+    return hasExpressions;
+  }
+
+  /**
+   * Build span attributes for the static parameters once, so spans of this
+   * location can apply them without converting each parameter. Parameters with
+   * expressions must be resolved per event, so no attributes are built for them.
+   */
+  private Attributes initStaticAttributes() {
+    for (String value : staticParameters.values()) {
+      if (value != null && value.contains("#[")) {
+        return null;
+      }
+    }
+    try {
+      return OpenTelemetryUtil.tagsToAttributes(staticParameters);
+    } catch (Exception ex) {
+      LOGGER.trace("Failed to build static attributes for {} - {}", component.getLocation(), ex.getMessage());
+      return null;
+    }
   }
 
   private Map<String, String> setStaticParameters() {
@@ -55,6 +122,15 @@ public class ComponentWrapper {
     return Collections.unmodifiableMap(staticParameters);
   }
 
+  /**
+   * @return id of the component location, or
+   *         {@link TraceComponent#UNKNOWN_LOCATION_ID} if the location is not
+   *         registered
+   */
+  public int getLocationId() {
+    return locationId;
+  }
+
   /**
    * Retrieves the static parameters associated with the component.
    *
@@ -65,6 +141,16 @@ public class ComponentWrapper {
     return staticParameters;
   }
 
+  /**
+   * Retrieves the static parameters as pre-built span {@link Attributes}.
+   *
+   * @return {@link Attributes} or null if static parameters need per-event
+   *         processing
+   */
+  public Attributes staticParametersAsAttributes() {
+    return staticAttributes;
+  }
+
   private void setDefaultSpanName(Component component) {
     String name = component.getLocation().getComponentIdentifier().getIdentifier().getNamespace();
     if (name.equalsIgnoreCase("apikit")) {
@@ -4,7 +4,7 @@ import com.avioconsulting.mule.opentelemetry.api.traces.TraceComponent;
 import com.avioconsulting.mule.opentelemetry.internal.processor.db.DBConnectionConfigParser;
 import com.avioconsulting.mule.opentelemetry.internal.processor.db.DBInfo;
 import com.avioconsulting.mule.opentelemetry.internal.processor.db.JDBCUrlParser;
-import com.avioconsulting.mule.opentelemetry.internal.util.memoizers.BiFunctionMemoizer;
+import com.avioconsulting.mule.opentelemetry.internal.util.memoizers.BoundedBiFunctionMemoizer;
 import io.opentelemetry.api.trace.SpanKind;
 import io.opentelemetry.semconv.incubating.DbIncubatingAttributes;
 import org.mule.runtime.api.component.Component;
@@ -85,12 +85,12 @@ public class DBProcessorComponent extends AbstractProcessorComponent {
     return startTraceComponent;
   }
 
-  private final BiFunctionMemoizer<String, ComponentWrapper, DBInfo> dbInfoBiFunctionMemoizer = BiFunctionMemoizer
-      .memoize((configName, cw) -> getDbInfo(cw));
+  private final BoundedBiFunctionMemoizer<String, ComponentWrapper, DBInfo> dbInfoBiFunctionMemoizer = BoundedBiFunctionMemoizer
+      .memoize("DBProcessorComponent.dbInfo", (configName, cw) -> getDbInfo(cw));
 
   @Override
   protected <A> void addAttributes(Component component, TypedValue<A> attributes, TraceComponent collector) {
-    ComponentWrapper componentWrapper = componentRegistryService.getComponentWrapper(component);
+    ComponentWrapper componentWrapper = componentRegistryService.getComponentWrapper(collector, component);
 
     DBInfo dbInfo = dbInfoBiFunctionMemoizer.apply(componentWrapper.getConfigRef(), componentWrapper);
 
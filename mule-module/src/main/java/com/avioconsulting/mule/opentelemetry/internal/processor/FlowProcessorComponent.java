@@ -1,16 +1,16 @@
 package com.avioconsulting.mule.opentelemetry.internal.processor;
 
 import com.avioconsulting.mule.opentelemetry.api.processor.ProcessorComponent;
-import com.avioconsulting.mule.opentelemetry.api.store.TransactionStore;
+import com.avioconsulting.mule.opentelemetry.api.traces.TagKey;
 import com.avioconsulting.mule.opentelemetry.api.traces.TraceComponent;
 import com.avioconsulting.mule.opentelemetry.internal.connection.TraceContextHandler;
+import com.avioconsulting.mule.opentelemetry.internal.interceptor.TraceContextStorage;
 import com.avioconsulting.mule.opentelemetry.internal.processor.service.ProcessorComponentService;
 import com.avioconsulting.mule.opentelemetry.internal.processor.util.TraceComponentManager;
 import io.opentelemetry.api.trace.SpanKind;
 import io.opentelemetry.api.trace.StatusCode;
 import io.opentelemetry.context.Context;
 import org.mule.runtime.api.component.ComponentIdentifier;
-import org.mule.runtime.api.metadata.TypedValue;
 import org.mule.runtime.api.notification.EnrichedServerNotification;
 
 import java.util.Collections;
@@ -21,6 +21,13 @@ import static com.avioconsulting.mule.opentelemetry.api.sdk.SemanticAttributes.*
 import static com.avioconsulting.mule.opentelemetry.internal.util.BatchHelperUtil.addBatchTags;
 
 public class FlowProcessorComponent extends AbstractProcessorComponent {
+
+  private static final TagKey FLOW_NAME_TAG = TagKey.of(MULE_APP_FLOW_NAME);
+  private static final TagKey SERVER_ID_TAG = TagKey.of(MULE_SERVER_ID);
+  private static final TagKey FLOW_SOURCE_NAME_TAG = TagKey.of(MULE_APP_FLOW_SOURCE_NAME);
+  private static final TagKey FLOW_SOURCE_NAMESPACE_TAG = TagKey.of(MULE_APP_FLOW_SOURCE_NAMESPACE);
+  private static final TagKey FLOW_SOURCE_CONFIG_REF_TAG = TagKey.of(MULE_APP_FLOW_SOURCE_CONFIG_REF);
+
   @Override
   public boolean canHandle(ComponentIdentifier componentIdentifier) {
     return namespaceSupported(componentIdentifier)
@@ -50,9 +57,9 @@ public class FlowProcessorComponent extends AbstractProcessorComponent {
         notification.getComponent().getLocation());
 
     addProcessorCommonTags(notification.getComponent(), traceComponent);
-    traceComponent.addTag(MULE_APP_FLOW_NAME.getKey(), notification.getResourceIdentifier());
-    traceComponent.addTag(MULE_SERVER_ID.getKey(), notification.getServerId());
-    traceComponent.addTag(MULE_CORRELATION_ID.getKey(), notification.getEvent().getCorrelationId());
+    traceComponent.addTag(FLOW_NAME_TAG, notification.getResourceIdentifier());
+    traceComponent.addTag(SERVER_ID_TAG, notification.getServerId());
+    traceComponent.addTag(CORRELATION_ID_TAG, notification.getEvent().getCorrelationId());
 
     traceComponent
         .withSpanName(notification.getResourceIdentifier())
@@ -69,23 +76,21 @@ public class FlowProcessorComponent extends AbstractProcessorComponent {
     if (sourceIdentifier == null) {
       // Private flows should be treated as internal spans
       startTraceComponent.withSpanKind(SpanKind.INTERNAL);
-      if (notification.getEvent().getVariables().containsKey(TransactionStore.TRACE_CONTEXT_MAP_KEY)) {
-        // When flows are called using flow-ref, the variables may contain the parent
-        // span information
-        TypedValue<Map<String, String>> contextMap = ((TypedValue<Map<String, String>>) notification.getEvent()
-            .getVariables().get(TransactionStore.TRACE_CONTEXT_MAP_KEY));
-        Context traceContext = traceContextHandler.getTraceContext(contextMap.getValue(),
-            ContextMapGetter.INSTANCE);
+      // When flows are called using flow-ref, the trace context may contain the
+      // parent span information
+      Map<String, Object> contextMap = TraceContextStorage.getInstance().getTraceContext(notification.getEvent());
+      if (contextMap != null) {
+        Context traceContext = traceContextHandler.getTraceContext(contextMap, ContextMapGetter.INSTANCE);
         startTraceComponent.withContext(traceContext);
       }
       return startTraceComponent;
     }
-    startTraceComponent.addTag(MULE_APP_FLOW_SOURCE_NAME.getKey(), sourceIdentifier.getName());
-    startTraceComponent.addTag(MULE_APP_FLOW_SOURCE_NAMESPACE.getKey(), sourceIdentifier.getNamespace());
+    startTraceComponent.addTag(FLOW_SOURCE_NAME_TAG, sourceIdentifier.getName());
+    startTraceComponent.addTag(FLOW_SOURCE_NAMESPACE_TAG, sourceIdentifier.getNamespace());
     ComponentWrapper sourceWrapper = componentRegistryService
         .getComponentWrapper(componentRegistryService.findComponentByLocation(
             notification.getEvent().getContext().getOriginatingLocation().getLocation()));
-    startTraceComponent.addTag(MULE_APP_FLOW_SOURCE_CONFIG_REF.getKey(), sourceWrapper.getConfigRef());
+    startTraceComponent.addTag(FLOW_SOURCE_CONFIG_REF_TAG, sourceWrapper.getConfigRef());
     // Find if there is a processor component to handle flow source component.
     // If exists, allow it to process notification and build any additional tags to
     // include in a trace.
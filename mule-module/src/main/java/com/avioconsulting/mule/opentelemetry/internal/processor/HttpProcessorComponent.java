@@ -1,6 +1,7 @@
 package com.avioconsulting.mule.opentelemetry.internal.processor;
 
 import com.avioconsulting.mule.opentelemetry.api.sdk.SemanticAttributes;
+import com.avioconsulting.mule.opentelemetry.api.traces.TagKey;
 import com.avioconsulting.mule.opentelemetry.api.traces.TraceComponent;
 import com.avioconsulting.mule.opentelemetry.internal.connection.TraceContextHandler;
 import com.avioconsulting.mule.opentelemetry.internal.processor.util.HttpSpanUtil;
@@ -37,6 +38,14 @@ public class HttpProcessorComponent extends AbstractProcessorComponent {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(HttpProcessorComponent.class);
   private static final char DOUBLE_QUOTE = '"';
+  private static final TagKey STATUS_CODE_TAG = TagKey.of(HTTP_RESPONSE_STATUS_CODE);
+  private static final TagKey CONTENT_LENGTH_TAG = TagKey.of(SemanticAttributes.HTTP_RESPONSE_HEADER_CONTENT_LENGTH);
+  private static final TagKey USER_AGENT_TAG = TagKey.of(UserAgentAttributes.USER_AGENT_ORIGINAL);
+  private static final TagKey METHOD_TAG = TagKey.of(HTTP_REQUEST_METHOD);
+  private static final TagKey SCHEME_TAG = TagKey.of(URL_SCHEME);
+  private static final TagKey ROUTE_TAG = TagKey.of(HTTP_ROUTE);
+  private static final TagKey PATH_TAG = TagKey.of(URL_PATH);
+  private static final TagKey QUERY_TAG = TagKey.of(URL_QUERY);
 
   @Override
   protected String getNamespace() {
@@ -103,12 +112,10 @@ public class HttpProcessorComponent extends AbstractProcessorComponent {
     // If HTTP Requester generates an error (e.g. 404), then error message does
     // include the HTTP Response attributes.
     HttpResponseAttributes attributes = responseAttributes.getValue();
-    endTraceComponent.addTag(HTTP_RESPONSE_STATUS_CODE.getKey(),
-        Integer.toString(attributes.getStatusCode()));
+    endTraceComponent.addTag(STATUS_CODE_TAG, Integer.toString(attributes.getStatusCode()));
     endTraceComponent.withStatsCode(getSpanStatus(false, attributes.getStatusCode()));
     if (attributes.getHeaders().containsKey("content-length")) {
-      endTraceComponent.addTag(SemanticAttributes.HTTP_RESPONSE_HEADER_CONTENT_LENGTH.getKey(),
-          attributes.getHeaders().get("content-length"));
+      endTraceComponent.addTag(CONTENT_LENGTH_TAG, attributes.getHeaders().get("content-length"));
     }
     return endTraceComponent;
   }
@@ -138,7 +145,7 @@ public class HttpProcessorComponent extends AbstractProcessorComponent {
   @Override
   protected <A> void addAttributes(Component component, TypedValue<A> attributes,
       final TraceComponent collector) {
-    ComponentWrapper componentWrapper = componentRegistryService.getComponentWrapper(component);
+    ComponentWrapper componentWrapper = componentRegistryService.getComponentWrapper(collector, component);
     if (isRequester(component.getIdentifier())) {
       getRequesterTags(componentWrapper, collector);
     } else {
@@ -205,7 +212,7 @@ public class HttpProcessorComponent extends AbstractProcessorComponent {
           statusCode = statusCode.substring(1, statusCode.length() - 1);
         }
         TraceComponent traceComponent = getTraceComponentBuilderFor(notification);
-        traceComponent.addTag(HTTP_RESPONSE_STATUS_CODE.getKey(), statusCode);
+        traceComponent.addTag(STATUS_CODE_TAG, statusCode);
         traceComponent.withStatsCode(getSpanStatus(true, Integer.parseInt(statusCode)));
         return traceComponent;
       }
@@ -228,13 +235,13 @@ public class HttpProcessorComponent extends AbstractProcessorComponent {
       final TraceComponent collector) {
     // TODO: Server span should have client.address
     // tags.put(SERVER_ADDRESS.getKey(), attributes.getHeaders().get("host"));
-    collector.addTag(UserAgentAttributes.USER_AGENT_ORIGINAL.getKey(), attributes.getHeaders().get("user-agent"));
-    collector.addTag(HTTP_REQUEST_METHOD.getKey(), attributes.getMethod());
-    collector.addTag(URL_SCHEME.getKey(), attributes.getScheme());
-    collector.addTag(HTTP_ROUTE.getKey(), attributes.getListenerPath());
-    collector.addTag(URL_PATH.getKey(), attributes.getRequestPath());
+    collector.addTag(USER_AGENT_TAG, attributes.getHeaders().get("user-agent"));
+    collector.addTag(METHOD_TAG, attributes.getMethod());
+    collector.addTag(SCHEME_TAG, attributes.getScheme());
+    collector.addTag(ROUTE_TAG, attributes.getListenerPath());
+    collector.addTag(PATH_TAG, attributes.getRequestPath());
     if (attributes.getQueryString() != null) {
-      collector.addTag(URL_QUERY.getKey(), attributes.getQueryString());
+      collector.addTag(QUERY_TAG, attributes.getQueryString());
     }
     // TODO: Support additional request headers to be added in
     // http.request.header.<key>=<header-value> attribute.
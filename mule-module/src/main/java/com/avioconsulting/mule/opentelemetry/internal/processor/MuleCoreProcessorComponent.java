@@ -56,7 +56,7 @@ public class MuleCoreProcessorComponent extends AbstractProcessorComponent {
 
   @Override
   protected <A> void addAttributes(Component component, TypedValue<A> attributes, TraceComponent collector) {
-    ComponentWrapper componentWrapper = componentRegistryService.getComponentWrapper(component);
+    ComponentWrapper componentWrapper = componentRegistryService.getComponentWrapper(collector, component);
     if (ComponentsUtil.isFlowRef(component.getLocation())) {
       collector.addTag(MULE_APP_PROCESSOR_FLOW_REF_NAME.getKey(),
           componentWrapper.getParameter("name"));
@@ -66,7 +66,8 @@ public class MuleCoreProcessorComponent extends AbstractProcessorComponent {
   @Override
   public TraceComponent getEndTraceComponent(EnrichedServerNotification notification) {
     TraceComponent endTraceComponent = super.getEndTraceComponent(notification);
-    ComponentWrapper componentWrapper = componentRegistryService.getComponentWrapper(notification.getComponent());
+    ComponentWrapper componentWrapper = componentRegistryService.getComponentWrapper(endTraceComponent,
+        notification.getComponent());
     if (ComponentsUtil.isFlowRef(notification.getComponent().getLocation())) {
       endTraceComponent.addTag(MULE_APP_PROCESSOR_FLOW_REF_NAME.getKey(),
           componentWrapper.getParameter("name"));
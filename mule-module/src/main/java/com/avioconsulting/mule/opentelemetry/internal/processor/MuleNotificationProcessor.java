@@ -10,14 +10,19 @@ import com.avioconsulting.mule.opentelemetry.api.ee.batch.*;
 import com.avioconsulting.mule.opentelemetry.api.ee.batch.notifications.OtelBatchNotification;
 import com.avioconsulting.mule.opentelemetry.internal.connection.OpenTelemetryConnection;
 import com.avioconsulting.mule.opentelemetry.internal.interceptor.InterceptorProcessorConfig;
+import com.avioconsulting.mule.opentelemetry.internal.interceptor.TraceContextStorage;
 import com.avioconsulting.mule.opentelemetry.internal.notifications.BatchError;
 import com.avioconsulting.mule.opentelemetry.internal.processor.service.ComponentRegistryService;
 import com.avioconsulting.mule.opentelemetry.internal.processor.service.ProcessorComponentService;
+import com.avioconsulting.mule.opentelemetry.internal.processor.util.AdaptiveTraceLevel;
 import com.avioconsulting.mule.opentelemetry.internal.processor.util.TraceComponentManager;
+import com.avioconsulting.mule.opentelemetry.internal.store.SpanFinalizer;
 import com.avioconsulting.mule.opentelemetry.internal.util.ComponentsUtil;
-import com.avioconsulting.mule.opentelemetry.internal.util.memoizers.FunctionMemoizer;
+import com.avioconsulting.mule.opentelemetry.internal.util.memoizers.BoundedFunctionMemoizer;
 import com.avioconsulting.mule.opentelemetry.internal.util.PropertiesUtil;
+import io.opentelemetry.api.trace.StatusCode;
 import io.opentelemetry.context.Context;
+import org.mule.runtime.api.component.Component;
 import org.mule.runtime.api.component.ComponentIdentifier;
 import org.mule.runtime.api.component.location.ComponentLocation;
 import org.mule.runtime.api.event.Event;
@@ -55,15 +60,26 @@ public class MuleNotificationProcessor {
 
   private static final Logger logger = LoggerFactory.getLogger(MuleNotificationProcessor.class);
   public static final String MULE_OTEL_SPAN_PROCESSORS_ENABLE_PROPERTY_NAME = "mule.otel.span.processors.enable";
+  /**
+   * Skip building trace components and spans for processors of transactions that
+   * are not sampled. Trace context of such processors is the context of their
+   * transaction. Processor spans are still created when metrics providers need
+   * them.
+   *
+   * @default true
+   */
+  public static final String MULE_OTEL_UNSAMPLED_PROCESSOR_SPANS_SKIP = "mule.otel.unsampled.processor.spans.skip";
   public static final List<String> CONTEXT_EXPRESSIONS = Arrays.asList("#[attributes.headers]",
       "#[attributes.properties]",
       "#[attributes.properties.userProperties]", "#[payload.message.messageAttributes]");
 
   private Supplier<OpenTelemetryConnection> connectionSupplier;
   private boolean spanAllProcessors;
+  private boolean skipUnsampledProcessorSpans = true;
   private TraceLevelConfiguration traceLevelConfiguration;
   private OpenTelemetryConnection openTelemetryConnection;
   private final TraceComponentManager traceComponentManager = TraceComponentManager.getInstance();
+  private AdaptiveTraceLevel adaptiveTraceLevel = AdaptiveTraceLevel.getInstance();
   private ProcessorComponentService processorComponentService;
   private final ProcessorComponent flowProcessorComponent;
   private final InterceptorProcessorConfig interceptorProcessorConfig;
@@ -96,6 +112,12 @@ public class MuleNotificationProcessor {
     return this;
   }
 
+  // Visible for testing purpose
+  MuleNotificationProcessor setAdaptiveTraceLevel(AdaptiveTraceLevel adaptiveTraceLevel) {
+    this.adaptiveTraceLevel = adaptiveTraceLevel;
+    return this;
+  }
+
   public ComponentRegistryService getComponentRegistryService() {
     return componentRegistryService;
   }
@@ -122,6 +144,7 @@ public class MuleNotificationProcessor {
     this.spanAllProcessors = Boolean.parseBoolean(System.getProperty(MULE_OTEL_SPAN_PROCESSORS_ENABLE_PROPERTY_NAME,
         Boolean.toString(traceLevelConfiguration.isSpanAllProcessors())));
     this.traceLevelConfiguration = traceLevelConfiguration;
+    this.skipUnsampledProcessorSpans = PropertiesUtil.getBoolean(MULE_OTEL_UNSAMPLED_PROCESSOR_SPANS_SKIP, true);
     interceptorProcessorConfig
         .setTurnOffTracing(openTelemetryConnection.isTurnOffTracing())
         .updateTraceConfiguration(traceLevelConfiguration);
@@ -131,22 +154,62 @@ public class MuleNotificationProcessor {
   }
 
   public void handleProcessorStartEvent(MessageProcessorNotification notification) {
-    String location = notification.getComponent().getLocation().getLocation();
-    if (ComponentsUtil.isAsyncScope(notification.getComponent().getLocation().getComponentIdentifier())) {
+    if (isSpannedElsewhere(notification.getComponent(), notification.getEvent())) {
+      return;
+    }
+    processComponentStartSpan(notification);
+  }
+
+  /**
+   * Start the span of a processor without a {@link MessageProcessorNotification},
+   * used by the around interceptor. Spans are the same as the ones started by
+   * {@link #handleProcessorStartEvent(MessageProcessorNotification)}.
+   *
+   * @param component
+   *            {@link Component} about to be executed
+   * @param event
+   *            {@link Event} received by the processor
+   */
+  public void handleProcessorStartEvent(Component component, Event event) {
+    if (isSpannedElsewhere(component, event)) {
+      return;
+    }
+    try {
+      ProcessorComponent processorComponent = getSpanningProcessorComponent(component.getIdentifier(), event);
+      if (processorComponent != null) {
+        if (logger.isTraceEnabled()) {
+          logger.trace("Handling '{}' processor start context id {} correlation id {} ",
+              component.getIdentifier(), event.getContext().getId(), event.getCorrelationId());
+        }
+        try (TraceComponent traceComponent = processorComponent.getStartTraceComponent(component, event)) {
+          startProcessorSpan(traceComponent, component, event, System.currentTimeMillis());
+        }
+      }
+    } catch (Exception ex) {
+      if (logger.isTraceEnabled()) {
+        logger.trace(
+            "Failed to intercept processor {} at {}, span may not be captured for this processor. Error - {}",
+            component.getIdentifier().toString(), component.getLocation().getLocation(),
+            ex.getLocalizedMessage(), ex);
+      }
+    }
+  }
+
+  private boolean isSpannedElsewhere(Component component, Event event) {
+    if (ComponentsUtil.isAsyncScope(component.getLocation().getComponentIdentifier())) {
       // Async scopes are handled via AsyncMessageNotifications.
       // Creating one here will create duplicate spans
-      return;
+      return true;
     }
-    if (interceptorProcessorConfig.shouldIntercept(notification.getComponent().getLocation(),
-        notification.getEvent())) {
+    if (interceptorProcessorConfig.shouldIntercept(component.getLocation(), event)) {
       if (logger.isTraceEnabled()) {
         logger.trace(
             "Component {} will be processed by interceptor, skipping notification processing to create span",
-            location);
+            component.getLocation().getLocation());
       }
-      return;
+      return true;
     }
-    processComponentStartSpan(notification);
+    return false;
   }
 
   /**
@@ -168,7 +231,8 @@ public class MuleNotificationProcessor {
    */
   private void processComponentStartSpan(EnrichedServerNotification notification) {
     try {
-      ProcessorComponent processorComponent = getProcessorComponent(notification.getComponent().getIdentifier());
+      ProcessorComponent processorComponent = getSpanningProcessorComponent(
+          notification.getComponent().getIdentifier(), notification.getEvent());
       if (processorComponent != null) {
         if (logger.isTraceEnabled()) {
           logger.trace("Handling '{}:{}' processor start event context id {} correlation id {} ",
@@ -177,18 +241,8 @@ public class MuleNotificationProcessor {
               notification.getEvent().getCorrelationId());
         }
         try (TraceComponent traceComponent = processorComponent.getStartTraceComponent(notification)) {
-          traceComponent.withStartTime(Instant.ofEpochMilli(notification.getTimestamp()))
-              .withEventContextId(notification.getEvent().getContext().getId())
-              .withComponentLocation(notification.getComponent().getLocation());
-          addBatchTags(traceComponent, notification.getEvent());
-          resolveExpressions(traceComponent, openTelemetryConnection.getExpressionManager(),
-              notification.getEvent());
-          long siblings = componentRegistryService.findSiblingCount(
-              notification.getComponent().getLocation().getLocation());
-          traceComponent.withSiblings(siblings);
-          openTelemetryConnection.addProcessorSpan(traceComponent,
-              ComponentsUtil.getLocationParent(notification.getComponent().getLocation().getLocation()));
-          processFlowRef(traceComponent, notification.getEvent());
+          startProcessorSpan(traceComponent, notification.getComponent(), notification.getEvent(),
+              notification.getTimestamp());
         }
       }
     } catch (Exception ex) {
@@ -202,6 +256,20 @@ public class MuleNotificationProcessor {
     }
   }
 
+  private void startProcessorSpan(TraceComponent traceComponent, Component component, Event event,
+      long timestamp) {
+    traceComponent.withStartTime(Instant.ofEpochMilli(timestamp))
+        .withEventContextId(event.getContext().getId())
+        .withComponentLocation(component.getLocation());
+    addBatchTags(traceComponent, event);
+    resolveExpressions(traceComponent, openTelemetryConnection.getExpressionManager(), event,
+        componentRegistryService.getComponentWrapper(traceComponent, component));
+    traceComponent.withSiblings(componentRegistryService.findSiblingCount(traceComponent));
+    openTelemetryConnection.addProcessorSpan(traceComponent,
+        componentRegistryService.findLocationParent(traceComponent));
+    processFlowRef(traceComponent, event);
+  }
+
   private void processFlowRef(TraceComponent traceComponent, Event event) {
     if (isFlowRef(traceComponent.getComponentLocation())) {
       ComponentLocation subFlowLocation = resolveFlowName(
@@ -216,8 +284,8 @@ public class MuleNotificationProcessor {
     }
   }
 
-  private final FunctionMemoizer<ComponentIdentifier, ProcessorComponent> resolveProcessorComponent = FunctionMemoizer
-      .memoize(this::resolveProcessorComponent, true);
+  private final BoundedFunctionMemoizer<ComponentIdentifier, ProcessorComponent> resolveProcessorComponent = BoundedFunctionMemoizer
+      .memoize("MuleNotificationProcessor.resolveProcessorComponent", this::resolveProcessorComponent, true);
 
   public ProcessorComponent resolveProcessorComponent(ComponentIdentifier identifier) {
     boolean ignored = multiMapContains(identifier.getNamespace(), identifier.getName(), "*",
@@ -246,11 +314,61 @@ public class MuleNotificationProcessor {
     return resolveProcessorComponent.apply(identifier);
   }
 
+  /**
+   * Decide if the span of a processor is started, and get the
+   * {@link ProcessorComponent} to build it. This is the only place deciding it,
+   * called once per processor start by whichever of the interceptor or the start
+   * event handler spans the processor.
+   * <p>
+   * Spans are skipped for processors without a processor component, for
+   * transactions that are not sampled, and for processors spanned by the generic
+   * processor component while trace detail is reduced under load, see
+   * {@link AdaptiveTraceLevel}. Only the last case is counted as a skipped span.
+   * Spans started before the detail was reduced are still ended by the end
+   * events.
+   *
+   * @param identifier
+   *            {@link ComponentIdentifier} of the processor
+   * @param event
+   *            {@link Event} received by the processor
+   * @return {@link ProcessorComponent} of the processor or null if the span
+   *         should not be started
+   */
+  public ProcessorComponent getSpanningProcessorComponent(ComponentIdentifier identifier, Event event) {
+    ProcessorComponent processorComponent = getProcessorComponent(identifier);
+    if (processorComponent == null || isUnsampled(identifier, event)) {
+      return null;
+    }
+    if (processorComponent == genericProcessorComponent && adaptiveTraceLevel.isReduced()) {
+      adaptiveTraceLevel.spanSkipped();
+      return null;
+    }
+    return processorComponent;
+  }
+
+  /**
+   * Check if the processor belongs to a transaction that is not sampled, so its
+   * trace component and span do not need to be created. Batch components are
+   * always processed as they start and end batch transactions.
+   *
+   * @param identifier
+   *            {@link ComponentIdentifier} of the processor
+   * @param event
+   *            {@link Event} processed by the processor
+   * @return true if the processor span can be skipped
+   */
+  public boolean isUnsampled(ComponentIdentifier identifier, Event event) {
+    return skipUnsampledProcessorSpans
+        && !BATCH.equals(identifier.getNamespace())
+        && openTelemetryConnection.canSkipProcessorSpans(getEventTransactionId(event));
+  }
+
   public void handleProcessorEndEvent(EnrichedServerNotification notification) {
     String location = notification.getComponent().getLocation().getLocation();
     try {
       ProcessorComponent processorComponent = getProcessorComponent(notification.getComponent().getIdentifier());
-      if (processorComponent != null) {
+      if (processorComponent != null
+          && !isUnsampled(notification.getComponent().getIdentifier(), notification.getEvent())) {
         if (logger.isTraceEnabled()) {
           logger.trace("Handling '{}:{}' processor end event context id {} correlation id {} ",
               notification.getResourceIdentifier(), notification.getComponent().getIdentifier(),
@@ -264,6 +382,15 @@ public class MuleNotificationProcessor {
               .withEndTime(Instant.ofEpochMilli(notification.getTimestamp()))
               .withEventContextId(notification.getEvent().getContext().getId());
           addBatchTags(traceComponent, notification.getEvent());
+          if (error == null && notification.getException() != null) {
+            // Failure without a Mule error event, eg. a processor failure seen by
+            // the around interceptor
+            traceComponent.withStatsCode(StatusCode.ERROR);
+            traceComponent.addTag(ERROR_TYPE.getKey(), notification.getException().getClass().getCanonicalName());
+            if (notification.getException().getMessage() != null) {
+              traceComponent.addTag(ERROR_MESSAGE.getKey(), notification.getException().getMessage());
+            }
+          }
           spanMeta = openTelemetryConnection.endProcessorSpan(traceComponent,
               error);
 
@@ -280,18 +407,14 @@ public class MuleNotificationProcessor {
                     error);
               }
               if (subFlowSpanMeta != null) {
-                openTelemetryConnection.getMetricsProviders().captureProcessorMetrics(
-                    notification.getComponent(),
-                    error, location,
-                    subFlowSpanMeta);
+                captureProcessorMetrics(notification.getComponent(), error, location, subFlowSpanMeta);
               }
             }
           }
         }
 
         if (spanMeta != null) {
-          openTelemetryConnection.getMetricsProviders().captureProcessorMetrics(notification.getComponent(),
-              error, location, spanMeta);
+          captureProcessorMetrics(notification.getComponent(), error, location, spanMeta);
         }
       }
     } catch (Exception ex) {
@@ -300,6 +423,11 @@ public class MuleNotificationProcessor {
     }
   }
 
+  private void captureProcessorMetrics(Component component, Error error, String location, SpanMeta spanMeta) {
+    SpanFinalizer.getInstance().execute(() -> openTelemetryConnection.getMetricsProviders()
+        .captureProcessorMetrics(component, error, location, spanMeta));
+  }
+
   public void handleFlowStartEvent(PipelineMessageNotification notification) {
     try {
       if (logger.isTraceEnabled()) {
@@ -410,13 +538,12 @@ public class MuleNotificationProcessor {
         if (transactionMeta == null) {
           // If transaction isn't found by the current context,
           // search by any context from variable
-          TypedValue<String> contextId = (TypedValue<String>) notification.getEvent().getVariables()
-              .get(TransactionStore.OTEL_FLOW_CONTEXT_ID);
-          if (contextId != null && contextId.getValue() != null) {
+          String contextId = TraceContextStorage.getInstance().getFlowContextId(notification.getEvent());
+          if (contextId != null) {
             if (logger.isTraceEnabled()) {
-              logger.trace("Attempting to find {} by {}", traceComponent, contextId.getValue());
+              logger.trace("Attempting to find {} by {}", traceComponent, contextId);
             }
-            traceComponent.withEventContextId(contextId.getValue());
+            traceComponent.withEventContextId(contextId);
           }
           transactionMeta = openTelemetryConnection.endTransaction(traceComponent,
               notification.getException());
@@ -427,6 +554,7 @@ public class MuleNotificationProcessor {
             notification.getResourceIdentifier(),
             notification.getException());
       }
+      TraceContextStorage.getInstance().release(notification.getEvent().getContext().getId());
 
     } catch (Exception ex) {
       logger.error("Error in handling {} flow end event", notification.getResourceIdentifier(), ex);
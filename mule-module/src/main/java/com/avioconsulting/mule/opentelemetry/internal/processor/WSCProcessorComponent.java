@@ -35,7 +35,7 @@ public class WSCProcessorComponent extends AbstractProcessorComponent {
 
   @Override
   protected <A> void addAttributes(Component component, TypedValue<A> attributes, TraceComponent collector) {
-    ComponentWrapper componentWrapper = componentRegistryService.getComponentWrapper(component);
+    ComponentWrapper componentWrapper = componentRegistryService.getComponentWrapper(collector, component);
     collector.addTag(WSC_CONSUMER_OPERATION.getKey(), componentWrapper.getParameter("operation"));
     Map<String, String> configConnectionParameters = componentWrapper.getConfigConnectionParameters();
     collector.addTag(WSC_CONFIG_SERVICE.getKey(), configConnectionParameters.get("service"));
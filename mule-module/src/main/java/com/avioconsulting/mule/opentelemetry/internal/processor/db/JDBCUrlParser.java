@@ -1,11 +1,11 @@
 package com.avioconsulting.mule.opentelemetry.internal.processor.db;
 
+import com.avioconsulting.mule.opentelemetry.internal.util.memoizers.BoundedFunctionMemoizer;
+
 import java.util.Arrays;
 import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
 import java.util.stream.Collectors;
 
 import static java.util.Collections.emptyMap;
@@ -39,7 +39,8 @@ public class JDBCUrlParser {
       "^jdbc:derby:memory:([^;]+);(.*)$");
   private static final Pattern SYBASE_URL = Pattern.compile(
       "jdbc:sybase:Tds:([^:/]+)(?::(\\d+))?/([^?]+)(?:\\?(.*))?");
-  private static final ConcurrentMap<String, DBInfo> URL_CACHE = new ConcurrentHashMap<>();
+  private static final BoundedFunctionMemoizer<String, DBInfo> URL_CACHE = BoundedFunctionMemoizer
+      .memoize("JDBCUrlParser.parse", JDBCUrlParser::parseUrl);
   public static final String POSTGRESQL = "postgresql";
   public static final String MYSQL = "mysql";
   public static final String ORACLE = "oracle";
@@ -54,7 +55,7 @@ public class JDBCUrlParser {
     if (jdbcUrl == null)
       return null;
 
-    return URL_CACHE.computeIfAbsent(jdbcUrl, JDBCUrlParser::parseUrl);
+    return URL_CACHE.apply(jdbcUrl);
   }
 
   private static DBInfo parseUrl(String jdbcUrl) {
@@ -0,0 +1,258 @@
+package com.avioconsulting.mule.opentelemetry.internal.processor.service;
+
+import com.avioconsulting.mule.opentelemetry.api.traces.TraceComponent;
+import com.avioconsulting.mule.opentelemetry.internal.processor.ComponentWrapper;
+import com.avioconsulting.mule.opentelemetry.internal.util.ComponentsUtil;
+import org.mule.runtime.api.component.location.ComponentLocation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Registry of the component locations known at application start. Each
+ * location is assigned a dense int id, and the values derived from the location
+ * string are computed once and kept in arrays indexed by that id -
+ *
+ * <ul>
+ * <li>parent location, see {@link ComponentsUtil#getLocationParent(String)}</li>
+ * <li>route container location, see
+ * {@link ComponentsUtil#getRouteContainerLocation(ComponentLocation)}</li>
+ * <li>sibling count</li>
+ * <li>static flow-ref target sub-flow</li>
+ * <li>default span name of the component</li>
+ * </ul>
+ *
+ * The id of a location is resolved once when its {@link ComponentWrapper} is
+ * created and carried by the trace components of that location, see
+ * {@link TraceComponent#getLocationId()}. Runtime code then uses array lookups
+ * instead of looking up or splitting location strings.
+ */
+public final class ComponentLocationRegistry {
+
+  /**
+   * Id of locations that are not registered.
+   */
+  public static final int UNKNOWN_ID = TraceComponent.UNKNOWN_LOCATION_ID;
+  private static final int NOT_COMPUTED = -2;
+
+  private final Map<String, Integer> ids;
+  private final String[] locations;
+  private final ComponentLocation[] componentLocations;
+  private final int[] parentIds;
+  private final String[] parentLocations;
+  private final int[] routeContainerIds;
+  private final String[] routeContainerLocations;
+  /**
+   * Number of registered locations by lower-cased path, used to count siblings.
+   * Null until {@link #computeSiblingCounts()}.
+   */
+  private volatile Map<String, Integer> pathCounts;
+  private volatile int[] siblingCounts;
+  private final int[] flowRefTargetIds;
+  private final String[] flowRefTargetNames;
+  private final AtomicReferenceArray<ComponentWrapper> componentWrappers;
+
+  public ComponentLocationRegistry(Map<String, ComponentLocation> componentLocations) {
+    List<String> sorted = new ArrayList<>(componentLocations.keySet());
+    Collections.sort(sorted);
+    int size = sorted.size();
+    Map<String, Integer> idMap = new HashMap<>(size * 4 / 3 + 1);
+    locations = new String[size];
+    this.componentLocations = new ComponentLocation[size];
+    for (int id = 0; id < size; id++) {
+      String location = sorted.get(id);
+      idMap.put(location, id);
+      locations[id] = location;
+      this.componentLocations[id] = componentLocations.get(location);
+    }
+    ids = Collections.unmodifiableMap(idMap);
+
+    parentIds = new int[size];
+    parentLocations = new String[size];
+    routeContainerIds = new int[size];
+    routeContainerLocations = new String[size];
+    for (int id = 0; id < size; id++) {
+      parentLocations[id] = ComponentsUtil.getLocationParent(locations[id]);
+      parentIds[id] = getId(parentLocations[id]);
+      routeContainerLocations[id] = ComponentsUtil.getRouteContainerLocation(this.componentLocations[id]);
+      routeContainerIds[id] = getId(routeContainerLocations[id]);
+    }
+    flowRefTargetIds = new int[size];
+    Arrays.fill(flowRefTargetIds, NOT_COMPUTED);
+    flowRefTargetNames = new String[size];
+    componentWrappers = new AtomicReferenceArray<>(size);
+  }
+
+  /**
+   * @return number of registered locations. Ids are in the range of 0 to size -
+   *         1.
+   */
+  public int size() {
+    return locations.length;
+  }
+
+  /**
+   * @param location
+   *            String location path
+   * @return id of the location or {@link #UNKNOWN_ID}
+   */
+  public int getId(String location) {
+    if (location == null)
+      return UNKNOWN_ID;
+    Integer id = ids.get(location);
+    return id == null ? UNKNOWN_ID : id;
+  }
+
+  public String getLocation(int id) {
+    return locations[id];
+  }
+
+  public ComponentLocation getComponentLocation(int id) {
+    return componentLocations[id];
+  }
+
+  /**
+   * @return id of the parent location, or {@link #UNKNOWN_ID} if parent is not a
+   *         registered location
+   */
+  public int getParentId(int id) {
+    return parentIds[id];
+  }
+
+  public String getParentLocation(int id) {
+    return parentLocations[id];
+  }
+
+  /**
+   * @return id of the router when the location is a processor in a route,
+   *         otherwise {@link #UNKNOWN_ID}
+   */
+  public int getRouteContainerId(int id) {
+    return routeContainerIds[id];
+  }
+
+  public String getRouteContainerLocation(int id) {
+    return routeContainerLocations[id];
+  }
+
+  public long getSiblingCount(int id) {
+    if (siblingCounts == null)
+      computeSiblingCounts();
+    return siblingCounts[id];
+  }
+
+  /**
+   * Count siblings of any location, including the ones not registered.
+   *
+   * @param location
+   *            String location path
+   * @return sibling count
+   */
+  public long countSiblings(String location) {
+    if (pathCounts == null)
+      computeSiblingCounts();
+    return countSiblings(pathCounts, ComponentsUtil.getLocationParent(location));
+  }
+
+  private static int countSiblings(Map<String, Integer> pathCounts, String parentLocation) {
+    return pathCounts.getOrDefault((parentLocation + "/").toLowerCase(Locale.ROOT), 0);
+  }
+
+  /**
+   * Compute sibling counts of all locations. Locations are grouped by their
+   * case-insensitive path in a single pass, so each count is a lookup of the
+   * parent path group instead of a scan of all locations.
+   */
+  synchronized void computeSiblingCounts() {
+    if (siblingCounts != null)
+      return;
+    Map<String, Integer> counts = new HashMap<>(locations.length * 4 / 3 + 1);
+    for (String location : locations) {
+      counts.merge(location.toLowerCase(Locale.ROOT), 1, Integer::sum);
+    }
+    int[] siblings = new int[locations.length];
+    for (int id = 0; id < locations.length; id++) {
+      siblings[id] = countSiblings(counts, parentLocations[id]);
+    }
+    pathCounts = counts;
+    siblingCounts = siblings;
+  }
+
+  /**
+   * Get the {@link ComponentWrapper} bound to the location.
+   *
+   * @return wrapper or null if not bound yet
+   */
+  public ComponentWrapper getComponentWrapper(int id) {
+    return componentWrappers.get(id);
+  }
+
+  /**
+   * Get the default span name of the component at the location.
+   *
+   * @return span name or null if the component is not bound yet
+   */
+  public String getSpanName(int id) {
+    ComponentWrapper wrapper = componentWrappers.get(id);
+    return wrapper == null ? null : wrapper.getDefaultSpanName();
+  }
+
+  /**
+   * Check if the flow-ref target for given name was resolved when the flow-ref
+   * component was bound. Only flow-refs with static target names are resolved.
+   *
+   * @param id
+   *            of the flow-ref location
+   * @param targetFlowName
+   *            target name used by the flow-ref
+   * @return true if {@link #getFlowRefTarget(int)} holds the target
+   */
+  public boolean hasFlowRefTarget(int id, String targetFlowName) {
+    return flowRefTargetIds[id] != NOT_COMPUTED && flowRefTargetNames[id] != null
+        && flowRefTargetNames[id].equals(targetFlowName);
+  }
+
+  /**
+   * @return {@link ComponentLocation} of the target sub-flow or null when target
+   *         is not a sub-flow
+   */
+  public ComponentLocation getFlowRefTarget(int id) {
+    int targetId = flowRefTargetIds[id];
+    return targetId < 0 ? null : componentLocations[targetId];
+  }
+
+  /**
+   * Bind the component wrapper to its location and compute the values that need
+   * the component.
+   *
+   * @param id
+   *            of the location
+   * @param wrapper
+   *            {@link ComponentWrapper} of the component at location
+   */
+  void bind(int id, ComponentWrapper wrapper) {
+    if (ComponentsUtil.isFlowRef(componentLocations[id])) {
+      String targetFlowName = wrapper.getParameter("name");
+      if (targetFlowName != null && !targetFlowName.contains("#[")) {
+        int targetId = getId(targetFlowName);
+        flowRefTargetNames[id] = targetFlowName;
+        flowRefTargetIds[id] = targetId != UNKNOWN_ID && ComponentsUtil.isSubFlow(componentLocations[targetId])
+            ? targetId
+            : UNKNOWN_ID;
+      }
+    }
+    componentWrappers.set(id, wrapper);
+  }
+
+  void clearComponentWrappers() {
+    for (int id = 0; id < componentWrappers.length(); id++) {
+      componentWrappers.set(id, null);
+    }
+  }
+}
@@ -1,8 +1,7 @@
 package com.avioconsulting.mule.opentelemetry.internal.processor.service;
 
-import com.avioconsulting.mule.opentelemetry.internal.util.memoizers.BiFunctionMemoizer;
-import com.avioconsulting.mule.opentelemetry.internal.util.ComponentsUtil;
-import com.avioconsulting.mule.opentelemetry.internal.util.memoizers.FunctionMemoizer;
+import com.avioconsulting.mule.opentelemetry.internal.util.memoizers.BoundedBiFunctionMemoizer;
+import com.avioconsulting.mule.opentelemetry.internal.util.memoizers.BoundedFunctionMemoizer;
 import org.mule.runtime.api.component.Component;
 import org.mule.runtime.api.component.location.ComponentLocation;
 import org.mule.runtime.api.component.location.ConfigurationComponentLocator;
@@ -20,9 +19,8 @@ import java.util.*;
 class ComponentLocatorService {
 
   private final Map<String, ComponentLocation> componentLocationMap;
-  private final FunctionMemoizer<String, Component> findComponentByLocation;
-  private final BiFunctionMemoizer<String, ComponentLocation, Component> findComponentByComponentLocation;
-  private final FunctionMemoizer<String, Long> countSiblingsByLocation;
+  private final BoundedFunctionMemoizer<String, Component> findComponentByLocation;
+  private final BoundedBiFunctionMemoizer<String, ComponentLocation, Component> findComponentByComponentLocation;
   private final ConfigurationComponentLocator configurationComponentLocator;
 
   ComponentLocatorService(ConfigurationComponentLocator configurationComponentLocator) {
@@ -32,22 +30,21 @@ class ComponentLocatorService {
         .forEach(l -> map.put(l.getLocation(), l));
     componentLocationMap = Collections.unmodifiableMap(map);
 
-    findComponentByLocation = FunctionMemoizer.memoize(location -> {
-      Location l = Location.builderFromStringRepresentation(location).build();
-      return configurationComponentLocator.find(l).orElse(null);
-    });
+    findComponentByLocation = BoundedFunctionMemoizer.memoize("ComponentLocatorService.findComponentByLocation",
+        location -> {
+          Location l = Location.builderFromStringRepresentation(location).build();
+          return configurationComponentLocator.find(l).orElse(null);
+        });
 
-    findComponentByComponentLocation = BiFunctionMemoizer.memoize((key, location) -> {
-      Location l = Location.builderFromStringRepresentation(location.getLocation()).build();
-      return configurationComponentLocator.find(l).orElseGet(() -> this.configurationComponentLocator.find(
-          location.getComponentIdentifier().getIdentifier())
-          .stream()
-          .filter(c -> c.getLocation().getLocation().equalsIgnoreCase(location.getLocation())).findFirst()
-          .orElse(null));
-    });
-    countSiblingsByLocation = FunctionMemoizer.memoize(location -> componentLocationMap.keySet().stream()
-        .filter(l -> l.equalsIgnoreCase(ComponentsUtil.getLocationParent(location) + "/"))
-        .count());
+    findComponentByComponentLocation = BoundedBiFunctionMemoizer.memoize(
+        "ComponentLocatorService.findComponentByComponentLocation", (key, location) -> {
+          Location l = Location.builderFromStringRepresentation(location.getLocation()).build();
+          return configurationComponentLocator.find(l).orElseGet(() -> this.configurationComponentLocator.find(
+              location.getComponentIdentifier().getIdentifier())
+              .stream()
+              .filter(c -> c.getLocation().getLocation().equalsIgnoreCase(location.getLocation())).findFirst()
+              .orElse(null));
+        });
   }
 
   public Map<String, ComponentLocation> getAllComponentLocations() {
@@ -58,10 +55,6 @@ class ComponentLocatorService {
     return componentLocationMap.get(location);
   }
 
-  public long findSiblingCount(String location) {
-    return countSiblingsByLocation.apply(location);
-  }
-
   public Component findComponentByLocation(String location) {
     return this.findComponentByLocation.apply(location);
   }
@@ -1,8 +1,11 @@
 package com.avioconsulting.mule.opentelemetry.internal.processor.service;
 
+import com.avioconsulting.mule.opentelemetry.api.traces.TraceComponent;
 import com.avioconsulting.mule.opentelemetry.internal.processor.ComponentWrapper;
+import com.avioconsulting.mule.opentelemetry.internal.util.ComponentsUtil;
 import com.avioconsulting.mule.opentelemetry.internal.util.OpenTelemetryUtil;
-import com.avioconsulting.mule.opentelemetry.internal.util.memoizers.FunctionMemoizer;
+import com.avioconsulting.mule.opentelemetry.internal.util.PropertiesUtil;
+import com.avioconsulting.mule.opentelemetry.internal.util.memoizers.BoundedFunctionMemoizer;
 import org.mule.runtime.api.component.Component;
 import org.mule.runtime.api.component.location.ComponentLocation;
 import org.mule.runtime.api.component.location.ConfigurationComponentLocator;
@@ -10,8 +13,12 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.inject.Inject;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 /**
@@ -25,7 +32,30 @@ public class ComponentRegistryService {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(ComponentRegistryService.class);
 
+  /**
+   * Warm-up of component wrappers at configuration start. `eager` builds the
+   * wrappers of all locations one after another. `parallel` builds wrappers only
+   * for components handled by a registered processor component, on a bounded
+   * pool, and creates the rest when first needed. `lazy` creates all wrappers
+   * when first needed.
+   *
+   * @default eager
+   */
+  public static final String MULE_OTEL_COMPONENT_REGISTRY_WARMUP_MODE = "mule.otel.component.registry.warmup.mode";
+
+  /**
+   * Number of threads building component wrappers in `parallel` warm-up mode.
+   *
+   * @default Smaller of 4 and available processors
+   */
+  public static final String MULE_OTEL_COMPONENT_REGISTRY_WARMUP_PARALLELISM = "mule.otel.component.registry.warmup.parallelism";
+
+  static final String WARMUP_MODE_EAGER = "eager";
+  static final String WARMUP_MODE_PARALLEL = "parallel";
+  static final String WARMUP_MODE_LAZY = "lazy";
+
   private final ComponentLocatorService componentLocatorService;
+  private final ComponentLocationRegistry locationRegistry;
   private final ConcurrentHashMap<String, ComponentWrapper> componentWrapperRegistry = new ConcurrentHashMap<>();
 
   /**
@@ -35,49 +65,119 @@ public class ComponentRegistryService {
       .stream()
       .filter(p -> p.contains(".otel.")).collect(Collectors.toMap(String::toLowerCase, System::getProperty));
 
-  private final FunctionMemoizer<String, Map<String, String>> getGlobalConfigOtelSystemProperties = FunctionMemoizer
-      .memoize(configName -> OpenTelemetryUtil.getGlobalConfigSystemAttributes(configName,
-          OTEL_SYSTEM_PROPERTIES_MAP));
+  private final BoundedFunctionMemoizer<String, Map<String, String>> getGlobalConfigOtelSystemProperties = BoundedFunctionMemoizer
+      .memoize("ComponentRegistryService.globalConfigOtelSystemProperties",
+          configName -> OpenTelemetryUtil.getGlobalConfigSystemAttributes(configName,
+              OTEL_SYSTEM_PROPERTIES_MAP));
 
   @Inject
   public ComponentRegistryService(ConfigurationComponentLocator configurationComponentLocator) {
     this.componentLocatorService = new ComponentLocatorService(configurationComponentLocator);
+    this.locationRegistry = new ComponentLocationRegistry(componentLocatorService.getAllComponentLocations());
   }
 
   public void initializeComponentWrapperRegistry() {
     componentWrapperRegistry.clear();
+    locationRegistry.clearComponentWrappers();
+    long start = System.nanoTime();
+    locationRegistry.computeSiblingCounts();
+    String mode = PropertiesUtil.getProperty(MULE_OTEL_COMPONENT_REGISTRY_WARMUP_MODE, WARMUP_MODE_EAGER)
+        .toLowerCase();
     Map<String, ComponentLocation> locations = this.componentLocatorService.getAllComponentLocations();
-    for (String location : locations.keySet()) {
-      if (LOGGER.isTraceEnabled()) {
-        LOGGER.trace("Finding component wrapper for {}", location);
+    int initialized;
+    if (WARMUP_MODE_LAZY.equals(mode)) {
+      initialized = 0;
+    } else if (WARMUP_MODE_PARALLEL.equals(mode)) {
+      initialized = initializeInParallel(locations);
+    } else {
+      mode = WARMUP_MODE_EAGER;
+      initialized = 0;
+      for (String location : locations.keySet()) {
+        if (initializeComponentWrapper(location))
+          initialized++;
+      }
+    }
+    long durationMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    WarmUpMetrics.record(mode, initialized, durationMillis);
+    if (LOGGER.isInfoEnabled()) {
+      LOGGER.info("Initialized {} of {} component wrappers in {} ms with {} warm-up", initialized,
+          locations.size(), durationMillis, mode);
+    }
+  }
+
+  /**
+   * Build wrappers for the components handled by a registered
+   * {@link com.avioconsulting.mule.opentelemetry.api.processor.ProcessorComponent}
+   * on a bounded pool. Other wrappers are created when first requested.
+   *
+   * @param locations
+   *            all component locations
+   * @return number of wrappers built
+   */
+  private int initializeInParallel(Map<String, ComponentLocation> locations) {
+    ProcessorComponentService processorComponentService = ProcessorComponentService.getInstance();
+    List<String> prioritized = locations.entrySet().stream()
+        .filter(entry -> entry.getValue().getComponentIdentifier() != null
+            && processorComponentService
+                .hasProcessorComponentFor(entry.getValue().getComponentIdentifier().getIdentifier()))
+        .map(Map.Entry::getKey)
+        .collect(Collectors.toList());
+    int parallelism = Math.max(1, PropertiesUtil.getInt(MULE_OTEL_COMPONENT_REGISTRY_WARMUP_PARALLELISM,
+        Math.min(4, Runtime.getRuntime().availableProcessors())));
+    ForkJoinPool pool = new ForkJoinPool(parallelism);
+    try {
+      // Parallel stream tasks run on the pool that submits them
+      return pool.submit(() -> (int) prioritized.parallelStream()
+          .filter(this::initializeComponentWrapper)
+          .count()).get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return componentWrapperRegistry.size();
+    } catch (ExecutionException e) {
+      if (LOGGER.isWarnEnabled()) {
+        LOGGER.warn("Parallel warm-up of component wrappers failed, wrappers will be initialized when needed - {}",
+            e.getMessage());
+      }
+      return componentWrapperRegistry.size();
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  private boolean initializeComponentWrapper(String location) {
+    if (LOGGER.isTraceEnabled()) {
+      LOGGER.trace("Finding component wrapper for {}", location);
+    }
+    Component component = this.componentLocatorService.findComponentByLocation(location);
+    if (component == null) {
+      if (LOGGER.isDebugEnabled()) {
+        LOGGER.debug(
+            "Component not found for location {}, it may have not been initialized. Later lookups will resolve it when needed.",
+            location);
       }
-      Component component = this.componentLocatorService.findComponentByLocation(location);
-      if (component == null) {
-        if (LOGGER.isDebugEnabled()) {
-          LOGGER.debug(
-              "Component not found for location {}, it may have not been initialized. Later lookups will resolve it when needed.",
-              location);
-        }
-        continue;
+      return false;
+    }
+    try {
+      ComponentWrapper wrapper = createNewWrapper(component);
+      componentWrapperRegistry.put(component.getLocation().getLocation(), wrapper);
+      bindToLocation(component.getLocation().getLocation(), wrapper);
+      return true;
+    } catch (Exception ex) {
+      if (LOGGER.isWarnEnabled()) {
+        LOGGER.warn(
+            "Could not pre-initialize component wrapper for {}. Processing will continue and wrapper may be initialized when needed.",
+            location);
       }
-      try {
-        ComponentWrapper wrapper = createNewWrapper(component);
-        componentWrapperRegistry.put(component.getLocation().getLocation(), wrapper);
-      } catch (Exception ex) {
-        if (LOGGER.isWarnEnabled()) {
-          LOGGER.warn(
-              "Could not pre-initialize component wrapper for {}. Processing will continue and wrapper may be initialized when needed.",
-              location);
-        }
-        if (LOGGER.isTraceEnabled()) {
-          LOGGER.trace("Exception during initialization of component wrapper for {}.", location, ex);
-        }
+      if (LOGGER.isTraceEnabled()) {
+        LOGGER.trace("Exception during initialization of component wrapper for {}.", location, ex);
       }
+      return false;
     }
   }
 
   private ComponentWrapper createNewWrapper(Component component) {
-    ComponentWrapper wrapper = new ComponentWrapper(component, this);
+    ComponentWrapper wrapper = new ComponentWrapper(component, this,
+        locationRegistry.getId(component.getLocation().getLocation()));
     if (wrapper.getConfigRef() != null) {
       // initialize the cache for cache system properties
       getGlobalConfigOtelSystemProperties.apply(wrapper.getConfigRef());
@@ -97,8 +197,131 @@ public class ComponentRegistryService {
     if (LOGGER.isTraceEnabled()) {
       LOGGER.trace("Getting component wrapper for {}", component.getLocation().getLocation());
     }
-    return componentWrapperRegistry.computeIfAbsent(component.getLocation().getLocation(),
+    String location = component.getLocation().getLocation();
+    int id = locationRegistry.getId(location);
+    if (id != ComponentLocationRegistry.UNKNOWN_ID) {
+      ComponentWrapper wrapper = locationRegistry.getComponentWrapper(id);
+      if (wrapper != null)
+        return wrapper;
+    }
+    ComponentWrapper wrapper = componentWrapperRegistry.computeIfAbsent(location,
         c -> createNewWrapper(component));
+    if (id != ComponentLocationRegistry.UNKNOWN_ID) {
+      locationRegistry.bind(id, wrapper);
+    }
+    return wrapper;
+  }
+
+  /**
+   * Get the component wrapper using the location id carried by the trace
+   * component, without looking up the location.
+   *
+   * @param traceComponent
+   *            {@link TraceComponent} of the component
+   * @param component
+   *            {@link Component}
+   * @return {@link ComponentWrapper}
+   */
+  public ComponentWrapper getComponentWrapper(TraceComponent traceComponent, Component component) {
+    int id = traceComponent.getLocationId();
+    if (id != ComponentLocationRegistry.UNKNOWN_ID) {
+      ComponentWrapper wrapper = locationRegistry.getComponentWrapper(id);
+      if (wrapper != null)
+        return wrapper;
+    }
+    return getComponentWrapper(component);
+  }
+
+  /**
+   * Get the id of the component location.
+   *
+   * @param component
+   *            {@link Component}
+   * @return location id or {@link ComponentLocationRegistry#UNKNOWN_ID}
+   */
+  public int getLocationId(Component component) {
+    return locationRegistry.getId(component.getLocation().getLocation());
+  }
+
+  private void bindToLocation(String location, ComponentWrapper wrapper) {
+    int id = locationRegistry.getId(location);
+    if (id != ComponentLocationRegistry.UNKNOWN_ID) {
+      locationRegistry.bind(id, wrapper);
+    }
+  }
+
+  /**
+   * Get the registry holding dense ids and precomputed values of all application
+   * locations.
+   *
+   * @return {@link ComponentLocationRegistry}
+   */
+  public ComponentLocationRegistry getLocationRegistry() {
+    return locationRegistry;
+  }
+
+  /**
+   * Find the parent location of given location.
+   *
+   * @param location
+   *            String location path
+   * @return parent location
+   * @see ComponentsUtil#getLocationParent(String)
+   */
+  public String findLocationParent(String location) {
+    int id = locationRegistry.getId(location);
+    return id == ComponentLocationRegistry.UNKNOWN_ID ? ComponentsUtil.getLocationParent(location)
+        : locationRegistry.getParentLocation(id);
+  }
+
+  /**
+   * Find the parent location of the trace component's location.
+   *
+   * @param traceComponent
+   *            {@link TraceComponent}
+   * @return parent location
+   * @see ComponentsUtil#getLocationParent(String)
+   */
+  public String findLocationParent(TraceComponent traceComponent) {
+    int id = traceComponent.getLocationId();
+    return id == ComponentLocationRegistry.UNKNOWN_ID ? findLocationParent(traceComponent.getLocation())
+        : locationRegistry.getParentLocation(id);
+  }
+
+  /**
+   * Find the location of the router that contains the trace component's location
+   * in one of its routes.
+   *
+   * @param traceComponent
+   *            {@link TraceComponent}
+   * @return router location or null
+   * @see ComponentsUtil#getRouteContainerLocation(TraceComponent)
+   */
+  public String findRouteContainerLocation(TraceComponent traceComponent) {
+    int id = traceComponent.getLocationId() != ComponentLocationRegistry.UNKNOWN_ID
+        ? traceComponent.getLocationId()
+        : locationRegistry.getId(traceComponent.getLocation());
+    return id == ComponentLocationRegistry.UNKNOWN_ID ? ComponentsUtil.getRouteContainerLocation(traceComponent)
+        : locationRegistry.getRouteContainerLocation(id);
+  }
+
+  /**
+   * Find the sub-flow location targeted by a flow-ref.
+   *
+   * @param flowRefLocation
+   *            location of the flow-ref
+   * @param targetFlowName
+   *            resolved target name of the flow-ref
+   * @return {@link ComponentLocation} of the target if it is a sub-flow,
+   *         otherwise null
+   */
+  public ComponentLocation findSubFlowLocation(String flowRefLocation, String targetFlowName) {
+    int id = locationRegistry.getId(flowRefLocation);
+    if (id != ComponentLocationRegistry.UNKNOWN_ID && locationRegistry.hasFlowRefTarget(id, targetFlowName)) {
+      return locationRegistry.getFlowRefTarget(id);
+    }
+    ComponentLocation componentLocation = findComponentLocation(targetFlowName);
+    return componentLocation != null && ComponentsUtil.isSubFlow(componentLocation) ? componentLocation : null;
   }
 
   public Map<String, ComponentLocation> getAllComponentLocations() {
@@ -109,8 +332,39 @@ public class ComponentRegistryService {
     return componentLocatorService.findComponentLocation(location);
   }
 
+  /**
+   * Find the sibling count of the trace component's location.
+   *
+   * @param traceComponent
+   *            {@link TraceComponent}
+   * @return sibling count
+   */
+  public long findSiblingCount(TraceComponent traceComponent) {
+    int id = traceComponent.getLocationId();
+    return id == ComponentLocationRegistry.UNKNOWN_ID ? findSiblingCount(traceComponent.getLocation())
+        : locationRegistry.getSiblingCount(id);
+  }
+
+  /**
+   * Find the id of the router that contains the trace component's location in
+   * one of its routes.
+   *
+   * @param traceComponent
+   *            {@link TraceComponent}
+   * @return router location id or {@link ComponentLocationRegistry#UNKNOWN_ID}
+   */
+  public int findRouteContainerId(TraceComponent traceComponent) {
+    int id = traceComponent.getLocationId();
+    return id == ComponentLocationRegistry.UNKNOWN_ID ? ComponentLocationRegistry.UNKNOWN_ID
+        : locationRegistry.getRouteContainerId(id);
+  }
+
   public long findSiblingCount(String location) {
-    return componentLocatorService.findSiblingCount(location);
+    int id = locationRegistry.getId(location);
+    if (id != ComponentLocationRegistry.UNKNOWN_ID) {
+      return locationRegistry.getSiblingCount(id);
+    }
+    return locationRegistry.countSiblings(location);
   }
 
   public Component findComponentByLocation(String location) {
@@ -41,4 +41,23 @@ public class ProcessorComponentService {
       return null;
     });
   }
+
+  /**
+   * Check if any registered {@link ProcessorComponent} handles the component,
+   * without configuring the processor component.
+   *
+   * @param identifier
+   *            {@link ComponentIdentifier} to check
+   * @return true if handled by a registered processor component
+   */
+  public boolean hasProcessorComponentFor(ComponentIdentifier identifier) {
+    ProcessorComponent cached = cachedMap.get(identifier);
+    if (cached != null)
+      return true;
+    for (ProcessorComponent pc : processorComponents) {
+      if (pc.canHandle(identifier))
+        return true;
+    }
+    return false;
+  }
 }
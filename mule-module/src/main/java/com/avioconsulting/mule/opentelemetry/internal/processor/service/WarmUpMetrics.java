@@ -0,0 +1,99 @@
+package com.avioconsulting.mule.opentelemetry.internal.processor.service;
+
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.metrics.Meter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Startup statistics of the component wrapper registry warm-up, exported as
+ * asynchronous gauges when metrics providers are initialized.
+ */
+public class WarmUpMetrics {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(WarmUpMetrics.class);
+
+  static final AttributeKey<String> WARMUP_MODE = AttributeKey.stringKey("mule.otel.warmup.mode");
+  private static final String METER_NAME = "mule-opentelemetry-module.warmup";
+
+  private static volatile WarmUp lastWarmUp;
+  private static final List<AutoCloseable> INSTRUMENTS = new ArrayList<>();
+
+  private WarmUpMetrics() {
+  }
+
+  /**
+   * Record a completed warm-up.
+   *
+   * @param mode
+   *            warm-up mode used
+   * @param componentCount
+   *            number of component wrappers built
+   * @param durationMillis
+   *            time taken by the warm-up
+   */
+  static void record(String mode, int componentCount, long durationMillis) {
+    lastWarmUp = new WarmUp(Attributes.of(WARMUP_MODE, mode), componentCount, durationMillis);
+  }
+
+  static long getLastDurationMillis() {
+    WarmUp warmUp = lastWarmUp;
+    return warmUp == null ? -1 : warmUp.durationMillis;
+  }
+
+  static int getLastComponentCount() {
+    WarmUp warmUp = lastWarmUp;
+    return warmUp == null ? -1 : warmUp.componentCount;
+  }
+
+  public static synchronized void registerInstruments(OpenTelemetry openTelemetry) {
+    if (openTelemetry == null || !INSTRUMENTS.isEmpty())
+      return;
+    Meter meter = openTelemetry.getMeter(METER_NAME);
+    INSTRUMENTS.add(meter.gaugeBuilder("mule.otel.component.registry.warmup.duration")
+        .ofLongs()
+        .setDescription("Time taken to build component wrappers at application start")
+        .setUnit("ms")
+        .buildWithCallback(measurement -> {
+          WarmUp warmUp = lastWarmUp;
+          if (warmUp != null)
+            measurement.record(warmUp.durationMillis, warmUp.attributes);
+        }));
+    INSTRUMENTS.add(meter.gaugeBuilder("mule.otel.component.registry.warmup.components")
+        .ofLongs()
+        .setDescription("Number of component wrappers built at application start")
+        .buildWithCallback(measurement -> {
+          WarmUp warmUp = lastWarmUp;
+          if (warmUp != null)
+            measurement.record(warmUp.componentCount, warmUp.attributes);
+        }));
+  }
+
+  public static synchronized void closeInstruments() {
+    for (AutoCloseable instrument : INSTRUMENTS) {
+      try {
+        instrument.close();
+      } catch (Exception e) {
+        LOGGER.trace("Failed to close warm-up instrument - {}", e.getMessage());
+      }
+    }
+    INSTRUMENTS.clear();
+  }
+
+  private static final class WarmUp {
+    private final Attributes attributes;
+    private final int componentCount;
+    private final long durationMillis;
+
+    private WarmUp(Attributes attributes, int componentCount, long durationMillis) {
+      this.attributes = attributes;
+      this.componentCount = componentCount;
+      this.durationMillis = durationMillis;
+    }
+  }
+}
@@ -0,0 +1,200 @@
+package com.avioconsulting.mule.opentelemetry.internal.processor.util;
+
+import com.avioconsulting.mule.opentelemetry.internal.opentelemetry.sdk.ExportPressureMonitor;
+import com.avioconsulting.mule.opentelemetry.internal.util.PropertiesUtil;
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.metrics.Meter;
+import org.mule.runtime.api.util.LazyValue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * Reduces the trace detail under load. When the export queue fill ratio or the
+ * rate of spans started on this node crosses its threshold, spans of generic
+ * processors, i.e. processors spanned due to `spanAllProcessors` or additional
+ * components, are skipped. Flow, source, core router and connector spans are
+ * still created. Full detail is restored when both measures drop below the
+ * restore percentage of their thresholds.
+ * <p>
+ * The load is evaluated at most every
+ * {@link #EVALUATION_INTERVAL_MILLIS} milliseconds by the thread that checks
+ * {@link #isReduced()} first after the interval, so the check is a volatile
+ * read otherwise.
+ */
+public class AdaptiveTraceLevel {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(AdaptiveTraceLevel.class);
+
+  /**
+   * Skip generic processor spans when the export load crosses the thresholds.
+   *
+   * @default false
+   */
+  public static final String MULE_OTEL_ADAPTIVE_TRACE_LEVEL_ENABLED = "mule.otel.adaptive.trace.level.enabled";
+
+  /**
+   * Export queue fill percentage at which generic processor spans are skipped. 0
+   * disables the queue check.
+   *
+   * @default 80
+   */
+  public static final String MULE_OTEL_ADAPTIVE_TRACE_LEVEL_QUEUE_THRESHOLD_PERCENT = "mule.otel.adaptive.trace.level.queue.threshold.percent";
+
+  /**
+   * Spans started per second on this node at which generic processor spans are
+   * skipped. 0 disables the rate check.
+   *
+   * @default 0
+   */
+  public static final String MULE_OTEL_ADAPTIVE_TRACE_LEVEL_SPAN_RATE_THRESHOLD = "mule.otel.adaptive.trace.level.span.rate.threshold";
+
+  /**
+   * Percentage of the thresholds that the queue fill and span rate must drop
+   * below to restore generic processor spans.
+   *
+   * @default 50
+   */
+  public static final String MULE_OTEL_ADAPTIVE_TRACE_LEVEL_RESTORE_PERCENT = "mule.otel.adaptive.trace.level.restore.percent";
+
+  static final long EVALUATION_INTERVAL_MILLIS = 500;
+  private static final String METER_NAME = "mule-opentelemetry-module.adaptive.trace.level";
+
+  private static final LazyValue<AdaptiveTraceLevel> INSTANCE = new LazyValue<>(AdaptiveTraceLevel::create);
+
+  private final boolean enabled;
+  private final double queueThreshold;
+  private final double spanRateThreshold;
+  private final double restoreRatio;
+  private final DoubleSupplier queueFillRatio;
+  private final LongSupplier startedSpans;
+  private final LongSupplier nanoClock;
+  private final AtomicLong nextEvaluationNanos;
+  private final LongAdder skippedSpans = new LongAdder();
+  private final LongAdder reductions = new LongAdder();
+  private final List<AutoCloseable> instruments = Collections.synchronizedList(new ArrayList<>());
+  private long lastEvaluationNanos;
+  private volatile boolean reduced;
+
+  public static AdaptiveTraceLevel getInstance() {
+    return INSTANCE.get();
+  }
+
+  public static boolean isEnabled() {
+    return PropertiesUtil.getBoolean(MULE_OTEL_ADAPTIVE_TRACE_LEVEL_ENABLED, false);
+  }
+
+  private static AdaptiveTraceLevel create() {
+    ExportPressureMonitor monitor = ExportPressureMonitor.getInstance();
+    return new AdaptiveTraceLevel(isEnabled(),
+        PropertiesUtil.getInt(MULE_OTEL_ADAPTIVE_TRACE_LEVEL_QUEUE_THRESHOLD_PERCENT, 80),
+        PropertiesUtil.getInt(MULE_OTEL_ADAPTIVE_TRACE_LEVEL_SPAN_RATE_THRESHOLD, 0),
+        PropertiesUtil.getInt(MULE_OTEL_ADAPTIVE_TRACE_LEVEL_RESTORE_PERCENT, 50),
+        monitor::getQueueFillRatio, monitor::sumStartedSpansThenReset, System::nanoTime);
+  }
+
+  // Visible for testing purpose
+  AdaptiveTraceLevel(boolean enabled, int queueThresholdPercent, int spanRateThreshold, int restorePercent,
+      DoubleSupplier queueFillRatio, LongSupplier startedSpans, LongSupplier nanoClock) {
+    this.enabled = enabled;
+    this.queueThreshold = queueThresholdPercent / 100d;
+    this.spanRateThreshold = spanRateThreshold;
+    this.restoreRatio = restorePercent / 100d;
+    this.queueFillRatio = queueFillRatio;
+    this.startedSpans = startedSpans;
+    this.nanoClock = nanoClock;
+    this.lastEvaluationNanos = nanoClock.getAsLong();
+    this.nextEvaluationNanos = new AtomicLong(
+        lastEvaluationNanos + TimeUnit.MILLISECONDS.toNanos(EVALUATION_INTERVAL_MILLIS));
+  }
+
+  /**
+   * @return true if generic processor spans should be skipped
+   */
+  public boolean isReduced() {
+    if (!enabled) {
+      return false;
+    }
+    long next = nextEvaluationNanos.get();
+    long now = nanoClock.getAsLong();
+    if (now - next >= 0 && nextEvaluationNanos.compareAndSet(next,
+        now + TimeUnit.MILLISECONDS.toNanos(EVALUATION_INTERVAL_MILLIS))) {
+      evaluate(now);
+    }
+    return reduced;
+  }
+
+  /**
+   * Count a processor span skipped due to reduced detail.
+   */
+  public void spanSkipped() {
+    skippedSpans.increment();
+  }
+
+  private synchronized void evaluate(long now) {
+    double elapsedSeconds = Math.max(1, now - lastEvaluationNanos) / (double) TimeUnit.SECONDS.toNanos(1);
+    lastEvaluationNanos = now;
+    double spanRate = startedSpans.getAsLong() / elapsedSeconds;
+    double fillRatio = queueFillRatio.getAsDouble();
+    if (!reduced && (exceeds(fillRatio, queueThreshold, 1) || exceeds(spanRate, spanRateThreshold, 1))) {
+      reduced = true;
+      reductions.increment();
+      LOGGER.warn("Skipping generic processor spans due to export load, queue fill {}%, {} spans per second",
+          Math.round(fillRatio * 100), Math.round(spanRate));
+    } else if (reduced && !exceeds(fillRatio, queueThreshold, restoreRatio)
+        && !exceeds(spanRate, spanRateThreshold, restoreRatio)) {
+      reduced = false;
+      LOGGER.info("Restoring generic processor spans, queue fill {}%, {} spans per second",
+          Math.round(fillRatio * 100), Math.round(spanRate));
+    }
+  }
+
+  private static boolean exceeds(double value, double threshold, double ratio) {
+    return threshold > 0 && value >= threshold * ratio;
+  }
+
+  long getSkippedSpanCount() {
+    return skippedSpans.sum();
+  }
+
+  long getReductionCount() {
+    return reductions.sum();
+  }
+
+  public synchronized void registerInstruments(OpenTelemetry openTelemetry) {
+    if (!enabled || openTelemetry == null || !instruments.isEmpty())
+      return;
+    Meter meter = openTelemetry.getMeter(METER_NAME);
+    instruments.add(meter.upDownCounterBuilder("mule.otel.adaptive.trace.level.reduced")
+        .setDescription("1 when generic processor spans are skipped due to export load, 0 otherwise")
+        .buildWithCallback(measurement -> measurement.record(reduced ? 1 : 0)));
+    instruments.add(meter.counterBuilder("mule.otel.adaptive.trace.level.reductions")
+        .setDescription("Number of times the trace detail was reduced due to export load")
+        .buildWithCallback(measurement -> measurement.record(reductions.sum())));
+    instruments.add(meter.counterBuilder("mule.otel.adaptive.trace.level.skipped.spans")
+        .setDescription("Number of generic processor spans skipped due to export load")
+        .buildWithCallback(measurement -> measurement.record(skippedSpans.sum())));
+    instruments.add(meter.gaugeBuilder("mule.otel.adaptive.trace.level.queue.fill")
+        .setDescription("Spans waiting for export as a ratio of the export queue size")
+        .buildWithCallback(measurement -> measurement.record(queueFillRatio.getAsDouble())));
+  }
+
+  public synchronized void closeInstruments() {
+    for (AutoCloseable instrument : instruments) {
+      try {
+        instrument.close();
+      } catch (Exception e) {
+        LOGGER.trace("Failed to close adaptive trace level instrument - {}", e.getMessage());
+      }
+    }
+    instruments.clear();
+  }
+}
@@ -2,7 +2,7 @@ package com.avioconsulting.mule.opentelemetry.internal.processor.util;
 
 import com.avioconsulting.mule.opentelemetry.api.traces.Taggable;
 import com.avioconsulting.mule.opentelemetry.internal.util.PropertiesUtil;
-import com.avioconsulting.mule.opentelemetry.internal.util.memoizers.FunctionMemoizer;
+import com.avioconsulting.mule.opentelemetry.internal.util.memoizers.BoundedFunctionMemoizer;
 import io.opentelemetry.semconv.HttpAttributes;
 
 import java.util.HashMap;
@@ -78,8 +78,8 @@ public class HttpSpanUtil {
     });
   }
 
-  private final static FunctionMemoizer<String, String> apiKitRoutePathExtractorMemoizer = new FunctionMemoizer<>(
-      HttpSpanUtil::apiKitRoutePathExtractor);
+  private final static BoundedFunctionMemoizer<String, String> apiKitRoutePathExtractorMemoizer = BoundedFunctionMemoizer
+      .memoize("HttpSpanUtil.apiKitRoutePath", HttpSpanUtil::apiKitRoutePathExtractor);
 
   /**
    * Extracts and transforms the APIKit route path from the flow name.
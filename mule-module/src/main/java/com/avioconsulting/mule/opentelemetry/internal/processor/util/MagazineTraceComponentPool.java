@@ -0,0 +1,239 @@
+package com.avioconsulting.mule.opentelemetry.internal.processor.util;
+
+import com.avioconsulting.mule.opentelemetry.api.traces.TraceComponent;
+import com.avioconsulting.mule.opentelemetry.internal.util.PropertiesUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * {@link TraceComponentPool} that keeps magazines (small stacks) of components
+ * in a striped array owned by the pool. A thread uses the magazine of the stripe
+ * its thread id hashes to, so acquire and release rarely contend. When a
+ * magazine runs empty or full, it is exchanged as a whole with the shared depot,
+ * so the shared queues are hit once per magazine instead of once per component.
+ *
+ * The depot holds at most `mule.otel.pooling.tracecomponent.maxsize`
+ * components. Each stripe additionally holds one magazine. Nothing is kept in
+ * thread locals, so the runtime's shared scheduler threads keep no reference
+ * to pooled components once the pool is cleared or dropped.
+ */
+class MagazineTraceComponentPool extends TraceComponentPool {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(MagazineTraceComponentPool.class);
+
+  /**
+   * Number of TraceComponent instances kept per thread by the `magazine` pooling
+   * mode before spilling them to the shared depot.
+   *
+   * @default 32
+   */
+  static final String MULE_OTEL_POOLING_TRACECOMPONENT_MAGAZINE_SIZE = "mule.otel.pooling.tracecomponent.magazine.size";
+
+  private final int magazineSize;
+  private final int maxDepotMagazines;
+
+  private final Queue<PooledTraceComponent[]> fullMagazines = new ConcurrentLinkedQueue<>();
+  private final Queue<PooledTraceComponent[]> emptyMagazines = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger depotSize = new AtomicInteger();
+  private final Magazine[] magazines;
+  private final int stripeMask;
+
+  // Statistics
+  private final LongAdder componentsCreated = new LongAdder();
+  private final LongAdder componentsReused = new LongAdder();
+  private final LongAdder componentsReturned = new LongAdder();
+  private final LongAdder componentsDropped = new LongAdder();
+
+  MagazineTraceComponentPool(Consumer<TraceComponent> onClose) {
+    this(onClose, PropertiesUtil.getInt(MULE_OTEL_POOLING_TRACECOMPONENT_MAGAZINE_SIZE, 32), MAX_POOL_SIZE);
+  }
+
+  MagazineTraceComponentPool(Consumer<TraceComponent> onClose, int magazineSize, int maxPoolSize) {
+    this(onClose, magazineSize, maxPoolSize, Runtime.getRuntime().availableProcessors() * 2);
+  }
+
+  MagazineTraceComponentPool(Consumer<TraceComponent> onClose, int magazineSize, int maxPoolSize,
+      int stripeCount) {
+    super(onClose, false);
+    this.magazineSize = Math.max(1, magazineSize);
+    this.maxDepotMagazines = Math.max(1, maxPoolSize / this.magazineSize);
+    int stripes = 1;
+    while (stripes < stripeCount) {
+      stripes <<= 1;
+    }
+    this.stripeMask = stripes - 1;
+    this.magazines = new Magazine[stripes];
+    for (int i = 0; i < stripes; i++) {
+      magazines[i] = new Magazine(this.magazineSize);
+    }
+    prewarm(Math.min(PREWARM_SIZE, maxPoolSize));
+  }
+
+  private void prewarm(int prewarmSize) {
+    int prewarmMagazines = Math.min(maxDepotMagazines, Math.max(1, prewarmSize / magazineSize));
+    for (int m = 0; m < prewarmMagazines; m++) {
+      PooledTraceComponent[] magazine = new PooledTraceComponent[magazineSize];
+      for (int i = 0; i < magazineSize; i++) {
+        magazine[i] = new PooledTraceComponent(null, null, getOnClose());
+      }
+      fullMagazines.offer(magazine);
+      depotSize.incrementAndGet();
+    }
+    LOGGER.trace("Pre-warmed pool: {} magazines of {} components", prewarmMagazines, magazineSize);
+  }
+
+  private Magazine magazine() {
+    long id = Thread.currentThread().getId();
+    int hash = (int) (id ^ (id >>> 32)) * 0x9E3779B9;
+    return magazines[(hash ^ (hash >>> 16)) & stripeMask];
+  }
+
+  @Override
+  public TraceComponent acquire(String transactionId, String name) {
+    Magazine magazine = magazine();
+    PooledTraceComponent pooled = null;
+    synchronized (magazine) {
+      if (magazine.size == 0) {
+        refill(magazine);
+      }
+      if (magazine.size > 0) {
+        pooled = magazine.items[--magazine.size];
+        magazine.items[magazine.size] = null;
+      }
+    }
+    if (pooled != null) {
+      componentsReused.increment();
+      pooled.reset(transactionId, name);
+      return pooled.withBorrowedAt(System.currentTimeMillis());
+    }
+    componentsCreated.increment();
+    return new PooledTraceComponent(transactionId, name, getOnClose())
+        .withBorrowedAt(System.currentTimeMillis());
+  }
+
+  @Override
+  public void release(TraceComponent component) {
+    if (!(component instanceof PooledTraceComponent)) {
+      return;
+    }
+    PooledTraceComponent pooled = (PooledTraceComponent) component;
+    pooled.clear();
+    Magazine magazine = magazine();
+    synchronized (magazine) {
+      if (magazine.size == magazineSize && !spill(magazine)) {
+        componentsDropped.increment();
+        return;
+      }
+      magazine.items[magazine.size++] = pooled;
+    }
+    componentsReturned.increment();
+  }
+
+  /**
+   * Exchange the empty magazine of the stripe with a full one from the depot.
+   */
+  private void refill(Magazine magazine) {
+    PooledTraceComponent[] full = fullMagazines.poll();
+    if (full == null)
+      return;
+    depotSize.decrementAndGet();
+    emptyMagazines.offer(magazine.items);
+    magazine.items = full;
+    magazine.size = full.length;
+  }
+
+  /**
+   * Move the full magazine of the stripe to the depot and continue with an empty
+   * one.
+   *
+   * @return false if depot is full and the magazine is kept
+   */
+  private boolean spill(Magazine magazine) {
+    if (depotSize.incrementAndGet() > maxDepotMagazines) {
+      depotSize.decrementAndGet();
+      return false;
+    }
+    fullMagazines.offer(magazine.items);
+    PooledTraceComponent[] empty = emptyMagazines.poll();
+    magazine.items = empty != null ? empty : new PooledTraceComponent[magazineSize];
+    magazine.size = 0;
+    return true;
+  }
+
+  @Override
+  public void clear() {
+    fullMagazines.clear();
+    emptyMagazines.clear();
+    depotSize.set(0);
+    for (Magazine magazine : magazines) {
+      synchronized (magazine) {
+        magazine.items = new PooledTraceComponent[magazineSize];
+        magazine.size = 0;
+      }
+    }
+  }
+
+  @Override
+  public void logStatistics() {
+    long reused = componentsReused.sum();
+    long totalComponentOps = componentsCreated.sum() + reused;
+    double componentReuseRate = totalComponentOps > 0 ? (100.0 * reused) / totalComponentOps : 0;
+    LOGGER.trace(
+        "TraceComponent Magazine Pool Stats: created={}, reused={}, returned={}, dropped={}, depot_magazines={}, "
+            + "reuse_rate={}",
+        componentsCreated.sum(),
+        reused,
+        componentsReturned.sum(),
+        componentsDropped.sum(),
+        depotSize.get(),
+        componentReuseRate);
+  }
+
+  long getComponentsCreated() {
+    return componentsCreated.sum();
+  }
+
+  long getComponentsReused() {
+    return componentsReused.sum();
+  }
+
+  long getComponentsDropped() {
+    return componentsDropped.sum();
+  }
+
+  int getDepotSize() {
+    return depotSize.get();
+  }
+
+  int getStripeCount() {
+    return magazines.length;
+  }
+
+  /**
+   * @return number of components held by the stripe magazines
+   */
+  int getMagazineComponentCount() {
+    int count = 0;
+    for (Magazine magazine : magazines) {
+      synchronized (magazine) {
+        count += magazine.size;
+      }
+    }
+    return count;
+  }
+
+  private static final class Magazine {
+    private PooledTraceComponent[] items;
+    private int size;
+
+    private Magazine(int magazineSize) {
+      this.items = new PooledTraceComponent[magazineSize];
+    }
+  }
+}
@@ -1,9 +1,10 @@
 package com.avioconsulting.mule.opentelemetry.internal.processor.util;
 
 import com.avioconsulting.mule.opentelemetry.api.traces.TraceComponent;
+import com.avioconsulting.mule.opentelemetry.internal.opentelemetry.sdk.SlotTagMap;
+import com.avioconsulting.mule.opentelemetry.internal.store.ContextScopedKey;
 
 import java.time.Instant;
-import java.util.HashMap;
 import java.util.Objects;
 import java.util.UUID;
 import java.util.function.Consumer;
@@ -21,13 +22,12 @@ import java.util.function.Consumer;
 public class PooledTraceComponent extends TraceComponent implements Borrowable {
   private final Consumer<TraceComponent> onClose;
 
-  private static final int INITIAL_TAG_MAP_CAPACITY = 64;
-
   private final String id = UUID.randomUUID().toString();
   private long borrowedAt;
+  private ContextScopedKey trackingKey;
 
   PooledTraceComponent(String transactionId, String name, Consumer<TraceComponent> onClose) {
-    super(name, new HashMap<>(INITIAL_TAG_MAP_CAPACITY));
+    super(name, new SlotTagMap());
     this.withTransactionId(transactionId);
     this.onClose = Objects.requireNonNull(onClose);
   }
@@ -50,6 +50,19 @@ public class PooledTraceComponent extends TraceComponent implements Borrowable {
     onClose.accept(this);
   }
 
+  /**
+   * Key under which this component is tracked for leak detection.
+   *
+   * @return key or null if this borrow is not tracked
+   */
+  ContextScopedKey getTrackingKey() {
+    return trackingKey;
+  }
+
+  void setTrackingKey(ContextScopedKey trackingKey) {
+    this.trackingKey = trackingKey;
+  }
+
   @Override
   public long getBorrowedAt() {
     return this.borrowedAt;
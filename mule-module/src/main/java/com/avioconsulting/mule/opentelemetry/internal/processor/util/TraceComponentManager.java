@@ -1,16 +1,19 @@
 package com.avioconsulting.mule.opentelemetry.internal.processor.util;
 
 import com.avioconsulting.mule.opentelemetry.api.traces.TraceComponent;
+import com.avioconsulting.mule.opentelemetry.internal.opentelemetry.sdk.SlotTagMap;
+import com.avioconsulting.mule.opentelemetry.internal.store.ContextScopedKey;
 import com.avioconsulting.mule.opentelemetry.internal.util.PropertiesUtil;
 import org.mule.runtime.api.component.location.ComponentLocation;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.HashMap;
+import java.util.Locale;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -56,8 +59,31 @@ public class TraceComponentManager {
    */
   private static final String MULE_OTEL_POOLING_TRACECOMPONENT_ENABLED = "mule.otel.pooling.tracecomponent.enabled";
 
+  /**
+   * Leak detection mode for pooled TraceComponent instances. `full` tracks every
+   * borrowed component, `sampled` tracks 1 in
+   * `mule.otel.pooling.tracecomponent.leak.detection.sample.rate` borrowed
+   * components and `none` disables tracking. Tracked components that are not
+   * released within 5 minutes are returned to the pool by a periodic cleanup.
+   *
+   * @default sampled
+   */
+  static final String MULE_OTEL_POOLING_TRACECOMPONENT_LEAK_DETECTION = "mule.otel.pooling.tracecomponent.leak.detection";
+
+  /**
+   * Track 1 in N borrowed TraceComponent instances when leak detection mode is
+   * `sampled`.
+   *
+   * @default 100
+   */
+  static final String MULE_OTEL_POOLING_TRACECOMPONENT_LEAK_DETECTION_SAMPLE_RATE = "mule.otel.pooling.tracecomponent.leak.detection.sample.rate";
+
+  enum LeakDetection {
+    FULL, SAMPLED, NONE
+  }
+
   // Track active components for automatic cleanup
-  private final Map<String, Borrowable> activeComponents = new ConcurrentHashMap<>();
+  private final Map<ContextScopedKey, Borrowable> activeComponents = new ConcurrentHashMap<>();
 
   // Cleanup configuration
   private static final long CLEANUP_INTERVAL_SECONDS = 120;
@@ -65,8 +91,10 @@ public class TraceComponentManager {
 
   private final ScheduledExecutorService cleanupExecutor;
 
-  private final TraceComponentPool pool;
+  private volatile TraceComponentPool pool;
   private static volatile boolean usePooling = true;
+  private static volatile LeakDetection leakDetection = LeakDetection.SAMPLED;
+  private static volatile int leakDetectionSampleRate = 100;
 
   static {
     init();
@@ -76,7 +104,18 @@ public class TraceComponentManager {
     // Enable pooling by default, can be disabled via system property
     usePooling = PropertiesUtil.getBoolean(MULE_OTEL_POOLING_TRACECOMPONENT_ENABLED, true);
     LOGGER.trace("TraceComponent pooling is {}", usePooling ? "enabled" : "disabled");
-
+    String leakDetectionMode = PropertiesUtil.getProperty(MULE_OTEL_POOLING_TRACECOMPONENT_LEAK_DETECTION,
+        LeakDetection.SAMPLED.name());
+    try {
+      leakDetection = LeakDetection.valueOf(leakDetectionMode.toUpperCase(Locale.ROOT));
+    } catch (IllegalArgumentException e) {
+      LOGGER.warn("Invalid TraceComponent leak detection mode '{}', using '{}'", leakDetectionMode,
+          LeakDetection.SAMPLED);
+      leakDetection = LeakDetection.SAMPLED;
+    }
+    leakDetectionSampleRate = Math.max(1,
+        PropertiesUtil.getInt(MULE_OTEL_POOLING_TRACECOMPONENT_LEAK_DETECTION_SAMPLE_RATE, 100));
+    LOGGER.trace("TraceComponent leak detection is {}", leakDetection);
   }
 
   public static void resetForTest() {
@@ -86,6 +125,7 @@ public class TraceComponentManager {
 
   private void clear() {
     pool.clear();
+    pool = TraceComponentPool.create(this::handleComponentClose);
   }
 
   private TraceComponentManager() {
@@ -102,7 +142,7 @@ public class TraceComponentManager {
         CLEANUP_INTERVAL_SECONDS,
         TimeUnit.SECONDS);
 
-    pool = new TraceComponentPool(this::handleComponentClose);
+    pool = TraceComponentPool.create(this::handleComponentClose);
   }
 
   public static TraceComponentManager getInstance() {
@@ -123,7 +163,7 @@ public class TraceComponentManager {
     if (usePooling) {
       component = pool.acquire(transactionId, name);
     } else {
-      component = TraceComponent.of(name, new HashMap<>(32)).withTransactionId(transactionId);
+      component = TraceComponent.of(name, new SlotTagMap()).withTransactionId(transactionId);
     }
     trackComponent(component);
     return component;
@@ -141,13 +181,30 @@ public class TraceComponentManager {
    * @return a managed TraceComponent with tags map
    */
   public TraceComponent createTraceComponent(String transactionId, String name, ComponentLocation location) {
+    return createTraceComponent(transactionId, name, location, TraceComponent.UNKNOWN_LOCATION_ID);
+  }
+
+  /**
+   * Creates a TraceComponent with name, location and the id of the location.
+   *
+   * @param name
+   *            the component name
+   * @param location
+   *            the component location
+   * @param locationId
+   *            id of the location, see {@link TraceComponent#getLocationId()}
+   * @return a managed TraceComponent with tags map
+   */
+  public TraceComponent createTraceComponent(String transactionId, String name, ComponentLocation location,
+      int locationId) {
     TraceComponent component;
     if (usePooling) {
       component = pool.acquire(transactionId, name, location);
     } else {
-      component = TraceComponent.of(name, new HashMap<>(32)).withTransactionId(transactionId)
+      component = TraceComponent.of(name, new SlotTagMap()).withTransactionId(transactionId)
           .withLocation(location.getLocation());
     }
+    component.withLocationId(locationId);
     trackComponent(component);
     return component;
   }
@@ -192,9 +249,14 @@ public class TraceComponentManager {
       return;
     }
 
-    String key = getComponentKey(component);
-    if (key != null) {
-      activeComponents.remove(key);
+    ContextScopedKey key = null;
+    if (component instanceof PooledTraceComponent) {
+      PooledTraceComponent pooled = (PooledTraceComponent) component;
+      key = pooled.getTrackingKey();
+      if (key != null) {
+        activeComponents.remove(key, pooled);
+        pooled.setTrackingKey(null);
+      }
     }
 
     // Return the component to the pool for reuse
@@ -229,7 +291,7 @@ public class TraceComponentManager {
       }
     } else {
       // For non-pooled components, just log
-      String key = getComponentKey(component);
+      ContextScopedKey key = getComponentKey(component);
       if (LOGGER.isTraceEnabled()) {
         LOGGER.trace("Released non-pooled TraceComponent: {}", key);
       }
@@ -245,7 +307,7 @@ public class TraceComponentManager {
    *            the component location
    */
   public void releaseComponent(String transactionId, String location) {
-    String key = generateKey(transactionId, location);
+    ContextScopedKey key = ContextScopedKey.of(transactionId, location);
     Borrowable borrowed = activeComponents.remove(key);
 
     if (borrowed != null) {
@@ -261,12 +323,17 @@ public class TraceComponentManager {
    * Tracks a component for lifecycle management.
    */
   private void trackComponent(TraceComponent component) {
-    if (component == null || !usePooling) {
+    if (component == null || !usePooling || !(component instanceof PooledTraceComponent)) {
+      return;
+    }
+    if (leakDetection == LeakDetection.NONE || (leakDetection == LeakDetection.SAMPLED
+        && ThreadLocalRandom.current().nextInt(leakDetectionSampleRate) != 0)) {
       return;
     }
 
-    String key = getComponentKey(component);
-    if (key != null && component instanceof Borrowable) {
+    ContextScopedKey key = getComponentKey(component);
+    if (key != null) {
+      ((PooledTraceComponent) component).setTrackingKey(key);
       activeComponents.put(key, (Borrowable) component);
 
       if (LOGGER.isTraceEnabled()) {
@@ -276,9 +343,10 @@ public class TraceComponentManager {
   }
 
   /**
-   * Generates a tracking key for a component.
+   * Generates a tracking key for a component from its transaction ID and
+   * location.
    */
-  private String getComponentKey(TraceComponent component) {
+  private ContextScopedKey getComponentKey(TraceComponent component) {
     String transactionId = component.getTransactionId();
     String location = component.getLocation();
 
@@ -287,20 +355,7 @@ public class TraceComponentManager {
       return null;
     }
 
-    return generateKey(transactionId, location);
-  }
-
-  /**
-   * Generates a tracking key from transaction ID and location.
-   */
-  private String generateKey(String transactionId, String location) {
-    if (transactionId != null && location != null) {
-      return transactionId + "|" + location;
-    } else if (transactionId != null) {
-      return transactionId + "|";
-    } else {
-      return "|" + location;
-    }
+    return ContextScopedKey.of(transactionId, location, component.getLocationId(), 0);
   }
 
   /**
@@ -311,7 +366,7 @@ public class TraceComponentManager {
     long now = System.currentTimeMillis();
     int cleaned = 0;
 
-    for (Map.Entry<String, Borrowable> entry : activeComponents.entrySet()) {
+    for (Map.Entry<ContextScopedKey, Borrowable> entry : activeComponents.entrySet()) {
       Borrowable borrowed = entry.getValue();
       if (now - borrowed.getBorrowedAt() > MAX_COMPONENT_AGE_MILLIS) {
         if (activeComponents.remove(entry.getKey(), borrowed)) {
@@ -29,7 +29,21 @@ public class TraceComponentPool {
    */
   private static final String MULE_OTEL_POOLING_TRACECOMPONENT_MAXSIZE = "mule.otel.pooling.tracecomponent.maxsize";
 
-  private static final int MAX_POOL_SIZE = PropertiesUtil.getInt(MULE_OTEL_POOLING_TRACECOMPONENT_MAXSIZE, 1000);
+  /**
+   * Pooling strategy for TraceComponent instances. `shared` uses a single queue
+   * shared by all threads. `magazine` keeps a small stack of components per
+   * thread that spills to and refills from a shared depot in batches, avoiding
+   * contention on the shared queue with many cores.
+   *
+   * @default shared
+   */
+  static final String MULE_OTEL_POOLING_TRACECOMPONENT_MODE = "mule.otel.pooling.tracecomponent.mode";
+
+  static final String POOLING_MODE_SHARED = "shared";
+  static final String POOLING_MODE_MAGAZINE = "magazine";
+
+  static final int MAX_POOL_SIZE = PropertiesUtil.getInt(MULE_OTEL_POOLING_TRACECOMPONENT_MAXSIZE, 1000);
+  static final int PREWARM_SIZE = Math.min(50, MAX_POOL_SIZE);
 
   // Pools
   private final Queue<PooledTraceComponent> componentPool = new ConcurrentLinkedQueue<>();
@@ -42,8 +56,35 @@ public class TraceComponentPool {
   private final Consumer<TraceComponent> onClose;
 
   TraceComponentPool(Consumer<TraceComponent> onClose) {
+    this(onClose, true);
+  }
+
+  TraceComponentPool(Consumer<TraceComponent> onClose, boolean prewarm) {
     this.onClose = onClose;
-    prewarmPool();
+    if (prewarm) {
+      prewarmPool();
+    }
+  }
+
+  /**
+   * Creates the pool for configured
+   * {@link #MULE_OTEL_POOLING_TRACECOMPONENT_MODE}.
+   *
+   * @param onClose
+   *            callback for closing pooled components
+   * @return {@link TraceComponentPool}
+   */
+  static TraceComponentPool create(Consumer<TraceComponent> onClose) {
+    String mode = PropertiesUtil.getProperty(MULE_OTEL_POOLING_TRACECOMPONENT_MODE, POOLING_MODE_SHARED);
+    if (POOLING_MODE_MAGAZINE.equalsIgnoreCase(mode)) {
+      LOGGER.trace("Using magazine TraceComponent pool");
+      return new MagazineTraceComponentPool(onClose);
+    }
+    return new TraceComponentPool(onClose);
+  }
+
+  Consumer<TraceComponent> getOnClose() {
+    return onClose;
   }
 
   /**
@@ -127,7 +168,7 @@ public class TraceComponentPool {
    * Pre-warms the pool with initial instances.
    */
   private void prewarmPool() {
-    int prewarmSize = Math.min(50, MAX_POOL_SIZE);
+    int prewarmSize = PREWARM_SIZE;
     for (int i = 0; i < prewarmSize; i++) {
       PooledTraceComponent component = new PooledTraceComponent(null, null, onClose);
       componentPool.offer(component);
@@ -0,0 +1,285 @@
+package com.avioconsulting.mule.opentelemetry.internal.store;
+
+import com.avioconsulting.mule.opentelemetry.api.store.SpanMeta;
+import com.avioconsulting.mule.opentelemetry.api.store.TransactionMeta;
+import com.avioconsulting.mule.opentelemetry.api.store.TransactionStore;
+import com.avioconsulting.mule.opentelemetry.api.traces.TraceComponent;
+import com.avioconsulting.mule.opentelemetry.api.traces.TransactionContext;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.common.AttributesBuilder;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static com.avioconsulting.mule.opentelemetry.api.sdk.SemanticAttributes.*;
+import static com.avioconsulting.mule.opentelemetry.internal.util.BatchHelperUtil.getBatchJobInstanceId;
+import static com.avioconsulting.mule.opentelemetry.internal.util.BatchHelperUtil.hasBatchJobInstanceId;
+
+/**
+ * Base {@link TransactionStore} implementation holding the transaction
+ * lifecycle logic. Subclasses only decide how {@link Transaction}s are kept
+ * and looked up by their transaction id.
+ */
+public abstract class AbstractTransactionStore implements TransactionStore {
+  private static final Logger LOGGER = LoggerFactory.getLogger(AbstractTransactionStore.class);
+  protected final TransactionProcessor transactionProcessor;
+
+  protected AbstractTransactionStore(TransactionProcessor transactionProcessor) {
+    this.transactionProcessor = transactionProcessor;
+  }
+
+  /**
+   * Find the transaction for given id.
+   *
+   * @param transactionId
+   *            {@link String} transaction id
+   * @return {@link Transaction} or null if the store does not have it
+   */
+  protected abstract Transaction getTransaction(String transactionId);
+
+  /**
+   * Add a new transaction to the store.
+   *
+   * @param transaction
+   *            {@link Transaction} to store
+   */
+  protected abstract void putTransaction(Transaction transaction);
+
+  /**
+   * Remove the transaction from the store.
+   *
+   * @param transactionId
+   *            {@link String} transaction id
+   */
+  protected abstract void removeTransaction(String transactionId);
+
+  /**
+   * Ids of the transactions currently kept in the store. Used for diagnostics
+   * only.
+   *
+   * @return {@link Collection} of transaction ids
+   */
+  protected abstract Collection<String> getTransactionIds();
+
+  @Override
+  public void startTransaction(
+      final TraceComponent traceComponent, final String rootName, SpanBuilder spanBuilder) {
+    final String transactionId = traceComponent.getTransactionId();
+    Transaction transaction = getTransaction(traceComponent.getTransactionId());
+    if (transaction != null) {
+      if (LOGGER.isTraceEnabled()) {
+        LOGGER.trace(
+            "Start transaction {} for flow '{}' - Adding to existing transaction",
+            transactionId,
+            rootName);
+      }
+      transaction.addChildTransaction(traceComponent, spanBuilder);
+    } else {
+      boolean isBatchJob = traceComponent.hasTagFor(MULE_BATCH_JOB_NAME.getKey());
+      if (isBatchJob) {
+        startBatchTransaction(traceComponent, rootName, spanBuilder, transactionId);
+      } else {
+        startFlowTransaction(traceComponent, rootName, spanBuilder, transactionId);
+      }
+    }
+  }
+
+  private void startFlowTransaction(TraceComponent traceComponent, String rootName, SpanBuilder spanBuilder,
+      String transactionId) {
+    Span span = spanBuilder.startSpan();
+    if (LOGGER.isTraceEnabled()) {
+      LOGGER.trace(
+          "Start Flow transaction {} for flow '{}': OT SpanId {}, TraceId {}",
+          transactionId,
+          rootName,
+          span.getSpanContext().getSpanId(),
+          span.getSpanContext().getTraceId());
+    }
+    putTransaction(
+        new FlowTransaction(traceComponent.getTransactionId(), span.getSpanContext().getTraceId(),
+            rootName,
+            new FlowSpan(rootName, span, traceComponent),
+            traceComponent.getStartTime()));
+  }
+
+  private void startBatchTransaction(TraceComponent traceComponent, String rootName, SpanBuilder spanBuilder,
+      String transactionId) {
+    Span span = spanBuilder.startSpan();
+    if (LOGGER.isTraceEnabled()) {
+      LOGGER.trace(
+          "Start Batch transaction {} for flow '{}': OT SpanId {}, TraceId {}",
+          transactionId,
+          rootName,
+          span.getSpanContext().getSpanId(),
+          span.getSpanContext().getTraceId());
+    }
+    putTransaction(
+        new BatchTransaction(traceComponent.getTransactionId(), span.getSpanContext().getTraceId(),
+            rootName, span, traceComponent, transactionProcessor::spanBuilder,
+            transactionProcessor.getComponentRegistryService()));
+  }
+
+  @Override
+  public void addTransactionTags(String transactionId, String tagPrefix, Map<String, String> tags) {
+    AttributesBuilder builder = Attributes.builder();
+    String format = "%s.%s";
+    tags.forEach((k, v) -> builder.put(String.format(format, tagPrefix, k), v));
+    Transaction transaction = getTransaction(transactionId);
+    Span span = transaction.getTransactionSpan();
+    if (span != null) {
+      span.setAllAttributes(builder.build());
+    }
+  }
+
+  @Override
+  public TransactionContext getTransactionContext(String transactionId, String componentLocation) {
+    Transaction transaction = getTransaction(transactionId);
+    if (componentLocation == null)
+      return transaction.getTransactionContext();
+    ProcessorSpan processorSpan = null;
+    if (transaction != null
+        && ((processorSpan = transaction
+            .findSpan(componentLocation)) != null)) {
+      return processorSpan.getTransactionContext();
+    } else {
+      return transaction.getTransactionContext();
+    }
+  }
+
+  @Override
+  public boolean isRecording(String transactionId) {
+    Transaction transaction = getTransaction(transactionId);
+    if (!(transaction instanceof FlowTransaction)) {
+      // Batch transactions manage spans of their steps and records
+      return true;
+    }
+    Span span = transaction.getTransactionSpan();
+    return span == null || span.isRecording();
+  }
+
+  public String getTraceIdForTransaction(String transactionId) {
+    Transaction transaction = getTransaction(transactionId);
+    return transaction != null ? transaction.getTraceId() : null;
+  }
+
+  @Override
+  public TransactionMeta endTransaction(
+      TraceComponent traceComponent,
+      Consumer<Span> spanUpdater) {
+    Transaction transaction = getTransaction(traceComponent.getTransactionId());
+    TransactionMeta transactionMeta = transaction;
+    if (transaction != null) {
+      if (transaction.getRootFlowName().equals(traceComponent.getName())) {
+        if (LOGGER.isTraceEnabled()) {
+          LOGGER.trace("Marking the end time of transaction {} from map for {} - Context Id {}",
+              traceComponent.getTransactionId(),
+              traceComponent.getName(), traceComponent.getEventContextId());
+        }
+        // Root span ends after the queued processor spans of the transaction,
+        // without waiting for them
+        AtomicInteger pending = transaction.getPendingFinalizations();
+        transaction.endRootSpan(traceComponent, span -> endSpan(traceComponent, spanUpdater, span,
+            () -> SpanFinalizer.getInstance().endAfter(span, traceComponent.getEndTime(), pending)));
+      } else {
+        // This is a flow invoked by a flow-ref and not the main flow
+        transactionMeta = transaction.endChildTransaction(traceComponent,
+            span -> endSpan(traceComponent, spanUpdater, span, () -> span.end(traceComponent.getEndTime())));
+      }
+      if (transaction.hasEnded()) {
+        if (LOGGER.isTraceEnabled()) {
+          LOGGER.trace("Removed transaction {} from map for {} - Context Id {}",
+              traceComponent.getTransactionId(),
+              traceComponent.getName(), traceComponent.getEventContextId());
+        }
+        removeTransaction(transaction.getTransactionId());
+      }
+    } else {
+      if (LOGGER.isTraceEnabled()) {
+        LOGGER.trace("No transaction found for transaction {}", traceComponent.getTransactionId());
+      }
+    }
+    if (transactionMeta == null) {
+      if (LOGGER.isTraceEnabled()) {
+        LOGGER.trace("No transaction meta found for {} ", traceComponent);
+      }
+    } else if (transactionMeta.getTags() != null) {
+      traceComponent.copyTagsTo(transactionMeta.getTags());
+    }
+    return transactionMeta;
+  }
+
+  private void endSpan(TraceComponent traceComponent, Consumer<Span> spanUpdater, Span span, Runnable end) {
+    if (spanUpdater != null)
+      spanUpdater.accept(span);
+    end.run();
+    if (LOGGER.isTraceEnabled()) {
+      LOGGER.trace(
+          "Ended transaction {} for flow '{}': OT SpanId {}, TraceId {}",
+          traceComponent,
+          traceComponent.getName(),
+          span.getSpanContext().getSpanId(),
+          span.getSpanContext().getTraceId());
+    }
+  }
+
+  @Override
+  public SpanMeta addProcessorSpan(String containerName, TraceComponent traceComponent, SpanBuilder spanBuilder) {
+    Transaction transaction = getTransaction(traceComponent.getTransactionId());
+    if (transaction == null && hasBatchJobInstanceId(traceComponent)) {
+      String batchJobInstanceId = getBatchJobInstanceId(traceComponent);
+      if (LOGGER.isTraceEnabled()) {
+        LOGGER.trace("Looking for transaction for batch job instance id {} ", batchJobInstanceId);
+      }
+      transaction = getTransaction(batchJobInstanceId);
+    }
+    if (transaction == null) {
+      if (LOGGER.isWarnEnabled()) {
+        LOGGER.warn("No transaction found for transaction {}. Map contains transactions for {}",
+            traceComponent.getTransactionId(), getTransactionIds());
+      }
+      return null;
+    }
+    if (LOGGER.isTraceEnabled()) {
+      LOGGER.trace(
+          "Adding Processor span to transaction {} for location '{}'",
+          traceComponent.getTransactionId(),
+          traceComponent.getLocation());
+    }
+    SpanMeta span = transaction
+        .addProcessorSpan(containerName, traceComponent, spanBuilder);
+    if (LOGGER.isTraceEnabled()) {
+      LOGGER.trace(
+          "Adding Processor span to transaction {} for locator span '{}': OT SpanId {}, TraceId {}",
+          traceComponent.getTransactionId(),
+          traceComponent.getLocation(),
+          span.getSpanId(),
+          span.getTraceId());
+    }
+    return span;
+  }
+
+  @Override
+  public SpanMeta endProcessorSpan(
+      String transactionId, TraceComponent traceComponent, Consumer<Span> spanUpdater, Instant endTime) {
+    if (LOGGER.isTraceEnabled()) {
+      LOGGER.trace(
+          "Ending Processor span of transaction {} for location '{}'",
+          transactionId,
+          traceComponent);
+    }
+    Transaction transaction = getTransaction(transactionId);
+
+    if (transaction == null) {
+      return null;
+    }
+    return transaction
+        .endProcessorSpan(traceComponent, spanUpdater, endTime);
+  }
+}
@@ -0,0 +1,31 @@
+package com.avioconsulting.mule.opentelemetry.internal.store;
+
+import com.avioconsulting.mule.opentelemetry.api.store.TransactionStore;
+import com.avioconsulting.mule.opentelemetry.api.store.TransactionStoreContext;
+import com.avioconsulting.mule.opentelemetry.api.store.TransactionStoreProvider;
+
+/**
+ * Base for the {@link TransactionStoreProvider}s shipped with the module. Their
+ * stores build spans from the module's {@link TransactionProcessor}, which is
+ * the {@link TransactionStoreContext} the module passes to providers.
+ */
+public abstract class AbstractTransactionStoreProvider implements TransactionStoreProvider {
+
+  @Override
+  public final TransactionStore getTransactionStore(TransactionStoreContext context) {
+    if (!(context instanceof TransactionProcessor)) {
+      throw new IllegalArgumentException(
+          "'" + getName() + "' transaction store requires the module's transaction processor");
+    }
+    return getTransactionStore((TransactionProcessor) context);
+  }
+
+  protected abstract TransactionStore getTransactionStore(TransactionProcessor transactionProcessor);
+
+  /**
+   * Release the {@link TransactionStore} instance held by this provider. Used by
+   * tests to reset state in-between the tests.
+   */
+  public void reset() {
+  }
+}
@@ -0,0 +1,270 @@
+package com.avioconsulting.mule.opentelemetry.internal.store;
+
+import com.avioconsulting.mule.opentelemetry.internal.util.MpscRingBuffer;
+import com.avioconsulting.mule.opentelemetry.internal.util.PropertiesUtil;
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.metrics.Meter;
+import io.opentelemetry.api.trace.Span;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * {@link SpanFinalizer} handing span finalization and metrics capture to a
+ * bounded {@link MpscRingBuffer} drained by a single finalizer thread.
+ * <p>
+ * When the buffer is full, the `caller` backpressure policy finishes the work
+ * on the submitting thread and the `drop` policy discards it and counts it.
+ * Dropped spans are still ended, only without their end state. Queue depth and
+ * dropped work are exported as asynchronous instruments.
+ * <p>
+ * The finalizer thread parks while the queue is empty and is unparked by the
+ * next submission. Once stopped, work is finished on the submitting thread.
+ */
+public class AsyncSpanFinalizer extends SpanFinalizer {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(AsyncSpanFinalizer.class);
+
+  /**
+   * Capacity of the span finalizer queue, rounded up to a power of two.
+   *
+   * @default 8192
+   */
+  public static final String MULE_OTEL_SPAN_FINALIZER_QUEUE_SIZE = "mule.otel.span.finalizer.queue.size";
+
+  /**
+   * Policy when the span finalizer queue is full. `caller` finishes the span on
+   * the submitting thread, `drop` ends the span without its end state and
+   * counts it.
+   *
+   * @default caller
+   */
+  public static final String MULE_OTEL_SPAN_FINALIZER_BACKPRESSURE = "mule.otel.span.finalizer.backpressure";
+
+  static final String BACKPRESSURE_CALLER = "caller";
+  static final String BACKPRESSURE_DROP = "drop";
+  private static final String METER_NAME = "mule-opentelemetry-module.span.finalizer";
+  /**
+   * Idle wait is ended by submissions, the timeout is only a safety net.
+   */
+  private static final long IDLE_PARK_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+  private final MpscRingBuffer<Runnable> queue;
+  private final boolean dropWhenFull;
+  private final LongAdder dropped = new LongAdder();
+  private final List<AutoCloseable> instruments = new ArrayList<>();
+  private volatile Thread worker;
+  private volatile boolean stopped;
+  private volatile boolean parked;
+
+  AsyncSpanFinalizer() {
+    this(PropertiesUtil.getInt(MULE_OTEL_SPAN_FINALIZER_QUEUE_SIZE, 8192),
+        BACKPRESSURE_DROP.equalsIgnoreCase(
+            PropertiesUtil.getProperty(MULE_OTEL_SPAN_FINALIZER_BACKPRESSURE, BACKPRESSURE_CALLER)));
+  }
+
+  AsyncSpanFinalizer(int queueSize, boolean dropWhenFull) {
+    this.queue = new MpscRingBuffer<>(queueSize);
+    this.dropWhenFull = dropWhenFull;
+  }
+
+  @Override
+  public boolean isAsync() {
+    return true;
+  }
+
+  @Override
+  public void finish(Span span, Consumer<Span> spanUpdater, Instant endTime, AtomicInteger pending) {
+    if (!(spanUpdater instanceof SpanEndRecord)) {
+      // Other updaters may read state that changes once the caller returns
+      super.finish(span, spanUpdater, endTime, pending);
+      return;
+    }
+    if (pending != null)
+      pending.incrementAndGet();
+    Runnable task = () -> {
+      try {
+        spanUpdater.accept(span);
+        span.end(endTime);
+      } finally {
+        if (pending != null)
+          pending.decrementAndGet();
+      }
+    };
+    if (offer(task))
+      return;
+    if (dropWhenFull && !stopped) {
+      dropped.increment();
+      try {
+        // Ended without its end state, so the trace still has the span
+        span.end(endTime);
+      } finally {
+        if (pending != null)
+          pending.decrementAndGet();
+      }
+      return;
+    }
+    task.run();
+  }
+
+  /**
+   * End the span after the finalizations of the transaction that are still
+   * queued. The span end is queued behind them instead of waiting for them.
+   */
+  @Override
+  public void endAfter(Span span, Instant endTime, AtomicInteger pending) {
+    if (pending == null || pending.get() == 0 || !offer(() -> span.end(endTime))) {
+      span.end(endTime);
+    }
+  }
+
+  @Override
+  public void execute(Runnable task) {
+    if (offer(task))
+      return;
+    if (dropWhenFull && !stopped) {
+      dropped.increment();
+      return;
+    }
+    task.run();
+  }
+
+  /**
+   * Queue the task for the finalizer thread.
+   *
+   * @return false if the queue is full or the finalizer is stopped, the caller
+   *         then decides to run or drop the task
+   */
+  private boolean offer(Runnable task) {
+    Thread thread = worker;
+    if (thread == null && (thread = start()) == null) {
+      return false;
+    }
+    if (!queue.offer(task)) {
+      return false;
+    }
+    if (parked) {
+      LockSupport.unpark(thread);
+    }
+    if (stopped) {
+      // Finalizer may have stopped before this task was queued
+      drainAfterStop();
+    }
+    return true;
+  }
+
+  private synchronized Thread start() {
+    if (stopped)
+      return null;
+    if (worker == null) {
+      Thread thread = new Thread(this::drainLoop, "mule-otel-span-finalizer");
+      thread.setDaemon(true);
+      thread.start();
+      worker = thread;
+    }
+    return worker;
+  }
+
+  private void drainLoop() {
+    while (!stopped) {
+      if (drain() == 0) {
+        parked = true;
+        // Producers unpark only after they see the flag, so check again
+        if (queue.size() == 0 && !stopped) {
+          LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+        }
+        parked = false;
+      }
+    }
+    drain();
+  }
+
+  private synchronized void drainAfterStop() {
+    Thread thread = worker;
+    if (thread == null || !thread.isAlive()) {
+      drain();
+    }
+  }
+
+  private int drain() {
+    int count = 0;
+    Runnable task;
+    while ((task = queue.poll()) != null) {
+      count++;
+      try {
+        task.run();
+      } catch (Exception ex) {
+        LOGGER.warn("Failed to finalize span - {}", ex.getMessage());
+        if (LOGGER.isTraceEnabled()) {
+          LOGGER.trace("Span finalization failure", ex);
+        }
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Stop the finalizer thread after it drains the queue. Work submitted later
+   * is finished on the submitting thread, so no thread outlives the
+   * application.
+   */
+  @Override
+  public synchronized void stop() {
+    stopped = true;
+    Thread thread = worker;
+    if (thread == null)
+      return;
+    LockSupport.unpark(thread);
+    try {
+      thread.join(TimeUnit.SECONDS.toMillis(5));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    if (!thread.isAlive()) {
+      // Work queued while the thread was exiting
+      drain();
+      worker = null;
+    }
+  }
+
+  int getQueueDepth() {
+    return queue.size();
+  }
+
+  long getDroppedCount() {
+    return dropped.sum();
+  }
+
+  @Override
+  public synchronized void registerInstruments(OpenTelemetry openTelemetry) {
+    if (openTelemetry == null || !instruments.isEmpty())
+      return;
+    Meter meter = openTelemetry.getMeter(METER_NAME);
+    instruments.add(meter.upDownCounterBuilder("mule.otel.span.finalizer.queue.depth")
+        .setDescription("Number of span finalizations waiting in the queue")
+        .buildWithCallback(measurement -> measurement.record(getQueueDepth())));
+    instruments.add(meter.counterBuilder("mule.otel.span.finalizer.dropped")
+        .setDescription("Number of span finalizations dropped because the queue was full")
+        .buildWithCallback(measurement -> measurement.record(getDroppedCount())));
+  }
+
+  @Override
+  public synchronized void closeInstruments() {
+    for (AutoCloseable instrument : instruments) {
+      try {
+        instrument.close();
+      } catch (Exception e) {
+        LOGGER.trace("Failed to close span finalizer instrument - {}", e.getMessage());
+      }
+    }
+    instruments.clear();
+  }
+}
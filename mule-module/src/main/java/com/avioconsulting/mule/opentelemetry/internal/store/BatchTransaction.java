@@ -19,6 +19,7 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.StringTokenizer;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
 import java.util.function.Function;
@@ -44,6 +45,7 @@ public class BatchTransaction extends AbstractTransaction {
   private final Map<String, String> batchTags = new HashMap<>();
   private final Map<String, String> stepLocationNames = new HashMap<>();
   private final Context rootContext;
+  private final AtomicInteger pendingFinalizations = new AtomicInteger();
 
   public BatchTransaction(String jobInstanceId, String traceId, String batchJobName,
       Span rootSpan, TraceComponent batchTraceComponent, Function<String, SpanBuilder> spanBuilderFunction,
@@ -125,7 +127,7 @@ public class BatchTransaction extends AbstractTransaction {
         SpanBuilder spanBuilder = spanBuilderFunction.apply(name)
             .setParent(rootContext);
         ContainerSpan newContainerSpan = new ContainerSpan(location, spanBuilder.startSpan(),
-            stepTraceComponent);
+            stepTraceComponent, pendingFinalizations);
         if (containerSpanRef.compareAndSet(null, newContainerSpan)) {
           // This only executes if the update succeeds. If another thread updates the
           // reference, this will be skipped.
@@ -173,7 +175,7 @@ public class BatchTransaction extends AbstractTransaction {
       ProcessorSpan containerProcessorSpan) {
     SpanMeta aggrSpan = null;
     if (containerPath.endsWith("/aggregator")) {
-      if (null == ContainerSpan.findSpan(traceComponent.contextScopedPath(containerPath))) {
+      if (null == ContainerSpan.findSpan(traceComponent.getEventContextId(), containerPath)) {
         SpanBuilder aggrSpanBuilder = spanBuilderFunction.apply(BATCH_AGGREGATOR)
             .setParent(containerProcessorSpan.getContext())
             .setSpanKind(SpanKind.INTERNAL)
@@ -291,7 +293,7 @@ public class BatchTransaction extends AbstractTransaction {
         if (traceComponent.getLocation() != null
             && traceComponent.getLocation().startsWith(aggregatorLocation)) {
           ProcessorSpan aggrSpan = ContainerSpan
-              .findSpan(traceComponent.contextScopedPath(aggregatorLocation));
+              .findSpan(traceComponent.getEventContextId(), aggregatorLocation);
           if (aggrSpan.getSiblings() == 0) {
             try (TraceComponent aggrTraceComponent = TraceComponentManager.getInstance()
                 .createTraceComponent(traceComponent.getTransactionId(), BATCH_AGGREGATOR)) {
@@ -355,6 +357,27 @@ public class BatchTransaction extends AbstractTransaction {
     return stepSpan.endChildContainer(traceComponent, endSpan);
   }
 
+  @Override
+  public AtomicInteger getPendingFinalizations() {
+    return pendingFinalizations;
+  }
+
+  @Override
+  public void endOpenSpans(Consumer<Span> spanUpdater) {
+    for (AtomicReference<ContainerSpan> stepSpanRef : stepSpans.values()) {
+      ContainerSpan stepSpan = stepSpanRef.get();
+      if (stepSpan == null)
+        continue;
+      stepSpan.endOpenSpans(spanUpdater);
+      ProcessorSpan stepProcessorSpan = stepSpan.getRootProcessorSpan();
+      if (stepProcessorSpan.getEndTime() == null) {
+        stepProcessorSpan.setEndTime(Instant.now());
+        spanUpdater.accept(stepSpan.getSpan());
+        stepSpan.getSpan().end();
+      }
+    }
+  }
+
   @Override
   public ProcessorSpan findSpan(String location) {
     ProcessorSpan processorSpan = null;
@@ -18,25 +18,37 @@ import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 
 import static com.avioconsulting.mule.opentelemetry.internal.util.OpenTelemetryUtil.*;
-import static com.avioconsulting.mule.opentelemetry.internal.util.StringUtil.UNDERSCORE;
 
 public class ContainerSpan implements Serializable {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(ContainerSpan.class);
+  private static final String ROUTE_SEGMENT = "/route/";
 
   private final String containerName;
   private String rootSpanName;
   private final Span span;
   private final String transactionId;
-  private final Map<String, ProcessorSpan> childSpans = new ConcurrentHashMap<>();
+  private final Map<ContextScopedKey, ProcessorSpan> childSpans = new ConcurrentHashMap<>();
   private Map<String, String> tags = new HashMap<>();
   private final AtomicInteger childContainerCounter = new AtomicInteger();
+  private final AtomicInteger pendingFinalizations;
   private final Context rootContext;
 
   private final ProcessorSpan rootProcessorSpan;
 
   public ContainerSpan(String containerName, Span span, TraceComponent traceComponent) {
+    this(containerName, span, traceComponent, new AtomicInteger());
+  }
+
+  /**
+   * @param pendingFinalizations
+   *            counter of the span finalizations still pending for the
+   *            transaction, shared by all containers of the transaction
+   */
+  public ContainerSpan(String containerName, Span span, TraceComponent traceComponent,
+      AtomicInteger pendingFinalizations) {
     this.containerName = containerName;
+    this.pendingFinalizations = pendingFinalizations;
     this.span = span;
     this.transactionId = traceComponent.getTransactionId();
     this.rootContext = span.storeInContext(Context.current());
@@ -60,6 +72,10 @@ public class ContainerSpan implements Serializable {
     return rootContext;
   }
 
+  public AtomicInteger getPendingFinalizations() {
+    return pendingFinalizations;
+  }
+
   public ProcessorSpan getRootProcessorSpan() {
     return rootProcessorSpan;
   }
@@ -116,7 +132,11 @@ public class ContainerSpan implements Serializable {
           traceComponent.getSpanName(),
           span.getSpanContext().getSpanId());
     }
-    childSpans.putIfAbsent(traceComponent.contextScopedLocation(), ps);
+    ContextScopedKey key = ContextScopedKey.of(traceComponent);
+    if (childSpans.putIfAbsent(key, ps) == null && parentSpan != null && parentSpan != rootProcessorSpan
+        && isRouteLocation(traceComponent.getLocation(), containerName)) {
+      parentSpan.addRouteKey(key);
+    }
     return ps;
   }
 
@@ -127,7 +147,7 @@ public class ContainerSpan implements Serializable {
   }
 
   public ProcessorSpan endChildContainer(TraceComponent traceComponent, Consumer<Span> endSpan) {
-    ProcessorSpan processorSpan = findSpan(traceComponent.contextScopedPath(traceComponent.getName()));
+    ProcessorSpan processorSpan = findSpan(traceComponent.getEventContextId(), traceComponent.getName());
     if (processorSpan == null) {
       if (LOGGER.isTraceEnabled()) {
         LOGGER.trace("Attempting to find in parent scopes for {} in list {}", traceComponent,
@@ -153,7 +173,7 @@ public class ContainerSpan implements Serializable {
 
   private ProcessorSpan getParentSpan(ComponentEventContext context, String container) {
     for (int i = 0; i < context.contextNestingLevel(); i++) {
-      ProcessorSpan processorSpan = childSpans.get(context.contextScopedPath(container, i));
+      ProcessorSpan processorSpan = childSpans.get(ContextScopedKey.of(context.getEventContextId(), container, i));
       if (processorSpan != null)
         return processorSpan;
     }
@@ -167,20 +187,15 @@ public class ContainerSpan implements Serializable {
           this.getRootSpanName(),
           this.transactionId, this.getSpan().getSpanContext().toString());
     }
-    if (childSpans.containsKey(traceComponent.contextScopedLocation())) {
-      ProcessorSpan removed = Objects.requireNonNull(childSpans.remove(traceComponent.contextScopedLocation()),
-          "Missing child span at location " + traceComponent.contextScopedLocation() + " for flow "
-              + getRootSpanName()
-              + " trace transaction " + transactionId + " context "
-              + getSpan().getSpanContext().toString());
+    ProcessorSpan removed = childSpans
+        .remove(ContextScopedKey.of(traceComponent));
+    if (removed != null) {
       if (LOGGER.isTraceEnabled()) {
         LOGGER.trace("Removing span for {} - {}", traceComponent.contextScopedLocation(), removed.getSpanId());
       }
-      endRouteSpans(traceComponent, endTime);
+      endRouteSpans(traceComponent, removed, endTime);
       removed.setEndTime(endTime);
-      if (spanUpdater != null)
-        spanUpdater.accept(removed.getSpan());
-      removed.getSpan().end(endTime);
+      SpanFinalizer.getInstance().finish(removed.getSpan(), spanUpdater, endTime, pendingFinalizations);
       if (removed.getParentSpan() != null && removed.getParentSpan().getSiblings() > 0) {
         removed.getParentSpan().decrementActiveSiblingCount();
       }
@@ -204,14 +219,9 @@ public class ContainerSpan implements Serializable {
    *  <li>flow-controls:scatter-gather:sub-flow/processors/1/route/1</li>
    * </ul>
    *
-   * When combined with {@link ComponentEventContext#getEventContextId()} scatter-gather at
-   * `3c2e1320-e834-11ee-bf88-da9e78fba8b6_1585670373/flow-controls:scatter-gather:sub-flow/processors/1` ends,
-   * it will also end the routes  -
-   *
-   * <ul>
-   *  <li>3c2e1320-e834-11ee-bf88-da9e78fba8b6_1585670373<b>_646839410</b>/flow-controls:scatter-gather:sub-flow/processors/1/route/0</li>
-   *  <li>3c2e1320-e834-11ee-bf88-da9e78fba8b6_1585670373<b>_75520183</b>/flow-controls:scatter-gather:sub-flow/processors/1/route/1</li>
-   * </ul>
+   * Route spans are registered on their router's {@link ProcessorSpan} when they are created (see
+   * {@link #addProcessorSpan(String, TraceComponent, SpanBuilder)}), so ending a router only touches its own routes
+   * irrespective of the number of active spans in the container.
    *
    * Due to this behavior, all route spans will have same processing time as the parent router span.
    *
@@ -219,26 +229,18 @@ public class ContainerSpan implements Serializable {
    * 
    * @param traceComponent
    *            {@link TraceComponent}
+   * @param routerSpan
+   *            {@link ProcessorSpan} of the router
    * @param endTime
    *            {@link Instant}
    */
-  void endRouteSpans(TraceComponent traceComponent, Instant endTime) {
+  void endRouteSpans(TraceComponent traceComponent, ProcessorSpan routerSpan, Instant endTime) {
     if (traceComponent.getComponentLocation() == null ||
         !TypedComponentIdentifier.ComponentType.ROUTER
             .equals(traceComponent.getComponentLocation().getComponentIdentifier().getType()))
       return;
 
-    String parentContextId = traceComponent.getEventContextId();
-    String routeSuffix = "/" + traceComponent.getLocation() + "/route/";
-
-    List<String> routeSpanKeys = new ArrayList<>();
-
-    for (String key : childSpans.keySet()) {
-      if (isRouteKey(key, parentContextId, routeSuffix)) {
-        routeSpanKeys.add(key);
-      }
-    }
-    for (String key : routeSpanKeys) {
+    for (ContextScopedKey key : routerSpan.removeRouteKeys()) {
       ProcessorSpan span = childSpans.remove(key);
       if (span != null) {
         if (LOGGER.isTraceEnabled()) {
@@ -251,46 +253,53 @@ public class ContainerSpan implements Serializable {
     }
   }
 
-  private boolean isRouteKey(String spanKey, String parentContextId, String routeSuffix) {
-    // Fast checks:
-    // 1. Must start with parent context ID
-    if (!spanKey.startsWith(parentContextId)) {
+  /**
+   * Checks if the location is a route i.e. `routerLocation/route/n` of the
+   * given router location.
+   */
+  private static boolean isRouteLocation(String location, String routerLocation) {
+    if (location == null || routerLocation == null)
       return false;
-    }
-
-    // 2. Must contain the route suffix
-    int routeIndex = spanKey.indexOf(routeSuffix, parentContextId.length());
-    if (routeIndex == -1) {
+    int routeIndex = routerLocation.length() + ROUTE_SEGMENT.length();
+    if (location.length() <= routeIndex || !location.startsWith(routerLocation)
+        || !location.startsWith(ROUTE_SEGMENT, routerLocation.length())) {
       return false;
     }
-
-    // 3. Validate the middle part (empty or _digits)
-    String middlePart = spanKey.substring(parentContextId.length(), routeIndex);
-    if (!middlePart.isEmpty()) {
-      // Must be _<numbers> pattern
-      if (!middlePart.startsWith(UNDERSCORE) || middlePart.length() < 2) {
+    for (int i = routeIndex; i < location.length(); i++) {
+      if (!Character.isDigit(location.charAt(i))) {
         return false;
       }
-      // Check if rest are digits
-      for (int i = 1; i < middlePart.length(); i++) {
-        if (!Character.isDigit(middlePart.charAt(i))) {
-          return false;
-        }
-      }
     }
+    return true;
+  }
 
-    // 4. Validate route number at the end
-    String routeNumber = spanKey.substring(routeIndex + routeSuffix.length());
-    for (int i = 0; i < routeNumber.length(); i++) {
-      if (!Character.isDigit(routeNumber.charAt(i))) {
-        return false;
+  /**
+   * Find the span for a context scoped location i.e.
+   * `eventContextId/location`.
+   *
+   * @param location
+   *            {@link String} context scoped location
+   * @return ProcessorSpan or null if not found
+   */
+  /**
+   * End the spans of this container that are still open and forget them.
+   *
+   * @param spanUpdater
+   *            {@link Consumer} applied to each span before it ends
+   */
+  public void endOpenSpans(Consumer<Span> spanUpdater) {
+    for (Map.Entry<ContextScopedKey, ProcessorSpan> entry : childSpans.entrySet()) {
+      ProcessorSpan processorSpan = entry.getValue();
+      if (childSpans.remove(entry.getKey(), processorSpan) && processorSpan.getEndTime() == null) {
+        spanUpdater.accept(processorSpan.getSpan());
+        processorSpan.getSpan().end();
       }
     }
-    return true;
   }
 
   public ProcessorSpan findSpan(String location) {
-    ProcessorSpan processorSpan = childSpans.get(location);
+    ContextScopedKey key = ContextScopedKey.parse(location);
+    ProcessorSpan processorSpan = key == null ? null : childSpans.get(key);
     if (processorSpan == null)
       if (LOGGER.isTraceEnabled()) {
         LOGGER.trace("Could not find span for location {}  in the list {}", location, childSpans);
@@ -298,6 +307,16 @@ public class ContainerSpan implements Serializable {
     return processorSpan;
   }
 
+  public ProcessorSpan findSpan(String eventContextId, String location) {
+    ProcessorSpan processorSpan = childSpans.get(ContextScopedKey.of(eventContextId, location));
+    if (processorSpan == null)
+      if (LOGGER.isTraceEnabled()) {
+        LOGGER.trace("Could not find span for location {}/{}  in the list {}", eventContextId, location,
+            childSpans);
+      }
+    return processorSpan;
+  }
+
   public Map<String, String> getTags() {
     return tags;
   }
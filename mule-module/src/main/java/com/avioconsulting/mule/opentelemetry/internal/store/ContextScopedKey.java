@@ -0,0 +1,173 @@
+package com.avioconsulting.mule.opentelemetry.internal.store;
+
+import com.avioconsulting.mule.opentelemetry.api.traces.ComponentEventContext;
+import com.avioconsulting.mule.opentelemetry.api.traces.TraceComponent;
+
+import java.io.Serializable;
+
+/**
+ * Composite key identifying a span by its event context and component
+ * location. This is the allocation free equivalent of
+ * {@link ComponentEventContext#contextScopedPath(String, int)} -
+ * <ul>
+ * <li>locations are compared by their id in the application's location
+ * registry, see {@link TraceComponent#getLocationId()}. Keys of locations
+ * without an id compare the location strings.</li>
+ * <li>event context id is referenced as-is with a prefix length, so keys for
+ * parent event contexts (with trailing `_identity` parts dropped) do not need
+ * substrings</li>
+ * <li>hash is computed once at creation</li>
+ * </ul>
+ *
+ * Two keys are equal when they point to the same location and their event
+ * context id prefixes match, independent of the backing {@link String}
+ * instances.
+ */
+public final class ContextScopedKey implements Serializable {
+
+  private final String eventContextId;
+  private final int contextLength;
+  private final String location;
+  private final int locationId;
+  private final int hash;
+
+  private ContextScopedKey(String eventContextId, int contextLength, String location, int locationId) {
+    this.eventContextId = eventContextId;
+    this.contextLength = contextLength;
+    this.location = location;
+    this.locationId = location == null ? TraceComponent.UNKNOWN_LOCATION_ID : locationId;
+    // String caches its hash, so this is the same for keys with and without id
+    this.hash = 31 * prefixHash(eventContextId, contextLength) + (location == null ? 0 : location.hashCode());
+  }
+
+  /**
+   * Key for the location of the trace component scoped to its full event
+   * context id.
+   *
+   * @param traceComponent
+   *            {@link TraceComponent}
+   * @return {@link ContextScopedKey}
+   */
+  public static ContextScopedKey of(TraceComponent traceComponent) {
+    return of(traceComponent.getEventContextId(), traceComponent.getLocation(), traceComponent.getLocationId(),
+        0);
+  }
+
+  /**
+   * Key for the location scoped to the full event context id.
+   *
+   * @param eventContextId
+   *            {@link String}
+   * @param location
+   *            {@link String}
+   * @return {@link ContextScopedKey}
+   */
+  public static ContextScopedKey of(String eventContextId, String location) {
+    return of(eventContextId, location, TraceComponent.UNKNOWN_LOCATION_ID, 0);
+  }
+
+  /**
+   * Key for the location scoped to the event context id with given number of
+   * trailing `_identity` levels dropped. See
+   * {@link ComponentEventContext#contextScopedPath(String, int)}.
+   *
+   * @param eventContextId
+   *            {@link String}
+   * @param location
+   *            {@link String}
+   * @param prevLevel
+   *            levels to drop
+   * @return {@link ContextScopedKey}
+   */
+  public static ContextScopedKey of(String eventContextId, String location, int prevLevel) {
+    return of(eventContextId, location, TraceComponent.UNKNOWN_LOCATION_ID, prevLevel);
+  }
+
+  /**
+   * Key for the location with given id scoped to the event context id with given
+   * number of trailing `_identity` levels dropped.
+   *
+   * @param eventContextId
+   *            {@link String}
+   * @param location
+   *            {@link String}
+   * @param locationId
+   *            id of the location or {@link TraceComponent#UNKNOWN_LOCATION_ID}
+   * @param prevLevel
+   *            levels to drop
+   * @return {@link ContextScopedKey}
+   */
+  public static ContextScopedKey of(String eventContextId, String location, int locationId, int prevLevel) {
+    String contextId = String.valueOf(eventContextId);
+    int cutPos = contextId.length();
+    int remaining = prevLevel;
+    while (cutPos > 0 && remaining > 0) {
+      cutPos--;
+      if (contextId.charAt(cutPos) == '_') {
+        remaining--;
+      }
+    }
+    return new ContextScopedKey(contextId, cutPos, location, locationId);
+  }
+
+  /**
+   * Key from a context scoped path in `eventContextId/location` format.
+   *
+   * @param contextScopedPath
+   *            {@link String}
+   * @return {@link ContextScopedKey} or null if the path isn't context scoped
+   */
+  public static ContextScopedKey parse(String contextScopedPath) {
+    if (contextScopedPath == null)
+      return null;
+    int separator = contextScopedPath.indexOf('/');
+    if (separator < 0)
+      return null;
+    String location = contextScopedPath.substring(separator + 1);
+    return new ContextScopedKey(contextScopedPath, separator, location, TraceComponent.UNKNOWN_LOCATION_ID);
+  }
+
+  private static int prefixHash(String value, int length) {
+    if (length == value.length())
+      return value.hashCode();
+    int h = 0;
+    for (int i = 0; i < length; i++) {
+      h = 31 * h + value.charAt(i);
+    }
+    return h;
+  }
+
+  public String getLocation() {
+    return location;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o)
+      return true;
+    if (!(o instanceof ContextScopedKey))
+      return false;
+    ContextScopedKey that = (ContextScopedKey) o;
+    return hash == that.hash
+        && contextLength == that.contextLength
+        && sameLocation(that)
+        && (eventContextId == that.eventContextId
+            || eventContextId.regionMatches(0, that.eventContextId, 0, contextLength));
+  }
+
+  private boolean sameLocation(ContextScopedKey that) {
+    if (locationId != TraceComponent.UNKNOWN_LOCATION_ID && that.locationId != TraceComponent.UNKNOWN_LOCATION_ID)
+      return locationId == that.locationId;
+    return location == that.location || (location != null && location.equals(that.location));
+  }
+
+  @Override
+  public int hashCode() {
+    return hash;
+  }
+
+  @Override
+  public String toString() {
+    return ComponentEventContext.contextScopedLocationFor(eventContextId.substring(0, contextLength), location);
+  }
+}
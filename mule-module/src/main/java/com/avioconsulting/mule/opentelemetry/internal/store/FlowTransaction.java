@@ -8,6 +8,7 @@ import io.opentelemetry.api.trace.SpanBuilder;
 
 import java.time.Instant;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 
 public class FlowTransaction extends AbstractTransaction {
@@ -50,6 +51,16 @@ public class FlowTransaction extends AbstractTransaction {
     return getRootFlowSpan().endChildContainer(traceComponent, endSpan);
   }
 
+  @Override
+  public AtomicInteger getPendingFinalizations() {
+    return getRootFlowSpan().getPendingFinalizations();
+  }
+
+  @Override
+  public void endOpenSpans(Consumer<Span> spanUpdater) {
+    getRootFlowSpan().endOpenSpans(spanUpdater);
+  }
+
   @Override
   public ProcessorSpan findSpan(String location) {
     return getRootFlowSpan().findSpan(location);
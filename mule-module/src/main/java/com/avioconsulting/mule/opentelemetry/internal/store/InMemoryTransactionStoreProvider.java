@@ -0,0 +1,23 @@
+package com.avioconsulting.mule.opentelemetry.internal.store;
+
+import com.avioconsulting.mule.opentelemetry.api.store.TransactionStore;
+
+public class InMemoryTransactionStoreProvider extends AbstractTransactionStoreProvider {
+
+  public static final String NAME = "in-memory";
+
+  @Override
+  public String getName() {
+    return NAME;
+  }
+
+  @Override
+  protected TransactionStore getTransactionStore(TransactionProcessor transactionProcessor) {
+    return InMemoryTransactionStore.getInstance(transactionProcessor);
+  }
+
+  @Override
+  public void reset() {
+    InMemoryTransactionStore._resetForTesting();
+  }
+}
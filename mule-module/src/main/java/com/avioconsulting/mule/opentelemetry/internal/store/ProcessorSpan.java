@@ -1,11 +1,15 @@
 package com.avioconsulting.mule.opentelemetry.internal.store;
 
 import com.avioconsulting.mule.opentelemetry.api.store.SpanMeta;
+import com.avioconsulting.mule.opentelemetry.api.traces.TransactionContext;
 import io.opentelemetry.api.trace.Span;
 import io.opentelemetry.context.Context;
 
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -17,10 +21,12 @@ public class ProcessorSpan implements SpanMeta {
   private final Instant startTime;
   private Instant endTime;
   private final String flowName;
-  private Context context;
+  private volatile Context context;
+  private volatile TransactionContext transactionContext;
   private final Map<String, String> tags = new HashMap<>();
   private ProcessorSpan parentSpan;
   private final AtomicLong siblingCount = new AtomicLong();
+  private List<ContextScopedKey> routeKeys;
 
   public ProcessorSpan(Span span, String location, String transactionId, Instant startTime, String flowName) {
     this(span, location, transactionId, startTime, flowName, -1);
@@ -76,6 +82,23 @@ public class ProcessorSpan implements SpanMeta {
     return context;
   }
 
+  /**
+   * Get the {@link TransactionContext} of this span. The context is created on
+   * first use and reused by later lookups, along with any propagation entries it
+   * caches.
+   *
+   * @return TransactionContext
+   */
+  public TransactionContext getTransactionContext() {
+    TransactionContext current = transactionContext;
+    if (current == null) {
+      // Concurrent callers may create an equal context, any of them can be kept
+      current = TransactionContext.of(span, getContext(), transactionId);
+      transactionContext = current;
+    }
+    return current;
+  }
+
   public Span getSpan() {
     return span;
   }
@@ -118,6 +141,31 @@ public class ProcessorSpan implements SpanMeta {
     return this;
   }
 
+  /**
+   * Register a route span of this router span. Routes do not have any
+   * notifications of their own and end with the router.
+   *
+   * @param routeKey
+   *            {@link ContextScopedKey} of the route span
+   */
+  synchronized void addRouteKey(ContextScopedKey routeKey) {
+    if (routeKeys == null) {
+      routeKeys = new ArrayList<>(4);
+    }
+    routeKeys.add(routeKey);
+  }
+
+  /**
+   * Remove and return the route spans registered for this router span.
+   *
+   * @return {@link List} of route span keys
+   */
+  synchronized List<ContextScopedKey> removeRouteKeys() {
+    List<ContextScopedKey> keys = routeKeys;
+    routeKeys = null;
+    return keys == null ? Collections.emptyList() : keys;
+  }
+
   @Override
   public String toString() {
     return "ProcessorSpan{" +
@@ -0,0 +1,383 @@
+package com.avioconsulting.mule.opentelemetry.internal.store;
+
+import com.avioconsulting.mule.opentelemetry.api.store.TransactionStore;
+import com.avioconsulting.mule.opentelemetry.internal.opentelemetry.sdk.TailSamplingSpanProcessor;
+import com.avioconsulting.mule.opentelemetry.internal.util.PropertiesUtil;
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.metrics.Meter;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.StatusCode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import static com.avioconsulting.mule.opentelemetry.api.sdk.SemanticAttributes.MULE_APP_TRANSACTION_EVICTED;
+
+/**
+ * Bounded {@link TransactionStore} that splits transactions across a fixed
+ * number of stripes. Each stripe is capped at its share of
+ * {@link #MULE_OTEL_TRANSACTION_STORE_MAX_TRANSACTIONS} and evicts a
+ * transaction that was not accessed recently when full, using a second chance
+ * (clock) queue instead of scanning the stripe. A background sweeper evicts
+ * transactions that were not accessed within
+ * {@link #MULE_OTEL_TRANSACTION_STORE_IDLE_TTL_SECONDS}.
+ *
+ * Transactions that never end (eg. an async flow that never completes) are
+ * otherwise held forever by {@link InMemoryTransactionStore}. Evicted
+ * transactions have their open spans and root span ended with an
+ * {@link StatusCode#ERROR} status so that the trace is still exported.
+ *
+ * Selected with `mule.otel.transaction.store=sharded`, see
+ * {@link TransactionStoreService#MULE_OTEL_TRANSACTION_STORE}.
+ */
+public class ShardedTransactionStore extends AbstractTransactionStore {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ShardedTransactionStore.class);
+
+  /**
+   * Number of stripes to split transactions in. Rounded up to the next power of
+   * two.
+   *
+   * @default 16
+   */
+  public static final String MULE_OTEL_TRANSACTION_STORE_STRIPES = "mule.otel.transaction.store.stripes";
+
+  /**
+   * Maximum number of in-flight transactions kept in the store. Least recently
+   * accessed transactions are evicted when the limit is reached.
+   *
+   * @default 10000
+   */
+  public static final String MULE_OTEL_TRANSACTION_STORE_MAX_TRANSACTIONS = "mule.otel.transaction.store.max.transactions";
+
+  /**
+   * Seconds after which a transaction that has not been accessed is evicted from
+   * the store. Set to 0 to disable idle eviction.
+   *
+   * @default 600
+   */
+  public static final String MULE_OTEL_TRANSACTION_STORE_IDLE_TTL_SECONDS = "mule.otel.transaction.store.idle.ttl.seconds";
+
+  static final String EVICTED_STATUS_DESCRIPTION = "evicted";
+  static final String EVICTION_REASON_CAPACITY = "capacity";
+  static final String EVICTION_REASON_IDLE = "idle";
+  /**
+   * Access times are only needed for idle eviction, so reads update them at
+   * this resolution instead of writing on every access.
+   */
+  static final long ACCESS_RESOLUTION_MILLIS = 1000;
+  private static final String METER_NAME = "mule-opentelemetry-module.transaction.store";
+  private static final AttributeKey<String> EVICTION_REASON = AttributeKey
+      .stringKey("mule.otel.transaction.store.eviction.reason");
+  private static final Attributes CAPACITY_ATTRIBUTES = Attributes.of(EVICTION_REASON, EVICTION_REASON_CAPACITY);
+  private static final Attributes IDLE_ATTRIBUTES = Attributes.of(EVICTION_REASON, EVICTION_REASON_IDLE);
+  private static final List<AutoCloseable> INSTRUMENTS = Collections.synchronizedList(new ArrayList<>());
+
+  private static TransactionStore service;
+
+  private final Stripe[] stripes;
+  private final int stripeMask;
+  private final int maxTransactionsPerStripe;
+  private final long idleTtlMillis;
+  private final LongAdder capacityEvictions = new LongAdder();
+  private final LongAdder idleEvictions = new LongAdder();
+  private final ScheduledExecutorService evictionExecutor;
+
+  ShardedTransactionStore(TransactionProcessor transactionProcessor, int stripeCount, int maxTransactions,
+      long idleTtlMillis, boolean scheduleIdleEviction) {
+    super(transactionProcessor);
+    int size = 1;
+    while (size < Math.max(1, stripeCount)) {
+      size <<= 1;
+    }
+    this.stripes = new Stripe[size];
+    for (int i = 0; i < size; i++) {
+      stripes[i] = new Stripe();
+    }
+    this.stripeMask = size - 1;
+    this.maxTransactionsPerStripe = Math.max(1, maxTransactions / size);
+    this.idleTtlMillis = idleTtlMillis;
+    if (scheduleIdleEviction && idleTtlMillis > 0) {
+      long sweepIntervalMillis = Math.max(1000, idleTtlMillis / 4);
+      evictionExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "ShardedTransactionStore-Eviction");
+        t.setDaemon(true);
+        return t;
+      });
+      evictionExecutor.scheduleWithFixedDelay(() -> evictIdle(System.currentTimeMillis()),
+          sweepIntervalMillis, sweepIntervalMillis, TimeUnit.MILLISECONDS);
+    } else {
+      evictionExecutor = null;
+    }
+  }
+
+  public static synchronized TransactionStore getInstance(TransactionProcessor transactionProcessor) {
+    if (service == null) {
+      service = new ShardedTransactionStore(transactionProcessor,
+          PropertiesUtil.getInt(MULE_OTEL_TRANSACTION_STORE_STRIPES, 16),
+          PropertiesUtil.getInt(MULE_OTEL_TRANSACTION_STORE_MAX_TRANSACTIONS, 10000),
+          TimeUnit.SECONDS.toMillis(PropertiesUtil.getInt(MULE_OTEL_TRANSACTION_STORE_IDLE_TTL_SECONDS, 600)),
+          true);
+    }
+    return service;
+  }
+
+  /**
+   * Stop the idle eviction of the store instance and release it. Called when
+   * the module stops, so no eviction thread outlives the application.
+   */
+  public static synchronized void stopInstance() {
+    if (service != null) {
+      ((ShardedTransactionStore) service).shutdown();
+    }
+    service = null;
+  }
+
+  public static synchronized void _resetForTesting() {
+    stopInstance();
+  }
+
+  private static synchronized ShardedTransactionStore getService() {
+    return (ShardedTransactionStore) service;
+  }
+
+  private Stripe stripeFor(String transactionId) {
+    int h = transactionId.hashCode();
+    return stripes[(h ^ (h >>> 16)) & stripeMask];
+  }
+
+  @Override
+  protected Transaction getTransaction(String transactionId) {
+    if (transactionId == null)
+      return null;
+    StoreEntry entry = stripeFor(transactionId).entries.get(transactionId);
+    if (entry == null)
+      return null;
+    // Shared fields are only written when they change
+    long now = System.currentTimeMillis();
+    if (now - entry.lastAccessed >= ACCESS_RESOLUTION_MILLIS) {
+      entry.lastAccessed = now;
+    }
+    if (!entry.referenced) {
+      entry.referenced = true;
+    }
+    return entry.transaction;
+  }
+
+  @Override
+  protected void putTransaction(Transaction transaction) {
+    Stripe stripe = stripeFor(transaction.getTransactionId());
+    StoreEntry entry = new StoreEntry(transaction, System.currentTimeMillis());
+    // Puts are serialized per stripe, so the stripe never exceeds its maximum
+    synchronized (stripe) {
+      while (stripe.entries.size() >= maxTransactionsPerStripe && evictOne(stripe)) {
+        capacityEvictions.increment();
+      }
+      StoreEntry previous = stripe.entries.put(transaction.getTransactionId(), entry);
+      if (previous != null) {
+        previous.removed = true;
+      }
+      stripe.queue.addLast(entry);
+      if (stripe.queue.size() > 2 * maxTransactionsPerStripe) {
+        // Ended transactions leave their queue entries behind
+        stripe.queue.removeIf(queued -> queued.removed);
+      }
+    }
+  }
+
+  @Override
+  protected void removeTransaction(String transactionId) {
+    StoreEntry entry = stripeFor(transactionId).entries.remove(transactionId);
+    if (entry != null) {
+      entry.removed = true;
+    }
+  }
+
+  @Override
+  protected Collection<String> getTransactionIds() {
+    List<String> ids = new ArrayList<>();
+    for (Stripe stripe : stripes) {
+      ids.addAll(stripe.entries.keySet());
+    }
+    return ids;
+  }
+
+  /**
+   * Evict the first queued transaction not accessed since it was last given a
+   * second chance. Called with the stripe lock.
+   *
+   * @return true if a transaction was evicted
+   */
+  private boolean evictOne(Stripe stripe) {
+    StoreEntry entry;
+    while ((entry = stripe.queue.pollFirst()) != null) {
+      if (entry.removed)
+        continue;
+      if (entry.referenced) {
+        entry.referenced = false;
+        stripe.queue.addLast(entry);
+        continue;
+      }
+      if (stripe.entries.remove(entry.transaction.getTransactionId(), entry)) {
+        entry.removed = true;
+        forceEnd(entry.transaction, EVICTION_REASON_CAPACITY);
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Evict all transactions that were not accessed since
+   * {@link #MULE_OTEL_TRANSACTION_STORE_IDLE_TTL_SECONDS}.
+   *
+   * @param now
+   *            current time in millis
+   */
+  void evictIdle(long now) {
+    if (idleTtlMillis <= 0)
+      return;
+    long evictBefore = now - idleTtlMillis;
+    long evicted = 0;
+    try {
+      for (Stripe stripe : stripes) {
+        for (Map.Entry<String, StoreEntry> entry : stripe.entries.entrySet()) {
+          if (entry.getValue().lastAccessed < evictBefore
+              && stripe.entries.remove(entry.getKey(), entry.getValue())) {
+            entry.getValue().removed = true;
+            idleEvictions.increment();
+            evicted++;
+            forceEnd(entry.getValue().transaction, EVICTION_REASON_IDLE);
+          }
+        }
+      }
+    } catch (Exception e) {
+      LOGGER.warn("Failed to evict idle transactions", e);
+    }
+    if (evicted > 0 && LOGGER.isDebugEnabled()) {
+      LOGGER.debug("Evicted {} idle transactions. Total evictions - capacity: {}, idle: {}", evicted,
+          getCapacityEvictionCount(), getIdleEvictionCount());
+    }
+  }
+
+  private void forceEnd(Transaction transaction, String reason) {
+    if (LOGGER.isDebugEnabled()) {
+      LOGGER.debug("Evicting transaction {} for flow '{}' due to {}", transaction.getTransactionId(),
+          transaction.getRootFlowName(), reason);
+    }
+    Consumer<Span> markEvicted = span -> {
+      span.setAttribute(MULE_APP_TRANSACTION_EVICTED, reason);
+      TailSamplingSpanProcessor.setStatus(span, StatusCode.ERROR, EVICTED_STATUS_DESCRIPTION);
+    };
+    // Processor and child flow spans first, so the trace is complete when the
+    // root ends
+    transaction.endOpenSpans(markEvicted);
+    if (transaction.getEndTime() != null)
+      return;
+    Span span = transaction.getTransactionSpan();
+    if (span != null) {
+      markEvicted.accept(span);
+      span.end();
+    }
+  }
+
+  /**
+   * @return Number of transactions evicted because the store was full
+   */
+  public long getCapacityEvictionCount() {
+    return capacityEvictions.sum();
+  }
+
+  /**
+   * @return Number of transactions evicted because they were idle
+   */
+  public long getIdleEvictionCount() {
+    return idleEvictions.sum();
+  }
+
+  /**
+   * @return Number of transactions currently in the store
+   */
+  public int size() {
+    int size = 0;
+    for (Stripe stripe : stripes) {
+      size += stripe.entries.size();
+    }
+    return size;
+  }
+
+  void shutdown() {
+    if (evictionExecutor != null) {
+      evictionExecutor.shutdownNow();
+    }
+  }
+
+  public static synchronized void registerInstruments(OpenTelemetry openTelemetry) {
+    if (openTelemetry == null || !INSTRUMENTS.isEmpty())
+      return;
+    Meter meter = openTelemetry.getMeter(METER_NAME);
+    INSTRUMENTS.add(meter.counterBuilder("mule.otel.transaction.store.evictions")
+        .setDescription("Number of transactions evicted from the sharded transaction store")
+        .buildWithCallback(measurement -> {
+          ShardedTransactionStore store = getService();
+          if (store != null) {
+            measurement.record(store.getCapacityEvictionCount(), CAPACITY_ATTRIBUTES);
+            measurement.record(store.getIdleEvictionCount(), IDLE_ATTRIBUTES);
+          }
+        }));
+    INSTRUMENTS.add(meter.upDownCounterBuilder("mule.otel.transaction.store.transactions")
+        .setDescription("Number of in-flight transactions in the sharded transaction store")
+        .buildWithCallback(measurement -> {
+          ShardedTransactionStore store = getService();
+          if (store != null) {
+            measurement.record(store.size());
+          }
+        }));
+  }
+
+  public static synchronized void closeInstruments() {
+    for (AutoCloseable instrument : INSTRUMENTS) {
+      try {
+        instrument.close();
+      } catch (Exception e) {
+        LOGGER.trace("Failed to close transaction store instrument - {}", e.getMessage());
+      }
+    }
+    INSTRUMENTS.clear();
+  }
+
+  private static final class Stripe {
+    private final ConcurrentHashMap<String, StoreEntry> entries = new ConcurrentHashMap<>();
+    /**
+     * Entries in insertion order for capacity eviction, guarded by the stripe
+     * lock. Removed entries are skipped and purged lazily.
+     */
+    private final ArrayDeque<StoreEntry> queue = new ArrayDeque<>();
+  }
+
+  private static final class StoreEntry {
+    private final Transaction transaction;
+    private volatile long lastAccessed;
+    private volatile boolean referenced;
+    private volatile boolean removed;
+
+    private StoreEntry(Transaction transaction, long lastAccessed) {
+      this.transaction = transaction;
+      this.lastAccessed = lastAccessed;
+    }
+  }
+}
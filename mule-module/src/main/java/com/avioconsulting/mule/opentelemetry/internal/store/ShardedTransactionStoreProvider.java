@@ -0,0 +1,28 @@
+package com.avioconsulting.mule.opentelemetry.internal.store;
+
+import com.avioconsulting.mule.opentelemetry.api.store.TransactionStore;
+
+public class ShardedTransactionStoreProvider extends AbstractTransactionStoreProvider {
+
+  public static final String NAME = "sharded";
+
+  @Override
+  public String getName() {
+    return NAME;
+  }
+
+  @Override
+  protected TransactionStore getTransactionStore(TransactionProcessor transactionProcessor) {
+    return ShardedTransactionStore.getInstance(transactionProcessor);
+  }
+
+  @Override
+  public void stop() {
+    ShardedTransactionStore.stopInstance();
+  }
+
+  @Override
+  public void reset() {
+    ShardedTransactionStore._resetForTesting();
+  }
+}
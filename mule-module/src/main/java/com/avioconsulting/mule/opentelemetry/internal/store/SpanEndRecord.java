@@ -0,0 +1,87 @@
+package com.avioconsulting.mule.opentelemetry.internal.store;
+
+import com.avioconsulting.mule.opentelemetry.api.traces.TraceComponent;
+import com.avioconsulting.mule.opentelemetry.internal.opentelemetry.sdk.TailSamplingSpanProcessor;
+import com.avioconsulting.mule.opentelemetry.internal.util.OpenTelemetryUtil;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.StatusCode;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Immutable copy of the end state of a {@link TraceComponent}, applied to its
+ * span by {@link SpanFinalizer}. Trace components return to their pool once
+ * the end notification is handled, so the values to apply later are copied
+ * into the record. Tag values are converted to attribute values only when the
+ * record is applied.
+ */
+public final class SpanEndRecord implements Consumer<Span> {
+
+  private static final AttributeKey<?>[] NO_KEYS = new AttributeKey<?>[0];
+  private static final String[] NO_VALUES = new String[0];
+
+  private final Attributes staticAttributes;
+  private final AttributeKey<?>[] keys;
+  private final String[] values;
+  private final StatusCode statusCode;
+  private final String errorMessage;
+  private final Throwable exception;
+
+  private SpanEndRecord(Attributes staticAttributes, AttributeKey<?>[] keys, String[] values,
+      StatusCode statusCode, String errorMessage, Throwable exception) {
+    this.staticAttributes = staticAttributes;
+    this.keys = keys;
+    this.values = values;
+    this.statusCode = statusCode;
+    this.errorMessage = errorMessage;
+    this.exception = exception;
+  }
+
+  /**
+   * Copy the end state of the trace component.
+   *
+   * @param traceComponent
+   *            {@link TraceComponent} with all end tags added
+   * @param exception
+   *            {@link Throwable} to record on the span, may be null
+   * @return SpanEndRecord
+   */
+  public static SpanEndRecord of(TraceComponent traceComponent, Throwable exception) {
+    AttributeKey<?>[] keys = NO_KEYS;
+    String[] values = NO_VALUES;
+    Attributes staticAttributes = null;
+    if (traceComponent.hasTags()) {
+      staticAttributes = traceComponent.getStaticAttributes();
+      List<AttributeKey<?>> keyList = new ArrayList<>();
+      List<String> valueList = new ArrayList<>();
+      traceComponent.forEachTagAttribute(OpenTelemetryUtil::getAttributeKey, (key, value) -> {
+        keyList.add(key);
+        valueList.add(value);
+      });
+      keys = keyList.toArray(NO_KEYS);
+      values = valueList.toArray(NO_VALUES);
+    }
+    return new SpanEndRecord(staticAttributes, keys, values, traceComponent.getStatusCode(),
+        traceComponent.getErrorMessage(), exception);
+  }
+
+  @Override
+  public void accept(Span span) {
+    if (exception != null) {
+      span.recordException(exception);
+    }
+    if (statusCode != null && !StatusCode.UNSET.equals(statusCode)) {
+      TailSamplingSpanProcessor.setStatus(span, statusCode, errorMessage);
+    }
+    if (staticAttributes != null) {
+      span.setAllAttributes(staticAttributes);
+    }
+    for (int i = 0; i < keys.length; i++) {
+      OpenTelemetryUtil.setAttribute(span, keys[i], values[i]);
+    }
+  }
+}
@@ -0,0 +1,120 @@
+package com.avioconsulting.mule.opentelemetry.internal.store;
+
+import com.avioconsulting.mule.opentelemetry.internal.util.PropertiesUtil;
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.trace.Span;
+import org.mule.runtime.api.util.LazyValue;
+
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Finalizes ended processor spans, i.e. applies the end attributes, status and
+ * exceptions to the span and ends it.
+ * <p>
+ * By default, spans are finalized on the thread that handles the end
+ * notification. When {@link #MULE_OTEL_SPAN_FINALIZER_ASYNC_ENABLED} is true,
+ * {@link SpanEndRecord}s are finalized on a dedicated thread by
+ * {@link AsyncSpanFinalizer}. Store bookkeeping, such as removing the span
+ * from its container, is always done by the caller.
+ */
+public class SpanFinalizer {
+
+  /**
+   * Finalize ended processor spans and capture processor metrics on a dedicated
+   * thread instead of the thread handling the end notification.
+   *
+   * @default false
+   */
+  public static final String MULE_OTEL_SPAN_FINALIZER_ASYNC_ENABLED = "mule.otel.span.finalizer.async.enabled";
+
+  private static final LazyValue<SpanFinalizer> INSTANCE = new LazyValue<>(SpanFinalizer::create);
+
+  public static SpanFinalizer getInstance() {
+    return INSTANCE.get();
+  }
+
+  private static SpanFinalizer create() {
+    return PropertiesUtil.getBoolean(MULE_OTEL_SPAN_FINALIZER_ASYNC_ENABLED, false) ? new AsyncSpanFinalizer()
+        : new SpanFinalizer();
+  }
+
+  /**
+   * @return true if the span updaters should be built as {@link SpanEndRecord}s
+   *         to finalize them later
+   */
+  public boolean isAsync() {
+    return false;
+  }
+
+  /**
+   * Update and end the span.
+   *
+   * @param span
+   *            {@link Span} to end
+   * @param spanUpdater
+   *            updater to apply before ending, may be null
+   * @param endTime
+   *            {@link Instant} of the span end
+   */
+  public void finish(Span span, Consumer<Span> spanUpdater, Instant endTime) {
+    finish(span, spanUpdater, endTime, null);
+  }
+
+  /**
+   * Update and end the span, counting it in the pending finalizations of its
+   * transaction until it is ended.
+   *
+   * @param span
+   *            {@link Span} to end
+   * @param spanUpdater
+   *            updater to apply before ending, may be null
+   * @param endTime
+   *            {@link Instant} of the span end
+   * @param pending
+   *            pending finalizations of the transaction, may be null
+   */
+  public void finish(Span span, Consumer<Span> spanUpdater, Instant endTime, AtomicInteger pending) {
+    if (spanUpdater != null)
+      spanUpdater.accept(span);
+    span.end(endTime);
+  }
+
+  /**
+   * End a transaction span once the pending finalizations of the transaction
+   * are done.
+   *
+   * @param span
+   *            {@link Span} to end
+   * @param endTime
+   *            {@link Instant} of the span end
+   * @param pending
+   *            pending finalizations of the transaction, may be null
+   */
+  public void endAfter(Span span, Instant endTime, AtomicInteger pending) {
+    span.end(endTime);
+  }
+
+  /**
+   * Run a task that follows span finalization, such as capturing metrics.
+   *
+   * @param task
+   *            {@link Runnable}
+   */
+  public void execute(Runnable task) {
+    task.run();
+  }
+
+  /**
+   * Finish all pending work and release the resources.
+   */
+  public void stop() {
+  }
+
+  public void registerInstruments(OpenTelemetry openTelemetry) {
+  }
+
+  public void closeInstruments() {
+  }
+}
@@ -8,6 +8,7 @@ import io.opentelemetry.api.trace.Span;
 import io.opentelemetry.api.trace.SpanBuilder;
 
 import java.time.Instant;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 
 /**
@@ -32,4 +33,19 @@ public interface Transaction extends TransactionMeta {
   ProcessorSpan findSpan(String location);
 
   TransactionContext getTransactionContext();
+
+  /**
+   * @return counter of the processor span finalizations of this transaction
+   *         that are still queued
+   */
+  AtomicInteger getPendingFinalizations();
+
+  /**
+   * End the processor and child flow spans of this transaction that are still
+   * open, eg. when the transaction is evicted from the store.
+   *
+   * @param spanUpdater
+   *            {@link Consumer} applied to each span before it ends
+   */
+  void endOpenSpans(Consumer<Span> spanUpdater);
 }
@@ -2,12 +2,12 @@ package com.avioconsulting.mule.opentelemetry.internal.store;
 
 import com.avioconsulting.mule.opentelemetry.api.store.SpanMeta;
 import com.avioconsulting.mule.opentelemetry.api.store.TransactionMeta;
+import com.avioconsulting.mule.opentelemetry.api.store.TransactionStoreContext;
 import com.avioconsulting.mule.opentelemetry.api.traces.TraceComponent;
 import com.avioconsulting.mule.opentelemetry.internal.processor.service.ComponentRegistryService;
-import io.opentelemetry.api.trace.SpanBuilder;
 import org.mule.runtime.api.message.Error;
 
-public interface TransactionProcessor {
+public interface TransactionProcessor extends TransactionStoreContext {
   void addProcessorSpan(TraceComponent traceComponent, String containerName);
 
   SpanMeta endProcessorSpan(TraceComponent traceComponent, Error error);
@@ -16,7 +16,5 @@ public interface TransactionProcessor {
 
   TransactionMeta endTransaction(TraceComponent traceComponent, Exception exception);
 
-  SpanBuilder spanBuilder(String name);
-
   ComponentRegistryService getComponentRegistryService();
 }
@@ -0,0 +1,117 @@
+package com.avioconsulting.mule.opentelemetry.internal.store;
+
+import com.avioconsulting.mule.opentelemetry.api.store.TransactionStore;
+import com.avioconsulting.mule.opentelemetry.api.store.TransactionStoreProvider;
+import com.avioconsulting.mule.opentelemetry.internal.util.PropertiesUtil;
+import com.avioconsulting.mule.opentelemetry.internal.util.ServiceProviderUtil;
+import org.mule.runtime.api.util.LazyValue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Resolves the {@link TransactionStore} to use from the
+ * {@link TransactionStoreProvider}s available on the classpath.
+ */
+public class TransactionStoreService {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(TransactionStoreService.class);
+
+  /**
+   * Name of the {@link TransactionStoreProvider} to use for keeping
+   * transactions. Module ships with `in-memory` and `sharded` stores.
+   * Applications can package their own provider.
+   *
+   * @default in-memory
+   */
+  public static final String MULE_OTEL_TRANSACTION_STORE = "mule.otel.transaction.store";
+
+  public static final String DEFAULT_TRANSACTION_STORE = InMemoryTransactionStoreProvider.NAME;
+
+  private static final LazyValue<TransactionStoreService> VALUE = new LazyValue<>(TransactionStoreService::new);
+  private final List<TransactionStoreProvider> providers;
+
+  private TransactionStoreService() {
+    List<TransactionStoreProvider> lst = ServiceProviderUtil.load(TransactionStoreProvider.class.getClassLoader(),
+        TransactionStoreProvider.class, new ArrayList<>());
+    // Resolved when the first connection is created, so the context classloader
+    // is the application classloader and sees providers packaged with the
+    // application
+    ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+    if (classLoader != null && classLoader != TransactionStoreProvider.class.getClassLoader()) {
+      Set<String> loaded = new HashSet<>();
+      lst.forEach(provider -> loaded.add(provider.getClass().getName()));
+      for (TransactionStoreProvider provider : ServiceProviderUtil.load(classLoader, TransactionStoreProvider.class,
+          new ArrayList<>())) {
+        if (loaded.add(provider.getClass().getName())) {
+          lst.add(provider);
+        }
+      }
+    }
+    providers = Collections.unmodifiableList(lst);
+  }
+
+  public static TransactionStoreService getInstance() {
+    return VALUE.get();
+  }
+
+  /**
+   * Name of the configured store.
+   *
+   * @return {@link String} name of the store
+   */
+  public static String getConfiguredStoreName() {
+    return PropertiesUtil.getProperty(MULE_OTEL_TRANSACTION_STORE, DEFAULT_TRANSACTION_STORE);
+  }
+
+  /**
+   * Get the configured {@link TransactionStore}. Falls back to the in-memory
+   * store when no provider matches the configured name.
+   *
+   * @param transactionProcessor
+   *            {@link TransactionProcessor}
+   * @return {@link TransactionStore}
+   */
+  public TransactionStore getTransactionStore(TransactionProcessor transactionProcessor) {
+    String storeName = getConfiguredStoreName();
+    for (TransactionStoreProvider provider : providers) {
+      if (provider.getName().equalsIgnoreCase(storeName)) {
+        LOGGER.debug("Using '{}' transaction store", provider.getName());
+        return provider.getTransactionStore(transactionProcessor);
+      }
+    }
+    LOGGER.warn("No transaction store found for '{}'. Using '{}' transaction store.", storeName,
+        DEFAULT_TRANSACTION_STORE);
+    return InMemoryTransactionStore.getInstance(transactionProcessor);
+  }
+
+  /**
+   * Stop the stores of all providers.
+   */
+  public void stop() {
+    for (TransactionStoreProvider provider : providers) {
+      try {
+        provider.stop();
+      } catch (Exception e) {
+        LOGGER.warn("Failed to stop '{}' transaction store - {}", provider.getName(), e.getMessage());
+      }
+    }
+  }
+
+  List<TransactionStoreProvider> getProviders() {
+    return providers;
+  }
+
+  public static void _resetForTesting() {
+    for (TransactionStoreProvider provider : getInstance().providers) {
+      if (provider instanceof AbstractTransactionStoreProvider) {
+        ((AbstractTransactionStoreProvider) provider).reset();
+      }
+    }
+  }
+}
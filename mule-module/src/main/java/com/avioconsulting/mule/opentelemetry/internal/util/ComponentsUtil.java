@@ -82,9 +82,20 @@ public class ComponentsUtil {
    * @return String
    */
   public static String getRouteContainerLocation(TraceComponent traceComponent) {
-    String parentLocation = null;
+    return getRouteContainerLocation(traceComponent.getComponentLocation());
+  }
 
-    ComponentLocation location = traceComponent.getComponentLocation();
+  /**
+   * Gets the parent container for router's route.
+   *
+   * @param location
+   *            {@link ComponentLocation} of the processor in route
+   * @return String location of the router, or null if location is not in a
+   *         route
+   * @see #getRouteContainerLocation(TraceComponent)
+   */
+  public static String getRouteContainerLocation(ComponentLocation location) {
+    String parentLocation = null;
 
     if (location == null) {
       return null;
@@ -233,13 +244,7 @@ public class ComponentsUtil {
           .evaluate(targetFlowName, context.get()).getValue().toString();
       traceComponent.addTag(MULE_APP_PROCESSOR_FLOW_REF_NAME.getKey(), targetFlowName);
     }
-    ComponentLocation componentLocation = componentRegistryService.findComponentLocation(targetFlowName);
-    if (componentLocation == null) {
-      return null;
-    } else if (isSubFlow(componentLocation)) {
-      return componentLocation;
-    }
-    return null;
+    return componentRegistryService.findSubFlowLocation(traceComponent.getLocation(), targetFlowName);
   }
 
   public static boolean isBatchOnComplete(String location, ComponentRegistryService componentRegistryService) {
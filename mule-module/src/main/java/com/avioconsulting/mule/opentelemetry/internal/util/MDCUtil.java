@@ -1,25 +1,49 @@
 package com.avioconsulting.mule.opentelemetry.internal.util;
 
 import com.avioconsulting.mule.opentelemetry.api.store.TransactionStore;
+import com.avioconsulting.mule.opentelemetry.api.traces.TraceMDCAdapter;
+import com.avioconsulting.mule.opentelemetry.internal.interceptor.TraceContextStorage;
 import org.mule.runtime.api.event.Event;
 import org.mule.runtime.api.metadata.TypedValue;
-import org.slf4j.MDC;
+import org.mule.runtime.api.util.LazyValue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 
 import static com.avioconsulting.mule.opentelemetry.api.store.TransactionStore.*;
 
 public class MDCUtil {
 
+  private static final Logger LOGGER = LoggerFactory.getLogger(MDCUtil.class);
+
+  /**
+   * Name of the {@link TraceMDCAdapter} writing trace and span ids to the
+   * logging MDC.
+   *
+   * @default slf4j
+   */
+  public static final String MULE_OTEL_MDC_ADAPTER = "mule.otel.mdc.adapter";
+
   private static final TypedValue<Map<Object, Object>> EMPTY_MAP_VALUE = TypedValue.of(Collections.emptyMap());
   public static final String TRACE_ID = "trace_id";
   public static final String SPAN_ID = "span_id";
 
+  private static final LazyValue<TraceMDCAdapter> ADAPTER = new LazyValue<>(MDCUtil::loadAdapter);
+
+  /**
+   * Ids last written to the MDC by the current thread. Consecutive processors of
+   * the same span do not write the MDC again.
+   */
+  private static final ThreadLocal<String[]> LAST_WRITTEN = ThreadLocal.withInitial(() -> new String[2]);
+
   public static void replaceMDCOtelEntries(Event event) {
     if (event == null)
       return;
-    replaceMDCOtelEntriesFromVars(event.getVariables());
+    replaceMDCOtelEntries(TraceContextStorage.getInstance().getTraceContext(event));
   }
 
   public static void replaceMDCOtelEntriesFromVars(Map<String, TypedValue<?>> variables) {
@@ -30,21 +54,55 @@ public class MDCUtil {
   }
 
   public static void replaceMDCOtelEntries(Map<String, Object> context) {
+    replaceMDCOtelEntries(context, ADAPTER.get());
+  }
+
+  static void replaceMDCOtelEntries(Map<String, Object> context, TraceMDCAdapter adapter) {
     if (context == null || context.isEmpty())
       return;
-    replaceMDCOtelEntry(context, traceId, TRACE_ID);
-    replaceMDCOtelEntry(context, spanId, SPAN_ID);
+    String traceIdValue = toMDCValue(context.get(traceId));
+    String spanIdValue = toMDCValue(context.get(spanId));
+    if (traceIdValue == null && spanIdValue == null)
+      return;
+    String[] lastWritten = LAST_WRITTEN.get();
+    // The runtime resets or swaps the MDC between events on pooled threads, so
+    // a single read confirms the last written span id is still there
+    if (spanIdValue != null && spanIdValue.equals(lastWritten[1])
+        && (traceIdValue == null || traceIdValue.equals(lastWritten[0]))
+        && spanIdValue.equals(adapter.getSpanId())) {
+      return;
+    }
+    adapter.put(traceIdValue, spanIdValue);
+    if (traceIdValue != null)
+      lastWritten[0] = traceIdValue;
+    if (spanIdValue != null)
+      lastWritten[1] = spanIdValue;
+  }
+
+  private static String toMDCValue(Object value) {
+    return value == null ? null : value.toString();
   }
 
-  private static void replaceMDCOtelEntry(Map<String, Object> contextMap, String sourceKey, String targetKey) {
-    if (contextMap.containsKey(sourceKey)) {
-      String mdcValue = MDC.get(sourceKey);
-      if (mdcValue != null &&
-          mdcValue.equalsIgnoreCase(contextMap.get(sourceKey).toString())) {
-        return;
+  private static TraceMDCAdapter loadAdapter() {
+    String name = PropertiesUtil.getProperty(MULE_OTEL_MDC_ADAPTER, Slf4jTraceMDCAdapter.NAME);
+    // Resolved on the first processor of the application, so the context
+    // classloader is the application classloader and sees adapters packaged
+    // with the application
+    ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+    if (classLoader == null) {
+      classLoader = TraceMDCAdapter.class.getClassLoader();
+    }
+    List<TraceMDCAdapter> adapters = ServiceProviderUtil.load(classLoader, TraceMDCAdapter.class,
+        new ArrayList<>());
+    for (TraceMDCAdapter adapter : adapters) {
+      if (adapter.getName().equalsIgnoreCase(name)) {
+        LOGGER.debug("Using '{}' MDC adapter", adapter.getName());
+        return adapter;
       }
-      MDC.remove(targetKey);
-      MDC.put(targetKey, contextMap.get(sourceKey).toString());
     }
+    if (!Slf4jTraceMDCAdapter.NAME.equalsIgnoreCase(name)) {
+      LOGGER.warn("No MDC adapter found for '{}'. Using '{}' MDC adapter.", name, Slf4jTraceMDCAdapter.NAME);
+    }
+    return new Slf4jTraceMDCAdapter();
   }
 }
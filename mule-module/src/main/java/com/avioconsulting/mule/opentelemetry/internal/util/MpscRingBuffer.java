@@ -0,0 +1,99 @@
+package com.avioconsulting.mule.opentelemetry.internal.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded lock-free ring buffer for multiple producers and a single consumer.
+ * <p>
+ * Each slot carries a sequence number. Producers claim a slot by advancing the
+ * tail and publish the element by advancing the slot sequence, the consumer
+ * reads a slot only after it is published. {@link #offer(Object)} may be called
+ * from any thread, {@link #poll()} must only be called from one thread at a
+ * time.
+ *
+ * @param <E>
+ *            element type
+ */
+public class MpscRingBuffer<E> {
+
+  private final int mask;
+  private final AtomicReferenceArray<E> elements;
+  private final AtomicLongArray sequences;
+  private final AtomicLong tail = new AtomicLong();
+  private volatile long head;
+
+  /**
+   * @param capacity
+   *            minimum capacity, rounded up to a power of two
+   */
+  public MpscRingBuffer(int capacity) {
+    int size = 1;
+    while (size < Math.max(2, capacity)) {
+      size <<= 1;
+    }
+    mask = size - 1;
+    elements = new AtomicReferenceArray<>(size);
+    sequences = new AtomicLongArray(size);
+    for (int i = 0; i < size; i++) {
+      sequences.set(i, i);
+    }
+  }
+
+  /**
+   * Add an element if there is space.
+   *
+   * @param element
+   *            non-null element
+   * @return false if the buffer is full
+   */
+  public boolean offer(E element) {
+    while (true) {
+      long position = tail.get();
+      int index = (int) (position & mask);
+      long difference = sequences.get(index) - position;
+      if (difference == 0) {
+        if (tail.compareAndSet(position, position + 1)) {
+          elements.lazySet(index, element);
+          sequences.lazySet(index, position + 1);
+          return true;
+        }
+      } else if (difference < 0) {
+        // Slot is not consumed yet since the previous lap
+        return false;
+      }
+      // Another producer claimed the slot, retry with the new tail
+    }
+  }
+
+  /**
+   * Remove the next published element. Must be called from a single consumer
+   * thread.
+   *
+   * @return element or null if there is none
+   */
+  public E poll() {
+    long position = head;
+    int index = (int) (position & mask);
+    if (sequences.get(index) != position + 1) {
+      return null;
+    }
+    E element = elements.get(index);
+    elements.lazySet(index, null);
+    sequences.lazySet(index, position + mask + 1);
+    head = position + 1;
+    return element;
+  }
+
+  /**
+   * @return approximate number of elements in the buffer
+   */
+  public int size() {
+    return (int) Math.max(0, tail.get() - head);
+  }
+
+  public int capacity() {
+    return mask + 1;
+  }
+}
@@ -2,7 +2,9 @@ package com.avioconsulting.mule.opentelemetry.internal.util;
 
 import com.avioconsulting.mule.opentelemetry.api.traces.TraceComponent;
 import com.avioconsulting.mule.opentelemetry.internal.opentelemetry.sdk.AttributesKeyCache;
+import com.avioconsulting.mule.opentelemetry.internal.processor.ComponentWrapper;
 import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
 import io.opentelemetry.api.common.AttributesBuilder;
 import io.opentelemetry.api.trace.Span;
 import io.opentelemetry.api.trace.SpanBuilder;
@@ -28,6 +30,13 @@ public class OpenTelemetryUtil {
   private static final Logger LOGGER = LoggerFactory.getLogger(OpenTelemetryUtil.class);
   private static final AttributesKeyCache attributesKeyCache = new AttributesKeyCache();
 
+  /**
+   * @return {@link AttributesKeyCache} used to convert tags to span attributes
+   */
+  public static AttributesKeyCache getAttributesKeyCache() {
+    return attributesKeyCache;
+  }
+
   /**
    * <pre>
    * Extract any attributes defined via system properties (see {@link System#getProperties()}) for provided <code>configName</code>.
@@ -111,6 +120,27 @@ public class OpenTelemetryUtil {
     }
   }
 
+  /**
+   * Resolve expressions in span name and tags of the trace component. Scanning
+   * the values is skipped when the component's wrapper has no expression
+   * parameters.
+   *
+   * @param traceComponent
+   *            {@link TraceComponent} to resolve expressions of
+   * @param expressionManager
+   *            {@link ExpressionManager}
+   * @param event
+   *            {@link Event} to resolve expressions with
+   * @param componentWrapper
+   *            {@link ComponentWrapper} of the component, null to always scan
+   */
+  public static void resolveExpressions(TraceComponent traceComponent, ExpressionManager expressionManager,
+      Event event, ComponentWrapper componentWrapper) {
+    if (componentWrapper != null && !componentWrapper.hasExpressions())
+      return;
+    resolveExpressions(traceComponent, expressionManager, event);
+  }
+
   /**
    * Resolves any expressions in the TraceComponent's spanName and tags using the
    * provided ExpressionManager
@@ -133,7 +163,8 @@ public class OpenTelemetryUtil {
           traceComponent.withSpanName(value);
         }
       }
-      traceComponent.forEachTagEntry(entry -> {
+      // Static tags are built without expressions, see ComponentWrapper
+      traceComponent.forEachDynamicTagEntry(entry -> {
         if (expressionManager.isExpression(entry.getValue())) {
           try {
             entry.setValue(resolveExpression(entry.getValue(), expressionManager, event));
@@ -181,19 +212,68 @@ public class OpenTelemetryUtil {
     if (!traceComponent.hasTags()) {
       return;
     }
-    traceComponent.forEachTagEntry(entry -> {
-      AttributeKey attributeKey = attributesKeyCache.getAttributeKey(entry.getKey());
-      spanBuilder.setAttribute(attributeKey, attributesKeyCache.convertValue(attributeKey, entry.getValue()));
-    });
+    if (traceComponent.getStaticAttributes() != null) {
+      spanBuilder.setAllAttributes(traceComponent.getStaticAttributes());
+    }
+    traceComponent.forEachTagAttribute(attributesKeyCache::getAttributeKey,
+        (attributeKey, value) -> spanBuilder.setAttribute((AttributeKey) attributeKey,
+            attributesKeyCache.convertValue(attributeKey, value)));
   }
 
   public static void tagsToAttributes(TraceComponent traceComponent, Span span) {
     if (!traceComponent.hasTags()) {
       return;
     }
-    traceComponent.forEachTagEntry(entry -> {
-      AttributeKey attributeKey = attributesKeyCache.getAttributeKey(entry.getKey());
-      span.setAttribute(attributeKey, attributesKeyCache.convertValue(attributeKey, entry.getValue()));
+    if (traceComponent.getStaticAttributes() != null) {
+      span.setAllAttributes(traceComponent.getStaticAttributes());
+    }
+    traceComponent.forEachTagAttribute(attributesKeyCache::getAttributeKey,
+        (attributeKey, value) -> span.setAttribute((AttributeKey) attributeKey,
+            attributesKeyCache.convertValue(attributeKey, value)));
+  }
+
+  /**
+   * Get the {@link AttributeKey} used for a tag key by
+   * {@link #tagsToAttributes(TraceComponent, Span)}.
+   *
+   * @param key
+   *            tag key
+   * @return {@link AttributeKey}
+   */
+  public static AttributeKey<?> getAttributeKey(String key) {
+    return attributesKeyCache.getAttributeKey(key);
+  }
+
+  /**
+   * Set a tag value on the span, typed by its {@link AttributeKey}.
+   *
+   * @param span
+   *            {@link Span}
+   * @param attributeKey
+   *            {@link AttributeKey} from {@link #getAttributeKey(String)}
+   * @param value
+   *            tag value
+   */
+  public static void setAttribute(Span span, AttributeKey<?> attributeKey, String value) {
+    span.setAttribute((AttributeKey) attributeKey, attributesKeyCache.convertValue(attributeKey, value));
+  }
+
+  /**
+   * Converts tags to {@link Attributes}, typing values by their known
+   * {@link AttributeKey}.
+   *
+   * @param tags
+   *            {@link Map} of tags
+   * @return {@link Attributes}
+   * @throws NumberFormatException
+   *             when a value does not match the type of its key
+   */
+  public static Attributes tagsToAttributes(Map<String, String> tags) {
+    AttributesBuilder builder = Attributes.builder();
+    tags.forEach((key, value) -> {
+      AttributeKey attributeKey = attributesKeyCache.getAttributeKey(key);
+      builder.put(attributeKey, attributesKeyCache.convertValue(attributeKey, value));
     });
+    return builder.build();
   }
 }
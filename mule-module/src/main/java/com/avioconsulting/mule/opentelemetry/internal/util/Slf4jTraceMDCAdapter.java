@@ -0,0 +1,31 @@
+package com.avioconsulting.mule.opentelemetry.internal.util;
+
+import com.avioconsulting.mule.opentelemetry.api.traces.TraceMDCAdapter;
+import org.slf4j.MDC;
+
+/**
+ * Default {@link TraceMDCAdapter} writing {@link MDCUtil#TRACE_ID} and
+ * {@link MDCUtil#SPAN_ID} entries with {@link MDC}.
+ */
+public class Slf4jTraceMDCAdapter implements TraceMDCAdapter {
+
+  public static final String NAME = "slf4j";
+
+  @Override
+  public String getName() {
+    return NAME;
+  }
+
+  @Override
+  public void put(String traceId, String spanId) {
+    if (traceId != null)
+      MDC.put(MDCUtil.TRACE_ID, traceId);
+    if (spanId != null)
+      MDC.put(MDCUtil.SPAN_ID, spanId);
+  }
+
+  @Override
+  public String getSpanId() {
+    return MDC.get(MDCUtil.SPAN_ID);
+  }
+}
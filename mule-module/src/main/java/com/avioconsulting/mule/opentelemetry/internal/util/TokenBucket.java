@@ -0,0 +1,95 @@
+package com.avioconsulting.mule.opentelemetry.internal.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Token bucket rate limiter. Tokens are refilled continuously at the configured
+ * rate, up to the capacity of the bucket, and each permit takes one token. The
+ * bucket starts full so a burst up to its capacity is allowed right away.
+ */
+public class TokenBucket {
+
+  private static final double NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+  private final LongSupplier nanoClock;
+  private double ratePerSecond;
+  private double capacity;
+  private double tokens;
+  private long lastRefillNanos;
+
+  /**
+   * @param ratePerSecond
+   *            permits added per second, 0 or less never gives permits
+   * @param capacity
+   *            maximum number of tokens kept
+   */
+  public TokenBucket(double ratePerSecond, double capacity) {
+    this(ratePerSecond, capacity, System::nanoTime);
+  }
+
+  /**
+   * @param ratePerSecond
+   *            permits added per second, 0 or less never gives permits
+   * @param capacity
+   *            maximum number of tokens kept
+   * @param nanoClock
+   *            time source in nanoseconds, like {@link System#nanoTime()}
+   */
+  public TokenBucket(double ratePerSecond, double capacity, LongSupplier nanoClock) {
+    this.nanoClock = nanoClock;
+    this.ratePerSecond = Math.max(0, ratePerSecond);
+    this.capacity = Math.max(0, capacity);
+    this.tokens = this.capacity;
+    this.lastRefillNanos = nanoClock.getAsLong();
+  }
+
+  /**
+   * Take a permit if a token is available.
+   *
+   * @return true if the permit is granted
+   */
+  public synchronized boolean tryAcquire() {
+    refill();
+    if (tokens >= 1) {
+      tokens -= 1;
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Give back a permit taken with {@link #tryAcquire()} that was not used.
+   */
+  public synchronized void release() {
+    tokens = Math.min(capacity, tokens + 1);
+  }
+
+  /**
+   * Change the refill rate. Tokens refilled until now are kept at the old rate.
+   *
+   * @param ratePerSecond
+   *            permits added per second
+   * @param capacity
+   *            maximum number of tokens kept
+   */
+  public synchronized void setRate(double ratePerSecond, double capacity) {
+    refill();
+    this.ratePerSecond = Math.max(0, ratePerSecond);
+    this.capacity = Math.max(0, capacity);
+    tokens = Math.min(tokens, this.capacity);
+  }
+
+  public synchronized double getRatePerSecond() {
+    return ratePerSecond;
+  }
+
+  private void refill() {
+    long now = nanoClock.getAsLong();
+    long elapsed = now - lastRefillNanos;
+    if (elapsed > 0) {
+      tokens = Math.min(capacity, tokens + elapsed * ratePerSecond / NANOS_PER_SECOND);
+      lastRefillNanos = now;
+    }
+  }
+}
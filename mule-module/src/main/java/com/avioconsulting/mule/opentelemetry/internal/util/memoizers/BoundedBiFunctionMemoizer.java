@@ -0,0 +1,59 @@
+package com.avioconsulting.mule.opentelemetry.internal.util.memoizers;
+
+import java.util.Objects;
+import java.util.function.BiFunction;
+
+/**
+ * A {@link BiFunctionMemoizer} alternative that keeps a bounded number of
+ * results in a {@link BoundedCache}. Results are cached by the first argument
+ * only, the second argument is passed to the function when loading.
+ *
+ * @param <K>
+ *            the type of the key for caching
+ * @param <T>
+ *            the type of the input object
+ * @param <R>
+ *            the type of the result produced by the {@code BiFunction}
+ */
+public class BoundedBiFunctionMemoizer<K, T, R> implements BiFunction<K, T, R> {
+  private final BiFunction<K, T, R> function;
+  private final BoundedCache<K, R> cache;
+
+  public BoundedBiFunctionMemoizer(String name, BiFunction<K, T, R> function, int maximumSize,
+      long expireAfterAccessMillis, boolean supportNullValues) {
+    this.function = Objects.requireNonNull(function);
+    this.cache = MemoizerMetrics.register(
+        new BoundedCache<>(name, maximumSize, expireAfterAccessMillis, supportNullValues));
+  }
+
+  @Override
+  public R apply(K k, T t) {
+    return cache.get(k, t, function);
+  }
+
+  public void clear() {
+    cache.clear();
+  }
+
+  public int size() {
+    return cache.size();
+  }
+
+  public R remove(K key) {
+    return cache.remove(key);
+  }
+
+  public BoundedCache<K, R> getCache() {
+    return cache;
+  }
+
+  public static <K, T, R> BoundedBiFunctionMemoizer<K, T, R> memoize(String name, BiFunction<K, T, R> function) {
+    return memoize(name, function, false);
+  }
+
+  public static <K, T, R> BoundedBiFunctionMemoizer<K, T, R> memoize(String name, BiFunction<K, T, R> function,
+      boolean allowNullValues) {
+    return new BoundedBiFunctionMemoizer<>(name, function, MemoizerMetrics.getMaximumSize(),
+        MemoizerMetrics.getExpireAfterAccessMillis(), allowNullValues);
+  }
+}
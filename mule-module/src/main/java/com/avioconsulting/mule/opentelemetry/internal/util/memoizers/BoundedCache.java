@@ -0,0 +1,322 @@
+package com.avioconsulting.mule.opentelemetry.internal.util.memoizers;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Size-bounded cache backing the bounded memoizers.
+ *
+ * <ul>
+ * <li>Reads are lock-free lookups in a {@link ConcurrentHashMap}. A hit only
+ * marks its entry as referenced, the recency order is maintained when
+ * entries are added.</li>
+ * <li>Eviction is segmented LRU with second chance: new entries enter a
+ * probation queue and are promoted to a protected queue when they were hit
+ * while on probation, so a burst of one-time keys can only evict other
+ * probation entries. Eviction runs with the insertion of a loaded value,
+ * never on the read path.</li>
+ * <li>Entries can optionally expire after a period without access.</li>
+ * <li>Values are loaded outside of any cache lock. Concurrent loads of the
+ * same key wait for the first one, loads of other keys are not blocked. Only
+ * the load counts as a miss, waiting for it counts as a hit.</li>
+ * </ul>
+ *
+ * @param <K>
+ *            key type
+ * @param <V>
+ *            value type
+ */
+public class BoundedCache<K, V> {
+
+  private static final Object NULL_VALUE = new Object();
+  /**
+   * Share of the capacity reserved for entries that were hit more than once.
+   */
+  private static final double PROTECTED_RATIO = 0.8;
+
+  private final String name;
+  private final int capacity;
+  private final int protectedCapacity;
+  private final long expireAfterAccessNanos;
+  /**
+   * Last access time is only written when it moved by more than this, so hits
+   * of a busy entry do not write to it every time.
+   */
+  private final long accessTimeGranularityNanos;
+  private final boolean supportNullValues;
+  private final ConcurrentHashMap<Object, Node> data = new ConcurrentHashMap<>();
+  private final ConcurrentHashMap<K, CompletableFuture<Object>> loading = new ConcurrentHashMap<>();
+
+  // Guarded by evictionLock, both queues have the eldest entry first
+  private final Object evictionLock = new Object();
+  private final ArrayDeque<Node> probation = new ArrayDeque<>();
+  private final ArrayDeque<Node> protectedEntries = new ArrayDeque<>();
+
+  private final CacheStats stats = new CacheStats();
+
+  /**
+   * @param name
+   *            name to report statistics with
+   * @param maximumSize
+   *            maximum number of entries to keep
+   * @param expireAfterAccessMillis
+   *            time after last access to expire entries at, 0 to disable
+   * @param supportNullValues
+   *            when true, null results are cached too
+   */
+  public BoundedCache(String name, int maximumSize, long expireAfterAccessMillis, boolean supportNullValues) {
+    this.name = name;
+    this.capacity = Math.max(1, maximumSize);
+    this.protectedCapacity = (int) (capacity * PROTECTED_RATIO);
+    this.expireAfterAccessNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, expireAfterAccessMillis));
+    this.accessTimeGranularityNanos = expireAfterAccessNanos >> 4;
+    this.supportNullValues = supportNullValues;
+  }
+
+  /**
+   * Get the cached value for the key or load it with the given function.
+   *
+   * @param key
+   *            non-null key
+   * @param loader
+   *            function to load the value
+   * @return value, may be null
+   */
+  @SuppressWarnings("unchecked")
+  public V get(K key, Function<? super K, ? extends V> loader) {
+    Object value = getIfPresent(key);
+    if (value != null) {
+      stats.hits.increment();
+      return value == NULL_VALUE ? null : (V) value;
+    }
+    return load(key, loader);
+  }
+
+  /**
+   * Get the cached value for the key or load it with the given function and
+   * argument. Unlike {@link #get(Object, Function)} with a capturing lambda,
+   * nothing is allocated when the value is cached.
+   *
+   * @param key
+   *            non-null key
+   * @param argument
+   *            second argument of the loader, not part of the key
+   * @param loader
+   *            function to load the value
+   * @param <T>
+   *            argument type
+   * @return value, may be null
+   */
+  @SuppressWarnings("unchecked")
+  public <T> V get(K key, T argument, BiFunction<? super K, ? super T, ? extends V> loader) {
+    Object value = getIfPresent(key);
+    if (value != null) {
+      stats.hits.increment();
+      return value == NULL_VALUE ? null : (V) value;
+    }
+    return load(key, k -> loader.apply(k, argument));
+  }
+
+  @SuppressWarnings("unchecked")
+  private V load(K key, Function<? super K, ? extends V> loader) {
+    CompletableFuture<Object> future = new CompletableFuture<>();
+    CompletableFuture<Object> inFlight = loading.putIfAbsent(key, future);
+    if (inFlight != null) {
+      // Served by the load of another thread
+      stats.hits.increment();
+      return unwrap(inFlight);
+    }
+    try {
+      // Another thread may have completed loading since the lookup
+      Object value = getIfPresent(key);
+      if (value != null) {
+        stats.hits.increment();
+        future.complete(value);
+        return value == NULL_VALUE ? null : (V) value;
+      }
+      stats.misses.increment();
+      long start = System.nanoTime();
+      Object loaded;
+      try {
+        loaded = loader.apply(key);
+      } catch (RuntimeException ex) {
+        stats.loadFailures.increment();
+        future.completeExceptionally(ex);
+        throw ex;
+      } finally {
+        stats.totalLoadTimeNanos.add(System.nanoTime() - start);
+      }
+      if (loaded == null && supportNullValues) {
+        loaded = NULL_VALUE;
+      }
+      if (loaded != null) {
+        put(key, loaded);
+      }
+      future.complete(loaded);
+      return loaded == NULL_VALUE ? null : (V) loaded;
+    } finally {
+      loading.remove(key, future);
+    }
+  }
+
+  private Object getIfPresent(Object key) {
+    Node node = data.get(key);
+    if (node == null)
+      return null;
+    if (expireAfterAccessNanos > 0) {
+      long now = System.nanoTime();
+      long lastAccess = node.lastAccess;
+      if (now - lastAccess > expireAfterAccessNanos) {
+        if (data.remove(key, node)) {
+          stats.evictions.increment();
+        }
+        return null;
+      }
+      if (now - lastAccess > accessTimeGranularityNanos) {
+        node.lastAccess = now;
+      }
+    }
+    if (!node.referenced) {
+      node.referenced = true;
+    }
+    return node.value;
+  }
+
+  private void put(Object key, Object value) {
+    Node node = new Node(key, value, expireAfterAccessNanos > 0 ? System.nanoTime() : 0);
+    synchronized (evictionLock) {
+      data.put(key, node);
+      probation.addLast(node);
+      while (data.size() > capacity && evictOne()) {
+        // evict until within capacity
+      }
+      if (probation.size() + protectedEntries.size() > 2 * capacity) {
+        // Drop queued entries that were removed or replaced outside of eviction
+        probation.removeIf(this::isStale);
+        protectedEntries.removeIf(this::isStale);
+      }
+    }
+  }
+
+  private boolean isStale(Node node) {
+    return data.get(node.key) != node;
+  }
+
+  /**
+   * Evict the eldest unreferenced entry, giving referenced entries a second
+   * chance by promoting them. Must hold the eviction lock.
+   *
+   * @return false if there is nothing left to evict
+   */
+  private boolean evictOne() {
+    // Readers can mark entries again while they are scanned, bound the second
+    // chances given by one eviction
+    int secondChances = probation.size() + protectedEntries.size();
+    while (!probation.isEmpty() || !protectedEntries.isEmpty()) {
+      if (probation.isEmpty()) {
+        // Only protected entries left, demote the eldest one
+        Node demoted = protectedEntries.pollFirst();
+        demoted.referenced = false;
+        probation.addLast(demoted);
+        continue;
+      }
+      Node candidate = probation.pollFirst();
+      if (isStale(candidate))
+        continue;
+      if (candidate.referenced && protectedCapacity > 0 && secondChances-- > 0) {
+        candidate.referenced = false;
+        protectedEntries.addLast(candidate);
+        if (protectedEntries.size() > protectedCapacity) {
+          // Demote least recently promoted entry back to probation
+          Node demoted = protectedEntries.pollFirst();
+          demoted.referenced = false;
+          probation.addLast(demoted);
+        }
+        continue;
+      }
+      if (data.remove(candidate.key, candidate)) {
+        stats.evictions.increment();
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @SuppressWarnings("unchecked")
+  private V unwrap(CompletableFuture<Object> future) {
+    try {
+      Object value = future.join();
+      return value == NULL_VALUE ? null : (V) value;
+    } catch (CompletionException ex) {
+      if (ex.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) ex.getCause();
+      }
+      throw ex;
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  public V remove(K key) {
+    Node removed = data.remove(key);
+    return removed == null || removed.value == NULL_VALUE ? null : (V) removed.value;
+  }
+
+  public void clear() {
+    synchronized (evictionLock) {
+      data.clear();
+      probation.clear();
+      protectedEntries.clear();
+    }
+  }
+
+  public int size() {
+    return data.size();
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public long getHitCount() {
+    return stats.getHitCount();
+  }
+
+  public long getMissCount() {
+    return stats.getMissCount();
+  }
+
+  public long getEvictionCount() {
+    return stats.getEvictionCount();
+  }
+
+  public long getLoadFailureCount() {
+    return stats.getLoadFailureCount();
+  }
+
+  public long getTotalLoadTimeNanos() {
+    return stats.getTotalLoadTimeNanos();
+  }
+
+  CacheStats getStats() {
+    return stats;
+  }
+
+  private static final class Node {
+    private final Object key;
+    private final Object value;
+    private volatile long lastAccess;
+    // Hit since it was queued, read and cleared by eviction only
+    private volatile boolean referenced;
+
+    private Node(Object key, Object value, long now) {
+      this.key = key;
+      this.value = value;
+      this.lastAccess = now;
+    }
+  }
+}
@@ -0,0 +1,73 @@
+package com.avioconsulting.mule.opentelemetry.internal.util.memoizers;
+
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * A {@link FunctionMemoizer} alternative that keeps a bounded number of results
+ * in a {@link BoundedCache}. Least recently used results are evicted once the
+ * size limit is reached and results may expire after a period without access.
+ * See {@link MemoizerMetrics} for the limits and the exported statistics.
+ *
+ * @param <T>
+ *            the type of the input to the function
+ * @param <R>
+ *            the type of the result of the function
+ */
+public class BoundedFunctionMemoizer<T, R> implements Function<T, R> {
+  private final Function<T, R> function;
+  private final BoundedCache<T, R> cache;
+
+  public BoundedFunctionMemoizer(String name, Function<T, R> function, int maximumSize,
+      long expireAfterAccessMillis, boolean supportNullValues) {
+    this.function = Objects.requireNonNull(function);
+    this.cache = MemoizerMetrics.register(
+        new BoundedCache<>(name, maximumSize, expireAfterAccessMillis, supportNullValues));
+  }
+
+  @Override
+  public R apply(T input) {
+    Objects.requireNonNull(input, "Memoizer Input cannot be null");
+    return cache.get(input, function);
+  }
+
+  public void clear() {
+    cache.clear();
+  }
+
+  public int size() {
+    return cache.size();
+  }
+
+  public R remove(T key) {
+    return cache.remove(key);
+  }
+
+  public BoundedCache<T, R> getCache() {
+    return cache;
+  }
+
+  /**
+   * Creates a bounded memoized version of the provided function using the
+   * configured memoizer size and expiry.
+   *
+   * @param name
+   *            name of the memoizer for statistics
+   * @param function
+   *            The function to memoize
+   * @param <T>
+   *            The type of the input to the function
+   * @param <R>
+   *            The type of the result of the function
+   * @return A memoized version of the function
+   */
+  public static <T, R> BoundedFunctionMemoizer<T, R> memoize(String name, Function<T, R> function) {
+    return memoize(name, function, false);
+  }
+
+  public static <T, R> BoundedFunctionMemoizer<T, R> memoize(String name, Function<T, R> function,
+      boolean allowNullValues) {
+    return new BoundedFunctionMemoizer<>(name, function, MemoizerMetrics.getMaximumSize(),
+        MemoizerMetrics.getExpireAfterAccessMillis(), allowNullValues);
+  }
+}
@@ -0,0 +1,50 @@
+package com.avioconsulting.mule.opentelemetry.internal.util.memoizers;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Monotonic statistics of a {@link BoundedCache}. Held apart from the cache, so
+ * {@link MemoizerMetrics} can keep the totals of a cache after it is collected.
+ */
+final class CacheStats {
+
+  final LongAdder hits = new LongAdder();
+  final LongAdder misses = new LongAdder();
+  final LongAdder evictions = new LongAdder();
+  final LongAdder loadFailures = new LongAdder();
+  final LongAdder totalLoadTimeNanos = new LongAdder();
+
+  long getHitCount() {
+    return hits.sum();
+  }
+
+  long getMissCount() {
+    return misses.sum();
+  }
+
+  long getEvictionCount() {
+    return evictions.sum();
+  }
+
+  long getLoadFailureCount() {
+    return loadFailures.sum();
+  }
+
+  long getTotalLoadTimeNanos() {
+    return totalLoadTimeNanos.sum();
+  }
+
+  /**
+   * Add the current totals of the other statistics to these.
+   *
+   * @param other
+   *            {@link CacheStats} to add
+   */
+  void add(CacheStats other) {
+    hits.add(other.getHitCount());
+    misses.add(other.getMissCount());
+    evictions.add(other.getEvictionCount());
+    loadFailures.add(other.getLoadFailureCount());
+    totalLoadTimeNanos.add(other.getTotalLoadTimeNanos());
+  }
+}
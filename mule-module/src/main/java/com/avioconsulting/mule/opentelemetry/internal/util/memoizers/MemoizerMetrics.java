@@ -0,0 +1,202 @@
+package com.avioconsulting.mule.opentelemetry.internal.util.memoizers;
+
+import com.avioconsulting.mule.opentelemetry.internal.util.PropertiesUtil;
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.metrics.Meter;
+import io.opentelemetry.api.metrics.ObservableLongMeasurement;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToLongFunction;
+
+/**
+ * Registry of the {@link BoundedCache}s used by bounded memoizers. Statistics
+ * of registered caches are exported as asynchronous instruments when metrics
+ * providers are initialized. Statistics of caches registered with the same
+ * name are added up.
+ *
+ * Caches are held weakly, so caches of discarded memoizer instances are not
+ * kept. Their final counts are folded into per-name totals once they are
+ * collected, so the exported counters never go down.
+ */
+public class MemoizerMetrics {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(MemoizerMetrics.class);
+
+  /**
+   * Maximum number of results kept by each bounded memoizer.
+   *
+   * @default 10000
+   */
+  public static final String MULE_OTEL_MEMOIZER_MAX_SIZE = "mule.otel.memoizer.max.size";
+
+  /**
+   * Seconds after the last access to expire a memoized result at. 0 keeps
+   * results until they are evicted by size.
+   *
+   * @default 0
+   */
+  public static final String MULE_OTEL_MEMOIZER_EXPIRE_AFTER_ACCESS_SECONDS = "mule.otel.memoizer.expire.after.access.seconds";
+
+  static final AttributeKey<String> MEMOIZER_NAME = AttributeKey.stringKey("mule.otel.memoizer.name");
+  private static final String METER_NAME = "mule-opentelemetry-module.memoizers";
+
+  // Guarded by CACHES, not the class lock that instrument registration holds
+  private static final Set<CacheReference> CACHES = new HashSet<>();
+  private static final ReferenceQueue<BoundedCache<?, ?>> COLLECTED = new ReferenceQueue<>();
+  private static final Map<String, CacheStats> COLLECTED_TOTALS = new HashMap<>();
+  private static final List<AutoCloseable> INSTRUMENTS = Collections.synchronizedList(new ArrayList<>());
+
+  private MemoizerMetrics() {
+  }
+
+  public static int getMaximumSize() {
+    return PropertiesUtil.getInt(MULE_OTEL_MEMOIZER_MAX_SIZE, 10000);
+  }
+
+  public static long getExpireAfterAccessMillis() {
+    return TimeUnit.SECONDS.toMillis(PropertiesUtil.getInt(MULE_OTEL_MEMOIZER_EXPIRE_AFTER_ACCESS_SECONDS, 0));
+  }
+
+  /**
+   * Register cache for statistics. Caches registered with the same name are
+   * reported together.
+   *
+   * @param cache
+   *            {@link BoundedCache}
+   * @return the registered cache
+   */
+  static <K, V> BoundedCache<K, V> register(BoundedCache<K, V> cache) {
+    synchronized (CACHES) {
+      foldCollected();
+      CACHES.add(new CacheReference(cache, COLLECTED));
+    }
+    return cache;
+  }
+
+  static Collection<BoundedCache<?, ?>> getCaches() {
+    List<BoundedCache<?, ?>> caches = new ArrayList<>();
+    synchronized (CACHES) {
+      for (CacheReference reference : CACHES) {
+        BoundedCache<?, ?> cache = reference.get();
+        if (cache != null) {
+          caches.add(cache);
+        }
+      }
+    }
+    return caches;
+  }
+
+  /**
+   * Move the statistics of collected caches to the totals of their name. Must
+   * hold the lock of {@link #CACHES}.
+   */
+  private static void foldCollected() {
+    Reference<? extends BoundedCache<?, ?>> reference;
+    while ((reference = COLLECTED.poll()) != null) {
+      CacheReference collected = (CacheReference) reference;
+      if (CACHES.remove(collected)) {
+        COLLECTED_TOTALS.computeIfAbsent(collected.name, name -> new CacheStats()).add(collected.stats);
+      }
+    }
+  }
+
+  /**
+   * Get the statistic totals per memoizer name, including collected caches.
+   *
+   * @param stat
+   *            statistic to add up
+   * @return {@link Map} of memoizer name to total
+   */
+  static Map<String, Long> getTotals(ToLongFunction<CacheStats> stat) {
+    Map<String, Long> totals = new HashMap<>();
+    synchronized (CACHES) {
+      foldCollected();
+      COLLECTED_TOTALS.forEach((name, stats) -> totals.put(name, stat.applyAsLong(stats)));
+      for (CacheReference reference : CACHES) {
+        totals.merge(reference.name, stat.applyAsLong(reference.stats), Long::sum);
+      }
+    }
+    return totals;
+  }
+
+  /**
+   * Register asynchronous instruments reporting the statistics of all
+   * registered memoizers.
+   *
+   * @param openTelemetry
+   *            {@link OpenTelemetry} to get the {@link Meter} from
+   */
+  public static synchronized void registerInstruments(OpenTelemetry openTelemetry) {
+    if (openTelemetry == null || !INSTRUMENTS.isEmpty())
+      return;
+    Meter meter = openTelemetry.getMeter(METER_NAME);
+    INSTRUMENTS.add(meter.counterBuilder("mule.otel.memoizer.hits")
+        .setDescription("Number of memoizer lookups served from cache")
+        .buildWithCallback(measurement -> record(measurement, CacheStats::getHitCount)));
+    INSTRUMENTS.add(meter.counterBuilder("mule.otel.memoizer.misses")
+        .setDescription("Number of memoizer lookups that required loading")
+        .buildWithCallback(measurement -> record(measurement, CacheStats::getMissCount)));
+    INSTRUMENTS.add(meter.counterBuilder("mule.otel.memoizer.evictions")
+        .setDescription("Number of memoized results evicted by size or expiry")
+        .buildWithCallback(measurement -> record(measurement, CacheStats::getEvictionCount)));
+    INSTRUMENTS.add(meter.counterBuilder("mule.otel.memoizer.load.failures")
+        .setDescription("Number of memoizer loads that failed")
+        .buildWithCallback(measurement -> record(measurement, CacheStats::getLoadFailureCount)));
+    INSTRUMENTS.add(meter.counterBuilder("mule.otel.memoizer.load.time")
+        .setDescription("Total time spent loading memoized results")
+        .setUnit("ms")
+        .buildWithCallback(measurement -> record(measurement,
+            stats -> TimeUnit.NANOSECONDS.toMillis(stats.getTotalLoadTimeNanos()))));
+    INSTRUMENTS.add(meter.upDownCounterBuilder("mule.otel.memoizer.size")
+        .setDescription("Number of results currently memoized")
+        .buildWithCallback(measurement -> {
+          // Size of live caches only, it may go down
+          Map<String, Long> sizes = new HashMap<>();
+          for (BoundedCache<?, ?> cache : getCaches()) {
+            sizes.merge(cache.getName(), (long) cache.size(), Long::sum);
+          }
+          sizes.forEach((name, size) -> measurement.record(size, Attributes.of(MEMOIZER_NAME, name)));
+        }));
+  }
+
+  private static void record(ObservableLongMeasurement measurement, ToLongFunction<CacheStats> stat) {
+    getTotals(stat).forEach((name, total) -> measurement.record(total, Attributes.of(MEMOIZER_NAME, name)));
+  }
+
+  public static synchronized void closeInstruments() {
+    for (AutoCloseable instrument : INSTRUMENTS) {
+      try {
+        instrument.close();
+      } catch (Exception e) {
+        LOGGER.trace("Failed to close memoizer instrument - {}", e.getMessage());
+      }
+    }
+    INSTRUMENTS.clear();
+  }
+
+  private static final class CacheReference extends WeakReference<BoundedCache<?, ?>> {
+    private final String name;
+    private final CacheStats stats;
+
+    private CacheReference(BoundedCache<?, ?> cache, ReferenceQueue<BoundedCache<?, ?>> queue) {
+      super(cache, queue);
+      this.name = cache.getName();
+      this.stats = cache.getStats();
+    }
+  }
+}
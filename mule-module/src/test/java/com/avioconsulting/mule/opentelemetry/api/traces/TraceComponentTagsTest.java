@@ -1,8 +1,11 @@
 package com.avioconsulting.mule.opentelemetry.api.traces;
 
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
 import org.junit.Test;
 
 import java.util.AbstractMap;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -137,4 +140,48 @@ public class TraceComponentTagsTest {
     assertThat(tc.getReadOnlyTags()).containsEntry("test-key", "updated-test-value");
     assertThat(tc.getReadOnlyTags()).containsEntry("test-key-2", "test-value-2");
   }
-}
\ No newline at end of file
+
+  @Test
+  public void staticTagsAreReadThrough() {
+    Map<String, String> staticTags = new HashMap<>();
+    staticTags.put("static-key", "static-value");
+    staticTags.put("shared-key", "static-shared");
+    Attributes staticAttributes = Attributes.of(AttributeKey.stringKey("static-key"), "static-value");
+    TraceComponent tc = TraceComponent.of("test", new HashMap<String, String>())
+        .withStaticTags(staticTags, staticAttributes);
+    tc.addTag("shared-key", "dynamic-shared");
+
+    assertThat(tc.getStaticAttributes()).isSameAs(staticAttributes);
+    assertThat(tc.getTag("static-key")).isEqualTo("static-value");
+    assertThat(tc.getTag("shared-key")).isEqualTo("dynamic-shared");
+    assertThat(tc.hasTagFor("static-key")).isTrue();
+    assertThat(tc.containsTag("static-key", "static-value")).isTrue();
+    assertThat(tc.getReadOnlyTags()).containsEntry("static-key", "static-value")
+        .containsEntry("shared-key", "dynamic-shared");
+
+    Map<String, String> target = new HashMap<>();
+    tc.copyTagsTo(target);
+    assertThat(target).isEqualTo(tc.getReadOnlyTags());
+
+    TraceComponent other = TraceComponent.of("other", new HashMap<String, String>());
+    other.addTag("static-key", "other-value");
+    tc.copyTagsTo(other);
+    assertThat(other.getStaticAttributes()).isSameAs(staticAttributes);
+    assertThat(other.getReadOnlyTags()).isEqualTo(tc.getReadOnlyTags());
+  }
+
+  @Test
+  public void staticTagsAreMaterializedForModification() {
+    Map<String, String> staticTags = new HashMap<>();
+    staticTags.put("static-key", "static-value");
+    staticTags.put("static-key-2", "static-value-2");
+    TraceComponent tc = TraceComponent.of("test", new HashMap<String, String>())
+        .withStaticTags(Collections.unmodifiableMap(staticTags), Attributes.empty());
+
+    assertThat(tc.removeTag("static-key")).isEqualTo("static-value");
+    assertThat(tc.getStaticAttributes()).isNull();
+    assertThat(tc.getReadOnlyTags()).doesNotContainKey("static-key")
+        .containsEntry("static-key-2", "static-value-2");
+    assertThat(staticTags).containsKey("static-key");
+  }
+}
@@ -0,0 +1,128 @@
+package com.avioconsulting.mule.opentelemetry.api.traces;
+
+import com.avioconsulting.mule.opentelemetry.api.store.TransactionStore;
+import com.avioconsulting.mule.opentelemetry.internal.store.Transaction;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanContext;
+import io.opentelemetry.api.trace.TraceFlags;
+import io.opentelemetry.api.trace.TraceState;
+import io.opentelemetry.api.trace.propagation.W3CTraceContextPropagator;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.propagation.TextMapGetter;
+import io.opentelemetry.context.propagation.TextMapPropagator;
+import io.opentelemetry.context.propagation.TextMapSetter;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class TraceContextMapTest {
+
+  private static final String TRACE_ID = "0af7651916cd43dd8448eb211c80319c";
+  private static final String SPAN_ID = "b7ad6b7169203331";
+
+  private TransactionContext transactionContext() {
+    Transaction transaction = mock(Transaction.class);
+    when(transaction.getTransactionId()).thenReturn("test-transaction");
+    Span span = Span.wrap(SpanContext.create(TRACE_ID, SPAN_ID, TraceFlags.getSampled(), TraceState.getDefault()));
+    return TransactionContext.of(span, transaction);
+  }
+
+  @Test
+  public void idEntriesDoNotInjectPropagatorFields() {
+    CountingPropagator propagator = new CountingPropagator();
+    TraceContextMap map = new TraceContextMap(transactionContext(), propagator);
+
+    assertThat(map.get(TransactionStore.TRACE_TRANSACTION_ID)).isEqualTo("test-transaction");
+    assertThat(map.get(TransactionStore.traceId)).isEqualTo(TRACE_ID);
+    assertThat(map.containsKey(TransactionStore.spanId)).isTrue();
+    assertThat(map.get(TransactionStore.spanId)).isEqualTo(SPAN_ID);
+    assertThat(map.isEmpty()).isFalse();
+    assertThat(propagator.injections).isEqualTo(0);
+  }
+
+  @Test
+  public void propagatorFieldsAreInjectedOnceWhenRead() {
+    CountingPropagator propagator = new CountingPropagator();
+    TraceContextMap map = new TraceContextMap(transactionContext(), propagator);
+
+    assertThat(map.get("traceparent")).isEqualTo("00-" + TRACE_ID + "-" + SPAN_ID + "-01");
+    assertThat(map).hasSize(4).containsKeys(TransactionStore.TRACE_TRANSACTION_ID, TransactionStore.traceId,
+        TransactionStore.spanId, "traceparent");
+    assertThat(propagator.injections).isEqualTo(1);
+  }
+
+  @Test
+  public void propagatorFieldsAreSharedByMapsOfSameContext() {
+    CountingPropagator propagator = new CountingPropagator();
+    TransactionContext transactionContext = transactionContext();
+
+    Object first = new TraceContextMap(transactionContext, propagator).get("traceparent");
+    Object second = new TraceContextMap(transactionContext, propagator).get("traceparent");
+    assertThat(second).isSameAs(first);
+    assertThat(propagator.injections).isEqualTo(1);
+  }
+
+  @Test
+  public void isImmutable() {
+    TraceContextMap map = new TraceContextMap(transactionContext(), W3CTraceContextPropagator.getInstance());
+    assertThatThrownBy(() -> map.put("key", "value")).isInstanceOf(UnsupportedOperationException.class);
+    assertThatThrownBy(() -> map.remove(TransactionStore.traceId))
+        .isInstanceOf(UnsupportedOperationException.class);
+  }
+
+  @Test
+  public void equalsMapWithSameEntries() {
+    TraceContextMap map = new TraceContextMap(transactionContext(), W3CTraceContextPropagator.getInstance());
+    Map<String, Object> expected = new HashMap<>();
+    expected.put(TransactionStore.TRACE_TRANSACTION_ID, "test-transaction");
+    expected.put(TransactionStore.traceId, TRACE_ID);
+    expected.put(TransactionStore.spanId, SPAN_ID);
+    expected.put("traceparent", "00-" + TRACE_ID + "-" + SPAN_ID + "-01");
+    assertThat(map).isEqualTo(expected);
+  }
+
+  @Test
+  public void serializesAsHashMap() throws Exception {
+    TraceContextMap map = new TraceContextMap(transactionContext(), W3CTraceContextPropagator.getInstance());
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+      out.writeObject(map);
+    }
+    try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+      Object copy = in.readObject();
+      assertThat(copy).isInstanceOf(HashMap.class).isEqualTo(map);
+    }
+  }
+
+  private static class CountingPropagator implements TextMapPropagator {
+    private final TextMapPropagator delegate = W3CTraceContextPropagator.getInstance();
+    private int injections;
+
+    @Override
+    public Collection<String> fields() {
+      return delegate.fields();
+    }
+
+    @Override
+    public <C> void inject(Context context, C carrier, TextMapSetter<C> setter) {
+      injections++;
+      delegate.inject(context, carrier, setter);
+    }
+
+    @Override
+    public <C> Context extract(Context context, C carrier, TextMapGetter<C> getter) {
+      return delegate.extract(context, carrier, getter);
+    }
+  }
+}
@@ -3,6 +3,8 @@ package com.avioconsulting.mule.opentelemetry.internal.interceptor;
 import com.avioconsulting.mule.opentelemetry.api.config.MuleComponent;
 import com.avioconsulting.mule.opentelemetry.api.config.TraceLevelConfiguration;
 import com.avioconsulting.mule.opentelemetry.internal.AbstractInternalTest;
+import com.avioconsulting.mule.opentelemetry.internal.processor.service.ComponentLocationRegistry;
+import com.avioconsulting.mule.opentelemetry.internal.processor.service.ComponentRegistryService;
 import org.jetbrains.annotations.NotNull;
 import org.junit.Test;
 import org.mockito.Mockito;
@@ -14,6 +16,8 @@ import org.mule.runtime.dsl.api.component.config.DefaultComponentLocation;
 
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Optional;
 import java.util.OptionalInt;
 
@@ -229,4 +233,43 @@ public class InterceptorProcessorConfigTest extends AbstractInternalTest {
             .isFalse();
   }
 
-}
\ No newline at end of file
+  @Test
+  public void compiled_decision_table_is_used_for_registered_locations() {
+    ComponentLocation intercepted = getLocationAtZero("mule", "logger");
+    ComponentLocation notIntercepted = getLocation("mule", "set-payload");
+    Map<String, ComponentLocation> locations = new HashMap<>();
+    locations.put(intercepted.getLocation(), intercepted);
+    locations.put(notIntercepted.getLocation(), notIntercepted);
+    ComponentRegistryService registryService = mock(ComponentRegistryService.class);
+    when(registryService.getLocationRegistry()).thenReturn(new ComponentLocationRegistry(locations));
+
+    InterceptorProcessorConfig interceptorProcessorConfig = new InterceptorProcessorConfig()
+        .setComponentRegistryService(registryService);
+    interceptorProcessorConfig.compileDecisionTable();
+
+    assertThat(interceptorProcessorConfig.shouldIntercept(intercepted, event)).isTrue();
+    assertThat(interceptorProcessorConfig.shouldIntercept(notIntercepted, event)).isFalse();
+    assertThat(interceptorProcessorConfig.shouldIntercept(getLocationAtZero("http", "request"), event))
+        .as("Locations outside of the table are computed on demand")
+        .isTrue();
+  }
+
+  @Test
+  public void compiled_decision_table_keeps_earlier_decisions() {
+    ComponentLocation location = getLocationAtZero("mule", "logger");
+    ComponentRegistryService registryService = mock(ComponentRegistryService.class);
+    when(registryService.getLocationRegistry())
+        .thenReturn(new ComponentLocationRegistry(Collections.singletonMap(location.getLocation(), location)));
+
+    InterceptorProcessorConfig interceptorProcessorConfig = new InterceptorProcessorConfig()
+        .setComponentRegistryService(registryService);
+    assertThat(interceptorProcessorConfig.shouldIntercept(location, null)).isTrue();
+
+    interceptorProcessorConfig.setTurnOffTracing(true);
+    interceptorProcessorConfig.compileDecisionTable();
+    assertThat(interceptorProcessorConfig.shouldIntercept(location, event))
+        .as("Decision made before compilation is kept")
+        .isTrue();
+  }
+
+}
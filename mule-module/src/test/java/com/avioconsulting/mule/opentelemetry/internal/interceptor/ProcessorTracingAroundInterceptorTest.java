@@ -0,0 +1,213 @@
+package com.avioconsulting.mule.opentelemetry.internal.interceptor;
+
+import com.avioconsulting.mule.opentelemetry.api.traces.TraceComponent;
+import com.avioconsulting.mule.opentelemetry.internal.processor.AbstractProcessorComponentTest;
+import com.avioconsulting.mule.opentelemetry.internal.processor.HttpProcessorComponent;
+import com.avioconsulting.mule.opentelemetry.internal.processor.MuleNotificationProcessor;
+import com.avioconsulting.mule.opentelemetry.internal.processor.service.ComponentRegistryService;
+import com.avioconsulting.mule.opentelemetry.internal.store.SpanEndRecord;
+import com.avioconsulting.mule.opentelemetry.test.util.TestInterceptionEvent;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.sdk.trace.data.EventData;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mule.runtime.api.component.Component;
+import org.mule.runtime.api.component.ComponentIdentifier;
+import org.mule.runtime.api.component.TypedComponentIdentifier;
+import org.mule.runtime.api.component.location.ComponentLocation;
+import org.mule.runtime.api.event.Event;
+import org.mule.runtime.api.exception.MuleException;
+import org.mule.runtime.api.interception.InterceptionAction;
+import org.mule.runtime.api.interception.InterceptionEvent;
+import org.mule.runtime.api.message.Error;
+import org.mule.runtime.api.message.Message;
+import org.mule.runtime.api.notification.MessageProcessorNotification;
+
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class ProcessorTracingAroundInterceptorTest extends AbstractProcessorComponentTest {
+
+  private MuleNotificationProcessor muleNotificationProcessor;
+  private InterceptorProcessorConfig interceptorProcessorConfig;
+  private ComponentLocation location;
+  private Component component;
+  private TestInterceptionEvent interceptionEvent;
+
+  @Before
+  public void setupMocks() {
+    muleNotificationProcessor = mock(MuleNotificationProcessor.class);
+    interceptorProcessorConfig = mock(InterceptorProcessorConfig.class);
+    ComponentRegistryService componentRegistryService = mock(ComponentRegistryService.class);
+    when(muleNotificationProcessor.hasConnection()).thenReturn(true);
+    when(muleNotificationProcessor.getInterceptorProcessorConfig()).thenReturn(interceptorProcessorConfig);
+    when(muleNotificationProcessor.getComponentRegistryService()).thenReturn(componentRegistryService);
+    when(interceptorProcessorConfig.interceptAroundTracing()).thenReturn(true);
+
+    location = mock(ComponentLocation.class);
+    when(location.getLocation()).thenReturn("test-flow/processors/0");
+    when(location.getRootContainerName()).thenReturn("test-flow");
+    ComponentIdentifier ci = mock(ComponentIdentifier.class);
+    when(ci.getNamespace()).thenReturn("mule");
+    when(ci.getName()).thenReturn("logger");
+    TypedComponentIdentifier tci = mock(TypedComponentIdentifier.class);
+    when(tci.getIdentifier()).thenReturn(ci);
+    when(location.getComponentIdentifier()).thenReturn(tci);
+    component = mock(Component.class);
+    when(component.getLocation()).thenReturn(location);
+    when(component.getIdentifier()).thenReturn(ci);
+    when(componentRegistryService.findComponentByLocation(location)).thenReturn(component);
+
+    interceptionEvent = new TestInterceptionEvent("random-id");
+    interceptionEvent.message(mock(Message.class));
+  }
+
+  @Test
+  public void aroundStartsAndEndsProcessorSpan() {
+    InterceptionAction action = mock(InterceptionAction.class);
+    when(action.proceed()).thenReturn(CompletableFuture.completedFuture(interceptionEvent));
+
+    CompletableFuture<InterceptionEvent> result = new ProcessorTracingAroundInterceptor(muleNotificationProcessor)
+        .around(location, Collections.emptyMap(), interceptionEvent, action);
+
+    assertThat(result).isCompletedWithValue(interceptionEvent);
+    verify(action).proceed();
+    verify(muleNotificationProcessor).handleProcessorStartEvent(component, interceptionEvent);
+    verify(muleNotificationProcessor, never()).handleProcessorStartEvent(any(MessageProcessorNotification.class));
+    ArgumentCaptor<MessageProcessorNotification> endCaptor = ArgumentCaptor
+        .forClass(MessageProcessorNotification.class);
+    verify(muleNotificationProcessor).handleProcessorEndEvent(endCaptor.capture());
+    assertThat(endCaptor.getValue().getException()).isNull();
+  }
+
+  @Test
+  public void aroundEndsFailedProcessorSpanWithException() {
+    RuntimeException failure = new RuntimeException("processor failed");
+    CompletableFuture<InterceptionEvent> failed = new CompletableFuture<>();
+    failed.completeExceptionally(failure);
+    InterceptionAction action = mock(InterceptionAction.class);
+    when(action.proceed()).thenReturn(failed);
+
+    CompletableFuture<InterceptionEvent> result = new ProcessorTracingAroundInterceptor(muleNotificationProcessor)
+        .around(location, Collections.emptyMap(), interceptionEvent, action);
+
+    assertThat(result).as("Processor failure is propagated").isCompletedExceptionally();
+    ArgumentCaptor<MessageProcessorNotification> endCaptor = ArgumentCaptor
+        .forClass(MessageProcessorNotification.class);
+    verify(muleNotificationProcessor).handleProcessorEndEvent(endCaptor.capture());
+    assertThat(endCaptor.getValue().getException()).isSameAs(failure);
+  }
+
+  @Test
+  public void aroundEndsFailedProcessorSpanWithEventError() {
+    Error error = getError(null);
+    interceptionEvent.error(error);
+    RuntimeException failure = new RuntimeException("processor failed");
+
+    MessageProcessorNotification endNotification = failAround(new CompletionException(failure));
+
+    assertThat(endNotification.getEvent()).as("End notification carries the intercepted event")
+        .isSameAs(interceptionEvent);
+    assertThat(endNotification.getEvent().getError()).containsSame(error);
+    assertThat(endNotification.getException()).isSameAs(failure);
+  }
+
+  @Test
+  public void aroundEndsFailedProcessorSpanWithMuleException() {
+    MuleException muleException = mock(MuleException.class);
+    MessageProcessorNotification endNotification = failAround(new RuntimeException("wrapped", muleException));
+
+    assertThat(endNotification.getException()).isSameAs(muleException);
+  }
+
+  @Test
+  public void failedProcessorSpanHasErrorStatusAndExceptionEvent() {
+    IllegalStateException cause = new IllegalStateException("Connection refused");
+    Error error = getError(null);
+    when(error.getCause()).thenReturn(cause);
+    interceptionEvent.error(error);
+    MessageProcessorNotification endNotification = failAround(new RuntimeException("processor failed"));
+
+    // Same end state that the connection applies to the processor span
+    TraceComponent endTraceComponent = new HttpProcessorComponent().getEndTraceComponent(endNotification);
+    Span span = openTelemetryRule.getOpenTelemetry().getTracer("test").spanBuilder("failed-request").startSpan();
+    SpanEndRecord.of(endTraceComponent, endNotification.getEvent().getError().get().getCause()).accept(span);
+    span.end();
+
+    assertThat(openTelemetryRule.getSpans())
+        .filteredOn(spanData -> "failed-request".equals(spanData.getName()))
+        .singleElement()
+        .satisfies(spanData -> {
+          assertThat(spanData.getStatus().getStatusCode()).isEqualTo(StatusCode.ERROR);
+          assertThat(spanData.getStatus().getDescription()).isEqualTo("Something failed");
+          assertThat(spanData.getEvents()).extracting(EventData::getName).containsExactly("exception");
+        });
+  }
+
+  private MessageProcessorNotification failAround(Exception failure) {
+    CompletableFuture<InterceptionEvent> failed = new CompletableFuture<>();
+    failed.completeExceptionally(failure);
+    InterceptionAction action = mock(InterceptionAction.class);
+    when(action.proceed()).thenReturn(failed);
+
+    new ProcessorTracingAroundInterceptor(muleNotificationProcessor)
+        .around(location, Collections.emptyMap(), interceptionEvent, action);
+
+    ArgumentCaptor<MessageProcessorNotification> endCaptor = ArgumentCaptor
+        .forClass(MessageProcessorNotification.class);
+    verify(muleNotificationProcessor).handleProcessorEndEvent(endCaptor.capture());
+    return endCaptor.getValue();
+  }
+
+  @Test
+  public void aroundProceedsWhenTracingFails() {
+    doThrow(new IllegalStateException("tracing failed")).when(muleNotificationProcessor)
+        .handleProcessorEndEvent(any());
+    InterceptionAction action = mock(InterceptionAction.class);
+    when(action.proceed()).thenReturn(CompletableFuture.completedFuture(interceptionEvent));
+
+    CompletableFuture<InterceptionEvent> result = new ProcessorTracingAroundInterceptor(muleNotificationProcessor)
+        .around(location, Collections.emptyMap(), interceptionEvent, action);
+
+    assertThat(result).isCompletedWithValue(interceptionEvent);
+  }
+
+  @Test
+  public void aroundPropagatesFailureWhenTracingThrowsError() {
+    doThrow(new NoClassDefFoundError("tracing class")).when(muleNotificationProcessor)
+        .handleProcessorEndEvent(any());
+    RuntimeException failure = new RuntimeException("processor failed");
+    CompletableFuture<InterceptionEvent> failed = new CompletableFuture<>();
+    failed.completeExceptionally(failure);
+    InterceptionAction action = mock(InterceptionAction.class);
+    when(action.proceed()).thenReturn(failed);
+
+    CompletableFuture<InterceptionEvent> result = new ProcessorTracingAroundInterceptor(muleNotificationProcessor)
+        .around(location, Collections.emptyMap(), interceptionEvent, action);
+
+    assertThat(result).isCompletedExceptionally();
+    assertThatThrownBy(result::join).hasCause(failure);
+  }
+
+  @Test
+  public void aroundOnlyProceedsWhenAroundTracingIsDisabled() {
+    when(interceptorProcessorConfig.interceptAroundTracing()).thenReturn(false);
+    InterceptionAction action = mock(InterceptionAction.class);
+    when(action.proceed()).thenReturn(CompletableFuture.completedFuture(interceptionEvent));
+
+    new ProcessorTracingAroundInterceptor(muleNotificationProcessor)
+        .around(location, Collections.emptyMap(), interceptionEvent, action);
+
+    verify(action).proceed();
+    verify(muleNotificationProcessor, never()).handleProcessorStartEvent(any(Component.class), any(Event.class));
+    verify(muleNotificationProcessor, never()).handleProcessorEndEvent(any());
+  }
+}
@@ -153,7 +153,7 @@ public class ProcessorTracingInterceptorTest extends AbstractInternalTest {
     MuleNotificationProcessor muleNotificationProcessor = mock(MuleNotificationProcessor.class);
     when(muleNotificationProcessor.getOpenTelemetryConnection()).thenReturn(connection);
     when(muleNotificationProcessor.hasConnection()).thenReturn(true);
-    when(muleNotificationProcessor.getProcessorComponent(ci)).thenReturn(processorComponent);
+    when(muleNotificationProcessor.getSpanningProcessorComponent(eq(ci), any())).thenReturn(processorComponent);
     when(muleNotificationProcessor.getInterceptorProcessorConfig()).thenReturn(new InterceptorProcessorConfig());
     when(muleNotificationProcessor.getComponentRegistryService()).thenReturn(componentRegistryService);
 
@@ -207,7 +207,7 @@ public class ProcessorTracingInterceptorTest extends AbstractInternalTest {
     MuleNotificationProcessor muleNotificationProcessor = mock(MuleNotificationProcessor.class);
     when(muleNotificationProcessor.getOpenTelemetryConnection()).thenReturn(connection);
     when(muleNotificationProcessor.hasConnection()).thenReturn(true);
-    when(muleNotificationProcessor.getProcessorComponent(ci)).thenReturn(processorComponent);
+    when(muleNotificationProcessor.getSpanningProcessorComponent(eq(ci), any())).thenReturn(processorComponent);
     when(muleNotificationProcessor.getInterceptorProcessorConfig()).thenReturn(new InterceptorProcessorConfig());
     Component component = mock(Component.class);
     ComponentRegistryService componentRegistryService = mock(ComponentRegistryService.class);
@@ -274,7 +274,7 @@ public class ProcessorTracingInterceptorTest extends AbstractInternalTest {
     MuleNotificationProcessor muleNotificationProcessor = mock(MuleNotificationProcessor.class);
     when(muleNotificationProcessor.getOpenTelemetryConnection()).thenReturn(connection);
     when(muleNotificationProcessor.hasConnection()).thenReturn(true);
-    when(muleNotificationProcessor.getProcessorComponent(any(ComponentIdentifier.class)))
+    when(muleNotificationProcessor.getSpanningProcessorComponent(any(ComponentIdentifier.class), any()))
         .thenReturn(processorComponent);
     when(muleNotificationProcessor.getInterceptorProcessorConfig()).thenReturn(new InterceptorProcessorConfig());
     Component component = mock(Component.class);
@@ -0,0 +1,123 @@
+package com.avioconsulting.mule.opentelemetry.internal.interceptor;
+
+import com.avioconsulting.mule.opentelemetry.test.util.TestInterceptionEvent;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SideTableTraceContextStorageTest {
+
+  private static final Map<String, Object> FLOW_CONTEXT = Collections.singletonMap("spanId", "flow");
+  private static final Map<String, Object> PROCESSOR_CONTEXT = Collections.singletonMap("spanId", "processor");
+
+  @Test
+  public void savesAndRestoresTraceContextWithoutVariables() {
+    SideTableTraceContextStorage storage = new SideTableTraceContextStorage();
+    TestInterceptionEvent event = new TestInterceptionEvent("test-1", "test-1");
+    storage.setTraceContext(event, FLOW_CONTEXT);
+
+    storage.saveTraceContext(event);
+    storage.setTraceContext(event, PROCESSOR_CONTEXT);
+    assertThat(storage.getTraceContext(event)).isSameAs(PROCESSOR_CONTEXT);
+
+    assertThat(storage.restoreTraceContext(event)).isSameAs(FLOW_CONTEXT);
+    assertThat(storage.getTraceContext(event)).isSameAs(FLOW_CONTEXT);
+    assertThat(storage.restoreTraceContext(event)).isNull();
+    assertThat(event.getVariables()).isEmpty();
+  }
+
+  @Test
+  public void savesAndRestoresFlowContextId() {
+    SideTableTraceContextStorage storage = new SideTableTraceContextStorage();
+    TestInterceptionEvent event = new TestInterceptionEvent("test-1", "test-1");
+    TestInterceptionEvent child = new TestInterceptionEvent("test-1", "test-1_123");
+
+    storage.saveFlowContextId(event);
+    assertThat(storage.getFlowContextId(event)).isEqualTo("test-1");
+    storage.saveFlowContextId(child);
+    assertThat(storage.getFlowContextId(child)).isEqualTo("test-1_123");
+    storage.restoreFlowContextId(child);
+    assertThat(storage.getFlowContextId(child)).isEqualTo("test-1");
+    assertThat(event.getVariables()).isEmpty();
+  }
+
+  @Test
+  public void childContextStartsWithParentValues() {
+    SideTableTraceContextStorage storage = new SideTableTraceContextStorage();
+    TestInterceptionEvent event = new TestInterceptionEvent("test-1", "test-1");
+    TestInterceptionEvent child = new TestInterceptionEvent("test-1", "test-1_123_456");
+    storage.setTraceContext(event, FLOW_CONTEXT);
+
+    assertThat(storage.getTraceContext(child)).isSameAs(FLOW_CONTEXT);
+    storage.saveTraceContext(child);
+    storage.setTraceContext(child, PROCESSOR_CONTEXT);
+    assertThat(storage.getTraceContext(child)).isSameAs(PROCESSOR_CONTEXT);
+    assertThat(storage.getTraceContext(event)).as("Parent context").isSameAs(FLOW_CONTEXT);
+  }
+
+  @Test
+  public void releaseRemovesAllContextsOfEvent() {
+    SideTableTraceContextStorage storage = new SideTableTraceContextStorage();
+    TestInterceptionEvent event = new TestInterceptionEvent("test-1", "test-1");
+    TestInterceptionEvent child = new TestInterceptionEvent("test-1", "test-1_123");
+    storage.setTraceContext(event, FLOW_CONTEXT);
+    storage.setTraceContext(child, PROCESSOR_CONTEXT);
+    storage.setTraceContext(new TestInterceptionEvent("test-2", "test-2"), FLOW_CONTEXT);
+
+    storage.release("test-1_123");
+    assertThat(storage.getTraceContext(child)).as("Child falls back to parent").isSameAs(FLOW_CONTEXT);
+    storage.release("test-1");
+    assertThat(storage.getTraceContext(event)).isNull();
+    assertThat(storage.getTraceContext(child)).isNull();
+    assertThat(storage.size()).isEqualTo(1);
+  }
+
+  @Test
+  public void releaseKeepsChildFlowContextOfActiveChildren() {
+    SideTableTraceContextStorage storage = new SideTableTraceContextStorage();
+    TestInterceptionEvent event = new TestInterceptionEvent("test-1", "test-1");
+    TestInterceptionEvent childFlow = new TestInterceptionEvent("test-1", "test-1_123");
+    TestInterceptionEvent asyncChild = new TestInterceptionEvent("test-1", "test-1_123_456");
+    storage.setTraceContext(event, FLOW_CONTEXT);
+    storage.setTraceContext(childFlow, PROCESSOR_CONTEXT);
+    storage.setTraceContext(asyncChild, PROCESSOR_CONTEXT);
+
+    // Child flow ends while its async scope is still processing
+    storage.release("test-1_123");
+    assertThat(storage.getTraceContext(childFlow)).as("Kept for the async context").isSameAs(PROCESSOR_CONTEXT);
+    storage.release("test-1_123_456");
+    assertThat(storage.getTraceContext(childFlow)).as("Falls back to the root").isSameAs(FLOW_CONTEXT);
+    assertThat(storage.size()).isEqualTo(1);
+  }
+
+  @Test
+  public void rootReleaseRemovesContextsWithoutEnd() {
+    SideTableTraceContextStorage storage = new SideTableTraceContextStorage();
+    TestInterceptionEvent event = new TestInterceptionEvent("test-1", "test-1");
+    storage.setTraceContext(event, FLOW_CONTEXT);
+    // Scatter-gather routes never get released on their own
+    for (int i = 0; i < 3; i++) {
+      storage.setTraceContext(new TestInterceptionEvent("test-1", "test-1_route" + i), PROCESSOR_CONTEXT);
+    }
+
+    storage.release("test-1");
+    assertThat(storage.size()).isZero();
+    assertThat(storage.getTraceContext(new TestInterceptionEvent("test-1", "test-1_route0"))).isNull();
+  }
+
+  @Test
+  public void removesIdleContexts() {
+    SideTableTraceContextStorage storage = new SideTableTraceContextStorage();
+    storage.setTraceContext(new TestInterceptionEvent("test-1", "test-1"), FLOW_CONTEXT);
+
+    storage.removeIdleGroups(System.nanoTime());
+    assertThat(storage.size()).isEqualTo(1);
+    storage.removeIdleGroups(
+        System.nanoTime() + TimeUnit.MINUTES.toNanos(SideTableTraceContextStorage.IDLE_TIMEOUT_MINUTES + 1));
+    assertThat(storage.size()).isZero();
+  }
+}
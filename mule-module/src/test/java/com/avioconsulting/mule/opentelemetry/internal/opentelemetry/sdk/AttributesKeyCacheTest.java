@@ -0,0 +1,70 @@
+package com.avioconsulting.mule.opentelemetry.internal.opentelemetry.sdk;
+
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.semconv.HttpAttributes;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AttributesKeyCacheTest {
+
+  @Test
+  public void knownKeysKeepTheirType() {
+    AttributesKeyCache cache = new AttributesKeyCache();
+    AttributeKey<?> key = cache.getAttributeKey(HttpAttributes.HTTP_RESPONSE_STATUS_CODE.getKey());
+    assertThat(key).isEqualTo(HttpAttributes.HTTP_RESPONSE_STATUS_CODE);
+    assertThat(cache.convertValue(HttpAttributes.HTTP_RESPONSE_STATUS_CODE, "200")).isEqualTo(200L);
+  }
+
+  @Test
+  public void customKeysAreCachedAsStringKeys() {
+    AttributesKeyCache cache = new AttributesKeyCache();
+    long hits = AttributesKeyCache.getKeyHitCount();
+    long misses = AttributesKeyCache.getKeyMissCount();
+    AttributeKey<?> key = cache.getAttributeKey("custom.cache.test.key");
+    AttributeKey<?> again = cache.getAttributeKey("custom.cache.test.key");
+    assertThat(key).isEqualTo(AttributeKey.stringKey("custom.cache.test.key")).isSameAs(again);
+    assertThat(AttributesKeyCache.getKeyMissCount()).isEqualTo(misses + 1);
+    assertThat(AttributesKeyCache.getKeyHitCount()).isGreaterThanOrEqualTo(hits + 1);
+  }
+
+  @Test
+  public void valueConversionCacheIsBounded() {
+    ValueConversionCache<Long> cache = new ValueConversionCache<>(Long::valueOf, 32);
+    for (int i = 0; i < 1000; i++) {
+      assertThat(cache.get(String.valueOf(i))).isEqualTo((long) i);
+    }
+    assertThat(cache.size()).isLessThanOrEqualTo(32);
+    assertThat(cache.getMissCount()).isEqualTo(1000);
+    assertThat(cache.getEvictionCount()).isEqualTo(1000 - cache.size());
+
+    assertThat(cache.get("999")).isEqualTo(999L);
+    assertThat(cache.getMissCount()).as("Last converted value is a hit").isEqualTo(1000);
+    assertThat(cache.getHitCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void concurrentKeyLookups() throws Exception {
+    AttributesKeyCache cache = new AttributesKeyCache();
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<AttributeKey<?>>> futures = new ArrayList<>();
+      for (int i = 0; i < 64; i++) {
+        futures.add(executor.submit(() -> cache.getAttributeKey("custom.concurrent.key")));
+      }
+      AttributeKey<?> first = futures.get(0).get(5, TimeUnit.SECONDS);
+      for (Future<AttributeKey<?>> future : futures) {
+        assertThat(future.get(5, TimeUnit.SECONDS)).isEqualTo(first);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+}
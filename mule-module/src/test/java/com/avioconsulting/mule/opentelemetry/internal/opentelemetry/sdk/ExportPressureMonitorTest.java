@@ -0,0 +1,100 @@
+package com.avioconsulting.mule.opentelemetry.internal.opentelemetry.sdk;
+
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.sdk.testing.exporter.InMemorySpanExporter;
+import io.opentelemetry.sdk.trace.ReadWriteSpan;
+import io.opentelemetry.sdk.trace.ReadableSpan;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.SpanProcessor;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SimpleSpanProcessor;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ExportPressureMonitorTest {
+
+  private final InMemorySpanExporter inMemoryExporter = InMemorySpanExporter.create();
+
+  /**
+   * Queues ended spans until exported, like the batch span processor.
+   */
+  private static class QueueingSpanProcessor implements SpanProcessor {
+    private final List<SpanData> queue = new ArrayList<>();
+
+    @Override
+    public void onStart(Context parentContext, ReadWriteSpan span) {
+    }
+
+    @Override
+    public boolean isStartRequired() {
+      return false;
+    }
+
+    @Override
+    public void onEnd(ReadableSpan span) {
+      queue.add(span.toSpanData());
+    }
+
+    @Override
+    public boolean isEndRequired() {
+      return true;
+    }
+  }
+
+  private void endSpans(Tracer tracer, int count) {
+    for (int i = 0; i < count; i++) {
+      tracer.spanBuilder("span-" + i).startSpan().end();
+    }
+  }
+
+  @Test
+  public void tracksQueuedSpans() {
+    ExportPressureMonitor monitor = new ExportPressureMonitor();
+    QueueingSpanProcessor queueing = new QueueingSpanProcessor();
+    SpanExporter exporter = monitor.wrap(inMemoryExporter);
+    SdkTracerProvider tracerProvider = SdkTracerProvider.builder()
+        .addSpanProcessor(monitor.wrap(queueing, 10)).build();
+    endSpans(tracerProvider.get("test"), 4);
+
+    assertThat(monitor.getQueueFillRatio()).isEqualTo(0.4);
+    assertThat(monitor.sumStartedSpansThenReset()).isEqualTo(4);
+    assertThat(monitor.sumStartedSpansThenReset()).isZero();
+
+    exporter.export(queueing.queue.subList(0, 3));
+    assertThat(monitor.getQueueFillRatio()).isEqualTo(0.1);
+    tracerProvider.shutdown();
+  }
+
+  @Test
+  public void queueDepthStopsAtCapacity() {
+    ExportPressureMonitor monitor = new ExportPressureMonitor();
+    QueueingSpanProcessor queueing = new QueueingSpanProcessor();
+    SpanExporter exporter = monitor.wrap(inMemoryExporter);
+    SdkTracerProvider tracerProvider = SdkTracerProvider.builder()
+        .addSpanProcessor(monitor.wrap(queueing, 2)).build();
+    endSpans(tracerProvider.get("test"), 5);
+    assertThat(monitor.getQueueFillRatio()).isEqualTo(1);
+
+    exporter.export(queueing.queue.subList(0, 2));
+    assertThat(monitor.getQueueFillRatio()).as("Spans over capacity were dropped").isZero();
+    tracerProvider.shutdown();
+  }
+
+  @Test
+  public void synchronousExportKeepsQueueEmpty() {
+    ExportPressureMonitor monitor = new ExportPressureMonitor();
+    SdkTracerProvider tracerProvider = SdkTracerProvider.builder()
+        .addSpanProcessor(monitor.wrap(SimpleSpanProcessor.create(monitor.wrap(inMemoryExporter)), 10))
+        .build();
+    endSpans(tracerProvider.get("test"), 3);
+    assertThat(inMemoryExporter.getFinishedSpanItems()).hasSize(3);
+    assertThat(monitor.getQueueFillRatio()).isZero();
+    tracerProvider.shutdown();
+  }
+}
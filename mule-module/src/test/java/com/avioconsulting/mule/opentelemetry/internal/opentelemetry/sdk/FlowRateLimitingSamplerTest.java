@@ -0,0 +1,161 @@
+package com.avioconsulting.mule.opentelemetry.internal.opentelemetry.sdk;
+
+import com.avioconsulting.mule.opentelemetry.api.config.FlowSamplerConfiguration;
+import com.avioconsulting.mule.opentelemetry.api.config.FlowSamplingRate;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanContext;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.TraceFlags;
+import io.opentelemetry.api.trace.TraceState;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.sdk.trace.IdGenerator;
+import io.opentelemetry.sdk.trace.samplers.Sampler;
+import io.opentelemetry.sdk.trace.samplers.SamplingDecision;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.avioconsulting.mule.opentelemetry.api.sdk.SemanticAttributes.MULE_APP_FLOW_NAME;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+public class FlowRateLimitingSamplerTest {
+
+  private final AtomicLong clock = new AtomicLong();
+
+  private FlowRateLimitingSampler sampler(double perFlow, double max, FlowSamplingRate... rates) {
+    return new FlowRateLimitingSampler(Sampler.alwaysOn(),
+        new FlowSamplerConfiguration(true, perFlow, max, Arrays.asList(rates)), clock::get);
+  }
+
+  private SamplingDecision sample(Sampler sampler, Context parent, String flowName) {
+    Attributes attributes = flowName == null ? Attributes.empty() : Attributes.of(MULE_APP_FLOW_NAME, flowName);
+    return sampler.shouldSample(parent, IdGenerator.random().generateTraceId(), "flow", SpanKind.SERVER,
+        attributes, Collections.emptyList()).getDecision();
+  }
+
+  private int sampledCount(Sampler sampler, String flowName, int attempts) {
+    int sampled = 0;
+    for (int i = 0; i < attempts; i++) {
+      if (SamplingDecision.RECORD_AND_SAMPLE.equals(sample(sampler, Context.root(), flowName))) {
+        sampled++;
+      }
+    }
+    return sampled;
+  }
+
+  private Context parentContext(boolean remote) {
+    IdGenerator ids = IdGenerator.random();
+    SpanContext spanContext = remote
+        ? SpanContext.createFromRemoteParent(ids.generateTraceId(), ids.generateSpanId(), TraceFlags.getSampled(),
+            TraceState.getDefault())
+        : SpanContext.create(ids.generateTraceId(), ids.generateSpanId(), TraceFlags.getSampled(),
+            TraceState.getDefault());
+    return Context.root().with(Span.wrap(spanContext));
+  }
+
+  @Test
+  public void limitsEachFlowToItsRate() {
+    FlowRateLimitingSampler sampler = sampler(2, 100);
+    assertThat(sampledCount(sampler, "flow-a", 10)).isEqualTo(2);
+    assertThat(sampledCount(sampler, "flow-b", 10)).as("Flows have separate budgets").isEqualTo(2);
+
+    clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(500));
+    assertThat(sampledCount(sampler, "flow-a", 10)).as("Tokens refill over time").isEqualTo(1);
+  }
+
+  @Test
+  public void usesFlowSpecificRates() {
+    FlowRateLimitingSampler sampler = sampler(2, 100, new FlowSamplingRate("flow-a", 5));
+    assertThat(sampledCount(sampler, "flow-a", 10)).isEqualTo(5);
+    assertThat(sampledCount(sampler, "flow-b", 10)).isEqualTo(2);
+  }
+
+  @Test
+  public void globalCeilingLimitsAllFlows() {
+    FlowRateLimitingSampler sampler = sampler(5, 6);
+    assertThat(sampledCount(sampler, "flow-a", 10)).isEqualTo(5);
+    assertThat(sampledCount(sampler, "flow-b", 10)).isEqualTo(1);
+  }
+
+  @Test
+  public void globalCeilingDropDoesNotUseFlowToken() {
+    FlowRateLimitingSampler sampler = sampler(1, 2);
+    assertThat(sampledCount(sampler, "flow-a", 1)).isEqualTo(1);
+    assertThat(sampledCount(sampler, "flow-b", 1)).isEqualTo(1);
+    assertThat(sampledCount(sampler, "flow-c", 1)).as("Global ceiling reached").isZero();
+
+    // Global bucket refills one token, flow-c still has its own token
+    clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(500));
+    assertThat(sampledCount(sampler, "flow-c", 1)).isEqualTo(1);
+  }
+
+  @Test
+  public void sharesCeilingBetweenBusyFlows() {
+    FlowRateLimitingSampler sampler = sampler(10, 12);
+    sampledCount(sampler, "busy-a", 50);
+    sampledCount(sampler, "busy-b", 50);
+    sampledCount(sampler, "quiet", 2);
+    clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+    sampledCount(sampler, "quiet", 1);
+
+    // quiet needs 2 of the 12, busy flows share the remaining 10
+    assertThat(sampler.getFlowRate("busy-a")).as("Busy flow share").isCloseTo(5d, within(0.001));
+    assertThat(sampler.getFlowRate("busy-b")).as("Busy flow share").isCloseTo(5d, within(0.001));
+    assertThat(sampler.getFlowRate("quiet")).as("Quiet flow rate").isCloseTo(5d, within(0.001));
+  }
+
+  @Test
+  public void restoresRatesWhenLoadDrops() {
+    FlowRateLimitingSampler sampler = sampler(10, 12);
+    sampledCount(sampler, "busy-a", 50);
+    sampledCount(sampler, "busy-b", 50);
+    clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+    sampledCount(sampler, "busy-a", 1);
+    assertThat(sampler.getFlowRate("busy-a")).isCloseTo(6d, within(0.001));
+
+    clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+    sampledCount(sampler, "busy-a", 1);
+    assertThat(sampler.getFlowRate("busy-a")).isEqualTo(10d);
+  }
+
+  @Test
+  public void followsLocalParentDecision() {
+    FlowRateLimitingSampler sampler = sampler(0, 100);
+    assertThat(sample(sampler, parentContext(false), "child-flow"))
+        .isEqualTo(SamplingDecision.RECORD_AND_SAMPLE);
+    assertThat(sample(sampler, parentContext(true), "flow"))
+        .as("Remote parent starts a new local transaction")
+        .isEqualTo(SamplingDecision.DROP);
+  }
+
+  @Test
+  public void ignoresSpansWithoutFlowName() {
+    FlowRateLimitingSampler sampler = sampler(0, 0);
+    assertThat(sample(sampler, Context.root(), null)).isEqualTo(SamplingDecision.RECORD_AND_SAMPLE);
+  }
+
+  @Test
+  public void keepsDelegateDrop() {
+    FlowRateLimitingSampler sampler = new FlowRateLimitingSampler(Sampler.alwaysOff(),
+        new FlowSamplerConfiguration(true, 10, 100, null), clock::get);
+    assertThat(sample(sampler, Context.root(), "flow")).isEqualTo(SamplingDecision.DROP);
+    assertThat(sampler.getFlowRate("flow")).as("No bucket for dropped traces").isEqualTo(-1d);
+  }
+
+  @Test
+  public void fairShareLevel() {
+    assertThat(FlowRateLimitingSampler.fairShareLevel(new ArrayList<>(Arrays.asList(1d, 2d)), 10))
+        .isEqualTo(Double.MAX_VALUE);
+    assertThat(FlowRateLimitingSampler.fairShareLevel(new ArrayList<>(Arrays.asList(10d, 2d, 10d)), 12))
+        .isEqualTo(5d);
+    List<Double> none = new ArrayList<>();
+    assertThat(FlowRateLimitingSampler.fairShareLevel(none, 10)).isEqualTo(Double.MAX_VALUE);
+  }
+}
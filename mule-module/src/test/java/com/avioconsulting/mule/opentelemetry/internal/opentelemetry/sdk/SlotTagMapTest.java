@@ -0,0 +1,157 @@
+package com.avioconsulting.mule.opentelemetry.internal.opentelemetry.sdk;
+
+import com.avioconsulting.mule.opentelemetry.api.sdk.SemanticAttributes;
+import com.avioconsulting.mule.opentelemetry.api.traces.TagKey;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.semconv.HttpAttributes;
+import io.opentelemetry.semconv.incubating.HostIncubatingAttributes;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SlotTagMapTest {
+
+  private static final String KNOWN_KEY = SemanticAttributes.MULE_APP_FLOW_NAME.getKey();
+  private static final String STATUS_KEY = HttpAttributes.HTTP_RESPONSE_STATUS_CODE.getKey();
+
+  @Test
+  public void knownKeysHaveSlots() {
+    assertThat(TagKey.slotOf(KNOWN_KEY)).isGreaterThanOrEqualTo(0);
+    assertThat(TagKey.slotKey(TagKey.slotOf(KNOWN_KEY))).isEqualTo(SemanticAttributes.MULE_APP_FLOW_NAME);
+    assertThat(TagKey.slotKey(TagKey.slotOf(STATUS_KEY))).isEqualTo(HttpAttributes.HTTP_RESPONSE_STATUS_CODE);
+    assertThat(TagKey.slotOf("custom.key")).isEqualTo(-1);
+    assertThat(TagKey.slotOf(HostIncubatingAttributes.HOST_ARCH.getKey())).as("Key the module does not set")
+        .isEqualTo(-1);
+    assertThat(TagKey.slotCount()).isLessThan(100);
+  }
+
+  @Test
+  public void behavesLikeHashMap() {
+    SlotTagMap tags = new SlotTagMap();
+    Map<String, String> expected = new HashMap<>();
+    for (Map<String, String> map : new Map[] { tags, expected }) {
+      map.put(KNOWN_KEY, "flow");
+      map.put("custom.key", "custom");
+      map.put(STATUS_KEY, "200");
+      map.put(STATUS_KEY, "201");
+      map.put("null.key", null);
+    }
+    assertThat(tags).isEqualTo(expected).hasSize(4);
+    assertThat(tags.hashCode()).isEqualTo(expected.hashCode());
+    assertThat(tags.get(STATUS_KEY)).isEqualTo("201");
+    assertThat(tags.containsKey("null.key")).isTrue();
+
+    assertThat(tags.remove(KNOWN_KEY)).isEqualTo("flow");
+    assertThat(tags.remove(KNOWN_KEY)).isNull();
+    assertThat(tags).doesNotContainKey(KNOWN_KEY).hasSize(3);
+
+    tags.clear();
+    assertThat(tags).isEmpty();
+    assertThat(tags.get(STATUS_KEY)).isNull();
+  }
+
+  @Test
+  public void nullValueForKnownKeyReplacesSlotValue() {
+    SlotTagMap tags = new SlotTagMap();
+    tags.put(KNOWN_KEY, "flow");
+    assertThat(tags.put(KNOWN_KEY, null)).isEqualTo("flow");
+    assertThat(tags).containsEntry(KNOWN_KEY, null).hasSize(1);
+    assertThat(tags.put(KNOWN_KEY, "flow2")).isNull();
+    assertThat(tags).containsEntry(KNOWN_KEY, "flow2").hasSize(1);
+  }
+
+  @Test
+  public void putAllCopiesSlotsAndOverflow() {
+    SlotTagMap source = new SlotTagMap();
+    source.put(KNOWN_KEY, "flow");
+    source.put("custom.key", "custom");
+    SlotTagMap target = new SlotTagMap();
+    target.put(KNOWN_KEY, "other");
+    target.put(STATUS_KEY, "200");
+
+    target.putAll(source);
+
+    assertThat(target).hasSize(3)
+        .containsEntry(KNOWN_KEY, "flow")
+        .containsEntry("custom.key", "custom")
+        .containsEntry(STATUS_KEY, "200");
+  }
+
+  @Test
+  public void putAllReplacesOverflowEntryOfFilledSlot() {
+    SlotTagMap source = new SlotTagMap();
+    source.put(KNOWN_KEY, "flow");
+    SlotTagMap target = new SlotTagMap();
+    target.put(KNOWN_KEY, null);
+
+    target.putAll(source);
+
+    assertThat(target).hasSize(1).containsEntry(KNOWN_KEY, "flow");
+    assertThat(target.entrySet()).hasSize(1);
+  }
+
+  @Test
+  public void customOnlyTagsWorkWithoutSlots() {
+    SlotTagMap tags = new SlotTagMap();
+    tags.put("custom.key", "custom");
+    assertThat(tags.get(KNOWN_KEY)).isNull();
+    assertThat(tags.containsKey(KNOWN_KEY)).isFalse();
+    assertThat(tags.remove(KNOWN_KEY)).isNull();
+    assertThat(tags.put(KNOWN_KEY, null)).isNull();
+    assertThat(tags).hasSize(2).containsEntry("custom.key", "custom");
+
+    SlotTagMap target = new SlotTagMap();
+    target.putAll(tags);
+    assertThat(target).isEqualTo(tags);
+  }
+
+  @Test
+  public void putWithTagKeyUsesSlot() {
+    SlotTagMap tags = new SlotTagMap();
+    tags.put(STATUS_KEY, null);
+    assertThat(tags.put(TagKey.of(HttpAttributes.HTTP_RESPONSE_STATUS_CODE), "200")).isNull();
+    tags.put(TagKey.of(AttributeKey.stringKey("custom.key")), "custom");
+
+    assertThat(tags).hasSize(2)
+        .containsEntry(STATUS_KEY, "200")
+        .containsEntry("custom.key", "custom");
+  }
+
+  @Test
+  public void entryIteratorSupportsSetValueAndRemove() {
+    SlotTagMap tags = new SlotTagMap();
+    tags.put(KNOWN_KEY, "flow");
+    tags.put(STATUS_KEY, "200");
+    tags.put("custom.key", "custom");
+
+    tags.entrySet().forEach(entry -> entry.setValue(entry.getValue() + "-resolved"));
+    assertThat(tags).containsEntry(KNOWN_KEY, "flow-resolved")
+        .containsEntry(STATUS_KEY, "200-resolved")
+        .containsEntry("custom.key", "custom-resolved");
+
+    Iterator<Map.Entry<String, String>> iterator = tags.entrySet().iterator();
+    int visited = 0;
+    while (iterator.hasNext()) {
+      iterator.next();
+      iterator.remove();
+      visited++;
+    }
+    assertThat(visited).isEqualTo(3);
+    assertThat(tags).isEmpty();
+  }
+
+  @Test
+  public void forEachAttributeUsesResolvedKeys() {
+    SlotTagMap tags = new SlotTagMap();
+    tags.put(STATUS_KEY, "200");
+    tags.put("custom.key", "custom");
+    Map<AttributeKey<?>, String> attributes = new HashMap<>();
+    tags.forEachAttribute(AttributeKey::stringKey, attributes::put);
+    assertThat(attributes).containsEntry(HttpAttributes.HTTP_RESPONSE_STATUS_CODE, "200")
+        .containsEntry(AttributeKey.stringKey("custom.key"), "custom");
+  }
+}
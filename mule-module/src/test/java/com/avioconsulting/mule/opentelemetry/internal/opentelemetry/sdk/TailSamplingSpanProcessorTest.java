@@ -0,0 +1,196 @@
+package com.avioconsulting.mule.opentelemetry.internal.opentelemetry.sdk;
+
+import com.avioconsulting.mule.opentelemetry.internal.opentelemetry.sdk.TailSamplingSpanProcessor.Decision;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanContext;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.sdk.testing.exporter.InMemorySpanExporter;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.export.SimpleSpanProcessor;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TailSamplingSpanProcessorTest {
+
+  private final InMemorySpanExporter exporter = InMemorySpanExporter.create();
+  private final AtomicLong clock = new AtomicLong();
+  private SdkTracerProvider tracerProvider;
+  private TailSamplingSpanProcessor processor;
+  private Tracer tracer;
+
+  private void setUp(int rateLimit, int maxBufferedSpans, boolean dropOnOverflow) {
+    processor = new TailSamplingSpanProcessor(SimpleSpanProcessor.create(exporter), 2000, rateLimit,
+        maxBufferedSpans, dropOnOverflow, 1000, clock::get);
+    tracerProvider = SdkTracerProvider.builder().addSpanProcessor(processor).build();
+    tracer = tracerProvider.get("test");
+  }
+
+  @After
+  public void tearDown() {
+    tracerProvider.shutdown();
+  }
+
+  private Span startSpan(String name, Span parent, long startMillis) {
+    return tracer.spanBuilder(name)
+        .setParent(parent == null ? Context.root() : Context.root().with(parent))
+        .setStartTimestamp(startMillis, TimeUnit.MILLISECONDS)
+        .startSpan();
+  }
+
+  @Test
+  public void keepsTracesWithErrors() {
+    setUp(0, 100, false);
+    Span root = startSpan("flow", null, 0);
+    Span child = startSpan("processor", root, 0);
+    TailSamplingSpanProcessor.setStatus(child, StatusCode.ERROR, null);
+    child.end(10, TimeUnit.MILLISECONDS);
+    assertThat(exporter.getFinishedSpanItems()).as("Spans are buffered until root ends").isEmpty();
+    root.end(20, TimeUnit.MILLISECONDS);
+
+    assertThat(exporter.getFinishedSpanItems()).extracting(SpanData::getName)
+        .containsExactly("processor", "flow");
+    assertThat(processor.getDecisionCount(Decision.ERROR)).isEqualTo(1);
+    assertThat(processor.getBufferedSpanCount()).isZero();
+    assertThat(processor.getBufferedTraceCount()).isZero();
+  }
+
+  @Test
+  public void keepsSlowTraces() {
+    setUp(0, 100, false);
+    Span root = startSpan("flow", null, 0);
+    root.end(2500, TimeUnit.MILLISECONDS);
+
+    assertThat(exporter.getFinishedSpanItems()).hasSize(1);
+    assertThat(processor.getDecisionCount(Decision.LATENCY)).isEqualTo(1);
+  }
+
+  @Test
+  public void dropsHealthyTracesBeyondRateLimit() {
+    setUp(1, 100, false);
+    Span first = startSpan("first", null, 0);
+    first.end(10, TimeUnit.MILLISECONDS);
+    Span second = startSpan("second", null, 0);
+    Span late = startSpan("late", second, 0);
+    second.end(10, TimeUnit.MILLISECONDS);
+    // Ends after its trace was decided
+    late.end(20, TimeUnit.MILLISECONDS);
+
+    assertThat(exporter.getFinishedSpanItems()).extracting(SpanData::getName).containsExactly("first");
+    assertThat(processor.getDecisionCount(Decision.RATE)).isEqualTo(1);
+    assertThat(processor.getDecisionCount(Decision.RATE_LIMITED)).isEqualTo(1);
+  }
+
+  @Test
+  public void waitsForAllLocalRootsOfTrace() {
+    setUp(0, 100, false);
+    Span root = startSpan("flow", null, 0);
+    Span remoteChild = tracer.spanBuilder("async-flow")
+        .setParent(Context.root().with(Span.wrap(
+            SpanContext.createFromRemoteParent(root.getSpanContext().getTraceId(),
+                root.getSpanContext().getSpanId(), root.getSpanContext().getTraceFlags(),
+                root.getSpanContext().getTraceState()))))
+        .setStartTimestamp(0, TimeUnit.MILLISECONDS)
+        .startSpan();
+    root.end(10, TimeUnit.MILLISECONDS);
+    assertThat(processor.getBufferedTraceCount()).isEqualTo(1);
+    TailSamplingSpanProcessor.setStatus(remoteChild, StatusCode.ERROR, null);
+    remoteChild.end(20, TimeUnit.MILLISECONDS);
+
+    assertThat(exporter.getFinishedSpanItems()).extracting(SpanData::getName)
+        .containsExactly("flow", "async-flow");
+  }
+
+  @Test
+  public void exportsTraceWhenBufferOverflows() {
+    setUp(0, 2, false);
+    Span root = startSpan("flow", null, 0);
+    for (int i = 0; i < 3; i++) {
+      startSpan("processor-" + i, root, 0).end(10, TimeUnit.MILLISECONDS);
+    }
+    assertThat(exporter.getFinishedSpanItems()).hasSize(3);
+    assertThat(processor.getDecisionCount(Decision.OVERFLOW_EXPORTED)).isEqualTo(1);
+    assertThat(processor.getBufferedSpanCount()).isZero();
+    root.end(20, TimeUnit.MILLISECONDS);
+    assertThat(exporter.getFinishedSpanItems()).hasSize(4);
+  }
+
+  @Test
+  public void evictsOldestTraceWhenBufferOverflows() {
+    setUp(0, 2, false);
+    Span older = startSpan("older-flow", null, 0);
+    startSpan("older-processor", older, 0).end(10, TimeUnit.MILLISECONDS);
+    Span newer = startSpan("newer-flow", null, 0);
+    startSpan("newer-processor-0", newer, 0).end(10, TimeUnit.MILLISECONDS);
+    startSpan("newer-processor-1", newer, 0).end(10, TimeUnit.MILLISECONDS);
+
+    assertThat(exporter.getFinishedSpanItems()).extracting(SpanData::getName)
+        .containsExactly("older-processor");
+    assertThat(processor.getDecisionCount(Decision.OVERFLOW_EXPORTED)).isEqualTo(1);
+    assertThat(processor.getBufferedTraceCount()).isEqualTo(1);
+    assertThat(processor.getBufferedSpanCount()).isEqualTo(2);
+
+    newer.end(20, TimeUnit.MILLISECONDS);
+    older.end(20, TimeUnit.MILLISECONDS);
+    assertThat(exporter.getFinishedSpanItems()).extracting(SpanData::getName)
+        .containsExactly("older-processor", "older-flow");
+    assertThat(processor.getDecisionCount(Decision.RATE_LIMITED)).isEqualTo(1);
+  }
+
+  @Test
+  public void dropsExpiredTraces() {
+    setUp(0, 100, true);
+    Span root = startSpan("flow", null, 0);
+    startSpan("processor", root, 0).end(10, TimeUnit.MILLISECONDS);
+    processor.expireTraces(clock.get(), false);
+    assertThat(processor.getBufferedTraceCount()).isEqualTo(1);
+
+    clock.addAndGet(TimeUnit.SECONDS.toNanos(2));
+    processor.expireTraces(clock.get(), false);
+    assertThat(processor.getBufferedTraceCount()).isZero();
+    assertThat(processor.getDecisionCount(Decision.OVERFLOW_DROPPED)).isEqualTo(1);
+    root.end(20, TimeUnit.MILLISECONDS);
+    assertThat(exporter.getFinishedSpanItems()).isEmpty();
+  }
+
+  @Test
+  public void forceFlushExpiresWaitingTraces() {
+    setUp(0, 100, true);
+    Span root = startSpan("flow", null, 0);
+    startSpan("processor", root, 0).end(10, TimeUnit.MILLISECONDS);
+    clock.addAndGet(TimeUnit.SECONDS.toNanos(2));
+
+    processor.forceFlush();
+
+    assertThat(processor.getBufferedTraceCount()).isZero();
+    assertThat(processor.getDecisionCount(Decision.OVERFLOW_DROPPED)).isEqualTo(1);
+  }
+
+  @Test
+  public void processorsShareTraceDecisions() {
+    TailSamplingSpanProcessor.TraceDecisions traceDecisions = new TailSamplingSpanProcessor.TraceDecisions(1);
+    InMemorySpanExporter otherExporter = InMemorySpanExporter.create();
+    processor = new TailSamplingSpanProcessor(SimpleSpanProcessor.create(exporter), 2000, traceDecisions, 100,
+        false, 1000, clock::get);
+    TailSamplingSpanProcessor other = new TailSamplingSpanProcessor(SimpleSpanProcessor.create(otherExporter),
+        2000, traceDecisions, 100, false, 1000, clock::get);
+    tracerProvider = SdkTracerProvider.builder().addSpanProcessor(processor).addSpanProcessor(other).build();
+    tracer = tracerProvider.get("test");
+
+    startSpan("first", null, 0).end(10, TimeUnit.MILLISECONDS);
+    startSpan("second", null, 0).end(10, TimeUnit.MILLISECONDS);
+
+    // One rate limit token is used for the trace, both exporters keep it
+    assertThat(exporter.getFinishedSpanItems()).extracting(SpanData::getName).containsExactly("first");
+    assertThat(otherExporter.getFinishedSpanItems()).extracting(SpanData::getName).containsExactly("first");
+    assertThat(other.getDecisionCount(Decision.RATE)).isEqualTo(1);
+    assertThat(other.getDecisionCount(Decision.RATE_LIMITED)).isEqualTo(1);
+  }
+}
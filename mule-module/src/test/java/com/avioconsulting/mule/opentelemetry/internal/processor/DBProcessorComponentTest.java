@@ -60,6 +60,8 @@ public class DBProcessorComponentTest extends AbstractProcessorComponentTest {
     when(componentRegistryService.findComponentByLocation(anyString())).thenReturn(configComponent);
     ComponentWrapper wrapper = new ComponentWrapper(component, componentRegistryService);
     when(componentRegistryService.getComponentWrapper(component)).thenReturn(wrapper);
+    when(componentRegistryService.getComponentWrapper(any(TraceComponent.class), eq(component)))
+        .thenReturn(wrapper);
     dbProcessorComponent
         .withComponentRegistryService(componentRegistryService);
     TraceComponent tc = TraceComponent.of("test", new HashMap<>());
@@ -94,6 +96,8 @@ public class DBProcessorComponentTest extends AbstractProcessorComponentTest {
     ComponentRegistryService componentRegistryService = mock(ComponentRegistryService.class);
     ComponentWrapper wrapper = new ComponentWrapper(component, componentRegistryService);
     when(componentRegistryService.getComponentWrapper(component)).thenReturn(wrapper);
+    when(componentRegistryService.getComponentWrapper(any(TraceComponent.class), eq(component)))
+        .thenReturn(wrapper);
     dbProcessorComponent
         .withComponentRegistryService(componentRegistryService);
     TraceComponent tc = TraceComponent.of("test", new HashMap<>());
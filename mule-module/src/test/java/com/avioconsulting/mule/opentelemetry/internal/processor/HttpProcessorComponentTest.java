@@ -28,6 +28,7 @@ import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
@@ -134,6 +135,8 @@ public class HttpProcessorComponentTest extends AbstractProcessorComponentTest {
     ComponentRegistryService componentRegistryService = mock(ComponentRegistryService.class);
     ComponentWrapper wrapper = new ComponentWrapper(component, componentRegistryService);
     when(componentRegistryService.getComponentWrapper(component)).thenReturn(wrapper);
+    when(componentRegistryService.getComponentWrapper(any(TraceComponent.class), eq(component)))
+        .thenReturn(wrapper);
     ProcessorComponent httpProcessorComponent = new HttpProcessorComponent()
         .withComponentRegistryService(componentRegistryService);
     TraceComponent endTraceComponent = httpProcessorComponent.getStartTraceComponent(notification);
@@ -235,6 +238,8 @@ public class HttpProcessorComponentTest extends AbstractProcessorComponentTest {
     when(wrapper.getConfigParameters()).thenReturn(Collections.emptyMap());
 
     when(componentRegistryService.getComponentWrapper(component)).thenReturn(wrapper);
+    when(componentRegistryService.getComponentWrapper(any(TraceComponent.class), eq(component)))
+        .thenReturn(wrapper);
 
     ProcessorComponent httpProcessorComponent = new HttpProcessorComponent()
         .withComponentRegistryService(componentRegistryService);
@@ -279,6 +284,8 @@ public class HttpProcessorComponentTest extends AbstractProcessorComponentTest {
     when(wrapper.getConfigParameters()).thenReturn(Collections.emptyMap());
 
     when(componentRegistryService.getComponentWrapper(component)).thenReturn(wrapper);
+    when(componentRegistryService.getComponentWrapper(any(TraceComponent.class), eq(component)))
+        .thenReturn(wrapper);
 
     ProcessorComponent httpProcessorComponent = new HttpProcessorComponent()
         .withComponentRegistryService(componentRegistryService);
@@ -323,6 +330,8 @@ public class HttpProcessorComponentTest extends AbstractProcessorComponentTest {
     when(wrapper.getConfigParameters()).thenReturn(Collections.emptyMap());
 
     when(componentRegistryService.getComponentWrapper(component)).thenReturn(wrapper);
+    when(componentRegistryService.getComponentWrapper(any(TraceComponent.class), eq(component)))
+        .thenReturn(wrapper);
 
     ProcessorComponent httpProcessorComponent = new HttpProcessorComponent()
         .withComponentRegistryService(componentRegistryService);
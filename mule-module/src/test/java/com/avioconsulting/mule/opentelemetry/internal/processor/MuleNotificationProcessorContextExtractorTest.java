@@ -106,6 +106,8 @@ public class MuleNotificationProcessorContextExtractorTest extends AbstractProce
     doNothing().when(connection).startTransaction(captor.capture());
     ComponentWrapper wrapper = new ComponentWrapper(component, componentRegistryService);
     when(componentRegistryService.getComponentWrapper(component)).thenReturn(wrapper);
+    when(componentRegistryService.getComponentWrapper(any(TraceComponent.class), eq(component)))
+        .thenReturn(wrapper);
     MuleNotificationProcessor notificationProcessor = new MuleNotificationProcessor(componentRegistryService);
     notificationProcessor.init(connection, new TraceLevelConfiguration(false, Collections.emptyList()));
     notificationProcessor.handleFlowStartEvent(pipelineMessageNotification);
@@ -156,6 +158,8 @@ public class MuleNotificationProcessorContextExtractorTest extends AbstractProce
     doNothing().when(connection).startTransaction(captor.capture());
     ComponentWrapper wrapper = new ComponentWrapper(component, componentRegistryService);
     when(componentRegistryService.getComponentWrapper(component)).thenReturn(wrapper);
+    when(componentRegistryService.getComponentWrapper(any(TraceComponent.class), eq(component)))
+        .thenReturn(wrapper);
     MuleNotificationProcessor notificationProcessor = new MuleNotificationProcessor(
         componentRegistryService);
     notificationProcessor.init(connection, new TraceLevelConfiguration(false, Collections.emptyList()));
@@ -5,6 +5,7 @@ import com.avioconsulting.mule.opentelemetry.api.config.TraceLevelConfiguration;
 import com.avioconsulting.mule.opentelemetry.api.processor.ProcessorComponent;
 import com.avioconsulting.mule.opentelemetry.internal.connection.OpenTelemetryConnection;
 import com.avioconsulting.mule.opentelemetry.internal.processor.service.ComponentRegistryService;
+import com.avioconsulting.mule.opentelemetry.internal.processor.util.AdaptiveTraceLevel;
 import org.assertj.core.api.Assertions;
 import org.jetbrains.annotations.NotNull;
 import org.junit.Test;
@@ -149,6 +150,60 @@ public class MuleNotificationProcessorTest extends AbstractProcessorComponentTes
 
   }
 
+  @Test
+  public void handleProcessorEvents_skipsSpansOfUnsampledTransactions() {
+    MessageProcessorNotification notification = getMessageProcessorNotification();
+    when(notification.getEvent().getVariables()).thenReturn(Collections.emptyMap());
+    OpenTelemetryConnection connection = mock(OpenTelemetryConnection.class);
+    when(connection.canSkipProcessorSpans(anyString())).thenReturn(true);
+    MuleNotificationProcessor notificationProcessor = new MuleNotificationProcessor(
+        componentRegistryService);
+    notificationProcessor.init(connection, new TraceLevelConfiguration(true, Collections.emptyList()));
+
+    notificationProcessor.handleProcessorStartEvent(notification);
+    notificationProcessor.handleProcessorEndEvent(notification);
+
+    String transactionId = notification.getEvent().getContext().getId();
+    verify(connection, times(2)).canSkipProcessorSpans(transactionId);
+    verify(connection, never()).addProcessorSpan(any(), any());
+    verify(connection, never()).endProcessorSpan(any(), any());
+  }
+
+  @Test
+  public void handleProcessorStartEvent_skipsGenericSpansWhenDetailReduced() {
+    MessageProcessorNotification notification = getMessageProcessorNotification();
+    when(notification.getEvent().getVariables()).thenReturn(Collections.emptyMap());
+    OpenTelemetryConnection connection = mock(OpenTelemetryConnection.class);
+    AdaptiveTraceLevel adaptiveTraceLevel = mock(AdaptiveTraceLevel.class);
+    when(adaptiveTraceLevel.isReduced()).thenReturn(true);
+    MuleNotificationProcessor notificationProcessor = new MuleNotificationProcessor(
+        componentRegistryService).setAdaptiveTraceLevel(adaptiveTraceLevel);
+    notificationProcessor.init(connection, new TraceLevelConfiguration(true, Collections.emptyList()));
+
+    notificationProcessor.handleProcessorStartEvent(notification);
+
+    verify(adaptiveTraceLevel).spanSkipped();
+    verify(connection, never()).addProcessorSpan(any(), any());
+  }
+
+  @Test
+  public void handleProcessorStartEvent_doesNotCountUnsampledSpansAsDetailReduced() {
+    MessageProcessorNotification notification = getMessageProcessorNotification();
+    when(notification.getEvent().getVariables()).thenReturn(Collections.emptyMap());
+    OpenTelemetryConnection connection = mock(OpenTelemetryConnection.class);
+    when(connection.canSkipProcessorSpans(anyString())).thenReturn(true);
+    AdaptiveTraceLevel adaptiveTraceLevel = mock(AdaptiveTraceLevel.class);
+    when(adaptiveTraceLevel.isReduced()).thenReturn(true);
+    MuleNotificationProcessor notificationProcessor = new MuleNotificationProcessor(
+        componentRegistryService).setAdaptiveTraceLevel(adaptiveTraceLevel);
+    notificationProcessor.init(connection, new TraceLevelConfiguration(true, Collections.emptyList()));
+
+    notificationProcessor.handleProcessorStartEvent(notification);
+
+    verify(adaptiveTraceLevel, never()).spanSkipped();
+    verify(connection, never()).addProcessorSpan(any(), any());
+  }
+
   @NotNull
   private MessageProcessorNotification getMessageProcessorNotification() {
     Event event = mock(Event.class);
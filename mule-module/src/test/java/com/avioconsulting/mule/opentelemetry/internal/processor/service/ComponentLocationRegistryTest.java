@@ -0,0 +1,116 @@
+package com.avioconsulting.mule.opentelemetry.internal.processor.service;
+
+import com.avioconsulting.mule.opentelemetry.internal.AbstractInternalTest;
+import com.avioconsulting.mule.opentelemetry.internal.util.ComponentsUtil;
+import org.junit.Test;
+import org.mule.runtime.api.component.TypedComponentIdentifier;
+import org.mule.runtime.api.component.location.ComponentLocation;
+import org.mule.runtime.dsl.api.component.config.DefaultComponentLocation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalInt;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ComponentLocationRegistryTest extends AbstractInternalTest {
+
+  private static final String ROUTER = "MyFlow/processors/0";
+  private static final String ROUTE = "MyFlow/processors/0/route/0";
+  private static final String ROUTE_PROCESSOR = "MyFlow/processors/0/route/0/processors/0";
+
+  private DefaultComponentLocation.DefaultLocationPart part(String path, TypedComponentIdentifier identifier) {
+    return new DefaultComponentLocation.DefaultLocationPart(path, Optional.ofNullable(identifier),
+        Optional.empty(), OptionalInt.empty(), OptionalInt.empty());
+  }
+
+  private ComponentLocation location(DefaultComponentLocation.DefaultLocationPart... parts) {
+    return new DefaultComponentLocation(Optional.empty(), new ArrayList<>(Arrays.asList(parts)));
+  }
+
+  private Map<String, ComponentLocation> routerLocations() {
+    DefaultComponentLocation.DefaultLocationPart router = part("0",
+        getComponentIdentifier("mule", "scatter-gather", TypedComponentIdentifier.ComponentType.ROUTER));
+    DefaultComponentLocation.DefaultLocationPart route = part("0",
+        getComponentIdentifier("mule", "route", TypedComponentIdentifier.ComponentType.ROUTE));
+    DefaultComponentLocation.DefaultLocationPart logger = part("0",
+        getComponentIdentifier("mule", "logger", TypedComponentIdentifier.ComponentType.OPERATION));
+    List<ComponentLocation> locations = Arrays.asList(
+        location(rootFlowPart),
+        location(rootFlowPart, processorsPart, router),
+        location(rootFlowPart, processorsPart, router, part("route", null), route),
+        location(rootFlowPart, processorsPart, router, part("route", null), route, processorsPart, logger));
+    Map<String, ComponentLocation> map = new HashMap<>();
+    locations.forEach(l -> map.put(l.getLocation(), l));
+    return map;
+  }
+
+  @Test
+  public void assignsDenseIds() {
+    ComponentLocationRegistry registry = new ComponentLocationRegistry(routerLocations());
+    assertThat(registry.size()).isEqualTo(4);
+    for (int id = 0; id < registry.size(); id++) {
+      assertThat(registry.getId(registry.getLocation(id))).isEqualTo(id);
+      assertThat(registry.getComponentLocation(id).getLocation()).isEqualTo(registry.getLocation(id));
+    }
+    assertThat(registry.getId("UnknownFlow/processors/0")).isEqualTo(ComponentLocationRegistry.UNKNOWN_ID);
+    assertThat(registry.getId(null)).isEqualTo(ComponentLocationRegistry.UNKNOWN_ID);
+  }
+
+  @Test
+  public void precomputesParentLocations() {
+    ComponentLocationRegistry registry = new ComponentLocationRegistry(routerLocations());
+    int processorId = registry.getId(ROUTE_PROCESSOR);
+    assertThat(registry.getParentLocation(processorId))
+        .isEqualTo(ComponentsUtil.getLocationParent(ROUTE_PROCESSOR))
+        .isEqualTo(ROUTE);
+    assertThat(registry.getParentId(processorId)).isEqualTo(registry.getId(ROUTE));
+    assertThat(registry.getParentId(registry.getId(ROUTER))).isEqualTo(registry.getId("MyFlow"));
+  }
+
+  @Test
+  public void precomputesRouteContainers() {
+    Map<String, ComponentLocation> locations = routerLocations();
+    ComponentLocationRegistry registry = new ComponentLocationRegistry(locations);
+    int processorId = registry.getId(ROUTE_PROCESSOR);
+    assertThat(registry.getRouteContainerLocation(processorId))
+        .isEqualTo(ComponentsUtil.getRouteContainerLocation(locations.get(ROUTE_PROCESSOR)))
+        .isEqualTo(ROUTE);
+    assertThat(registry.getRouteContainerId(processorId)).isEqualTo(registry.getId(ROUTE));
+    assertThat(registry.getRouteContainerLocation(registry.getId(ROUTER))).isNull();
+    assertThat(registry.getRouteContainerId(registry.getId(ROUTER))).isEqualTo(ComponentLocationRegistry.UNKNOWN_ID);
+  }
+
+  @Test
+  public void unboundLocationsHaveNoWrapper() {
+    ComponentLocationRegistry registry = new ComponentLocationRegistry(routerLocations());
+    int processorId = registry.getId(ROUTE_PROCESSOR);
+    assertThat(registry.getComponentWrapper(processorId)).isNull();
+    assertThat(registry.getSpanName(processorId)).isNull();
+    assertThat(registry.hasFlowRefTarget(processorId, "some-sub-flow")).isFalse();
+  }
+
+  @Test
+  public void siblingCountsMatchScanOfAllLocations() {
+    Map<String, ComponentLocation> locations = routerLocations();
+    // Paths with trailing separator are matched by the sibling rule
+    ComponentLocation trailingSeparator = mock(ComponentLocation.class);
+    when(trailingSeparator.getLocation()).thenReturn("MyFlow/processors/0/");
+    locations.put(trailingSeparator.getLocation(), trailingSeparator);
+    ComponentLocationRegistry registry = new ComponentLocationRegistry(locations);
+    registry.computeSiblingCounts();
+    for (int id = 0; id < registry.size(); id++) {
+      String siblingsPath = ComponentsUtil.getLocationParent(registry.getLocation(id)) + "/";
+      long expected = locations.keySet().stream().filter(l -> l.equalsIgnoreCase(siblingsPath)).count();
+      assertThat(registry.getSiblingCount(id)).as(registry.getLocation(id)).isEqualTo(expected);
+    }
+    assertThat(registry.getSiblingCount(registry.getId(ROUTE))).isEqualTo(1);
+    assertThat(registry.countSiblings("MyFlow/processors/0/ROUTE/1")).as("Unregistered location").isEqualTo(1);
+  }
+}
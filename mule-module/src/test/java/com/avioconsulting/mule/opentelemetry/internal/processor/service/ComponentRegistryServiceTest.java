@@ -0,0 +1,100 @@
+package com.avioconsulting.mule.opentelemetry.internal.processor.service;
+
+import com.avioconsulting.mule.opentelemetry.internal.AbstractInternalTest;
+import org.junit.After;
+import org.junit.Test;
+import org.mule.runtime.api.component.Component;
+import org.mule.runtime.api.component.ComponentIdentifier;
+import org.mule.runtime.api.component.TypedComponentIdentifier;
+import org.mule.runtime.api.component.location.ComponentLocation;
+import org.mule.runtime.api.component.location.ConfigurationComponentLocator;
+import org.mule.runtime.api.component.location.Location;
+import org.mule.runtime.dsl.api.component.config.DefaultComponentLocation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalInt;
+
+import static com.avioconsulting.mule.opentelemetry.internal.processor.service.ComponentRegistryService.MULE_OTEL_COMPONENT_REGISTRY_WARMUP_MODE;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ComponentRegistryServiceTest extends AbstractInternalTest {
+
+  private final Map<String, Component> components = new HashMap<>();
+  private ComponentRegistryService registryService;
+
+  @After
+  public void clearProperties() {
+    System.clearProperty(MULE_OTEL_COMPONENT_REGISTRY_WARMUP_MODE);
+  }
+
+  private ComponentLocation addComponent(String index, String identifier) {
+    TypedComponentIdentifier typedIdentifier = TypedComponentIdentifier.builder()
+        .identifier(ComponentIdentifier.buildFromStringRepresentation(identifier))
+        .type(TypedComponentIdentifier.ComponentType.OPERATION).build();
+    DefaultComponentLocation.DefaultLocationPart part = new DefaultComponentLocation.DefaultLocationPart(index,
+        Optional.of(typedIdentifier), Optional.empty(), OptionalInt.empty(), OptionalInt.empty());
+    ComponentLocation location = new DefaultComponentLocation(Optional.empty(),
+        new ArrayList<>(Arrays.asList(rootFlowPart, processorsPart, part)));
+    Component component = mock(Component.class);
+    when(component.getLocation()).thenReturn(location);
+    when(component.getIdentifier()).thenReturn(typedIdentifier.getIdentifier());
+    components.put(location.getLocation(), component);
+    return location;
+  }
+
+  private void setupRegistry() {
+    List<ComponentLocation> locations = Arrays.asList(addComponent("0", "http:request"),
+        addComponent("1", "custom:operation"));
+    ConfigurationComponentLocator locator = mock(ConfigurationComponentLocator.class);
+    when(locator.findAllLocations()).thenReturn(locations);
+    when(locator.find(any(Location.class)))
+        .thenAnswer(invocation -> Optional.ofNullable(components.get(invocation.getArgument(0).toString())));
+    registryService = new ComponentRegistryService(locator);
+  }
+
+  private boolean isWrapperBuilt(String location) {
+    ComponentLocationRegistry locationRegistry = registryService.getLocationRegistry();
+    return locationRegistry.getComponentWrapper(locationRegistry.getId(location)) != null;
+  }
+
+  @Test
+  public void eagerWarmUpBuildsAllWrappers() {
+    setupRegistry();
+    registryService.initializeComponentWrapperRegistry();
+    assertThat(isWrapperBuilt("MyFlow/processors/0")).isTrue();
+    assertThat(isWrapperBuilt("MyFlow/processors/1")).isTrue();
+    assertThat(WarmUpMetrics.getLastComponentCount()).isEqualTo(2);
+    assertThat(WarmUpMetrics.getLastDurationMillis()).isNotNegative();
+  }
+
+  @Test
+  public void parallelWarmUpBuildsOnlyKnownProcessorComponents() {
+    System.setProperty(MULE_OTEL_COMPONENT_REGISTRY_WARMUP_MODE, "parallel");
+    setupRegistry();
+    registryService.initializeComponentWrapperRegistry();
+    assertThat(isWrapperBuilt("MyFlow/processors/0")).isTrue();
+    assertThat(isWrapperBuilt("MyFlow/processors/1")).isFalse();
+    assertThat(WarmUpMetrics.getLastComponentCount()).isEqualTo(1);
+
+    assertThat(registryService.getComponentWrapper(components.get("MyFlow/processors/1"))).isNotNull();
+    assertThat(isWrapperBuilt("MyFlow/processors/1")).isTrue();
+  }
+
+  @Test
+  public void lazyWarmUpDefersAllWrappers() {
+    System.setProperty(MULE_OTEL_COMPONENT_REGISTRY_WARMUP_MODE, "lazy");
+    setupRegistry();
+    registryService.initializeComponentWrapperRegistry();
+    assertThat(isWrapperBuilt("MyFlow/processors/0")).isFalse();
+    assertThat(isWrapperBuilt("MyFlow/processors/1")).isFalse();
+    assertThat(WarmUpMetrics.getLastComponentCount()).isZero();
+  }
+}
@@ -0,0 +1,69 @@
+package com.avioconsulting.mule.opentelemetry.internal.processor.util;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AdaptiveTraceLevelTest {
+
+  private final AtomicLong clock = new AtomicLong();
+  private final AtomicLong startedSpans = new AtomicLong();
+  private volatile double queueFill;
+
+  private AdaptiveTraceLevel adaptiveTraceLevel(boolean enabled, int queueThresholdPercent, int spanRateThreshold) {
+    return new AdaptiveTraceLevel(enabled, queueThresholdPercent, spanRateThreshold, 50, () -> queueFill,
+        () -> startedSpans.getAndSet(0), clock::get);
+  }
+
+  private void nextInterval() {
+    clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(AdaptiveTraceLevel.EVALUATION_INTERVAL_MILLIS));
+  }
+
+  @Test
+  public void reducesDetailWhenQueueFills() {
+    AdaptiveTraceLevel level = adaptiveTraceLevel(true, 80, 0);
+    queueFill = 0.9;
+    assertThat(level.isReduced()).as("Evaluated only after the interval").isFalse();
+    nextInterval();
+    assertThat(level.isReduced()).isTrue();
+    assertThat(level.getReductionCount()).isEqualTo(1);
+
+    queueFill = 0.5;
+    nextInterval();
+    assertThat(level.isReduced()).as("Restored below half the threshold only").isTrue();
+
+    queueFill = 0.3;
+    nextInterval();
+    assertThat(level.isReduced()).isFalse();
+  }
+
+  @Test
+  public void reducesDetailOnSpanRate() {
+    AdaptiveTraceLevel level = adaptiveTraceLevel(true, 0, 1000);
+    queueFill = 1;
+    startedSpans.set(600);
+    nextInterval();
+    assertThat(level.isReduced()).as("1200 spans per second").isTrue();
+
+    startedSpans.set(300);
+    nextInterval();
+    assertThat(level.isReduced()).as("600 spans per second").isTrue();
+
+    startedSpans.set(200);
+    nextInterval();
+    assertThat(level.isReduced()).as("400 spans per second").isFalse();
+  }
+
+  @Test
+  public void disabled() {
+    AdaptiveTraceLevel level = adaptiveTraceLevel(false, 80, 1000);
+    queueFill = 1;
+    startedSpans.set(10000);
+    nextInterval();
+    assertThat(level.isReduced()).isFalse();
+    assertThat(startedSpans.get()).as("Load is not evaluated").isEqualTo(10000);
+  }
+}
@@ -0,0 +1,73 @@
+package com.avioconsulting.mule.opentelemetry.internal.processor.util;
+
+import com.avioconsulting.mule.opentelemetry.api.traces.TraceComponent;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MagazineTraceComponentPoolTest {
+
+  private final MagazineTraceComponentPool pool = new MagazineTraceComponentPool(component -> {
+  }, 4, 8);
+
+  @Test
+  public void reusesReleasedComponents() {
+    TraceComponent component = pool.acquire("tx-1", "test");
+    component.addTag("key", "value");
+    pool.release(component);
+
+    TraceComponent reused = pool.acquire("tx-2", "test-2");
+    assertThat(reused).isSameAs(component);
+    assertThat(reused.getTransactionId()).isEqualTo("tx-2");
+    assertThat(reused.getName()).isEqualTo("test-2");
+    assertThat(reused.hasTags()).isFalse();
+  }
+
+  @Test
+  public void componentsReleasedOnAnotherThreadAreReusedByThatThread() throws Exception {
+    List<TraceComponent> components = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      components.add(pool.acquire("tx-1", "test"));
+    }
+    TraceComponent reused = CompletableFuture.supplyAsync(() -> {
+      components.forEach(pool::release);
+      return pool.acquire("tx-2", "test");
+    }).get();
+    assertThat(reused).isIn(components);
+  }
+
+  @Test
+  public void clearEmptiesMagazinesOfAllThreads() throws Exception {
+    MagazineTraceComponentPool pool = new MagazineTraceComponentPool(component -> {
+    }, 4, 8, 16);
+    assertThat(pool.getStripeCount()).isEqualTo(16);
+    List<TraceComponent> components = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      components.add(pool.acquire("tx-1", "test"));
+    }
+    CompletableFuture.runAsync(() -> components.forEach(pool::release)).get();
+    // 1 left from the pre-warmed magazine this thread refilled + 3 released
+    assertThat(pool.getMagazineComponentCount()).isEqualTo(4);
+
+    pool.clear();
+    assertThat(pool.getMagazineComponentCount()).isZero();
+    assertThat(pool.getDepotSize()).isZero();
+    assertThat(CompletableFuture.supplyAsync(() -> pool.acquire("tx-2", "test")).get()).isNotIn(components);
+  }
+
+  @Test
+  public void dropsComponentsWhenDepotIsFull() {
+    List<TraceComponent> components = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      components.add(pool.acquire("tx-1", "test"));
+    }
+    components.forEach(pool::release);
+    // 2 magazines in depot + 1 local magazine of 4
+    assertThat(pool.getDepotSize()).isEqualTo(2);
+    assertThat(pool.getComponentsDropped()).isEqualTo(20 - 12);
+  }
+}
@@ -0,0 +1,72 @@
+package com.avioconsulting.mule.opentelemetry.internal.processor.util;
+
+import com.avioconsulting.mule.opentelemetry.api.traces.TraceComponent;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.avioconsulting.mule.opentelemetry.internal.processor.util.TraceComponentManager.MULE_OTEL_POOLING_TRACECOMPONENT_LEAK_DETECTION;
+import static com.avioconsulting.mule.opentelemetry.internal.processor.util.TraceComponentManager.MULE_OTEL_POOLING_TRACECOMPONENT_LEAK_DETECTION_SAMPLE_RATE;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TraceComponentManagerTest {
+
+  @After
+  public void tearDown() {
+    System.clearProperty(MULE_OTEL_POOLING_TRACECOMPONENT_LEAK_DETECTION);
+    System.clearProperty(MULE_OTEL_POOLING_TRACECOMPONENT_LEAK_DETECTION_SAMPLE_RATE);
+    TraceComponentManager.resetForTest();
+  }
+
+  private List<TraceComponent> borrow(int count) {
+    List<TraceComponent> components = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      components.add(TraceComponentManager.getInstance().createTraceComponent("tx-" + i, "test"));
+    }
+    return components;
+  }
+
+  private void release(List<TraceComponent> components) throws Exception {
+    for (TraceComponent component : components) {
+      component.close();
+    }
+  }
+
+  @Test
+  public void fullLeakDetectionTracksEveryBorrow() throws Exception {
+    System.setProperty(MULE_OTEL_POOLING_TRACECOMPONENT_LEAK_DETECTION, "full");
+    TraceComponentManager.resetForTest();
+    int active = TraceComponentManager.getInstance().getActiveComponentCount();
+
+    List<TraceComponent> components = borrow(10);
+    assertThat(TraceComponentManager.getInstance().getActiveComponentCount()).isEqualTo(active + 10);
+
+    release(components);
+    assertThat(TraceComponentManager.getInstance().getActiveComponentCount()).isEqualTo(active);
+  }
+
+  @Test
+  public void sampledLeakDetectionTracksOneInN() throws Exception {
+    System.setProperty(MULE_OTEL_POOLING_TRACECOMPONENT_LEAK_DETECTION, "sampled");
+    System.setProperty(MULE_OTEL_POOLING_TRACECOMPONENT_LEAK_DETECTION_SAMPLE_RATE, "1000000");
+    TraceComponentManager.resetForTest();
+    int active = TraceComponentManager.getInstance().getActiveComponentCount();
+
+    List<TraceComponent> components = borrow(10);
+    assertThat(TraceComponentManager.getInstance().getActiveComponentCount()).isLessThan(active + 10);
+    release(components);
+  }
+
+  @Test
+  public void noLeakDetectionTracksNothing() throws Exception {
+    System.setProperty(MULE_OTEL_POOLING_TRACECOMPONENT_LEAK_DETECTION, "none");
+    TraceComponentManager.resetForTest();
+    int active = TraceComponentManager.getInstance().getActiveComponentCount();
+
+    List<TraceComponent> components = borrow(10);
+    assertThat(TraceComponentManager.getInstance().getActiveComponentCount()).isEqualTo(active);
+    release(components);
+  }
+}
@@ -0,0 +1,249 @@
+package com.avioconsulting.mule.opentelemetry.internal.store;
+
+import com.avioconsulting.mule.opentelemetry.api.traces.TraceComponent;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.StatusCode;
+import org.junit.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class AsyncSpanFinalizerTest {
+
+  @Test
+  public void finishesSpanOnFinalizerThread() throws Exception {
+    AsyncSpanFinalizer finalizer = new AsyncSpanFinalizer(16, false);
+    try {
+      TraceComponent traceComponent = TraceComponent.of("test", new HashMap<>())
+          .withStatsCode(StatusCode.ERROR)
+          .withErrorMessage("failed");
+      traceComponent.addTag("custom.tag", "value");
+      SpanEndRecord record = SpanEndRecord.of(traceComponent, null);
+      // Trace component may be reused once the record is created
+      traceComponent.clear();
+
+      Span span = mock(Span.class);
+      CountDownLatch ended = new CountDownLatch(1);
+      Thread[] endThread = new Thread[1];
+      Instant endTime = Instant.now();
+      doAnswer(invocation -> {
+        endThread[0] = Thread.currentThread();
+        ended.countDown();
+        return null;
+      }).when(span).end(endTime);
+
+      finalizer.finish(span, record, endTime);
+      assertThat(ended.await(5, TimeUnit.SECONDS)).isTrue();
+      assertThat(endThread[0]).isNotSameAs(Thread.currentThread());
+      verify(span).setStatus(StatusCode.ERROR, "failed");
+      verify(span).setAttribute(eq(AttributeKey.stringKey("custom.tag")), eq("value"));
+    } finally {
+      finalizer.stop();
+    }
+  }
+
+  @Test
+  public void otherUpdatersRunOnCallerThread() {
+    AsyncSpanFinalizer finalizer = new AsyncSpanFinalizer(16, false);
+    try {
+      Span span = mock(Span.class);
+      Instant endTime = Instant.now();
+      finalizer.finish(span, s -> s.setAttribute("key", "value"), endTime);
+      verify(span).setAttribute("key", "value");
+      verify(span).end(endTime);
+    } finally {
+      finalizer.stop();
+    }
+  }
+
+  @Test
+  public void dropsWorkWhenQueueIsFull() throws Exception {
+    AsyncSpanFinalizer finalizer = new AsyncSpanFinalizer(2, true);
+    CountDownLatch blocking = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    AtomicInteger executed = new AtomicInteger();
+    try {
+      finalizer.execute(() -> {
+        blocking.countDown();
+        try {
+          release.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      });
+      assertThat(blocking.await(5, TimeUnit.SECONDS)).isTrue();
+      for (int i = 0; i < 5; i++) {
+        finalizer.execute(executed::incrementAndGet);
+      }
+      assertThat(finalizer.getQueueDepth()).isEqualTo(2);
+      assertThat(finalizer.getDroppedCount()).isEqualTo(3);
+    } finally {
+      release.countDown();
+      finalizer.stop();
+    }
+    assertThat(executed).hasValue(2);
+    assertThat(finalizer.getQueueDepth()).isZero();
+  }
+
+  @Test
+  public void wakesIdleFinalizerOnSubmit() throws Exception {
+    AsyncSpanFinalizer finalizer = new AsyncSpanFinalizer(16, false);
+    try {
+      CountDownLatch first = new CountDownLatch(1);
+      finalizer.execute(first::countDown);
+      assertThat(first.await(5, TimeUnit.SECONDS)).isTrue();
+      // Let the finalizer thread go idle
+      Thread.sleep(100);
+      CountDownLatch second = new CountDownLatch(1);
+      finalizer.execute(second::countDown);
+      assertThat(second.await(500, TimeUnit.MILLISECONDS)).as("Idle finalizer is unparked").isTrue();
+    } finally {
+      finalizer.stop();
+    }
+  }
+
+  @Test
+  public void endsTransactionSpanAfterPendingSpans() throws Exception {
+    AsyncSpanFinalizer finalizer = new AsyncSpanFinalizer(1024, false);
+    AtomicInteger pending = new AtomicInteger();
+    List<String> ended = Collections.synchronizedList(new ArrayList<>());
+    CountDownLatch rootEnded = new CountDownLatch(1);
+    try {
+      for (int i = 0; i < 100; i++) {
+        Span span = mock(Span.class);
+        String name = "processor-" + i;
+        doAnswer(invocation -> {
+          LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(100));
+          ended.add(name);
+          return null;
+        }).when(span).end(any(Instant.class));
+        finalizer.finish(span, endRecord(), Instant.now(), pending);
+      }
+      Span root = mock(Span.class);
+      doAnswer(invocation -> {
+        ended.add("root");
+        rootEnded.countDown();
+        return null;
+      }).when(root).end(any(Instant.class));
+
+      finalizer.endAfter(root, Instant.now(), pending);
+      assertThat(rootEnded.await(5, TimeUnit.SECONDS)).isTrue();
+      assertThat(ended).hasSize(101).endsWith("root");
+      assertThat(pending).hasValue(0);
+    } finally {
+      finalizer.stop();
+    }
+  }
+
+  @Test
+  public void endsTransactionSpanInlineWithoutPendingSpans() {
+    AsyncSpanFinalizer finalizer = new AsyncSpanFinalizer(16, false);
+    try {
+      Span root = mock(Span.class);
+      Instant endTime = Instant.now();
+      finalizer.endAfter(root, endTime, new AtomicInteger());
+      verify(root).end(endTime);
+    } finally {
+      finalizer.stop();
+    }
+  }
+
+  @Test
+  public void finishesOnCallerWhenQueueIsFull() throws Exception {
+    AsyncSpanFinalizer finalizer = new AsyncSpanFinalizer(2, false);
+    CountDownLatch blocking = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    try {
+      blockFinalizer(finalizer, blocking, release);
+      finalizer.execute(() -> {
+      });
+      finalizer.execute(() -> {
+      });
+      Span span = mock(Span.class);
+      Instant endTime = Instant.now();
+      AtomicInteger pending = new AtomicInteger();
+      finalizer.finish(span, endRecord(), endTime, pending);
+      verify(span).end(endTime);
+      assertThat(pending).hasValue(0);
+      assertThat(finalizer.getDroppedCount()).isZero();
+    } finally {
+      release.countDown();
+      finalizer.stop();
+    }
+  }
+
+  @Test
+  public void endsDroppedSpanWithoutEndState() throws Exception {
+    AsyncSpanFinalizer finalizer = new AsyncSpanFinalizer(2, true);
+    CountDownLatch blocking = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    try {
+      blockFinalizer(finalizer, blocking, release);
+      finalizer.execute(() -> {
+      });
+      finalizer.execute(() -> {
+      });
+      Span span = mock(Span.class);
+      Instant endTime = Instant.now();
+      AtomicInteger pending = new AtomicInteger();
+      TraceComponent traceComponent = TraceComponent.of("test", new HashMap<>()).withStatsCode(StatusCode.ERROR);
+      finalizer.finish(span, SpanEndRecord.of(traceComponent, null), endTime, pending);
+      verify(span).end(endTime);
+      verify(span, never()).setStatus(any(StatusCode.class), any());
+      assertThat(pending).hasValue(0);
+      assertThat(finalizer.getDroppedCount()).isEqualTo(1);
+    } finally {
+      release.countDown();
+      finalizer.stop();
+    }
+  }
+
+  private static SpanEndRecord endRecord() {
+    return SpanEndRecord.of(TraceComponent.of("test", new HashMap<>()), null);
+  }
+
+  private static void blockFinalizer(AsyncSpanFinalizer finalizer, CountDownLatch blocking,
+      CountDownLatch release) throws InterruptedException {
+    finalizer.execute(() -> {
+      blocking.countDown();
+      try {
+        release.await(5, TimeUnit.SECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    });
+    assertThat(blocking.await(5, TimeUnit.SECONDS)).isTrue();
+  }
+
+  @Test
+  public void stopDrainsQueuedWork() {
+    AsyncSpanFinalizer finalizer = new AsyncSpanFinalizer(1024, false);
+    AtomicInteger executed = new AtomicInteger();
+    for (int i = 0; i < 1000; i++) {
+      finalizer.execute(executed::incrementAndGet);
+    }
+    finalizer.stop();
+    assertThat(executed).hasValue(1000);
+    // Work after stop runs on the caller instead of starting a new thread
+    Thread[] thread = new Thread[1];
+    finalizer.execute(() -> {
+      thread[0] = Thread.currentThread();
+      executed.incrementAndGet();
+    });
+    assertThat(executed).hasValue(1001);
+    assertThat(thread[0]).isSameAs(Thread.currentThread());
+  }
+}
@@ -0,0 +1,93 @@
+package com.avioconsulting.mule.opentelemetry.internal.store;
+
+import com.avioconsulting.mule.opentelemetry.api.traces.TraceComponent;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanBuilder;
+import org.junit.Before;
+import org.junit.Test;
+import org.mule.runtime.api.component.ComponentIdentifier;
+import org.mule.runtime.api.component.TypedComponentIdentifier;
+import org.mule.runtime.api.component.location.ComponentLocation;
+
+import java.time.Instant;
+import java.util.HashMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class ContainerSpanTest {
+
+  private static final String FLOW = "test-flow";
+  private static final String ROUTER_LOCATION = "test-flow/processors/0";
+
+  private ContainerSpan containerSpan;
+
+  @Before
+  public void setUp() {
+    containerSpan = new ContainerSpan(FLOW, mock(Span.class), traceComponent(FLOW, "ctx"));
+  }
+
+  private TraceComponent traceComponent(String location, String eventContextId) {
+    return TraceComponent.of(location, new HashMap<>())
+        .withTransactionId("tx-1")
+        .withLocation(location)
+        .withSpanName(location)
+        .withEventContextId(eventContextId)
+        .withStartTime(Instant.now());
+  }
+
+  private Span addSpan(String containerName, TraceComponent traceComponent) {
+    Span span = mock(Span.class);
+    SpanBuilder spanBuilder = mock(SpanBuilder.class);
+    when(spanBuilder.setParent(any())).thenReturn(spanBuilder);
+    when(spanBuilder.startSpan()).thenReturn(span);
+    containerSpan.addProcessorSpan(containerName, traceComponent, spanBuilder);
+    return span;
+  }
+
+  private ComponentLocation routerComponentLocation() {
+    ComponentLocation componentLocation = mock(ComponentLocation.class);
+    when(componentLocation.getComponentIdentifier()).thenReturn(TypedComponentIdentifier.builder()
+        .type(TypedComponentIdentifier.ComponentType.ROUTER)
+        .identifier(ComponentIdentifier.buildFromStringRepresentation("mule:scatter-gather"))
+        .build());
+    return componentLocation;
+  }
+
+  @Test
+  public void endingRouterEndsOnlyItsRoutes() {
+    TraceComponent router = traceComponent(ROUTER_LOCATION, "ctx").withComponentLocation(routerComponentLocation());
+    addSpan(FLOW, router);
+    Span route0 = addSpan(ROUTER_LOCATION, traceComponent(ROUTER_LOCATION + "/route/0", "ctx_11"));
+    Span route1 = addSpan(ROUTER_LOCATION, traceComponent(ROUTER_LOCATION + "/route/1", "ctx_12"));
+    Span other = addSpan(FLOW, traceComponent("test-flow/processors/1", "ctx"));
+
+    Instant endTime = Instant.now();
+    containerSpan.endProcessorSpan(router, null, endTime);
+
+    verify(route0).end(endTime);
+    verify(route1).end(endTime);
+    verify(other, never()).end(any(Instant.class));
+    assertThat(containerSpan.findSpan("ctx_11", ROUTER_LOCATION + "/route/0")).isNull();
+    assertThat(containerSpan.findSpan("ctx_12", ROUTER_LOCATION + "/route/1")).isNull();
+    assertThat(containerSpan.findSpan("ctx", "test-flow/processors/1")).isNotNull();
+  }
+
+  @Test
+  public void routesOfAnotherRouterInstanceAreNotEnded() {
+    TraceComponent router = traceComponent(ROUTER_LOCATION, "ctx_1").withComponentLocation(routerComponentLocation());
+    TraceComponent anotherRouter = traceComponent(ROUTER_LOCATION, "ctx_2")
+        .withComponentLocation(routerComponentLocation());
+    addSpan(FLOW, router);
+    addSpan(FLOW, anotherRouter);
+    Span route = addSpan(ROUTER_LOCATION, traceComponent(ROUTER_LOCATION + "/route/0", "ctx_1_21"));
+    Span anotherRoute = addSpan(ROUTER_LOCATION, traceComponent(ROUTER_LOCATION + "/route/0", "ctx_2_22"));
+
+    Instant endTime = Instant.now();
+    containerSpan.endProcessorSpan(router, null, endTime);
+
+    verify(route).end(endTime);
+    verify(anotherRoute, never()).end(any(Instant.class));
+  }
+}
@@ -0,0 +1,74 @@
+package com.avioconsulting.mule.opentelemetry.internal.store;
+
+import com.avioconsulting.mule.opentelemetry.api.traces.TraceComponent;
+import junitparams.JUnitParamsRunner;
+import junitparams.Parameters;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.HashMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(JUnitParamsRunner.class)
+public class ContextScopedKeyTest {
+
+  private static final String EVENT_CONTEXT_ID = "58660cf1-e735-11ee-bd25-ca89f39a1b64_493033029_784814100_894835844_515059234";
+
+  @Test
+  @Parameters({ "0", "1", "2", "3", "4" })
+  public void keyForLevelMatchesContextScopedPath(int level) {
+    TraceComponent traceComponent = TraceComponent.of("Test", new HashMap<>())
+        .withEventContextId(EVENT_CONTEXT_ID);
+    String path = traceComponent.contextScopedPath("test-location-path", level);
+
+    ContextScopedKey key = ContextScopedKey.of(EVENT_CONTEXT_ID, "test-location-path", level);
+
+    assertThat(key.toString()).isEqualTo(path);
+    assertThat(key).isEqualTo(ContextScopedKey.parse(path))
+        .hasSameHashCodeAs(ContextScopedKey.parse(path));
+  }
+
+  @Test
+  public void trimmedKeyEqualsKeyOfParentContext() {
+    String parentContextId = "58660cf1-e735-11ee-bd25-ca89f39a1b64_493033029";
+    ContextScopedKey parentKey = ContextScopedKey.of(parentContextId, "test-flow/processors/0");
+    ContextScopedKey trimmedKey = ContextScopedKey.of(EVENT_CONTEXT_ID, "test-flow/processors/0", 3);
+
+    assertThat(trimmedKey).isEqualTo(parentKey).hasSameHashCodeAs(parentKey);
+    assertThat(ContextScopedKey.of(EVENT_CONTEXT_ID, "test-flow/processors/0", 2)).isNotEqualTo(parentKey);
+    assertThat(ContextScopedKey.of(parentContextId, "test-flow/processors/1")).isNotEqualTo(parentKey);
+  }
+
+  @Test
+  public void keysCompareLocationIdsWhenKnown() {
+    ContextScopedKey stringKey = ContextScopedKey.of(EVENT_CONTEXT_ID, "test-flow/processors/0");
+    ContextScopedKey idKey = ContextScopedKey.of(EVENT_CONTEXT_ID, "test-flow/processors/0", 7, 0);
+
+    assertThat(idKey).as("Key without id compares location strings")
+        .isEqualTo(stringKey).hasSameHashCodeAs(stringKey);
+    assertThat(ContextScopedKey.of(EVENT_CONTEXT_ID, "test-flow/processors/0", 8, 0)).isNotEqualTo(idKey);
+    assertThat(ContextScopedKey.of(EVENT_CONTEXT_ID, "test-flow/processors/1", 7, 0)).isNotEqualTo(stringKey);
+  }
+
+  @Test
+  public void keyOfTraceComponentUsesItsLocationId() {
+    TraceComponent traceComponent = TraceComponent.of("Test", new HashMap<>())
+        .withEventContextId(EVENT_CONTEXT_ID)
+        .withLocation("test-flow/processors/0")
+        .withLocationId(3);
+
+    assertThat(ContextScopedKey.of(traceComponent))
+        .isEqualTo(ContextScopedKey.of(EVENT_CONTEXT_ID, "test-flow/processors/0", 3, 0))
+        .isNotEqualTo(ContextScopedKey.of(EVENT_CONTEXT_ID, "test-flow/processors/0", 4, 0));
+    assertThat(traceComponent.withLocation("test-flow/processors/1").getLocationId())
+        .as("Changing location resets its id").isEqualTo(TraceComponent.UNKNOWN_LOCATION_ID);
+  }
+
+  @Test
+  public void parseRequiresContextScopedPath() {
+    assertThat(ContextScopedKey.parse("no-context-path")).isNull();
+    assertThat(ContextScopedKey.parse(null)).isNull();
+    assertThat(ContextScopedKey.parse("ctx/flow/processors/0").getLocation()).isEqualTo("flow/processors/0");
+  }
+}
@@ -13,9 +13,14 @@ import com.avioconsulting.mule.opentelemetry.internal.config.OpenTelemetryExtens
 import com.avioconsulting.mule.opentelemetry.internal.connection.OpenTelemetryConnection;
 import com.avioconsulting.mule.opentelemetry.internal.processor.FlowProcessorComponent;
 import io.opentelemetry.api.GlobalOpenTelemetry;
+import io.opentelemetry.api.trace.Span;
 import io.opentelemetry.api.trace.SpanBuilder;
+import io.opentelemetry.api.trace.SpanContext;
 import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.TraceFlags;
+import io.opentelemetry.api.trace.TraceState;
 import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Context;
 import org.assertj.core.api.Assertions;
 import org.assertj.core.api.InstanceOfAssertFactories;
 import org.junit.Before;
@@ -69,6 +74,25 @@ public class InMemoryTransactionStoreTest {
         tracer.spanBuilder(TEST_1_FLOW_FLOW_REF).setSpanKind(SpanKind.INTERNAL));
   }
 
+  @Test
+  public void isRecording_falseForUnsampledTransaction() {
+    SpanContext unsampledParent = SpanContext.createFromRemoteParent("0af7651916cd43dd8448eb211c80319c",
+        "b7ad6b7169203331", TraceFlags.getDefault(), TraceState.getDefault());
+    SpanBuilder spanBuilder = tracer.spanBuilder("unsampled-transaction")
+        .setParent(Context.root().with(Span.wrap(unsampledParent)))
+        .setSpanKind(SpanKind.SERVER);
+    TraceComponent traceComponent = TraceComponent.of("test-2", new HashMap<>())
+        .withTransactionId("test-2")
+        .withSpanName("GET /api/*")
+        .withStartTime(Instant.now())
+        .withLocation(TEST_1_FLOW)
+        .withEventContextId("test-2-context-id");
+    connection.getTransactionStore().startTransaction(traceComponent, TEST_1_FLOW, spanBuilder);
+
+    assertThat(connection.getTransactionStore().isRecording("test-2")).isFalse();
+    assertThat(connection.getTransactionStore().isRecording("unknown-transaction")).isTrue();
+  }
+
   @Test
   public void endTransaction_return_new_tags_in_meta() {
     TraceComponent endTraceComponent = TraceComponent.of(TEST_1_FLOW, new HashMap<>()).withTransactionId("test-1")
@@ -0,0 +1,147 @@
+package com.avioconsulting.mule.opentelemetry.internal.store;
+
+import com.avioconsulting.mule.opentelemetry.api.sdk.SemanticAttributes;
+import com.avioconsulting.mule.opentelemetry.api.store.TransactionStore;
+import com.avioconsulting.mule.opentelemetry.api.traces.TraceComponent;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanBuilder;
+import io.opentelemetry.api.trace.SpanContext;
+import io.opentelemetry.api.trace.StatusCode;
+import org.junit.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+public class ShardedTransactionStoreTest {
+
+  private TraceComponent traceComponent(String transactionId) {
+    return TraceComponent.of("test-flow", new HashMap<>())
+        .withTransactionId(transactionId)
+        .withSpanName("test-flow")
+        .withLocation("test-flow")
+        .withStartTime(Instant.now())
+        .withEventContextId(transactionId + "-context-id");
+  }
+
+  private Span startTransaction(ShardedTransactionStore store, String transactionId) {
+    Span span = mock(Span.class);
+    when(span.getSpanContext()).thenReturn(SpanContext.getInvalid());
+    SpanBuilder spanBuilder = mock(SpanBuilder.class);
+    when(spanBuilder.startSpan()).thenReturn(span);
+    store.startTransaction(traceComponent(transactionId), "test-flow", spanBuilder);
+    return span;
+  }
+
+  @Test
+  public void evictsLeastRecentlyAccessedWhenFull() throws InterruptedException {
+    ShardedTransactionStore store = new ShardedTransactionStore(mock(TransactionProcessor.class), 1, 2, 0,
+        false);
+    Span first = startTransaction(store, "tx-1");
+    Thread.sleep(5);
+    Span second = startTransaction(store, "tx-2");
+    Thread.sleep(5);
+    store.getTransactionContext("tx-1", null);
+    Span third = startTransaction(store, "tx-3");
+
+    assertThat(store.size()).isEqualTo(2);
+    assertThat(store.getCapacityEvictionCount()).isEqualTo(1);
+    assertThat(store.getTraceIdForTransaction("tx-2")).isNull();
+    assertThat(store.getTraceIdForTransaction("tx-1")).isNotNull();
+    verify(second).setStatus(StatusCode.ERROR, ShardedTransactionStore.EVICTED_STATUS_DESCRIPTION);
+    verify(second).setAttribute(SemanticAttributes.MULE_APP_TRANSACTION_EVICTED,
+        ShardedTransactionStore.EVICTION_REASON_CAPACITY);
+    verify(second).end();
+    verify(first, never()).end();
+    verify(third, never()).end();
+  }
+
+  @Test
+  public void evictsIdleTransactions() {
+    ShardedTransactionStore store = new ShardedTransactionStore(mock(TransactionProcessor.class), 4, 100, 1000,
+        false);
+    Span span = startTransaction(store, "tx-1");
+
+    store.evictIdle(System.currentTimeMillis());
+    assertThat(store.size()).isEqualTo(1);
+
+    store.evictIdle(System.currentTimeMillis() + 2000);
+    assertThat(store.size()).isZero();
+    assertThat(store.getIdleEvictionCount()).isEqualTo(1);
+    verify(span).setStatus(StatusCode.ERROR, ShardedTransactionStore.EVICTED_STATUS_DESCRIPTION);
+    verify(span).end();
+  }
+
+  @Test
+  public void evictionEndsOpenProcessorSpans() {
+    ShardedTransactionStore store = new ShardedTransactionStore(mock(TransactionProcessor.class), 4, 100, 1000,
+        false);
+    Span rootSpan = startTransaction(store, "tx-1");
+    Span processorSpan = mock(Span.class);
+    when(processorSpan.getSpanContext()).thenReturn(SpanContext.getInvalid());
+    SpanBuilder spanBuilder = mock(SpanBuilder.class);
+    when(spanBuilder.startSpan()).thenReturn(processorSpan);
+    store.addProcessorSpan("test-flow", traceComponent("tx-1").withLocation("test-flow/processors/0"),
+        spanBuilder);
+
+    store.evictIdle(System.currentTimeMillis() + 2000);
+    verify(processorSpan).setStatus(StatusCode.ERROR, ShardedTransactionStore.EVICTED_STATUS_DESCRIPTION);
+    verify(processorSpan).end();
+    verify(rootSpan).end();
+  }
+
+  @Test
+  public void concurrentPutsDoNotExceedCapacity() throws Exception {
+    ShardedTransactionStore store = new ShardedTransactionStore(mock(TransactionProcessor.class), 1, 10, 0,
+        false);
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < 4; t++) {
+        int thread = t;
+        futures.add(executor.submit(() -> {
+          for (int i = 0; i < 250; i++) {
+            startTransaction(store, "tx-" + thread + "-" + i);
+            assertThat(store.size()).isLessThanOrEqualTo(10);
+          }
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get(10, TimeUnit.SECONDS);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+    assertThat(store.size()).isEqualTo(10);
+    assertThat(store.getCapacityEvictionCount()).isEqualTo(990);
+  }
+
+  @Test
+  public void stopInstanceReleasesStore() {
+    TransactionStore instance = ShardedTransactionStore.getInstance(mock(TransactionProcessor.class));
+    ShardedTransactionStore.stopInstance();
+    assertThat(ShardedTransactionStore.getInstance(mock(TransactionProcessor.class))).isNotSameAs(instance);
+    ShardedTransactionStore.stopInstance();
+  }
+
+  @Test
+  public void endedTransactionIsRemoved() {
+    ShardedTransactionStore store = new ShardedTransactionStore(mock(TransactionProcessor.class), 4, 100, 1000,
+        false);
+    Span span = startTransaction(store, "tx-1");
+    store.endTransaction(traceComponent("tx-1").withEndTime(Instant.now()), null);
+
+    assertThat(store.size()).isZero();
+    store.evictIdle(System.currentTimeMillis() + 2000);
+    assertThat(store.getIdleEvictionCount()).isZero();
+    verify(span, never()).setStatus(StatusCode.ERROR, ShardedTransactionStore.EVICTED_STATUS_DESCRIPTION);
+  }
+}
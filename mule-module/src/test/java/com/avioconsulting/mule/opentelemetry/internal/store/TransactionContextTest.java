@@ -3,10 +3,14 @@ package com.avioconsulting.mule.opentelemetry.internal.store;
 import com.avioconsulting.mule.opentelemetry.api.traces.TransactionContext;
 import io.opentelemetry.api.trace.Span;
 import io.opentelemetry.api.trace.SpanContext;
+import io.opentelemetry.api.trace.TraceFlags;
+import io.opentelemetry.api.trace.TraceState;
 import io.opentelemetry.context.Context;
 import org.assertj.core.api.Assertions;
 import org.junit.Test;
 
+import java.time.Instant;
+
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
@@ -65,4 +69,20 @@ public class TransactionContextTest {
         .containsEntry("spanId", "53f9aa133a283c1a");
   }
 
-}
\ No newline at end of file
+  @Test
+  public void processorSpanReusesTransactionContext() {
+    Span span = Span.wrap(SpanContext.create("fbc14552c62fbabc6a4bc6817cd983ce", "53f9aa133a283c1a",
+        TraceFlags.getSampled(), TraceState.getDefault()));
+    String transactionId = "3eea0368-f4f9-4b31-88b3-fd08365fa1ba";
+    ProcessorSpan processorSpan = new ProcessorSpan(span, "test-flow/processors/0", transactionId, Instant.now(),
+        "test-flow");
+
+    TransactionContext transactionContext = processorSpan.getTransactionContext();
+    assertThat(processorSpan.getTransactionContext()).isSameAs(transactionContext);
+    assertThat(transactionContext.getContext()).isSameAs(processorSpan.getContext());
+    assertThat(transactionContext.getTraceContextMap())
+        .containsEntry("TRACE_TRANSACTION_ID", transactionId)
+        .containsEntry("spanId", "53f9aa133a283c1a");
+  }
+
+}
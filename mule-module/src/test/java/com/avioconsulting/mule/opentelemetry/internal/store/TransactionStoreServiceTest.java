@@ -0,0 +1,73 @@
+package com.avioconsulting.mule.opentelemetry.internal.store;
+
+import com.avioconsulting.mule.opentelemetry.api.store.TransactionStore;
+import com.avioconsulting.mule.opentelemetry.api.store.TransactionStoreContext;
+import com.avioconsulting.mule.opentelemetry.api.store.TransactionStoreProvider;
+import org.junit.After;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+public class TransactionStoreServiceTest {
+
+  @After
+  public void tearDown() {
+    System.clearProperty(TransactionStoreService.MULE_OTEL_TRANSACTION_STORE);
+    TransactionStoreService._resetForTesting();
+  }
+
+  @Test
+  public void loadsShippedProviders() {
+    assertThat(TransactionStoreService.getInstance().getProviders())
+        .extracting(TransactionStoreProvider::getName)
+        .contains(InMemoryTransactionStoreProvider.NAME, ShardedTransactionStoreProvider.NAME);
+  }
+
+  @Test
+  public void defaultsToInMemoryStore() {
+    assertThat(TransactionStoreService.getInstance().getTransactionStore(mock(TransactionProcessor.class)))
+        .isInstanceOf(InMemoryTransactionStore.class);
+  }
+
+  @Test
+  public void selectsConfiguredStore() {
+    System.setProperty(TransactionStoreService.MULE_OTEL_TRANSACTION_STORE, ShardedTransactionStoreProvider.NAME);
+    assertThat(TransactionStoreService.getInstance().getTransactionStore(mock(TransactionProcessor.class)))
+        .isInstanceOf(ShardedTransactionStore.class);
+  }
+
+  @Test
+  public void fallsBackToInMemoryForUnknownStore() {
+    System.setProperty(TransactionStoreService.MULE_OTEL_TRANSACTION_STORE, "unknown");
+    assertThat(TransactionStoreService.getInstance().getTransactionStore(mock(TransactionProcessor.class)))
+        .isInstanceOf(InMemoryTransactionStore.class);
+  }
+
+  @Test
+  public void selectsApplicationProvidedStore() {
+    System.setProperty(TransactionStoreService.MULE_OTEL_TRANSACTION_STORE, TestTransactionStoreProvider.NAME);
+    TransactionProcessor transactionProcessor = mock(TransactionProcessor.class);
+    TransactionStore store = TransactionStoreService.getInstance().getTransactionStore(transactionProcessor);
+    assertThat(store).isSameAs(TestTransactionStoreProvider.STORE);
+    assertThat(TestTransactionStoreProvider.context).isSameAs(transactionProcessor);
+  }
+
+  public static class TestTransactionStoreProvider implements TransactionStoreProvider {
+
+    static final String NAME = "test";
+    static final TransactionStore STORE = mock(TransactionStore.class);
+    static TransactionStoreContext context;
+
+    @Override
+    public String getName() {
+      return NAME;
+    }
+
+    @Override
+    public TransactionStore getTransactionStore(TransactionStoreContext context) {
+      TestTransactionStoreProvider.context = context;
+      return STORE;
+    }
+  }
+}
@@ -0,0 +1,114 @@
+package com.avioconsulting.mule.opentelemetry.internal.util;
+
+import com.avioconsulting.mule.opentelemetry.api.traces.TraceMDCAdapter;
+import org.junit.Test;
+import org.slf4j.MDC;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static com.avioconsulting.mule.opentelemetry.api.store.TransactionStore.spanId;
+import static com.avioconsulting.mule.opentelemetry.api.store.TransactionStore.traceId;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assume.assumeTrue;
+
+public class MDCUtilTest {
+
+  private static Map<String, Object> context(String trace, String span) {
+    Map<String, Object> context = new HashMap<>();
+    context.put(traceId, trace);
+    context.put(spanId, span);
+    return context;
+  }
+
+  @Test
+  public void skipsWritesForSameSpanOnThread() {
+    RecordingAdapter adapter = new RecordingAdapter();
+    Map<String, Object> context = context("0af7651916cd43dd8448eb211c80319c", "b7ad6b7169203331");
+
+    MDCUtil.replaceMDCOtelEntries(context, adapter);
+    MDCUtil.replaceMDCOtelEntries(context, adapter);
+    assertThat(adapter.writes).isEqualTo(1);
+    assertThat(adapter.traceId).isEqualTo("0af7651916cd43dd8448eb211c80319c");
+    assertThat(adapter.spanId).isEqualTo("b7ad6b7169203331");
+
+    MDCUtil.replaceMDCOtelEntries(context("0af7651916cd43dd8448eb211c80319c", "53f9aa133a283c1a"), adapter);
+    assertThat(adapter.writes).isEqualTo(2);
+    assertThat(adapter.spanId).isEqualTo("53f9aa133a283c1a");
+  }
+
+  @Test
+  public void rewritesWhenTraceChangesOnThread() {
+    RecordingAdapter adapter = new RecordingAdapter();
+
+    MDCUtil.replaceMDCOtelEntries(context("fbc14552c62fbabc6a4bc6817cd983ce", "c5a9b0e3d1f24a6b"), adapter);
+    MDCUtil.replaceMDCOtelEntries(context("4bf92f3577b34da6a3ce929d0e0e4736", "c5a9b0e3d1f24a6b"), adapter);
+    assertThat(adapter.writes).isEqualTo(2);
+    assertThat(adapter.traceId).isEqualTo("4bf92f3577b34da6a3ce929d0e0e4736");
+  }
+
+  @Test
+  public void rewritesWhenMDCWasClearedElsewhere() {
+    RecordingAdapter adapter = new RecordingAdapter();
+    Map<String, Object> context = context("fbc14552c62fbabc6a4bc6817cd983ce", "c5a9b0e3d1f24a6b");
+
+    MDCUtil.replaceMDCOtelEntries(context, adapter);
+    adapter.spanId = null;
+    MDCUtil.replaceMDCOtelEntries(context, adapter);
+    assertThat(adapter.writes).isEqualTo(2);
+    assertThat(adapter.spanId).isEqualTo("c5a9b0e3d1f24a6b");
+  }
+
+  @Test
+  public void restoresEntriesAfterMDCClear() {
+    MDC.put("probe", "value");
+    assumeTrue("MDC is supported by the logging binding", "value".equals(MDC.get("probe")));
+    try {
+      Slf4jTraceMDCAdapter adapter = new Slf4jTraceMDCAdapter();
+      Map<String, Object> context = context("5b8aa5a2d2c872e8321cf37308d69df2", "051581bf3cb55c13");
+
+      MDCUtil.replaceMDCOtelEntries(context, adapter);
+      assertThat(MDC.get(MDCUtil.SPAN_ID)).isEqualTo("051581bf3cb55c13");
+      MDC.clear();
+      MDCUtil.replaceMDCOtelEntries(context, adapter);
+      assertThat(MDC.get(MDCUtil.TRACE_ID)).isEqualTo("5b8aa5a2d2c872e8321cf37308d69df2");
+      assertThat(MDC.get(MDCUtil.SPAN_ID)).isEqualTo("051581bf3cb55c13");
+    } finally {
+      MDC.clear();
+    }
+  }
+
+  @Test
+  public void ignoresContextWithoutIds() {
+    RecordingAdapter adapter = new RecordingAdapter();
+    MDCUtil.replaceMDCOtelEntries(new HashMap<>(), adapter);
+    MDCUtil.replaceMDCOtelEntries(null, adapter);
+    Map<String, Object> context = new HashMap<>();
+    context.put("traceparent", "00-fbc14552c62fbabc6a4bc6817cd983ce-c5a9b0e3d1f24a6b-01");
+    MDCUtil.replaceMDCOtelEntries(context, adapter);
+    assertThat(adapter.writes).isZero();
+  }
+
+  private static class RecordingAdapter implements TraceMDCAdapter {
+    private int writes;
+    private String traceId;
+    private String spanId;
+
+    @Override
+    public String getName() {
+      return "recording";
+    }
+
+    @Override
+    public void put(String traceId, String spanId) {
+      writes++;
+      this.traceId = traceId;
+      this.spanId = spanId;
+    }
+
+    @Override
+    public String getSpanId() {
+      return spanId;
+    }
+  }
+}
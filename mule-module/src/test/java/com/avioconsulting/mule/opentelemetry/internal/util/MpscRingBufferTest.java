@@ -0,0 +1,72 @@
+package com.avioconsulting.mule.opentelemetry.internal.util;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MpscRingBufferTest {
+
+  @Test
+  public void roundsCapacityToPowerOfTwo() {
+    assertThat(new MpscRingBuffer<>(100).capacity()).isEqualTo(128);
+    assertThat(new MpscRingBuffer<>(0).capacity()).isEqualTo(2);
+  }
+
+  @Test
+  public void offerFailsWhenFull() {
+    MpscRingBuffer<Integer> buffer = new MpscRingBuffer<>(4);
+    for (int i = 0; i < 4; i++) {
+      assertThat(buffer.offer(i)).isTrue();
+    }
+    assertThat(buffer.offer(4)).isFalse();
+    assertThat(buffer.size()).isEqualTo(4);
+    assertThat(buffer.poll()).isEqualTo(0);
+    assertThat(buffer.offer(4)).isTrue();
+    for (int i = 1; i <= 4; i++) {
+      assertThat(buffer.poll()).isEqualTo(i);
+    }
+    assertThat(buffer.poll()).isNull();
+    assertThat(buffer.size()).isZero();
+  }
+
+  @Test
+  public void concurrentProducersDeliverAllElements() throws Exception {
+    MpscRingBuffer<Integer> buffer = new MpscRingBuffer<>(64);
+    int producers = 4;
+    int perProducer = 10000;
+    ExecutorService executor = Executors.newFixedThreadPool(producers);
+    CountDownLatch done = new CountDownLatch(producers);
+    try {
+      for (int p = 0; p < producers; p++) {
+        int offset = p * perProducer;
+        executor.submit(() -> {
+          for (int i = 0; i < perProducer; i++) {
+            while (!buffer.offer(offset + i)) {
+              Thread.yield();
+            }
+          }
+          done.countDown();
+        });
+      }
+      Set<Integer> received = new HashSet<>();
+      long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+      while (received.size() < producers * perProducer && System.nanoTime() < deadline) {
+        Integer element = buffer.poll();
+        if (element != null) {
+          received.add(element);
+        }
+      }
+      assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+      assertThat(received).hasSize(producers * perProducer);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+}
@@ -0,0 +1,50 @@
+package com.avioconsulting.mule.opentelemetry.internal.util;
+
+import com.avioconsulting.mule.opentelemetry.api.traces.TraceComponent;
+import com.avioconsulting.mule.opentelemetry.internal.processor.ComponentWrapper;
+import org.junit.Test;
+import org.mule.runtime.api.event.Event;
+import org.mule.runtime.core.api.el.ExpressionManager;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+public class OpenTelemetryUtilTest {
+
+  private TraceComponent traceComponent() {
+    Map<String, String> tags = new HashMap<>();
+    tags.put("mule.app.processor.name", "request");
+    return TraceComponent.of("request", tags).withSpanName("request:Call");
+  }
+
+  @Test
+  public void resolveExpressionsSkipsComponentsWithoutExpressions() {
+    ExpressionManager expressionManager = mock(ExpressionManager.class);
+    ComponentWrapper componentWrapper = mock(ComponentWrapper.class);
+    when(componentWrapper.hasExpressions()).thenReturn(false);
+    TraceComponent traceComponent = traceComponent();
+
+    OpenTelemetryUtil.resolveExpressions(traceComponent, expressionManager, mock(Event.class), componentWrapper);
+
+    verifyNoMoreInteractions(expressionManager);
+    assertThat(traceComponent.getSpanName()).isEqualTo("request:Call");
+  }
+
+  @Test
+  public void resolveExpressionsScansComponentsWithExpressions() {
+    ExpressionManager expressionManager = mock(ExpressionManager.class);
+    ComponentWrapper componentWrapper = mock(ComponentWrapper.class);
+    when(componentWrapper.hasExpressions()).thenReturn(true);
+
+    OpenTelemetryUtil.resolveExpressions(traceComponent(), expressionManager, mock(Event.class), componentWrapper);
+
+    verify(expressionManager).isExpression("request:Call");
+    verify(expressionManager).isExpression("request");
+  }
+}
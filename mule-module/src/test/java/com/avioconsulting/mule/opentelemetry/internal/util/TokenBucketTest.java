@@ -0,0 +1,69 @@
+package com.avioconsulting.mule.opentelemetry.internal.util;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TokenBucketTest {
+
+  private final AtomicLong clock = new AtomicLong();
+
+  @Test
+  public void allowsBurstUpToCapacity() {
+    TokenBucket bucket = new TokenBucket(1, 3, clock::get);
+    assertThat(bucket.tryAcquire()).isTrue();
+    assertThat(bucket.tryAcquire()).isTrue();
+    assertThat(bucket.tryAcquire()).isTrue();
+    assertThat(bucket.tryAcquire()).isFalse();
+  }
+
+  @Test
+  public void refillsAtRate() {
+    TokenBucket bucket = new TokenBucket(2, 2, clock::get);
+    bucket.tryAcquire();
+    bucket.tryAcquire();
+    assertThat(bucket.tryAcquire()).isFalse();
+    clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(500));
+    assertThat(bucket.tryAcquire()).isTrue();
+    assertThat(bucket.tryAcquire()).isFalse();
+    // Refill does not go beyond capacity
+    clock.addAndGet(TimeUnit.SECONDS.toNanos(10));
+    assertThat(bucket.tryAcquire()).isTrue();
+    assertThat(bucket.tryAcquire()).isTrue();
+    assertThat(bucket.tryAcquire()).isFalse();
+  }
+
+  @Test
+  public void releaseReturnsPermitUpToCapacity() {
+    TokenBucket bucket = new TokenBucket(0, 1, clock::get);
+    assertThat(bucket.tryAcquire()).isTrue();
+    bucket.release();
+    bucket.release();
+    assertThat(bucket.tryAcquire()).isTrue();
+    assertThat(bucket.tryAcquire()).isFalse();
+  }
+
+  @Test
+  public void zeroRateNeverGivesPermits() {
+    TokenBucket bucket = new TokenBucket(0, 0, clock::get);
+    clock.addAndGet(TimeUnit.SECONDS.toNanos(10));
+    assertThat(bucket.tryAcquire()).isFalse();
+  }
+
+  @Test
+  public void setRateChangesRefill() {
+    TokenBucket bucket = new TokenBucket(1, 1, clock::get);
+    bucket.tryAcquire();
+    bucket.setRate(10, 10);
+    assertThat(bucket.getRatePerSecond()).isEqualTo(10);
+    clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(500));
+    int permits = 0;
+    while (bucket.tryAcquire()) {
+      permits++;
+    }
+    assertThat(permits).isEqualTo(5);
+  }
+}
@@ -0,0 +1,158 @@
+package com.avioconsulting.mule.opentelemetry.internal.util.memoizers;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class BoundedCacheTest {
+
+  @Test
+  public void evictsBeyondMaximumSize() {
+    BoundedCache<Integer, String> cache = new BoundedCache<>("test", 100, 0, false);
+    for (int i = 0; i < 1000; i++) {
+      assertThat(cache.get(i, String::valueOf)).isEqualTo(String.valueOf(i));
+    }
+    assertThat(cache.size()).isLessThanOrEqualTo(100);
+    assertThat(cache.getMissCount()).isEqualTo(1000);
+    assertThat(cache.getEvictionCount()).isEqualTo(1000 - cache.size());
+  }
+
+  @Test
+  public void frequentlyUsedEntriesSurviveOneTimeKeys() {
+    BoundedCache<Integer, String> cache = new BoundedCache<>("test", 16, 0, false);
+    Function<Integer, String> loader = String::valueOf;
+    cache.get(-1, loader);
+    cache.get(-1, loader); // promoted to protected segment
+    for (int i = 0; i < 1000; i++) {
+      cache.get(i, loader);
+    }
+    long misses = cache.getMissCount();
+    cache.get(-1, loader);
+    assertThat(cache.getMissCount()).isEqualTo(misses);
+    assertThat(cache.getHitCount()).isEqualTo(2);
+  }
+
+  @Test
+  public void expiresAfterAccess() throws InterruptedException {
+    BoundedCache<String, String> cache = new BoundedCache<>("test", 10, 10, false);
+    cache.get("key", k -> "value");
+    Thread.sleep(30);
+    AtomicInteger loads = new AtomicInteger();
+    assertThat(cache.get("key", k -> "value-" + loads.incrementAndGet())).isEqualTo("value-1");
+    assertThat(cache.getEvictionCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void nullValues() {
+    BoundedCache<String, String> withNulls = new BoundedCache<>("test", 10, 0, true);
+    BoundedCache<String, String> withoutNulls = new BoundedCache<>("test", 10, 0, false);
+    AtomicInteger loads = new AtomicInteger();
+    Function<String, String> loader = k -> {
+      loads.incrementAndGet();
+      return null;
+    };
+    withNulls.get("key", loader);
+    withNulls.get("key", loader);
+    assertThat(loads).hasValue(1);
+    withoutNulls.get("key", loader);
+    withoutNulls.get("key", loader);
+    assertThat(loads).hasValue(3);
+  }
+
+  @Test
+  public void loadFailuresAreNotCached() {
+    BoundedCache<String, String> cache = new BoundedCache<>("test", 10, 0, false);
+    assertThatThrownBy(() -> cache.get("key", k -> {
+      throw new IllegalStateException("failed");
+    })).isInstanceOf(IllegalStateException.class);
+    assertThat(cache.getLoadFailureCount()).isEqualTo(1);
+    assertThat(cache.get("key", k -> "value")).isEqualTo("value");
+  }
+
+  @Test
+  public void concurrentLoadsOfSameKeyLoadOnce() throws Exception {
+    BoundedCache<String, String> cache = new BoundedCache<>("test", 10, 0, false);
+    AtomicInteger loads = new AtomicInteger();
+    CountDownLatch loading = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      Future<String> first = executor.submit(() -> cache.get("key", k -> {
+        loads.incrementAndGet();
+        loading.countDown();
+        try {
+          release.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        return "value";
+      }));
+      loading.await(5, TimeUnit.SECONDS);
+      // Other keys are not blocked by the in-flight load
+      assertThat(cache.get("other", k -> "other-value")).isEqualTo("other-value");
+      Future<String> second = executor.submit(() -> cache.get("key", k -> "value-" + loads.incrementAndGet()));
+      release.countDown();
+      assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo("value");
+      assertThat(second.get(5, TimeUnit.SECONDS)).isEqualTo("value");
+      assertThat(loads).hasValue(1);
+      // Waiting for the in-flight load is not a miss
+      assertThat(cache.getMissCount()).isEqualTo(2);
+      assertThat(cache.getHitCount()).isEqualTo(1);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void loadsWithArgumentOnlyOnMiss() {
+    BoundedCache<String, String> cache = new BoundedCache<>("test", 10, 0, false);
+    assertThat(cache.get("key", "first", (k, arg) -> k + "-" + arg)).isEqualTo("key-first");
+    assertThat(cache.get("key", "second", (k, arg) -> k + "-" + arg)).isEqualTo("key-first");
+    assertThat(cache.getHitCount()).isEqualTo(1);
+    assertThat(cache.getMissCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void memoizersWithSameNameAreAllRegistered() {
+    BoundedBiFunctionMemoizer<String, Integer, String> first = BoundedBiFunctionMemoizer.memoize("test.same",
+        (k, i) -> k + i);
+    BoundedBiFunctionMemoizer<String, Integer, String> second = BoundedBiFunctionMemoizer.memoize("test.same",
+        (k, i) -> k + i);
+    first.apply("a", 1);
+    second.apply("b", 2);
+    assertThat(MemoizerMetrics.getCaches()).contains(first.getCache(), second.getCache());
+  }
+
+  @Test
+  public void memoizersAreRegisteredForMetrics() {
+    BoundedFunctionMemoizer<String, Integer> memoizer = BoundedFunctionMemoizer.memoize("test.length",
+        String::length);
+    assertThat(memoizer.apply("abc")).isEqualTo(3);
+    assertThat(MemoizerMetrics.getCaches()).contains(memoizer.getCache());
+  }
+
+  @Test
+  public void totalsKeepCountsOfCollectedCaches() throws InterruptedException {
+    BoundedFunctionMemoizer<String, Integer> memoizer = BoundedFunctionMemoizer.memoize("test.collected",
+        String::length);
+    memoizer.apply("abc");
+    memoizer.apply("abc");
+    memoizer = null;
+    for (int i = 0; i < 50 && MemoizerMetrics.getCaches().stream()
+        .anyMatch(cache -> "test.collected".equals(cache.getName())); i++) {
+      System.gc();
+      Thread.sleep(20);
+    }
+    assertThat(MemoizerMetrics.getTotals(CacheStats::getHitCount)).containsEntry("test.collected", 1L);
+    assertThat(MemoizerMetrics.getTotals(CacheStats::getMissCount)).containsEntry("test.collected", 1L);
+  }
+}
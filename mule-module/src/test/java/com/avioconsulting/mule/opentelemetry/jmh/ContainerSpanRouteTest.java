@@ -0,0 +1,78 @@
+package com.avioconsulting.mule.opentelemetry.jmh;
+
+import com.avioconsulting.mule.opentelemetry.api.traces.TraceComponent;
+import com.avioconsulting.mule.opentelemetry.internal.store.ContainerSpan;
+import io.opentelemetry.api.GlobalOpenTelemetry;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.Tracer;
+import org.mule.runtime.api.component.ComponentIdentifier;
+import org.mule.runtime.api.component.TypedComponentIdentifier;
+import org.mule.runtime.api.component.location.ComponentLocation;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Ending a router should only touch its own routes. Throughput of
+ * {@link #endRouter(Blackhole)} must stay flat as the number of active spans in
+ * the container grows.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class ContainerSpanRouteTest extends AbstractJMHTest {
+
+  private static final String FLOW = "test-flow";
+  private static final String ROUTER_LOCATION = "test-flow/processors/0";
+
+  @Param({ "10", "1000", "10000" })
+  public int activeSpans;
+
+  private ContainerSpan containerSpan;
+  private Tracer tracer;
+  private TraceComponent router;
+  private TraceComponent route0;
+  private TraceComponent route1;
+
+  private TraceComponent traceComponent(String location, String eventContextId) {
+    return TraceComponent.of(location, new HashMap<>())
+        .withTransactionId("test-1")
+        .withLocation(location)
+        .withSpanName(location)
+        .withEventContextId(eventContextId)
+        .withStartTime(Instant.now());
+  }
+
+  @Setup
+  public void setup() {
+    tracer = GlobalOpenTelemetry.get().getTracer("test", "v1");
+    containerSpan = new ContainerSpan(FLOW, tracer.spanBuilder(FLOW).setSpanKind(SpanKind.SERVER).startSpan(),
+        traceComponent(FLOW, "ctx"));
+    for (int i = 0; i < activeSpans; i++) {
+      containerSpan.addProcessorSpan(FLOW, traceComponent("test-flow/processors/1/processors/0", "ctx_" + i),
+          tracer.spanBuilder("active"));
+    }
+    ComponentLocation routerLocation = mock(ComponentLocation.class);
+    when(routerLocation.getComponentIdentifier()).thenReturn(TypedComponentIdentifier.builder()
+        .type(TypedComponentIdentifier.ComponentType.ROUTER)
+        .identifier(ComponentIdentifier.buildFromStringRepresentation("mule:scatter-gather"))
+        .build());
+    router = traceComponent(ROUTER_LOCATION, "ctx").withComponentLocation(routerLocation);
+    route0 = traceComponent(ROUTER_LOCATION + "/route/0", "ctx_100001");
+    route1 = traceComponent(ROUTER_LOCATION + "/route/1", "ctx_100002");
+  }
+
+  @Benchmark
+  public void endRouter(Blackhole blackhole) {
+    containerSpan.addProcessorSpan(FLOW, router, tracer.spanBuilder(ROUTER_LOCATION));
+    containerSpan.addProcessorSpan(ROUTER_LOCATION, route0, tracer.spanBuilder(ROUTER_LOCATION + "/route/0"));
+    containerSpan.addProcessorSpan(ROUTER_LOCATION, route1, tracer.spanBuilder(ROUTER_LOCATION + "/route/1"));
+    blackhole.consume(containerSpan.endProcessorSpan(router, null, Instant.now()));
+  }
+}
@@ -6,6 +6,7 @@ import com.avioconsulting.mule.opentelemetry.api.config.SpanProcessorConfigurati
 import com.avioconsulting.mule.opentelemetry.api.config.TraceLevelConfiguration;
 import com.avioconsulting.mule.opentelemetry.api.config.exporter.LoggingExporter;
 import com.avioconsulting.mule.opentelemetry.api.config.exporter.OpenTelemetryExporter;
+import com.avioconsulting.mule.opentelemetry.api.store.TransactionStore;
 import com.avioconsulting.mule.opentelemetry.internal.config.OpenTelemetryConfigWrapper;
 import com.avioconsulting.mule.opentelemetry.internal.config.OpenTelemetryExtensionConfiguration;
 import com.avioconsulting.mule.opentelemetry.internal.connection.OpenTelemetryConnection;
@@ -13,6 +14,8 @@ import com.avioconsulting.mule.opentelemetry.internal.interceptor.ProcessorTraci
 import com.avioconsulting.mule.opentelemetry.internal.processor.MuleNotificationProcessor;
 import com.avioconsulting.mule.opentelemetry.api.traces.TraceComponent;
 import com.avioconsulting.mule.opentelemetry.internal.processor.service.ComponentRegistryService;
+import com.avioconsulting.mule.opentelemetry.internal.util.ComponentsUtil;
+import com.avioconsulting.mule.opentelemetry.internal.util.MDCUtil;
 import io.opentelemetry.api.GlobalOpenTelemetry;
 import io.opentelemetry.api.trace.SpanBuilder;
 import io.opentelemetry.api.trace.SpanKind;
@@ -25,9 +28,13 @@ import org.openjdk.jmh.infra.Blackhole;
 import java.time.Instant;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 @BenchmarkMode(Mode.Throughput)
 @OutputTimeUnit(TimeUnit.MILLISECONDS)
@@ -42,6 +49,8 @@ public class ProcessorTracingInterceptorTest extends AbstractJMHTest {
   OpenTelemetryConnection connection;
   ProcessorTracingInterceptor interceptor;
   InterceptionEvent event;
+  Map<String, Object> traceContext;
+  Map<String, Object> otherTraceContext;
 
   @Setup
   public void setup() {
@@ -68,11 +77,19 @@ public class ProcessorTracingInterceptorTest extends AbstractJMHTest {
     connection.getTransactionStore().addProcessorSpan(TEST_1_FLOW, traceComponent,
         tracer.spanBuilder(TEST_1_FLOW_FLOW_REF).setSpanKind(SpanKind.INTERNAL));
     ComponentRegistryService componentRegistryService = mock(ComponentRegistryService.class);
+    when(componentRegistryService.findLocationParent(anyString()))
+        .thenAnswer(invocation -> ComponentsUtil.getLocationParent(invocation.getArgument(0)));
+    when(componentRegistryService.findLocationParent(any(TraceComponent.class)))
+        .thenAnswer(invocation -> ComponentsUtil
+            .getLocationParent(invocation.<TraceComponent>getArgument(0).getLocation()));
     MuleNotificationProcessor muleNotificationProcessor = new MuleNotificationProcessor(
         componentRegistryService);
     muleNotificationProcessor.init(connection, new TraceLevelConfiguration(true, Collections.emptyList()));
     interceptor = new ProcessorTracingInterceptor(muleNotificationProcessor);
     event = new TestInterceptionEvent(TEST_1_TRANSACTION_ID);
+    traceContext = connection.getTraceContext(TEST_1_TRANSACTION_ID);
+    otherTraceContext = new HashMap<>(traceContext);
+    otherTraceContext.put(TransactionStore.spanId, "53f9aa133a283c1a");
   }
 
   @Benchmark
@@ -85,6 +102,23 @@ public class ProcessorTracingInterceptorTest extends AbstractJMHTest {
     // ProcessorTracingInterceptorTest.interceptBefore thrpt 2 6163.569 ops/ms
   }
 
+  @Benchmark
+  @Measurement(iterations = 2)
+  @Warmup(iterations = 3)
+  public void replaceMDCOtelEntriesSameSpan() {
+    // Same span on the thread, MDC writes are skipped
+    MDCUtil.replaceMDCOtelEntries(traceContext);
+  }
+
+  @Benchmark
+  @Measurement(iterations = 2)
+  @Warmup(iterations = 3)
+  public void replaceMDCOtelEntriesChangingSpan() {
+    // Span changes on every call, MDC is written each time
+    MDCUtil.replaceMDCOtelEntries(traceContext);
+    MDCUtil.replaceMDCOtelEntries(otherTraceContext);
+  }
+
   @Override
   public int getIterations() {
     return 2;
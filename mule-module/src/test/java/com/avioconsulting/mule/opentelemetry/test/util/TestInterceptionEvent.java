@@ -22,6 +22,7 @@ public class TestInterceptionEvent implements InterceptionEvent {
   String correlationId;
   Map<String, TypedValue<?>> variables = new HashMap<>();
   private EventContext eventContext;
+  private Error error;
 
   public TestInterceptionEvent(String correlationId) {
     this.correlationId = correlationId;
@@ -79,7 +80,12 @@ public class TestInterceptionEvent implements InterceptionEvent {
 
   @Override
   public Optional<Error> getError() {
-    return Optional.empty();
+    return Optional.ofNullable(error);
+  }
+
+  public TestInterceptionEvent error(Error error) {
+    this.error = error;
+    return this;
   }
 
   @Override